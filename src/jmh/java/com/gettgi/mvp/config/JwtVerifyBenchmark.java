@@ -0,0 +1,81 @@
+package com.gettgi.mvp.config;
+
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.io.Decoders;
+import io.jsonwebtoken.io.Encoders;
+import io.jsonwebtoken.security.Keys;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of {@link JwtUtils#verify} per request with a ring of {@code keys} signing keys, for a token signed with
+ * the last key of the ring: {@code kid} selects its parser directly, while a legacy token without {@code kid}
+ * is tried against every key of the ring in turn.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JwtVerifyBenchmark {
+
+    @Param({"1", "3", "5"})
+    public int keys;
+
+    private JwtUtils jwtUtils;
+    private String kidToken;
+    private String legacyToken;
+
+    @Setup
+    public void setUp() {
+        List<String> secrets = new ArrayList<>(keys);
+        for (int i = 0; i < keys; i++) {
+            secrets.add(Encoders.BASE64.encode(("benchmark-signing-key-" + i + "-0123456789abcdefghij")
+                    .getBytes(StandardCharsets.UTF_8)));
+        }
+        JwtProperties properties = new JwtProperties();
+        properties.setSecretKey(secrets.get(0));
+        properties.setRotationKeys(secrets.subList(1, keys));
+        properties.setExpirationTime(TimeUnit.HOURS.toMillis(1));
+        jwtUtils = new JwtUtils(properties);
+        jwtUtils.initKeyRing();
+        for (int i = 1; i < keys; i++) {
+            jwtUtils.rotateSigningKey();
+        }
+
+        kidToken = jwtUtils.generateToken("221770000001");
+        legacyToken = Jwts.builder()
+                .setSubject("221770000001")
+                .setExpiration(Date.from(Instant.now().plusSeconds(3600)))
+                .signWith(Keys.hmacShaKeyFor(Decoders.BASE64.decode(secrets.get(keys - 1))), SignatureAlgorithm.HS256)
+                .compact();
+    }
+
+    @Benchmark
+    public JwtUtils.VerifiedToken verifyWithKid() {
+        return jwtUtils.verify(kidToken);
+    }
+
+    @Benchmark
+    public JwtUtils.VerifiedToken verifyLegacyWithoutKid() {
+        return jwtUtils.verify(legacyToken);
+    }
+}
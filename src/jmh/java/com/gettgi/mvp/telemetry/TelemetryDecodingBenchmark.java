@@ -0,0 +1,80 @@
+package com.gettgi.mvp.telemetry;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.gettgi.mvp.dto.telemetry.TelemetryIngestDto;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the streaming {@link TelemetryPayloadDecoder} with the previous decoding path
+ * (byte[] to String, readTree, ObjectNode enrichment, treeToValue).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TelemetryDecodingBenchmark {
+
+    private static final String TOPIC = "collars/123456789012345/telemetry";
+
+    @Param({"imeiInTopic", "imeiInPayload"})
+    public String variant;
+
+    private ObjectMapper objectMapper;
+    private TelemetryPayloadDecoder decoder;
+    private byte[] payload;
+
+    @Setup
+    public void setUp() {
+        objectMapper = new ObjectMapper()
+                .findAndRegisterModules()
+                .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+        decoder = new TelemetryPayloadDecoder(objectMapper);
+        String imeiField = "imeiInPayload".equals(variant) ? "\"deviceImei\":\"123456789012345\"," : "";
+        payload = ("{" + imeiField
+                + "\"timestamp\":\"2025-10-17T16:00:00Z\","
+                + "\"position\":{\"latitude\":14.706,\"longitude\":-17.467},"
+                + "\"speed\":1.25,\"accelX\":0.01,\"accelY\":-0.02,\"accelZ\":0.98,"
+                + "\"pressure\":0.93,\"batteryLevel\":78,\"gsmSignal\":3,"
+                + "\"statusCollar\":\"ACTIF\",\"transmissionStatus\":\"ENVOYE\"}")
+                .getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public TelemetryIngestDto streaming() throws IOException {
+        return decoder.decode(payload, TOPIC);
+    }
+
+    @Benchmark
+    public TelemetryIngestDto stringAndTree() throws IOException {
+        String payloadAsString = new String(payload, StandardCharsets.UTF_8);
+        JsonNode root = objectMapper.readTree(payloadAsString);
+        if (!(root instanceof ObjectNode objectNode)) {
+            return null;
+        }
+        JsonNode providedNode = objectNode.get("deviceImei");
+        String provided = providedNode != null ? providedNode.asText(null) : null;
+        if (provided == null || provided.isBlank()) {
+            objectNode.put("deviceImei", TelemetryTopics.extractImei(TOPIC));
+        }
+        return objectMapper.treeToValue(objectNode, TelemetryIngestDto.class);
+    }
+}
@@ -0,0 +1,76 @@
+package com.gettgi.mvp.telemetry;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.gettgi.mvp.dto.telemetry.TelemetryIngestDto;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.integration.mqtt.support.MqttHeaders;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.support.MessageBuilder;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Frames per second through {@link TelemetryMessageHandler}: topic resolution and payload decoding of an MQTT
+ * message as delivered by the inbound adapter, with ingestion replaced by a no-op.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TelemetryMessageHandlerBenchmark {
+
+    private TelemetryMessageHandler handler;
+    private Message<byte[]> message;
+
+    @Setup
+    public void setUp(Blackhole blackhole) {
+        ObjectMapper objectMapper = new ObjectMapper()
+                .findAndRegisterModules()
+                .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        TelemetryIngestionService ingestionService = new TelemetryIngestionService() {
+            @Override
+            public void ingest(TelemetryIngestDto dto) {
+                blackhole.consume(dto);
+            }
+
+            @Override
+            public void ingestBatch(List<TelemetryIngestDto> dtos) {
+                blackhole.consume(dtos);
+            }
+        };
+        handler = new TelemetryMessageHandler(new TelemetryPayloadDecoder(objectMapper), ingestionService,
+                new TelemetryIngestMetrics(meterRegistry), meterRegistry);
+        byte[] payload = ("{\"timestamp\":\"2025-10-17T16:00:00Z\","
+                + "\"position\":{\"latitude\":14.706,\"longitude\":-17.467},"
+                + "\"speed\":1.25,\"accelX\":0.01,\"accelY\":-0.02,\"accelZ\":0.98,"
+                + "\"pressure\":0.93,\"batteryLevel\":78,\"gsmSignal\":3,"
+                + "\"statusCollar\":\"ACTIF\",\"transmissionStatus\":\"ENVOYE\"}")
+                .getBytes(StandardCharsets.UTF_8);
+        message = MessageBuilder.withPayload(payload)
+                .setHeader(MqttHeaders.RECEIVED_TOPIC, "collars/123456789012345/telemetry")
+                .setHeader(MqttHeaders.RECEIVED_QOS, 1)
+                .build();
+    }
+
+    @Benchmark
+    public void handleMessage() {
+        handler.handleMessage(message);
+    }
+}
@@ -0,0 +1,91 @@
+package com.gettgi.mvp.telemetry.impl;
+
+import com.gettgi.mvp.dto.telemetry.GeofenceZoneDto;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.geom.Point;
+import org.locationtech.jts.geom.Polygon;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Instant;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-point cost of the geofence containment test on a 500 m circle drawn by the geofence API
+ * (65-vertex polygon): raw {@code Polygon.covers}, a prepared geometry behind a bounding-box check,
+ * and the center/radius haversine test.
+ * <p>
+ * {@code near} points fall within twice the radius, so few are rejected by the bounding box;
+ * {@code spread} points cover a 20 km square, as for a herd roaming far from its fence.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GeofenceContainmentBenchmark {
+
+    private static final double CENTER_LAT = 14.7167;
+    private static final double CENTER_LON = -17.4677;
+    private static final double RADIUS_METERS = 500;
+    private static final int POINTS = 1024;
+
+    @Param({"near", "spread"})
+    public String distribution;
+
+    private Polygon zone;
+    private PreparedGeofence preparedPolygon;
+    private PreparedGeofence preparedCircle;
+    private Point[] points;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        zone = PreparedGeofenceIndexTest.circle(CENTER_LAT, CENTER_LON, RADIUS_METERS);
+        preparedPolygon = PreparedGeofence.of(new GeofenceZoneDto(UUID.randomUUID(), "Ferme"), null, Instant.now(), zone, null);
+        preparedCircle = PreparedGeofence.of(new GeofenceZoneDto(UUID.randomUUID(), "Ferme"), null, Instant.now(), zone, RADIUS_METERS);
+
+        double span = "near".equals(distribution) ? 0.02 : 0.2;
+        GeometryFactory geometryFactory = new GeometryFactory();
+        Random random = new Random(42);
+        points = new Point[POINTS];
+        for (int i = 0; i < POINTS; i++) {
+            points[i] = geometryFactory.createPoint(new Coordinate(
+                    CENTER_LON + (random.nextDouble() - 0.5) * span,
+                    CENTER_LAT + (random.nextDouble() - 0.5) * span));
+        }
+    }
+
+    private Point nextPoint() {
+        next = (next + 1) & (POINTS - 1);
+        return points[next];
+    }
+
+    @Benchmark
+    public boolean rawPolygonCovers() {
+        return zone.covers(nextPoint());
+    }
+
+    @Benchmark
+    public boolean preparedPolygon() {
+        return preparedPolygon.covers(nextPoint());
+    }
+
+    @Benchmark
+    public boolean circleHaversine() {
+        return preparedCircle.covers(nextPoint());
+    }
+}
@@ -0,0 +1,90 @@
+package com.gettgi.mvp.telemetry.impl;
+
+import com.gettgi.mvp.entity.Geofence;
+import com.gettgi.mvp.telemetry.DeviceSnapshot;
+import com.gettgi.mvp.telemetry.GeofenceMatch;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.geom.Point;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-point cost of locating a position among the zones of one owner: {@link PreparedGeofenceIndex#locate}
+ * through its STRtree, against testing every prepared zone in turn. Points are spread over the whole grid
+ * of zones, so most of them fall outside all zones.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GeofenceIndexBenchmark {
+
+    private static final int POINTS = 1024;
+
+    @Param({"1", "16", "256"})
+    public int zones;
+
+    private PreparedGeofenceIndex index;
+    private DeviceSnapshot device;
+    private PreparedGeofence[] prepared;
+    private Point[] points;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        device = TelemetryBenchmarkFixture.device();
+        List<Geofence> geofences = TelemetryBenchmarkFixture.zones(zones);
+        index = TelemetryBenchmarkFixture.geofenceIndex(device, geofences, new SimpleMeterRegistry());
+        prepared = geofences.stream().map(PreparedGeofence::of).toArray(PreparedGeofence[]::new);
+
+        double span = 0.05 * Math.ceil(Math.sqrt(zones));
+        GeometryFactory geometryFactory = new GeometryFactory();
+        Random random = new Random(42);
+        points = new Point[POINTS];
+        for (int i = 0; i < POINTS; i++) {
+            points[i] = geometryFactory.createPoint(new Coordinate(
+                    TelemetryBenchmarkFixture.FARM_LON - 0.025 + random.nextDouble() * span,
+                    TelemetryBenchmarkFixture.FARM_LAT - 0.025 + random.nextDouble() * span));
+        }
+        index.locate(device.ownerId(), null, points[0]);
+    }
+
+    private Point nextPoint() {
+        next = (next + 1) & (POINTS - 1);
+        return points[next];
+    }
+
+    @Benchmark
+    public GeofenceMatch strTree() {
+        return index.locate(device.ownerId(), null, nextPoint());
+    }
+
+    @Benchmark
+    public int linearScan() {
+        Point point = nextPoint();
+        int containing = 0;
+        for (PreparedGeofence zone : prepared) {
+            if (zone.covers(point)) {
+                containing++;
+            }
+        }
+        return containing;
+    }
+}
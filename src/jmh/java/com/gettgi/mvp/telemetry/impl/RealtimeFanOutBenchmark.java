@@ -0,0 +1,165 @@
+package com.gettgi.mvp.telemetry.impl;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.gettgi.mvp.config.TelemetryRealtimeProperties;
+import com.gettgi.mvp.dto.telemetry.GeoPointDto;
+import com.gettgi.mvp.dto.telemetry.RealtimePositionDto;
+import com.gettgi.mvp.entity.enums.StatusCollar;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.converter.MappingJackson2MessageConverter;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.simp.broker.SimpleBrokerMessageHandler;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.simp.user.DefaultUserDestinationResolver;
+import org.springframework.messaging.simp.user.UserDestinationMessageHandler;
+import org.springframework.messaging.support.ExecutorSubscribableChannel;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.web.socket.messaging.DefaultSimpUserRegistry;
+import org.springframework.web.socket.messaging.SessionConnectedEvent;
+import org.springframework.web.socket.messaging.SessionSubscribeEvent;
+
+import java.security.Principal;
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Positions per second published through {@link RealtimeMessagingServiceImpl#publishPosition} to one owner
+ * connected from {@code sessions} STOMP sessions, each subscribed to the animals queue and to the queue of the
+ * animal, in the {@code format} negotiated with {@link RealtimePositionFanOut}. Messages go through the owner outbox, user destination resolution and simple broker as in the
+ * application, all on the calling thread; the client outbound channel only consumes them.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RealtimeFanOutBenchmark {
+
+    @Param({"1", "4", "16"})
+    public int sessions;
+
+    @Param({"full", "delta"})
+    public String format;
+
+    private RealtimeMessagingServiceImpl service;
+    private RealtimePositionDto position;
+    private SimpleBrokerMessageHandler broker;
+    private UserDestinationMessageHandler userDestinationHandler;
+    private RealtimePositionFanOut fanOut;
+    private long sequence;
+
+    @Setup
+    public void setUp(Blackhole blackhole) {
+        ExecutorSubscribableChannel clientInboundChannel = new ExecutorSubscribableChannel();
+        ExecutorSubscribableChannel clientOutboundChannel = new ExecutorSubscribableChannel();
+        ExecutorSubscribableChannel brokerChannel = new ExecutorSubscribableChannel();
+        clientOutboundChannel.subscribe(blackhole::consume);
+
+        broker = new SimpleBrokerMessageHandler(clientInboundChannel, clientOutboundChannel, brokerChannel,
+                List.of("/topic", "/queue"));
+        DefaultSimpUserRegistry userRegistry = new DefaultSimpUserRegistry();
+        userDestinationHandler = new UserDestinationMessageHandler(clientInboundChannel, brokerChannel,
+                new DefaultUserDestinationResolver(userRegistry));
+        broker.start();
+        userDestinationHandler.start();
+
+        ObjectMapper objectMapper = new ObjectMapper()
+                .findAndRegisterModules()
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        MappingJackson2MessageConverter converter = new MappingJackson2MessageConverter();
+        converter.setObjectMapper(objectMapper);
+        SimpMessagingTemplate messagingTemplate = new SimpMessagingTemplate(brokerChannel);
+        messagingTemplate.setMessageConverter(converter);
+        // no rate limit: every position is serialized and sent
+        TelemetryRealtimeProperties properties = new TelemetryRealtimeProperties();
+        properties.setMaxPositionRate(0);
+        fanOut = new RealtimePositionFanOut(messagingTemplate, properties, new SimpleMeterRegistry());
+
+        Principal owner = () -> TelemetryBenchmarkFixture.OWNER_TELEPHONE;
+        UUID animalId = UUID.randomUUID();
+        for (int i = 0; i < sessions; i++) {
+            String sessionId = "session-" + i;
+            userRegistry.onApplicationEvent(new SessionConnectedEvent(this,
+                    stompMessage(SimpMessageType.CONNECT_ACK, sessionId, null, null), owner));
+            clientInboundChannel.send(stompMessage(SimpMessageType.CONNECT, sessionId, null, null));
+            clientInboundChannel.send(stompMessage(SimpMessageType.SUBSCRIBE, sessionId, "sub-0",
+                    "/queue/animals-user" + sessionId));
+            clientInboundChannel.send(stompMessage(SimpMessageType.SUBSCRIBE, sessionId, "sub-1",
+                    "/queue/animals/" + animalId + "-user" + sessionId));
+            // as the client sent them, before user destination resolution
+            fanOut.onSubscribe(new SessionSubscribeEvent(this,
+                    subscribeFrame(sessionId, "sub-0", "/user/queue/animals"), owner));
+            fanOut.onSubscribe(new SessionSubscribeEvent(this,
+                    subscribeFrame(sessionId, "sub-1", "/user/queue/animals/" + animalId), owner));
+        }
+
+        service = new RealtimeMessagingServiceImpl(new RealtimeOutboundDispatcher(messagingTemplate, fanOut,
+                event -> { }, new TelemetryRealtimeProperties(), new SimpleMeterRegistry(), Runnable::run),
+                RealtimeRelay.NONE);
+
+        position = new RealtimePositionDto(animalId, "Bessie", UUID.randomUUID(), TelemetryBenchmarkFixture.IMEI,
+                new GeoPointDto(TelemetryBenchmarkFixture.FARM_LAT, TelemetryBenchmarkFixture.FARM_LON),
+                1.25, 78, 3, StatusCollar.ACTIF, Instant.parse("2025-10-17T16:00:00Z"),
+                true, null, null, List.of(), List.of());
+    }
+
+    @TearDown
+    public void tearDown() {
+        fanOut.destroy();
+        userDestinationHandler.stop();
+        broker.stop();
+    }
+
+    private static Message<byte[]> stompMessage(SimpMessageType type, String sessionId,
+                                                 String subscriptionId, String destination) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(type);
+        accessor.setSessionId(sessionId);
+        accessor.setSubscriptionId(subscriptionId);
+        accessor.setDestination(destination);
+        return MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders());
+    }
+
+    private Message<byte[]> subscribeFrame(String sessionId, String subscriptionId, String destination) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.create(StompCommand.SUBSCRIBE);
+        accessor.setSessionId(sessionId);
+        accessor.setSubscriptionId(subscriptionId);
+        accessor.setDestination(destination);
+        accessor.setNativeHeader(RealtimePositionFanOut.FORMAT_HEADER, format);
+        return MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders());
+    }
+
+    /**
+     * Each position moves the animal and drains its battery, as consecutive frames of a collar would.
+     */
+    @Benchmark
+    public void publishPosition() {
+        long step = sequence++;
+        service.publishPosition(TelemetryBenchmarkFixture.OWNER_TELEPHONE, new RealtimePositionDto(
+                position.animalId(), position.animalLabel(), position.deviceId(), position.deviceImei(),
+                new GeoPointDto(position.position().latitude() + (step % 100) * 1e-5, position.position().longitude()),
+                position.speed(), 100 - (int) (step % 100), position.gsmSignal(), position.collarStatus(),
+                position.timestamp().plusSeconds(step), position.insideGeofence(), position.geofenceId(),
+                position.geofenceName(), position.zones(), position.activeAlerts()));
+    }
+}
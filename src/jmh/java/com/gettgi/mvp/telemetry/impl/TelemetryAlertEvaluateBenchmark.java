@@ -0,0 +1,89 @@
+package com.gettgi.mvp.telemetry.impl;
+
+import com.gettgi.mvp.dto.telemetry.TelemetryIngestDto;
+import com.gettgi.mvp.entity.Device;
+import com.gettgi.mvp.entity.Telemetry;
+import com.gettgi.mvp.repository.AlerteRepository;
+import com.gettgi.mvp.telemetry.DeviceSnapshot;
+import com.gettgi.mvp.telemetry.TelemetryAlertResult;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.geom.Point;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Frames per second through {@link TelemetryAlertServiceImpl#evaluate} once the alert state of the animal
+ * is held in memory. {@code inside} frames stay in the first zone; {@code outside} frames are 2 km north of
+ * it, so the geofence exit alert is opened during set-up and every measured frame keeps it open.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TelemetryAlertEvaluateBenchmark {
+
+    private static final int FRAMES = 1024;
+
+    @Param({"inside", "outside"})
+    public String position;
+
+    @Param({"1", "16"})
+    public int zones;
+
+    private TelemetryAlertServiceImpl service;
+    private DeviceSnapshot device;
+    private Telemetry[] telemetries;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        device = TelemetryBenchmarkFixture.device();
+        AlerteRepository alerteRepository = TelemetryBenchmarkFixture.alerteRepository();
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        service = TelemetryBenchmarkFixture.alertService(device, alerteRepository,
+                TelemetryBenchmarkFixture.geofenceIndex(device, TelemetryBenchmarkFixture.zones(zones), meterRegistry),
+                new ActiveAlertRegistryImpl(alerteRepository, meterRegistry));
+
+        Device reference = new Device();
+        reference.setId(device.deviceId());
+        GeometryFactory geometryFactory = new GeometryFactory();
+        TelemetryIngestDto[] frames = TelemetryBenchmarkFixture.frames(FRAMES, "inside".equals(position) ? 0 : 0.018);
+        telemetries = new Telemetry[FRAMES];
+        for (int i = 0; i < FRAMES; i++) {
+            TelemetryIngestDto frame = frames[i];
+            Point point = geometryFactory.createPoint(new Coordinate(frame.position().longitude(), frame.position().latitude()));
+            point.setSRID(4326);
+            Telemetry telemetry = new Telemetry();
+            telemetry.setDevice(reference);
+            telemetry.setPosition(point);
+            telemetry.setTs(frame.timestamp());
+            telemetry.setSpeed(frame.speed());
+            telemetry.setPressure(frame.pressure());
+            telemetry.setBatteryLevel(frame.batteryLevel());
+            telemetry.setStatusCollar(frame.statusCollar());
+            telemetries[i] = telemetry;
+        }
+        service.evaluate(device, telemetries[0]);
+    }
+
+    @Benchmark
+    public TelemetryAlertResult evaluate() {
+        next = (next + 1) & (FRAMES - 1);
+        return service.evaluate(device, telemetries[next]);
+    }
+}
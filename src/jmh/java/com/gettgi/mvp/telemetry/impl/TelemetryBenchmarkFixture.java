@@ -0,0 +1,168 @@
+package com.gettgi.mvp.telemetry.impl;
+
+import com.gettgi.mvp.config.TelemetryAlertProperties;
+import com.gettgi.mvp.dto.telemetry.GeoPointDto;
+import com.gettgi.mvp.dto.telemetry.TelemetryIngestDto;
+import com.gettgi.mvp.entity.Alerte;
+import com.gettgi.mvp.entity.Animal;
+import com.gettgi.mvp.entity.Geofence;
+import com.gettgi.mvp.entity.enums.StatusCollar;
+import com.gettgi.mvp.entity.enums.StatutTransmission;
+import com.gettgi.mvp.repository.AlerteRepository;
+import com.gettgi.mvp.repository.AnimalRepository;
+import com.gettgi.mvp.repository.GeofenceRepository;
+import com.gettgi.mvp.repository.UserRepository;
+import com.gettgi.mvp.telemetry.DeviceSnapshot;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Proxy;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Random;
+import java.util.UUID;
+import java.util.function.Function;
+
+
+/**
+ * Shared set-up of the telemetry hot path benchmarks: one collar worn by an animal whose owner has
+ * {@code zones} circular geofences of 500 m laid on a grid, the first one centered on the farm.
+ * <p>
+ * Repositories are JDK proxies answering a few methods by name, everything else returning an empty or
+ * {@code null} result: Mockito walks the stack on every invocation, which would dominate the scores.
+ */
+final class TelemetryBenchmarkFixture {
+
+    static final String IMEI = "123456789012345";
+    static final String TOPIC = "collars/" + IMEI + "/telemetry";
+    static final String OWNER_TELEPHONE = "221770000001";
+    static final double FARM_LAT = 14.7167;
+    static final double FARM_LON = -17.4677;
+    static final double ZONE_RADIUS_METERS = 500;
+    // 0.05 degrees is about 5.5 km: zones never overlap
+    private static final double ZONE_SPACING = 0.05;
+    private static final Instant START = Instant.parse("2025-10-17T16:00:00Z");
+
+    private TelemetryBenchmarkFixture() {
+    }
+
+    static DeviceSnapshot device() {
+        return new DeviceSnapshot(UUID.randomUUID(), IMEI, StatusCollar.ACTIF, UUID.randomUUID(), "Bessie", null,
+                UUID.randomUUID(), OWNER_TELEPHONE, null, null);
+    }
+
+    static <T> T stub(Class<T> type) {
+        return stub(type, Map.of());
+    }
+
+    static <T> T stub(Class<T> type, Map<String, Function<Object[], Object>> answers) {
+        InvocationHandler handler = (proxy, method, args) -> {
+            Function<Object[], Object> answer = answers.get(method.getName());
+            if (answer != null) {
+                return answer.apply(args);
+            }
+            return switch (method.getName()) {
+                case "equals" -> proxy == args[0];
+                case "hashCode" -> System.identityHashCode(proxy);
+                case "toString" -> type.getSimpleName() + " stub";
+                default -> emptyResult(method.getReturnType());
+            };
+        };
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, handler));
+    }
+
+    private static Object emptyResult(Class<?> type) {
+        if (type == boolean.class) {
+            return false;
+        }
+        if (type == int.class) {
+            return 0;
+        }
+        if (type == long.class) {
+            return 0L;
+        }
+        if (List.class.isAssignableFrom(type)) {
+            return List.of();
+        }
+        if (type == Optional.class) {
+            return Optional.empty();
+        }
+        return null;
+    }
+
+    static List<Geofence> zones(int count) {
+        List<Geofence> zones = new ArrayList<>(count);
+        int columns = (int) Math.ceil(Math.sqrt(count));
+        for (int i = 0; i < count; i++) {
+            Geofence zone = new Geofence();
+            zone.setId(UUID.randomUUID());
+            zone.setNom("Zone " + i);
+            zone.setRadiusMeters(ZONE_RADIUS_METERS);
+            zone.setZone(PreparedGeofenceIndexTest.circle(
+                    FARM_LAT + (i / columns) * ZONE_SPACING,
+                    FARM_LON + (i % columns) * ZONE_SPACING,
+                    ZONE_RADIUS_METERS));
+            zone.setUpdatedAt(Instant.EPOCH);
+            zones.add(zone);
+        }
+        return zones;
+    }
+
+    /**
+     * Geofence index over {@code zones}, already loaded for the owner of {@code device}.
+     */
+    static PreparedGeofenceIndex geofenceIndex(DeviceSnapshot device, List<Geofence> zones, MeterRegistry meterRegistry) {
+        GeofenceRepository geofenceRepository = stub(GeofenceRepository.class,
+                Map.of("findAllByUser_IdOrderByCreatedAtAsc", args -> zones));
+        return new PreparedGeofenceIndex(geofenceRepository, meterRegistry);
+    }
+
+    /**
+     * Alert repository stub whose {@code save} hands back the alert with a fresh id.
+     */
+    static AlerteRepository alerteRepository() {
+        return stub(AlerteRepository.class, Map.of("save", args -> {
+            Alerte alert = (Alerte) args[0];
+            alert.setId(UUID.randomUUID());
+            return alert;
+        }));
+    }
+
+    static TelemetryAlertServiceImpl alertService(DeviceSnapshot device, AlerteRepository alerteRepository,
+                                                  PreparedGeofenceIndex geofenceIndex,
+                                                  ActiveAlertRegistryImpl activeAlertRegistry) {
+        Animal animal = new Animal();
+        animal.setId(device.animalId());
+        AnimalRepository animalRepository = stub(AnimalRepository.class, Map.of("getReferenceById", args -> animal));
+        return new TelemetryAlertServiceImpl(alerteRepository, animalRepository, stub(UserRepository.class),
+                new TelemetryAlertProperties(), activeAlertRegistry, geofenceIndex);
+    }
+
+    /**
+     * Frames spread around the farm, {@code offsetDegrees} north of it: 0 keeps them within 300 m of the center.
+     */
+    static TelemetryIngestDto[] frames(int count, double offsetDegrees) {
+        Random random = new Random(42);
+        TelemetryIngestDto[] frames = new TelemetryIngestDto[count];
+        for (int i = 0; i < count; i++) {
+            GeoPointDto position = new GeoPointDto(
+                    FARM_LAT + offsetDegrees + (random.nextDouble() - 0.5) * 0.004,
+                    FARM_LON + (random.nextDouble() - 0.5) * 0.004);
+            frames[i] = new TelemetryIngestDto(IMEI, START.plusSeconds(i * 10L), position, random.nextDouble() * 2,
+                    0.01, -0.02, 0.98, 0.93, 78, 3, StatusCollar.ACTIF, StatutTransmission.ENVOYE);
+        }
+        return frames;
+    }
+
+    /**
+     * Copy of {@code frame} sent {@code sequence} periods of 10 s after the first frame.
+     */
+    static TelemetryIngestDto stamped(TelemetryIngestDto frame, long sequence) {
+        return new TelemetryIngestDto(frame.deviceImei(), START.plusSeconds(sequence * 10L), frame.position(),
+                frame.speed(), frame.accelX(), frame.accelY(), frame.accelZ(), frame.pressure(), frame.batteryLevel(),
+                frame.gsmSignal(), frame.statusCollar(), frame.transmissionStatus());
+    }
+}
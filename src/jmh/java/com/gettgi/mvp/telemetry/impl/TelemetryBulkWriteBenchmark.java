@@ -0,0 +1,162 @@
+package com.gettgi.mvp.telemetry.impl;
+
+import com.gettgi.mvp.entity.Device;
+import com.gettgi.mvp.entity.Telemetry;
+import com.gettgi.mvp.entity.enums.StatusCollar;
+import com.gettgi.mvp.entity.enums.StatutTransmission;
+import com.gettgi.mvp.repository.TelemetryRepository;
+import com.gettgi.mvp.telemetry.TelemetryBatchWriter;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.geom.Point;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.SpringBootConfiguration;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.jpa.repository.config.EnableJpaAuditing;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time to write one batch of telemetry rows with each {@link TelemetryBatchWriter} strategy.
+ * Rows per second is {@code batchSize / score}.
+ * <p>
+ * Needs a PostgreSQL database with PostGIS; the schema is created by Hibernate if missing:
+ * <pre>
+ * mvn -Pjmh test-compile exec:exec -Djmh.args="TelemetryBulkWriteBenchmark -jvmArgsAppend
+ *     '-Dbench.jdbc.url=jdbc:postgresql://localhost:5432/gettgi -Dbench.jdbc.username=postgres -Dbench.jdbc.password=postgres'"
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class TelemetryBulkWriteBenchmark {
+
+    @Param({"saveAll", "jdbcBatch", "jdbcBatchRewrite", "copy"})
+    public String writer;
+
+    @Param({"100", "1000"})
+    public int batchSize;
+
+    private static final GeometryFactory GEOMETRY_FACTORY = new GeometryFactory();
+
+    private ConfigurableApplicationContext context;
+    private JdbcTemplate jdbcTemplate;
+    private TelemetryBatchWriter batchWriter;
+    private Device device;
+    private List<Telemetry> batch;
+    private long sequence;
+
+    @Setup(Level.Trial)
+    public void startContext() {
+        String url = System.getProperty("bench.jdbc.url", "jdbc:postgresql://localhost:5432/gettgi");
+        if ("jdbcBatchRewrite".equals(writer)) {
+            url += (url.contains("?") ? "&" : "?") + "reWriteBatchedInserts=true";
+        }
+        context = new SpringApplicationBuilder(BenchmarkConfig.class)
+                .web(WebApplicationType.NONE)
+                .properties(Map.of(
+                        "spring.datasource.url", url,
+                        "spring.datasource.username", System.getProperty("bench.jdbc.username", "postgres"),
+                        "spring.datasource.password", System.getProperty("bench.jdbc.password", "postgres"),
+                        "spring.jpa.hibernate.ddl-auto", "update",
+                        "spring.jpa.properties.hibernate.jdbc.batch_size", String.valueOf(batchSize),
+                        "spring.jpa.properties.hibernate.order_inserts", "true",
+                        "logging.level.root", "WARN"
+                ))
+                .run();
+
+        jdbcTemplate = context.getBean(JdbcTemplate.class);
+        TransactionTemplate transactionTemplate = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+        batchWriter = switch (writer) {
+            case "saveAll" -> new JpaTelemetryBatchWriter(context.getBean(TelemetryRepository.class), transactionTemplate);
+            case "jdbcBatch", "jdbcBatchRewrite" -> new JdbcTelemetryBatchWriter(jdbcTemplate, transactionTemplate, batchSize);
+            case "copy" -> new CopyTelemetryBatchWriter(context.getBean(DataSource.class), transactionTemplate);
+            default -> throw new IllegalArgumentException("Unknown writer " + writer);
+        };
+
+        device = new Device();
+        device.setId(UUID.randomUUID());
+        String imei = String.valueOf(100_000_000_000_000L + (System.nanoTime() % 899_999_999_999_999L));
+        jdbcTemplate.update("insert into device (id, created_at, updated_at, imei) values (?, now(), now(), ?)",
+                device.getId(), imei);
+    }
+
+    // Hibernate assigns ids to the entities it persists, so every invocation needs fresh instances.
+    @Setup(Level.Invocation)
+    public void prepareBatch() {
+        batch = new ArrayList<>(batchSize);
+        Instant base = Instant.parse("2025-10-17T16:00:00Z");
+        for (int i = 0; i < batchSize; i++) {
+            long n = sequence++;
+            Point position = GEOMETRY_FACTORY.createPoint(new Coordinate(-17.467 + (n % 1000) * 1e-5, 14.706));
+            position.setSRID(4326);
+            Telemetry telemetry = new Telemetry();
+            telemetry.setDevice(device);
+            telemetry.setPosition(position);
+            telemetry.setSpeed(1.25);
+            telemetry.setAccelX(0.01);
+            telemetry.setAccelY(-0.02);
+            telemetry.setAccelZ(0.98);
+            telemetry.setPressure(0.93);
+            telemetry.setBatteryLevel(78);
+            telemetry.setGsmSignal(3);
+            telemetry.setTransmissionStatus(StatutTransmission.ENVOYE);
+            telemetry.setStatusCollar(StatusCollar.ACTIF);
+            telemetry.setTs(base.plusSeconds(n));
+            batch.add(telemetry);
+        }
+    }
+
+    @Benchmark
+    public void writeBatch() {
+        batchWriter.write(batch);
+    }
+
+    @TearDown(Level.Iteration)
+    public void deleteRows() {
+        jdbcTemplate.update("delete from telemetry where device_id = ?", device.getId());
+    }
+
+    @TearDown(Level.Trial)
+    public void stopContext() {
+        jdbcTemplate.update("delete from device where id = ?", device.getId());
+        context.close();
+    }
+
+    @SpringBootConfiguration
+    @EnableAutoConfiguration
+    @EntityScan(basePackageClasses = Telemetry.class)
+    @EnableJpaRepositories(basePackageClasses = TelemetryRepository.class)
+    @EnableJpaAuditing
+    static class BenchmarkConfig {
+    }
+}
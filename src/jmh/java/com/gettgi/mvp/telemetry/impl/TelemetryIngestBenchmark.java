@@ -0,0 +1,149 @@
+package com.gettgi.mvp.telemetry.impl;
+
+import com.gettgi.mvp.config.TelemetryIngestProperties;
+import com.gettgi.mvp.config.TelemetryOfflineProperties;
+import com.gettgi.mvp.config.TelemetryPersistenceProperties;
+import com.gettgi.mvp.dto.telemetry.AlertNotificationDto;
+import com.gettgi.mvp.dto.telemetry.RealtimePositionDto;
+import com.gettgi.mvp.dto.telemetry.TelemetryIngestDto;
+import com.gettgi.mvp.entity.Device;
+import com.gettgi.mvp.entity.enums.StatusCollar;
+import com.gettgi.mvp.repository.AlerteRepository;
+import com.gettgi.mvp.repository.AnimalRepository;
+import com.gettgi.mvp.repository.DeviceRepository;
+import com.gettgi.mvp.telemetry.DeviceRegistry;
+import com.gettgi.mvp.telemetry.DeviceSnapshot;
+import com.gettgi.mvp.telemetry.LivePositionStore;
+import com.gettgi.mvp.telemetry.RealtimeMessagingService;
+import com.gettgi.mvp.telemetry.TelemetryIngestMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Frames per second through {@link TelemetryIngestionServiceImpl#ingest} for a known collar, and through
+ * {@link TelemetryIngestionServiceImpl#ingestBatch} for replays of {@value #REPLAY} frames, with the real
+ * alert evaluation, geofence index and offline check but stub repositories, no-op persistence buffering
+ * and no STOMP delivery (see {@link RealtimeFanOutBenchmark}). Frames stay inside the first zone, so no
+ * alert is raised: this is the steady state of a grazing herd.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TelemetryIngestBenchmark {
+
+    private static final int FRAMES = 1024;
+    static final int REPLAY = 32;
+
+    @Param({"1", "16"})
+    public int zones;
+
+    private TelemetryIngestionServiceImpl service;
+    private TelemetryIngestDto[] frames;
+    private int next;
+    // frames are stamped on the fly so that they stay ahead of the collar watermark
+    private long sequence;
+
+    @Setup
+    public void setUp(Blackhole blackhole) {
+        DeviceSnapshot device = TelemetryBenchmarkFixture.device();
+        Optional<DeviceSnapshot> found = Optional.of(device);
+        DeviceRegistry deviceRegistry = new DeviceRegistry() {
+            @Override
+            public Optional<DeviceSnapshot> find(String imei) {
+                return found;
+            }
+
+            @Override
+            public void statusCollarChanged(String imei, StatusCollar statusCollar) {
+            }
+        };
+        RealtimeMessagingService realtimeMessagingService = new RealtimeMessagingService() {
+            @Override
+            public void publishPosition(String userTelephone, RealtimePositionDto position) {
+                blackhole.consume(position);
+            }
+
+            @Override
+            public void publishAlert(String userTelephone, UUID userId, AlertNotificationDto alert) {
+                blackhole.consume(alert);
+            }
+
+            @Override
+            public void publishAlerts(String userTelephone, UUID userId, List<AlertNotificationDto> alerts) {
+                blackhole.consume(alerts);
+            }
+        };
+
+        Device reference = new Device();
+        reference.setId(device.deviceId());
+        DeviceRepository deviceRepository = TelemetryBenchmarkFixture.stub(DeviceRepository.class,
+                Map.of("getReferenceById", args -> reference));
+        AnimalRepository animalRepository = TelemetryBenchmarkFixture.stub(AnimalRepository.class);
+        AlerteRepository alerteRepository = TelemetryBenchmarkFixture.alerteRepository();
+
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        // never flushed here: the write-back runs on its own schedule
+        LivePositionStore livePositionStore = new LivePositionStoreImpl(null, new TelemetryPersistenceProperties(), meterRegistry);
+        ActiveAlertRegistryImpl activeAlertRegistry = new ActiveAlertRegistryImpl(alerteRepository, meterRegistry);
+        PreparedGeofenceIndex geofenceIndex = TelemetryBenchmarkFixture.geofenceIndex(device,
+                TelemetryBenchmarkFixture.zones(zones), meterRegistry);
+
+        service = new TelemetryIngestionServiceImpl(
+                deviceRegistry,
+                deviceRepository,
+                livePositionStore,
+                new GeometryFactory(),
+                TelemetryBenchmarkFixture.alertService(device, alerteRepository, geofenceIndex, activeAlertRegistry),
+                realtimeMessagingService,
+                blackhole::consume,
+                new TelemetryOfflineMonitorService(new TelemetryOfflineProperties(), animalRepository,
+                        alerteRepository, alerts -> blackhole.consume(alerts), realtimeMessagingService, activeAlertRegistry,
+                        livePositionStore, meterRegistry),
+                new TelemetryIngestProperties(),
+                new TelemetryFrameDeduplicator(new TelemetryIngestProperties(), meterRegistry),
+                new TelemetryIngestMetrics(meterRegistry),
+                meterRegistry
+        );
+        frames = TelemetryBenchmarkFixture.frames(FRAMES, 0);
+    }
+
+    @Benchmark
+    public void ingest() {
+        next = (next + 1) & (FRAMES - 1);
+        service.ingest(TelemetryBenchmarkFixture.stamped(frames[next], sequence++));
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(REPLAY)
+    public void ingestReplay() {
+        List<TelemetryIngestDto> replay = new ArrayList<>(REPLAY);
+        for (int i = 0; i < REPLAY; i++) {
+            next = (next + 1) & (FRAMES - 1);
+            replay.add(TelemetryBenchmarkFixture.stamped(frames[next], sequence++));
+        }
+        service.ingestBatch(replay);
+    }
+}
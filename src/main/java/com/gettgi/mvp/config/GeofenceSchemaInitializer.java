@@ -0,0 +1,61 @@
+package com.gettgi.mvp.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Composant qui adapte la table geofence aux zones multiples par utilisateur.
+ *
+ * Les schémas créés avant le passage à plusieurs zones portent une contrainte
+ * d'unicité sur geofence.user_id, que {@code ddl-auto=update} ne supprime pas :
+ * elle est retirée ici au démarrage, sans effet si elle n'existe plus.
+ */
+@Component
+@Slf4j
+public class GeofenceSchemaInitializer {
+
+    private static final String DROP_USER_UNIQUE_CONSTRAINT_SQL = """
+            DO $$
+            DECLARE
+                constraint_name text;
+            BEGIN
+                FOR constraint_name IN
+                    SELECT c.conname
+                    FROM pg_constraint c
+                    JOIN pg_class t ON t.oid = c.conrelid
+                    JOIN pg_attribute a ON a.attrelid = t.oid AND a.attnum = ANY (c.conkey)
+                    WHERE t.relname = 'geofence'
+                      AND c.contype = 'u'
+                      AND array_length(c.conkey, 1) = 1
+                      AND a.attname = 'user_id'
+                LOOP
+                    EXECUTE format('ALTER TABLE geofence DROP CONSTRAINT %I', constraint_name);
+                    RAISE NOTICE 'Contrainte % supprimée', constraint_name;
+                END LOOP;
+            END $$
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public GeofenceSchemaInitializer(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Supprime l'ancienne contrainte d'unicité sur geofence.user_id après l'initialisation de Hibernate.
+     */
+    @EventListener(ContextRefreshedEvent.class)
+    @Order(1000)
+    public void dropSingleGeofenceConstraint() {
+        try {
+            jdbcTemplate.execute(DROP_USER_UNIQUE_CONSTRAINT_SQL);
+            log.debug("Contrainte d'unicité geofence.user_id vérifiée");
+        } catch (Exception e) {
+            log.warn("Impossible de supprimer la contrainte d'unicité sur geofence.user_id : {}", e.getMessage());
+        }
+    }
+}
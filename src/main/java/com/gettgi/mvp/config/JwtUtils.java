@@ -1,27 +1,36 @@
 package com.gettgi.mvp.config;
 
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.JwsHeader;
 import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
+import io.jsonwebtoken.JwtParserBuilder;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.SigningKeyResolverAdapter;
 import io.jsonwebtoken.io.Decoders;
 import io.jsonwebtoken.security.Keys;
+import io.jsonwebtoken.security.SignatureException;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.scheduling.annotation.Scheduled;
-import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Component;
 import org.springframework.util.CollectionUtils;
 
 import jakarta.annotation.PostConstruct;
 import java.security.Key;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.atomic.AtomicInteger;
-import java.util.function.Function;
 
 @Slf4j
 @Component
@@ -32,6 +41,9 @@ public class JwtUtils {
 
     private final AtomicInteger currentKeyIndex = new AtomicInteger(0);
     private List<KeyHolder> keyRing = List.of();
+    private Map<String, KeyHolder> keysById = Map.of();
+    // resolves the key from the kid header, so that a token costs a single signature check
+    private JwtParser kidParser;
 
     @PostConstruct
     void initKeyRing() {
@@ -41,20 +53,31 @@ public class JwtUtils {
         }
 
         List<KeyHolder> holders = new ArrayList<>();
-        int index = 0;
         for (String encoded : encodedKeys) {
             String trimmed = encoded != null ? encoded.trim() : "";
             if (trimmed.isEmpty()) {
                 continue;
             }
             Key key = Keys.hmacShaKeyFor(Decoders.BASE64.decode(trimmed));
-            holders.add(new KeyHolder("k" + index, key));
-            index++;
+            holders.add(new KeyHolder(keyId(key), key, parser(Jwts.parserBuilder().setSigningKey(key))));
         }
         if (holders.isEmpty()) {
             throw new IllegalStateException("Configured JWT keys are empty after trimming");
         }
         this.keyRing = List.copyOf(holders);
+        Map<String, KeyHolder> byId = new HashMap<>();
+        holders.forEach(holder -> byId.put(holder.id(), holder));
+        this.keysById = Map.copyOf(byId);
+        this.kidParser = parser(Jwts.parserBuilder().setSigningKeyResolver(new SigningKeyResolverAdapter() {
+            @Override
+            public Key resolveSigningKey(JwsHeader header, Claims claims) {
+                KeyHolder holder = header.getKeyId() != null ? keysById.get(header.getKeyId()) : null;
+                if (holder == null) {
+                    throw new UnknownKeyIdException();
+                }
+                return holder.key();
+            }
+        }));
         currentKeyIndex.set(0);
         log.info("Initialized JWT key ring with {} keys. Active kid={}", keyRing.size(), currentKey().id());
     }
@@ -86,39 +109,59 @@ public class JwtUtils {
                 .compact();
     }
 
-    public boolean validateToken(String token, UserDetails userDetails) {
-        String telephone = extractTelephone(token);
-        return (telephone.equals(userDetails.getUsername()) && !isTokenExpired(token));
-    }
-
-    private boolean isTokenExpired(String token) {
-        return extractExpirationDate(token).before(new Date());
+    /**
+     * Parses the token once and checks its signature and expiry.
+     *
+     * @return the subject and expiry of the token
+     * @throws JwtException if the token is malformed, signed by none of the keys of the ring, expired
+     *                      or without subject
+     */
+    public VerifiedToken verify(String token) {
+        Claims claims = extractAllClaims(token);
+        Date expiration = claims.getExpiration();
+        // the parser tolerates some clock skew; an expired token is rejected right away, as before
+        if (expiration == null || expiration.before(new Date())) {
+            throw new ExpiredJwtException(null, claims, "JWT token expired");
+        }
+        String telephone = claims.getSubject();
+        if (telephone == null || telephone.isBlank()) {
+            throw new JwtException("JWT token without subject");
+        }
+        return new VerifiedToken(telephone, expiration.toInstant());
     }
 
-    private Date extractExpirationDate(String token) {
-        return extractClaim(token, Claims::getExpiration);
+    /**
+     * Derives the kid from the key itself, so that it still designates the same key whatever the position
+     * of the key in the ring: the first 64 bits of its SHA-256 digest.
+     */
+    static String keyId(Key key) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(key.getEncoded());
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(Arrays.copyOf(digest, 8));
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException("SHA-256 is not available", ex);
+        }
     }
 
-    public String extractTelephone(String token) {
-        return extractClaim(token, Claims::getSubject);
+    private static JwtParser parser(JwtParserBuilder builder) {
+        return builder.setAllowedClockSkewSeconds(60).build();
     }
 
-    private <T> T extractClaim(String token, Function<Claims, T> claimsResolver) {
-        final Claims claims = extractAllClaims(token);
-        return claimsResolver.apply(claims);
+    private Claims extractAllClaims(String token) {
+        try {
+            return kidParser.parseClaimsJws(token).getBody();
+        } catch (UnknownKeyIdException ex) {
+            // tokens issued without kid, or with the positional kids ("k0", "k1"...) stamped before
+            return extractAllClaimsWithRing(token);
+        }
     }
 
-    private Claims extractAllClaims(String token) {
+    private Claims extractAllClaimsWithRing(String token) {
         JwtException lastException = null;
         for (KeyHolder holder : keyRing) {
             try {
-                return Jwts.parserBuilder()
-                        .setSigningKey(holder.key())
-                        .setAllowedClockSkewSeconds(60)
-                        .build()
-                        .parseClaimsJws(token)
-                        .getBody();
-            } catch (JwtException ex) {
+                return holder.parser().parseClaimsJws(token).getBody();
+            } catch (SignatureException ex) {
                 lastException = ex;
             }
         }
@@ -132,6 +175,19 @@ public class JwtUtils {
         return keyRing.get(currentKeyIndex.get());
     }
 
-    private record KeyHolder(String id, Key key) {
+    private record KeyHolder(String id, Key key, JwtParser parser) {
+    }
+
+    private static final class UnknownKeyIdException extends JwtException {
+
+        private UnknownKeyIdException() {
+            super("No key of the ring matches the kid of the JWT token");
+        }
+    }
+
+    /**
+     * @param telephone subject of the token
+     */
+    public record VerifiedToken(String telephone, Instant expiresAt) {
     }
 }
@@ -102,21 +102,18 @@ public class MockDataLoader {
             t2.setUser(u2);
             troupeauRepository.save(t2);
 
-            Geofence geoU1 = createGeofence(gf, u1, "Parcelle Dakar",
+            createGeofence(gf, u1, "Parcelle Dakar",
                     new Coordinate(-17.4705, 14.7145),
                     new Coordinate(-17.4620, 14.7145),
                     new Coordinate(-17.4620, 14.7205),
                     new Coordinate(-17.4705, 14.7205)
             );
-            Geofence geoU2 = createGeofence(gf, u2, "Parcelle Thiès",
+            createGeofence(gf, u2, "Parcelle Thiès",
                     new Coordinate(-16.9285, 14.7885),
                     new Coordinate(-16.9200, 14.7885),
                     new Coordinate(-16.9200, 14.7960),
                     new Coordinate(-16.9285, 14.7960)
             );
-            u1.setGeofence(geoU1);
-            u2.setGeofence(geoU2);
-            userRepository.saveAll(List.of(u1, u2));
 
             Animal primaryAnimalU1 = null;
             Animal primaryAnimalU2 = null;
@@ -252,8 +249,11 @@ public class MockDataLoader {
     private void seedDevicesAndTelemetry(GeometryFactory gf, User user, List<Animal> animals, String imeiPrefix13) {
         Random random = new Random(42);
         Point basePos = user.getPosition();
-        if (user.getGeofence() != null && user.getGeofence().getZone() != null) {
-            basePos = user.getGeofence().getZone().getCentroid();
+        Geofence geofence = geofenceRepository.findAllByUser_IdOrderByCreatedAtAsc(user.getId()).stream()
+                .findFirst()
+                .orElse(null);
+        if (geofence != null && geofence.getZone() != null) {
+            basePos = geofence.getZone().getCentroid();
             basePos.setSRID(4326);
         }
         if (basePos == null) {
@@ -3,6 +3,7 @@ package com.gettgi.mvp.config;
 import com.gettgi.mvp.push.PushNotificationService;
 import com.gettgi.mvp.push.impl.FcmPushNotificationService;
 import com.gettgi.mvp.push.impl.NoopPushNotificationService;
+import com.gettgi.mvp.push.impl.StubPushNotificationService;
 import com.google.auth.oauth2.GoogleCredentials;
 import com.google.firebase.FirebaseApp;
 import com.google.firebase.FirebaseOptions;
@@ -24,8 +25,20 @@ public class PushConfiguration {
 
     private static final String FIREBASE_APP_NAME = "gettgi-push";
 
+    /**
+     * Remplace FCM pendant les tests de charge, même lorsque FCM est activé.
+     */
+    @Bean
+    @ConditionalOnProperty(prefix = "app.push.stub", name = "enabled", havingValue = "true")
+    public PushNotificationService stubPushNotificationService(PushProperties pushProperties) {
+        PushProperties.Stub stub = pushProperties.getStub();
+        log.warn("Push notifications stubbed: nothing is sent to FCM");
+        return new StubPushNotificationService(stub.getLatency(), stub.getFailureRate());
+    }
+
     @Bean
     @ConditionalOnProperty(prefix = "app.push.fcm", name = "enabled", havingValue = "true")
+    @ConditionalOnMissingBean(PushNotificationService.class)
     public PushNotificationService fcmPushNotificationService(PushProperties pushProperties) {
         String credentialsPath = pushProperties.getFcm().getCredentialsPath();
         if (!StringUtils.hasText(credentialsPath)) {
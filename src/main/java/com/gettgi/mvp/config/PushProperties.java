@@ -4,12 +4,22 @@ import lombok.Getter;
 import lombok.Setter;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 
+import java.time.Duration;
+
 @Getter
 @Setter
 @ConfigurationProperties(prefix = "app.push")
 public class PushProperties {
 
     private final Fcm fcm = new Fcm();
+    private final Stub stub = new Stub();
+    private final Dispatch dispatch = new Dispatch();
+
+    /**
+     * Durée de conservation en mémoire des jetons d'un utilisateur. Les changements faits sur cette instance
+     * sont pris en compte immédiatement, ceux faits sur une autre instance au plus tard après ce délai.
+     */
+    private Duration tokenCacheTtl = Duration.ofMinutes(10);
 
     @Getter
     @Setter
@@ -18,5 +28,54 @@ public class PushProperties {
         private boolean dryRun = false;
         private String credentialsPath;
     }
-}
 
+    /**
+     * Faux service d'envoi pour les tests de charge : rien n'est envoyé à FCM.
+     */
+    @Getter
+    @Setter
+    public static class Stub {
+        private boolean enabled = false;
+        /**
+         * Durée simulée d'un envoi.
+         */
+        private Duration latency = Duration.ofMillis(100);
+        /**
+         * Part des envois simulés en échec temporaire, entre 0 et 1.
+         */
+        private double failureRate = 0;
+    }
+
+    /**
+     * Envoi asynchrone des notifications d'alerte.
+     */
+    @Getter
+    @Setter
+    public static class Dispatch {
+        /**
+         * Nombre de threads envoyant les notifications.
+         */
+        private int workers = 2;
+        /**
+         * Nombre maximum d'alertes en attente d'envoi ; les alertes au-delà sont abandonnées.
+         */
+        private int queueCapacity = 1000;
+        /**
+         * Délai pendant lequel les alertes d'un même utilisateur sont regroupées en une notification.
+         */
+        private Duration coalesceWindow = Duration.ofSeconds(1);
+        /**
+         * Nombre maximum de tentatives d'envoi d'une notification.
+         */
+        private int maxAttempts = 4;
+        /**
+         * Attente avant la première nouvelle tentative, doublée à chaque échec.
+         */
+        private Duration initialBackoff = Duration.ofSeconds(1);
+        private Duration maxBackoff = Duration.ofSeconds(30);
+        /**
+         * Temps laissé aux notifications en attente pour partir à l'arrêt.
+         */
+        private Duration shutdownTimeout = Duration.ofSeconds(5);
+    }
+}
@@ -19,5 +19,13 @@ public class SecurityProperties {
         private int loginMaxAttempts = 5;
         private Duration loginWindow = Duration.ofMinutes(5);
         private Duration loginLockTime = Duration.ofMinutes(15);
+        /**
+         * Durée de conservation en mémoire d'un utilisateur authentifié par JWT.
+         */
+        private Duration userCacheTtl = Duration.ofMinutes(1);
+        /**
+         * Nombre maximum d'utilisateurs conservés en mémoire.
+         */
+        private int userCacheMaxEntries = 10_000;
     }
 }
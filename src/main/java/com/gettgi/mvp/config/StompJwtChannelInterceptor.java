@@ -1,6 +1,6 @@
 package com.gettgi.mvp.config;
 
-import com.gettgi.mvp.service.CustomUserDetailsService;
+import com.gettgi.mvp.security.UserDetailsCache;
 import io.jsonwebtoken.JwtException;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -55,7 +55,7 @@ public class StompJwtChannelInterceptor implements ChannelInterceptor {
     }
 
     private final JwtUtils jwtUtils;
-    private final CustomUserDetailsService customUserDetailsService;
+    private final UserDetailsCache userDetailsCache;
 
     private UsernamePasswordAuthenticationToken authenticate(StompHeaderAccessor accessor) {
         String header = firstNonBlankHeader(accessor, "Authorization", "authorization", "token", "X-Authorization");
@@ -72,16 +72,8 @@ public class StompJwtChannelInterceptor implements ChannelInterceptor {
         }
 
         try {
-            String telephone = jwtUtils.extractTelephone(token);
-            if (!StringUtils.hasText(telephone)) {
-                throw new AccessDeniedException("Invalid JWT token");
-            }
-
-            UserDetails userDetails = customUserDetailsService.loadUserByUsername(telephone);
-            if (!jwtUtils.validateToken(token, userDetails)) {
-                throw new AccessDeniedException("Invalid JWT token");
-            }
-
+            String telephone = jwtUtils.verify(token).telephone();
+            UserDetails userDetails = userDetailsCache.get(telephone);
             return new UsernamePasswordAuthenticationToken(userDetails, null, userDetails.getAuthorities());
         } catch (JwtException ex) {
             log.debug("WS auth failed: invalid JWT token", ex);
@@ -111,7 +103,7 @@ public class StompJwtChannelInterceptor implements ChannelInterceptor {
         if (!StringUtils.hasText(destination)) {
             return false;
         }
-        if (destination.equals("/user/queue/alerts")) {
+        if (destination.equals("/user/queue/alerts") || destination.equals("/user/queue/alerts/batch")) {
             return true;
         }
         if (destination.equals("/user/queue/animals")) {
@@ -0,0 +1,61 @@
+package com.gettgi.mvp.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "app.telemetry.ingest")
+public class TelemetryIngestProperties {
+
+    /**
+     * Number of partitions processing MQTT frames in parallel.
+     * Frames of a given device always land on the same partition so their order is preserved.
+     * Set to 0 to process frames inline on the MQTT callback thread.
+     */
+    private int partitions = 4;
+
+    /**
+     * Maximum number of frames waiting in each partition queue.
+     */
+    private int queueCapacity = 1_000;
+
+    /**
+     * How long the MQTT callback thread waits for room in a full partition queue before dropping the frame.
+     */
+    private Duration enqueueTimeout = Duration.ofSeconds(2);
+
+    /**
+     * How far behind the newest frame of its collar a frame may arrive before being counted as late.
+     * Any frame older than the newest one is kept for history only and never moves the live state back.
+     */
+    private Duration reorderWindow = Duration.ofSeconds(30);
+
+    /**
+     * How long pending frames are given to drain when the application stops.
+     */
+    private Duration shutdownTimeout = Duration.ofSeconds(10);
+
+    /**
+     * Filtering of frames received twice.
+     */
+    private Dedup dedup = new Dedup();
+
+    @Getter
+    @Setter
+    public static class Dedup {
+
+        /**
+         * Number of recent frames remembered per collar. Set to 0 to disable deduplication.
+         */
+        private int window = 32;
+
+        /**
+         * Maximum number of collars tracked at once; the least recently seen are forgotten first.
+         */
+        private int maxDevices = 50_000;
+    }
+}
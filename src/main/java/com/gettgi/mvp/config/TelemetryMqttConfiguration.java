@@ -1,6 +1,8 @@
 package com.gettgi.mvp.config;
 
 import com.gettgi.mvp.telemetry.TelemetryMessageHandler;
+import com.gettgi.mvp.telemetry.TelemetryPartitionedDispatcher;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.RequiredArgsConstructor;
 import org.eclipse.paho.client.mqttv3.MqttConnectOptions;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
@@ -51,9 +53,16 @@ public class TelemetryMqttConfiguration {
         return new DirectChannel();
     }
 
+    @Bean
+    public TelemetryPartitionedDispatcher telemetryPartitionedDispatcher(TelemetryMessageHandler telemetryMessageHandler,
+                                                                         TelemetryIngestProperties ingestProperties,
+                                                                         MeterRegistry meterRegistry) {
+        return new TelemetryPartitionedDispatcher(telemetryMessageHandler, ingestProperties, meterRegistry);
+    }
+
     @Bean
     public IntegrationFlow telemetryMqttInboundFlow(MqttPahoClientFactory telemetryMqttClientFactory,
-                                                    TelemetryMessageHandler telemetryMessageHandler,
+                                                    TelemetryPartitionedDispatcher telemetryPartitionedDispatcher,
                                                     MessageChannel telemetryInboundChannel) {
         String[] topics = properties.getTopics().isEmpty()
                 ? new String[]{"collars/+/telemetry"}
@@ -65,7 +74,7 @@ public class TelemetryMqttConfiguration {
         );
         adapter.setCompletionTimeout(properties.getCompletionTimeout().toMillis());
         DefaultPahoMessageConverter converter = new DefaultPahoMessageConverter();
-        converter.setPayloadAsBytes(false);
+        converter.setPayloadAsBytes(true);
         adapter.setConverter(converter);
         adapter.setQos(properties.getQos());
         adapter.setAutoStartup(properties.isAutoStartup());
@@ -73,7 +82,7 @@ public class TelemetryMqttConfiguration {
         adapter.setManualAcks(false);
         return IntegrationFlow.from(adapter)
                 .channel(telemetryInboundChannel)
-                .handle(telemetryMessageHandler)
+                .handle(telemetryPartitionedDispatcher)
                 .get();
     }
 }
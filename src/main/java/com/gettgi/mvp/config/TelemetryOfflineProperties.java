@@ -17,8 +17,14 @@ public class TelemetryOfflineProperties {
     private Duration threshold = Duration.ofMinutes(5);
 
     /**
-     * How often we check for offline trackers.
+     * Resolution of the offline deadlines: how often expired ones are looked for.
      */
-    private Duration checkInterval = Duration.ofMinutes(1);
+    private Duration tick = Duration.ofSeconds(1);
+
+    /**
+     * How often the database is swept for offline trackers missed by the deadlines,
+     * such as collars silent since before startup.
+     */
+    private Duration checkInterval = Duration.ofMinutes(15);
 }
 
@@ -1,10 +1,44 @@
 package com.gettgi.mvp.config;
 
+import com.gettgi.mvp.repository.TelemetryRepository;
+import com.gettgi.mvp.telemetry.TelemetryBatchWriter;
+import com.gettgi.mvp.telemetry.impl.CopyTelemetryBatchWriter;
+import com.gettgi.mvp.telemetry.impl.JdbcTelemetryBatchWriter;
+import com.gettgi.mvp.telemetry.impl.JpaTelemetryBatchWriter;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
 
 @Configuration
 @EnableConfigurationProperties(TelemetryPersistenceProperties.class)
 public class TelemetryPersistenceConfig {
-}
 
+    @Bean
+    @ConditionalOnProperty(prefix = "app.telemetry.persistence", name = "writer", havingValue = "jpa")
+    public TelemetryBatchWriter jpaTelemetryBatchWriter(TelemetryRepository telemetryRepository,
+                                                        PlatformTransactionManager transactionManager) {
+        return new JpaTelemetryBatchWriter(telemetryRepository, new TransactionTemplate(transactionManager));
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "app.telemetry.persistence", name = "writer", havingValue = "copy")
+    public TelemetryBatchWriter copyTelemetryBatchWriter(DataSource dataSource,
+                                                         PlatformTransactionManager transactionManager) {
+        return new CopyTelemetryBatchWriter(dataSource, new TransactionTemplate(transactionManager));
+    }
+
+    @Bean
+    @ConditionalOnMissingBean(TelemetryBatchWriter.class)
+    public TelemetryBatchWriter jdbcTelemetryBatchWriter(JdbcTemplate jdbcTemplate,
+                                                         PlatformTransactionManager transactionManager,
+                                                         TelemetryPersistenceProperties properties) {
+        return new JdbcTelemetryBatchWriter(jdbcTemplate, new TransactionTemplate(transactionManager), properties.getBatchSize());
+    }
+}
@@ -4,6 +4,8 @@ import lombok.Getter;
 import lombok.Setter;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 
+import org.springframework.util.unit.DataSize;
+
 import java.time.Duration;
 
 @Getter
@@ -17,9 +19,105 @@ public class TelemetryPersistenceProperties {
     private Duration flushInterval = Duration.ofSeconds(30);
 
     /**
-     * Maximum number of telemetry points stored per flush.
-     * If exceeded, the oldest entries are dropped in favour of the latest.
+     * Interval between two writes of the animals last positions held in memory.
+     */
+    private Duration lastPositionFlushInterval = Duration.ofSeconds(5);
+
+    /**
+     * Maximum number of telemetry points held in memory.
+     * In {@link Mode#APPEND} mode the oldest points are dropped once it is reached.
      */
     private int maxEntries = 5000;
-}
 
+    /**
+     * Number of buffered points that triggers a flush before the interval elapses,
+     * and number of rows written per batch.
+     */
+    private int batchSize = 500;
+
+    /**
+     * Which points are kept between two flushes.
+     */
+    private Mode mode = Mode.LATEST;
+
+    /**
+     * How flushed points are written to the telemetry table.
+     */
+    private Writer writer = Writer.JDBC;
+
+    /**
+     * Local write-ahead log of buffered points, replayed on startup.
+     */
+    private Wal wal = new Wal();
+
+    public enum Mode {
+        /**
+         * Keep only the most recent point per device.
+         */
+        LATEST,
+        /**
+         * Keep every point, in arrival order.
+         */
+        APPEND
+    }
+
+    public enum Writer {
+        /**
+         * {@code saveAll} through Hibernate.
+         */
+        JPA,
+        /**
+         * JDBC batch inserts.
+         */
+        JDBC,
+        /**
+         * PostgreSQL {@code COPY ... FROM STDIN}.
+         */
+        COPY
+    }
+
+    @Getter
+    @Setter
+    public static class Wal {
+
+        /**
+         * Record every buffered point on local disk before acknowledging it.
+         */
+        private boolean enabled = false;
+
+        /**
+         * Directory holding the log segments; must not be shared between instances.
+         */
+        private String directory = "./data/telemetry-wal";
+
+        /**
+         * Size of one memory-mapped segment file.
+         */
+        private DataSize segmentSize = DataSize.ofMegabytes(16);
+
+        /**
+         * When appended records are forced to the storage device.
+         */
+        private FsyncPolicy fsync = FsyncPolicy.INTERVAL;
+
+        /**
+         * Maximum time between two forces in {@link FsyncPolicy#INTERVAL} mode.
+         */
+        private Duration fsyncInterval = Duration.ofSeconds(1);
+    }
+
+    public enum FsyncPolicy {
+        /**
+         * Force after every record: nothing is lost on power failure, at the cost of one sync per point.
+         */
+        ALWAYS,
+        /**
+         * Force at most every {@code fsyncInterval}, and when a segment is sealed.
+         */
+        INTERVAL,
+        /**
+         * Leave write-back to the operating system; survives a process crash but not a power failure.
+         */
+        NEVER
+    }
+}
@@ -0,0 +1,26 @@
+package com.gettgi.mvp.config;
+
+import com.gettgi.mvp.telemetry.impl.RedisRealtimeRelay;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+
+@Configuration
+@EnableConfigurationProperties(TelemetryRealtimeProperties.class)
+public class TelemetryRealtimeConfig {
+
+    @Bean
+    @ConditionalOnProperty(prefix = "app.telemetry.realtime", name = "relay", havingValue = "redis")
+    public RedisMessageListenerContainer realtimeRelayListenerContainer(RedisConnectionFactory connectionFactory,
+                                                                        RedisRealtimeRelay relay,
+                                                                        TelemetryRealtimeProperties properties) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(connectionFactory);
+        container.addMessageListener(relay, new ChannelTopic(properties.getRelayChannel()));
+        return container;
+    }
+}
@@ -0,0 +1,56 @@
+package com.gettgi.mvp.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "app.telemetry.realtime")
+public class TelemetryRealtimeProperties {
+
+    /**
+     * Number of threads delivering realtime messages to the STOMP destinations of their owner.
+     */
+    private int dispatcherThreads = 2;
+
+    /**
+     * Maximum number of messages waiting for one owner; the oldest is dropped when a new one arrives.
+     * Positions waiting for the same animal are coalesced and count once.
+     */
+    private int outboxCapacity = 256;
+
+    /**
+     * Maximum number of positions sent per second for each animal to one STOMP session; 0 for no limit.
+     * A session may ask for less with the {@code x-max-rate} header of its subscription.
+     */
+    private double maxPositionRate = 1.0;
+
+    /**
+     * How realtime messages reach the STOMP sessions connected to the other backend nodes.
+     */
+    private Relay relay = Relay.LOCAL;
+
+    /**
+     * Redis pub/sub channel shared by the nodes in {@link Relay#REDIS} mode.
+     */
+    private String relayChannel = "telemetry:realtime";
+
+    /**
+     * How long waiting messages are given to be delivered when the application stops.
+     */
+    private Duration shutdownTimeout = Duration.ofSeconds(5);
+
+    public enum Relay {
+        /**
+         * Single node: messages only reach the sessions connected to the node that produced them.
+         */
+        LOCAL,
+        /**
+         * Messages are also published on a Redis channel, and delivered by every node to its own sessions.
+         */
+        REDIS
+    }
+}
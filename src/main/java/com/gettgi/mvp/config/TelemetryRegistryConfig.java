@@ -0,0 +1,9 @@
+package com.gettgi.mvp.config;
+
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@EnableConfigurationProperties(TelemetryRegistryProperties.class)
+public class TelemetryRegistryConfig {
+}
@@ -0,0 +1,24 @@
+package com.gettgi.mvp.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "app.telemetry.registry")
+public class TelemetryRegistryProperties {
+
+    /**
+     * Maximum age of a cached device before it is reloaded from the database.
+     * Invalidation events normally evict entries earlier; this bounds the effect of changes made outside the API.
+     */
+    private Duration ttl = Duration.ofMinutes(10);
+
+    /**
+     * Load every device into the registry once the application is ready.
+     */
+    private boolean warmUp = true;
+}
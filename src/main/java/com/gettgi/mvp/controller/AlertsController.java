@@ -7,6 +7,7 @@ import com.gettgi.mvp.entity.Animal;
 import com.gettgi.mvp.repository.AlerteRepository;
 import com.gettgi.mvp.repository.AnimalRepository;
 import com.gettgi.mvp.repository.UserRepository;
+import com.gettgi.mvp.telemetry.ActiveAlertRegistry;
 import com.gettgi.mvp.telemetry.RealtimeMessagingService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
@@ -38,6 +39,7 @@ public class AlertsController {
     private final UserRepository userRepository;
     private final AlerteRepository alerteRepository;
     private final RealtimeMessagingService realtimeMessagingService;
+    private final ActiveAlertRegistry activeAlertRegistry;
 
     @PostMapping
     public ResponseEntity<AlertNotificationDto> createManualAlert(
@@ -63,8 +65,9 @@ public class AlertsController {
         alert.setMessage(defaultMessage(animal, request.message(), request.type().name()));
 
         Alerte saved = alerteRepository.save(alert);
+        activeAlertRegistry.opened(animal.getId(), saved.getTypeAlerte(), saved.getId(), saved.getTs());
         AlertNotificationDto dto = toDto(saved);
-        realtimeMessagingService.publishAlert(telephone, dto);
+        realtimeMessagingService.publishAlert(telephone, animal.getUser().getId(), dto);
 
         return ResponseEntity.status(HttpStatus.CREATED).body(dto);
     }
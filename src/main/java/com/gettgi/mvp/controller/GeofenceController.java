@@ -4,21 +4,27 @@ import com.gettgi.mvp.dto.request.GeofenceUpsertRequestDto;
 import com.gettgi.mvp.dto.response.GeofenceResponseDto;
 import com.gettgi.mvp.dto.telemetry.GeoPointDto;
 import com.gettgi.mvp.entity.Geofence;
+import com.gettgi.mvp.entity.Troupeau;
 import com.gettgi.mvp.entity.User;
 import com.gettgi.mvp.repository.GeofenceRepository;
+import com.gettgi.mvp.repository.TroupeauRepository;
 import com.gettgi.mvp.repository.UserRepository;
+import com.gettgi.mvp.telemetry.DeviceRegistryInvalidationEvent;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.locationtech.jts.geom.Coordinate;
 import org.locationtech.jts.geom.GeometryFactory;
 import org.locationtech.jts.geom.Point;
 import org.locationtech.jts.geom.Polygon;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
@@ -39,7 +45,9 @@ public class GeofenceController {
 
     private final UserRepository userRepository;
     private final GeofenceRepository geofenceRepository;
+    private final TroupeauRepository troupeauRepository;
     private final GeometryFactory geometryFactory;
+    private final ApplicationEventPublisher eventPublisher;
 
     @GetMapping
     public ResponseEntity<GeofenceResponseDto> getGeofence(@AuthenticationPrincipal UserDetails principal) {
@@ -51,7 +59,7 @@ public class GeofenceController {
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "User not found"));
 
         UUID userId = user.getId();
-        Geofence geofence = geofenceRepository.findByUser_Id(userId)
+        Geofence geofence = geofenceRepository.findFirstByUser_IdAndTroupeauIsNullOrderByCreatedAtAsc(userId)
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Geofence not found"));
 
         return ResponseEntity.ok(toDto(user, geofence));
@@ -69,22 +77,19 @@ public class GeofenceController {
         User user = userRepository.findByTelephone(principal.getUsername())
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "User not found"));
 
-        double radiusMeters = request.radiusMeters();
-        if (radiusMeters < 10) {
-            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "radiusMeters must be >= 10");
-        }
+        double radiusMeters = validRadius(request);
 
         Point centerPoint = toPoint(request.center());
         user.setPosition(centerPoint);
         userRepository.save(user);
 
-        Geofence geofence = geofenceRepository.findByUser_Id(user.getId()).orElseGet(Geofence::new);
+        Geofence geofence = geofenceRepository.findFirstByUser_IdAndTroupeauIsNullOrderByCreatedAtAsc(user.getId())
+                .orElseGet(Geofence::new);
         geofence.setUser(user);
-        geofence.setNom(request.name().trim());
-        geofence.setRadiusMeters(radiusMeters);
-        geofence.setZone(buildCirclePolygon(request.center(), radiusMeters));
+        applyZone(geofence, request, radiusMeters);
 
         Geofence saved = geofenceRepository.save(geofence);
+        eventPublisher.publishEvent(DeviceRegistryInvalidationEvent.forOwner(user.getId()));
         return ResponseEntity.ok(toDto(user, saved));
     }
 
@@ -97,10 +102,115 @@ public class GeofenceController {
         User user = userRepository.findByTelephone(principal.getUsername())
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "User not found"));
 
-        geofenceRepository.findByUser_Id(user.getId()).ifPresent(geofenceRepository::delete);
+        geofenceRepository.findFirstByUser_IdAndTroupeauIsNullOrderByCreatedAtAsc(user.getId())
+                .ifPresent(geofenceRepository::delete);
+        eventPublisher.publishEvent(DeviceRegistryInvalidationEvent.forOwner(user.getId()));
+        return ResponseEntity.noContent().build();
+    }
+
+    @GetMapping("/zones")
+    public ResponseEntity<List<GeofenceResponseDto>> listZones(@AuthenticationPrincipal UserDetails principal) {
+        if (principal == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+
+        User user = userRepository.findByTelephone(principal.getUsername())
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "User not found"));
+
+        List<GeofenceResponseDto> zones = geofenceRepository.findAllByUser_IdOrderByCreatedAtAsc(user.getId()).stream()
+                .map(geofence -> toDto(user, geofence))
+                .toList();
+        return ResponseEntity.ok(zones);
+    }
+
+    @PostMapping("/zones")
+    public ResponseEntity<GeofenceResponseDto> createZone(
+            @Valid @RequestBody GeofenceUpsertRequestDto request,
+            @AuthenticationPrincipal UserDetails principal
+    ) {
+        if (principal == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+
+        User user = userRepository.findByTelephone(principal.getUsername())
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "User not found"));
+
+        double radiusMeters = validRadius(request);
+        Geofence geofence = new Geofence();
+        geofence.setUser(user);
+        geofence.setTroupeau(resolveTroupeau(request.troupeauId(), principal.getUsername()));
+        applyZone(geofence, request, radiusMeters);
+
+        Geofence saved = geofenceRepository.save(geofence);
+        eventPublisher.publishEvent(DeviceRegistryInvalidationEvent.forOwner(user.getId()));
+        return ResponseEntity.status(HttpStatus.CREATED).body(toDto(user, saved));
+    }
+
+    @PutMapping("/zones/{geofenceId}")
+    public ResponseEntity<GeofenceResponseDto> updateZone(
+            @PathVariable UUID geofenceId,
+            @Valid @RequestBody GeofenceUpsertRequestDto request,
+            @AuthenticationPrincipal UserDetails principal
+    ) {
+        if (principal == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+
+        User user = userRepository.findByTelephone(principal.getUsername())
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "User not found"));
+
+        double radiusMeters = validRadius(request);
+        Geofence geofence = geofenceRepository.findByIdAndUserId(geofenceId, user.getId())
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Geofence not found"));
+        geofence.setTroupeau(resolveTroupeau(request.troupeauId(), principal.getUsername()));
+        applyZone(geofence, request, radiusMeters);
+
+        Geofence saved = geofenceRepository.save(geofence);
+        eventPublisher.publishEvent(DeviceRegistryInvalidationEvent.forOwner(user.getId()));
+        return ResponseEntity.ok(toDto(user, saved));
+    }
+
+    @DeleteMapping("/zones/{geofenceId}")
+    public ResponseEntity<Void> deleteZone(
+            @PathVariable UUID geofenceId,
+            @AuthenticationPrincipal UserDetails principal
+    ) {
+        if (principal == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+
+        User user = userRepository.findByTelephone(principal.getUsername())
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "User not found"));
+
+        Geofence geofence = geofenceRepository.findByIdAndUserId(geofenceId, user.getId())
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Geofence not found"));
+        geofenceRepository.delete(geofence);
+        eventPublisher.publishEvent(DeviceRegistryInvalidationEvent.forOwner(user.getId()));
         return ResponseEntity.noContent().build();
     }
 
+    private double validRadius(GeofenceUpsertRequestDto request) {
+        double radiusMeters = request.radiusMeters();
+        if (radiusMeters < 10) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "radiusMeters must be >= 10");
+        }
+        return radiusMeters;
+    }
+
+    private Troupeau resolveTroupeau(UUID troupeauId, String telephone) {
+        if (troupeauId == null) {
+            return null;
+        }
+        return troupeauRepository.findByIdAndUserTelephone(troupeauId, telephone)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Troupeau not found"));
+    }
+
+    private void applyZone(Geofence geofence, GeofenceUpsertRequestDto request, double radiusMeters) {
+        geofence.setNom(request.name().trim());
+        geofence.setRadiusMeters(radiusMeters);
+        geofence.setZone(buildCirclePolygon(request.center(), radiusMeters));
+    }
+
     private GeofenceResponseDto toDto(User user, Geofence geofence) {
         GeoPointDto center = null;
         if (geofence.getZone() != null) {
@@ -128,6 +238,7 @@ public class GeofenceController {
                 geofence.getNom(),
                 center,
                 radius,
+                geofence.getTroupeau() != null ? geofence.getTroupeau().getId() : null,
                 userPosition
         );
     }
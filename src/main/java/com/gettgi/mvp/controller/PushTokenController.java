@@ -4,6 +4,7 @@ import com.gettgi.mvp.dto.request.PushTokenUpsertRequestDto;
 import com.gettgi.mvp.entity.PushToken;
 import com.gettgi.mvp.entity.User;
 import com.gettgi.mvp.entity.enums.PushPlatform;
+import com.gettgi.mvp.push.PushTokenCache;
 import com.gettgi.mvp.repository.PushTokenRepository;
 import com.gettgi.mvp.repository.UserRepository;
 import jakarta.validation.Valid;
@@ -31,6 +32,7 @@ public class PushTokenController {
 
     private final UserRepository userRepository;
     private final PushTokenRepository pushTokenRepository;
+    private final PushTokenCache pushTokenCache;
 
     @PostMapping
     public ResponseEntity<Void> upsertToken(
@@ -47,10 +49,16 @@ public class PushTokenController {
 
         String token = request.token().trim();
         PushToken pushToken = pushTokenRepository.findByToken(token).orElseGet(PushToken::new);
+        // a token moving to another account, e.g. after a logout on a shared phone, leaves its former owner
+        User previousOwner = pushToken.getUser();
         pushToken.setToken(token);
         pushToken.setPlatform(request.platform() != null ? request.platform() : PushPlatform.UNKNOWN);
         pushToken.setUser(user);
         pushTokenRepository.save(pushToken);
+        if (previousOwner != null) {
+            pushTokenCache.invalidate(previousOwner.getId());
+        }
+        pushTokenCache.invalidate(user.getId());
 
         return ResponseEntity.noContent().build();
     }
@@ -71,6 +79,7 @@ public class PushTokenController {
         String normalized = token.trim();
 
         pushTokenRepository.deleteByUser_IdAndToken(user.getId(), normalized);
+        pushTokenCache.invalidate(user.getId());
         return ResponseEntity.noContent().build();
     }
 }
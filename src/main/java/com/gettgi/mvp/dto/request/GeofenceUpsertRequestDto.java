@@ -8,10 +8,17 @@ import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Positive;
 import jakarta.validation.constraints.Size;
 
+import java.util.UUID;
+
+/**
+ * @param troupeauId herd the zone is restricted to; {@code null} for a zone applying to every animal of the owner.
+ *                   Ignored by the single-geofence endpoints, which always manage an owner-wide zone.
+ */
 public record GeofenceUpsertRequestDto(
         @NotBlank @Size(max = 100) String name,
         @NotNull @Valid GeoPointDto center,
-        @NotNull @Positive @Max(100000) Double radiusMeters
+        @NotNull @Positive @Max(100000) Double radiusMeters,
+        UUID troupeauId
 ) {
 }
 
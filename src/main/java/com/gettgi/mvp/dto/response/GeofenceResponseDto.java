@@ -9,6 +9,7 @@ public record GeofenceResponseDto(
         String name,
         GeoPointDto center,
         Double radiusMeters,
+        UUID troupeauId,
         GeoPointDto userPosition
 ) {
 }
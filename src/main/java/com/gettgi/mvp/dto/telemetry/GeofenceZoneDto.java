@@ -0,0 +1,12 @@
+package com.gettgi.mvp.dto.telemetry;
+
+import java.util.UUID;
+
+/**
+ * Geofence zone reported alongside a position.
+ */
+public record GeofenceZoneDto(
+        UUID id,
+        String name
+) {
+}
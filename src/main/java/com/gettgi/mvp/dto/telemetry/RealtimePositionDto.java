@@ -24,6 +24,7 @@ public record RealtimePositionDto(
         boolean insideGeofence,
         UUID geofenceId,
         String geofenceName,
+        List<GeofenceZoneDto> zones,
         List<TypeAlerte> activeAlerts
 ) {
 
@@ -40,6 +41,7 @@ public record RealtimePositionDto(
         if (timestamp == null) {
             throw new IllegalArgumentException("timestamp is required");
         }
+        zones = zones == null ? List.of() : List.copyOf(zones);
         activeAlerts = activeAlerts == null ? List.of() : List.copyOf(activeAlerts);
     }
 }
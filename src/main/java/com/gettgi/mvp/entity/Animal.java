@@ -74,12 +74,13 @@ public class Animal extends AuditableUuidEntity {
     @OneToMany(mappedBy = "animal", fetch = FetchType.LAZY, cascade = CascadeType.ALL, orphanRemoval = true)
     private List<Vaccin> vaccins;
 
-    @Column(name = "last_position", columnDefinition = "geometry(Point,4326)")
+    // written by the telemetry pipeline only, so that saving an edited animal never moves it back
+    @Column(name = "last_position", columnDefinition = "geometry(Point,4326)", updatable = false)
     private Point lastPosition;
 
-    @Column(name = "last_position_ts")
+    @Column(name = "last_position_ts", updatable = false)
     private Instant lastPositionTs;
 
-    @Column(name = "last_position_inside_geofence")
+    @Column(name = "last_position_inside_geofence", updatable = false)
     private Boolean lastPositionInsideGeofence;
 }
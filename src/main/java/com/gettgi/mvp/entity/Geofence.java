@@ -10,11 +10,12 @@ import org.locationtech.jts.geom.Polygon;
 
 @Entity
 @Table(name = "geofence", indexes = {
-        @Index(name = "idx_geofence_user", columnList = "user_id")
+        @Index(name = "idx_geofence_user", columnList = "user_id"),
+        @Index(name = "idx_geofence_troupeau", columnList = "troupeau_id")
 })
 @Getter
 @Setter
-@ToString(exclude = {"user"})
+@ToString(exclude = {"user", "troupeau"})
 public class Geofence extends AuditableUuidEntity {
 
     @NotBlank
@@ -27,7 +28,14 @@ public class Geofence extends AuditableUuidEntity {
     @Column(name = "radius_meters")
     private Double radiusMeters;
 
-    @OneToOne(fetch = FetchType.LAZY, optional = false)
-    @JoinColumn(name = "user_id", nullable = false, unique = true)
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
+    @JoinColumn(name = "user_id", nullable = false)
     private User user;
+
+    /**
+     * Herd the zone applies to; {@code null} when it applies to every animal of the user.
+     */
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "troupeau_id")
+    private Troupeau troupeau;
 }
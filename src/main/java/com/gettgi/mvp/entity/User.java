@@ -20,7 +20,7 @@ import java.util.List;
 @Setter
 @NoArgsConstructor
 @AllArgsConstructor
-@ToString(exclude = {"animals", "geofence", "troupeaux", "passwordHash"})
+@ToString(exclude = {"animals", "geofences", "troupeaux", "passwordHash"})
 public class User extends AuditableUuidEntity {
 
     @Column(nullable = false, length = 100)
@@ -54,8 +54,8 @@ public class User extends AuditableUuidEntity {
     @OneToMany(mappedBy = "user", fetch = FetchType.LAZY)
     private List<Animal> animals ;
 
-    @OneToOne(mappedBy = "user", fetch = FetchType.LAZY, cascade = CascadeType.ALL, orphanRemoval = true)
-    private Geofence geofence ;
+    @OneToMany(mappedBy = "user", fetch = FetchType.LAZY, cascade = CascadeType.ALL, orphanRemoval = true)
+    private List<Geofence> geofences ;
 
     @OneToMany(mappedBy = "user",fetch = FetchType.LAZY)
     private List<Alerte> alertes ;
@@ -1,7 +1,7 @@
 package com.gettgi.mvp.filter;
 
 import com.gettgi.mvp.config.JwtUtils;
-import com.gettgi.mvp.service.CustomUserDetailsService;
+import com.gettgi.mvp.security.UserDetailsCache;
 import io.jsonwebtoken.ExpiredJwtException;
 import io.jsonwebtoken.JwtException;
 import jakarta.servlet.FilterChain;
@@ -12,6 +12,7 @@ import lombok.RequiredArgsConstructor;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
@@ -22,7 +23,7 @@ import java.io.IOException;
 @RequiredArgsConstructor
 public class JwtFilter extends OncePerRequestFilter {
 
-    private final CustomUserDetailsService customUserDetailsService;
+    private final UserDetailsCache userDetailsCache;
     private final JwtUtils jwtUtils;
 
     @Override
@@ -30,25 +31,18 @@ public class JwtFilter extends OncePerRequestFilter {
 
         final String authorizationHeader = request.getHeader("Authorization");
 
-        String telephone =null;
-        String jwt = null;
-
-        if (authorizationHeader != null && authorizationHeader.startsWith("Bearer ")) {
-            jwt = authorizationHeader.substring(7);
+        if (authorizationHeader != null && authorizationHeader.startsWith("Bearer ")
+                && SecurityContextHolder.getContext().getAuthentication() == null) {
+            String jwt = authorizationHeader.substring(7);
             try {
-                telephone = jwtUtils.extractTelephone(jwt);
-
-                if (telephone != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-
-                    UserDetails userDetails = customUserDetailsService.loadUserByUsername(telephone);
-
-                    if (jwtUtils.validateToken(jwt, userDetails)) {
-
-                        UsernamePasswordAuthenticationToken authentication = new UsernamePasswordAuthenticationToken(userDetails, null, userDetails.getAuthorities());
-                        authentication.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
-                        SecurityContextHolder.getContext().setAuthentication(authentication);
-                    }
-                }
+                String telephone = jwtUtils.verify(jwt).telephone();
+                UserDetails userDetails = userDetailsCache.get(telephone);
+
+                UsernamePasswordAuthenticationToken authentication = new UsernamePasswordAuthenticationToken(userDetails, null, userDetails.getAuthorities());
+                authentication.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
+                SecurityContextHolder.getContext().setAuthentication(authentication);
+            } catch (UsernameNotFoundException e) {
+                // Utilisateur supprimé depuis l'émission du token: on n'authentifie pas (401)
             } catch (ExpiredJwtException e) {
                 // Token invalide/expiré: on n'authentifie pas et on laisse l'entry point gérer (401)
             }
@@ -2,6 +2,13 @@ package com.gettgi.mvp.push;
 
 import com.gettgi.mvp.dto.telemetry.AlertNotificationDto;
 
-public record AlertPublishedEvent(AlertNotificationDto alert) {
-}
+import java.util.UUID;
 
+/**
+ * Alert delivered to the realtime destinations of its owner.
+ *
+ * @param userId        id of the owner
+ * @param userTelephone telephone of the owner, as used for the STOMP user destinations
+ */
+public record AlertPublishedEvent(UUID userId, String userTelephone, AlertNotificationDto alert) {
+}
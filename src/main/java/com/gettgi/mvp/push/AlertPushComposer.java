@@ -0,0 +1,95 @@
+package com.gettgi.mvp.push;
+
+import com.gettgi.mvp.dto.telemetry.AlertNotificationDto;
+import com.gettgi.mvp.entity.enums.TypeAlerte;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+/**
+ * Turns the alerts of one owner into a push notification and the tokens of the devices to send it to.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class AlertPushComposer {
+
+    // 50 ids take under 2 KB of the 4 KB FCM data payload; "count" still carries the total
+    static final int MAX_GROUPED_ALERT_IDS = 50;
+
+    private final PushTokenCache pushTokenCache;
+
+    /**
+     * @param userId owner of the alerts
+     * @param alerts alerts of the owner, at least one
+     * @return {@code null} when the owner has no registered device
+     */
+    public PushRequest compose(UUID userId, List<AlertNotificationDto> alerts) {
+        List<String> tokens = pushTokenCache.tokens(userId);
+        if (tokens.isEmpty()) {
+            log.debug("Push skipped: no registered tokens for userId={}", userId);
+            return null;
+        }
+        PushMessage message = alerts.size() == 1 ? toPushMessage(alerts.get(0)) : toGroupedPushMessage(alerts);
+        return new PushRequest(message, tokens);
+    }
+
+    private PushMessage toGroupedPushMessage(List<AlertNotificationDto> alerts) {
+        TypeAlerte type = alerts.get(0).type();
+        boolean sameType = alerts.stream().allMatch(alert -> alert.type() == type);
+
+        String title;
+        String body;
+        if (sameType && type == TypeAlerte.DEVICE_OFFLINE) {
+            title = "Trackers hors ligne";
+            body = "%d trackers sont hors ligne.".formatted(alerts.size());
+        } else {
+            title = "Alertes";
+            body = "%d nouvelles alertes.".formatted(alerts.size());
+        }
+
+        Map<String, String> data = new HashMap<>();
+        data.put("alertIds", alerts.stream()
+                .limit(MAX_GROUPED_ALERT_IDS)
+                .map(alert -> alert.alertId().toString())
+                .collect(Collectors.joining(",")));
+        data.put("count", String.valueOf(alerts.size()));
+        data.put("type", sameType ? type.name() : "");
+        data.put("ts", alerts.get(0).raisedAt().toString());
+
+        return new PushMessage(title, body, data);
+    }
+
+    private PushMessage toPushMessage(AlertNotificationDto alert) {
+        String title = switch (alert.type()) {
+            case COLLAR_CUT -> "Alerte vol";
+            case COLLAR_TAMPERING -> "Suspicion de vol";
+            case DEVICE_OFFLINE -> "Tracker hors ligne";
+            case GEOFENCE_EXIT -> "Animal hors zone";
+            case SPEED_SUSPECT -> "Vitesse suspecte";
+            case VOL -> "Vol";
+            case DANGER -> "Danger";
+            default -> "Alerte";
+        };
+
+        Map<String, String> data = new HashMap<>();
+        data.put("alertId", alert.alertId() != null ? alert.alertId().toString() : "");
+        data.put("animalId", alert.animalId() != null ? alert.animalId().toString() : "");
+        data.put("deviceId", alert.deviceId() != null ? alert.deviceId().toString() : "");
+        data.put("type", alert.type() != null ? alert.type().name() : "");
+        data.put("ts", alert.raisedAt() != null ? alert.raisedAt().toString() : "");
+
+        String body = alert.message() != null ? alert.message() : "Nouvelle alerte";
+
+        return new PushMessage(title, body, data);
+    }
+
+    public record PushRequest(PushMessage message, List<String> tokens) {
+    }
+}
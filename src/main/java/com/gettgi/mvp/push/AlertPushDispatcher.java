@@ -0,0 +1,259 @@
+package com.gettgi.mvp.push;
+
+import com.gettgi.mvp.config.PushProperties;
+import com.gettgi.mvp.dto.telemetry.AlertNotificationDto;
+import com.gettgi.mvp.push.AlertPushComposer.PushRequest;
+import io.micrometer.core.instrument.Clock;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Sends alert push notifications from a pool of dedicated threads, so that the thread raising an alert never
+ * waits for the push provider.
+ * <p>
+ * The alerts of an owner arriving within {@code coalesceWindow} of the first one are sent as a single
+ * notification. At most {@code queueCapacity} alerts wait for their notification to be sent, retries included;
+ * alerts arriving beyond that are dropped rather than queued. Tokens failing with a transient error are retried
+ * with an exponential backoff, up to {@code maxAttempts} sends; tokens the provider no longer accepts are pruned.
+ */
+@Slf4j
+@Component
+public class AlertPushDispatcher implements DisposableBean {
+
+    private final AlertPushComposer composer;
+    private final PushNotificationService pushNotificationService;
+    private final PushTokenCache pushTokenCache;
+    private final ScheduledExecutorService scheduler;
+    private final Duration coalesceWindow;
+    private final int queueCapacity;
+    private final int maxAttempts;
+    private final Duration initialBackoff;
+    private final Duration maxBackoff;
+    private final Duration shutdownTimeout;
+    private final Clock clock;
+    private final Map<UUID, Batch> batches = new ConcurrentHashMap<>();
+    // alerts whose notification is waiting for its window, a worker or a retry
+    private final AtomicInteger queued = new AtomicInteger();
+
+    private final Timer latencyTimer;
+    private final Counter sentCounter;
+    private final Counter coalescedCounter;
+    private final Counter retryCounter;
+    private final Counter failureCounter;
+    private final Counter droppedCounter;
+
+    @Autowired
+    public AlertPushDispatcher(AlertPushComposer composer,
+                               PushNotificationService pushNotificationService,
+                               PushTokenCache pushTokenCache,
+                               PushProperties properties,
+                               MeterRegistry meterRegistry) {
+        this(composer, pushNotificationService, pushTokenCache, properties, meterRegistry,
+                newScheduler(properties.getDispatch().getWorkers()));
+    }
+
+    AlertPushDispatcher(AlertPushComposer composer,
+                        PushNotificationService pushNotificationService,
+                        PushTokenCache pushTokenCache,
+                        PushProperties properties,
+                        MeterRegistry meterRegistry,
+                        ScheduledExecutorService scheduler) {
+        PushProperties.Dispatch dispatch = properties.getDispatch();
+        this.composer = composer;
+        this.pushNotificationService = pushNotificationService;
+        this.pushTokenCache = pushTokenCache;
+        this.scheduler = scheduler;
+        this.coalesceWindow = dispatch.getCoalesceWindow() != null ? dispatch.getCoalesceWindow() : Duration.ZERO;
+        this.queueCapacity = Math.max(1, dispatch.getQueueCapacity());
+        this.maxAttempts = Math.max(1, dispatch.getMaxAttempts());
+        this.initialBackoff = dispatch.getInitialBackoff() != null ? dispatch.getInitialBackoff() : Duration.ZERO;
+        this.maxBackoff = dispatch.getMaxBackoff() != null ? dispatch.getMaxBackoff() : this.initialBackoff;
+        this.shutdownTimeout = dispatch.getShutdownTimeout() != null ? dispatch.getShutdownTimeout() : Duration.ZERO;
+        this.clock = meterRegistry.config().clock();
+        this.latencyTimer = Timer.builder("push.dispatch.latency")
+                .description("Time between an alert reaching the dispatcher and its notification being sent")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.sentCounter = Counter.builder("push.dispatch.sent")
+                .description("Notifications sent to the push provider")
+                .register(meterRegistry);
+        this.coalescedCounter = Counter.builder("push.dispatch.coalesced")
+                .description("Alerts sent within the notification of an earlier alert of the same owner")
+                .register(meterRegistry);
+        this.retryCounter = Counter.builder("push.dispatch.retries")
+                .description("Notifications sent again after a transient failure")
+                .register(meterRegistry);
+        this.failureCounter = Counter.builder("push.dispatch.failures")
+                .description("Notifications given up after their last attempt or an unexpected error")
+                .register(meterRegistry);
+        this.droppedCounter = Counter.builder("push.dispatch.dropped")
+                .description("Alerts dropped because the dispatcher queue was full")
+                .register(meterRegistry);
+        Gauge.builder("push.dispatch.queued", queued, AtomicInteger::get)
+                .description("Alerts waiting for their notification to be sent")
+                .register(meterRegistry);
+    }
+
+    private static ScheduledExecutorService newScheduler(int workers) {
+        AtomicInteger index = new AtomicInteger();
+        return new ScheduledThreadPoolExecutor(Math.max(1, workers), task -> {
+            Thread thread = new Thread(task, "push-dispatch-" + index.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Queues the alerts of one owner for a push notification; never blocks.
+     */
+    public void submit(UUID userId, List<AlertNotificationDto> alerts) {
+        if (userId == null || alerts == null || alerts.isEmpty()) {
+            return;
+        }
+        int count = alerts.size();
+        if (queued.addAndGet(count) > queueCapacity) {
+            queued.addAndGet(-count);
+            droppedCounter.increment(count);
+            log.debug("Push queue full; {} alert(s) to userId={} dropped", count, userId);
+            return;
+        }
+        boolean[] opened = {false};
+        batches.compute(userId, (key, batch) -> {
+            if (batch == null) {
+                batch = new Batch(clock.monotonicTime());
+                opened[0] = true;
+            }
+            batch.alerts.addAll(alerts);
+            return batch;
+        });
+        if (opened[0]) {
+            schedule(() -> flush(userId), coalesceWindow, count);
+        }
+    }
+
+    private void flush(UUID userId) {
+        // later alerts of the owner open a batch of their own
+        Batch batch = batches.remove(userId);
+        if (batch == null) {
+            return;
+        }
+        int count = batch.alerts.size();
+        PushRequest request;
+        try {
+            request = composer.compose(userId, batch.alerts);
+        } catch (RuntimeException ex) {
+            queued.addAndGet(-count);
+            failureCounter.increment();
+            log.warn("Push notification to userId={} not prepared: {}", userId, ex.getMessage());
+            return;
+        }
+        if (request == null) {
+            queued.addAndGet(-count);
+            return;
+        }
+        coalescedCounter.increment(count - 1);
+        send(new Delivery(userId, request.message(), request.tokens(), count, batch.queuedAt, 1));
+    }
+
+    private void send(Delivery delivery) {
+        PushResult result;
+        try {
+            result = pushNotificationService.send(delivery.message(), delivery.tokens());
+        } catch (RuntimeException ex) {
+            log.debug("Push notification to userId={} failed: {}", delivery.userId(), ex.getMessage());
+            result = PushResult.retry(delivery.tokens());
+        }
+        if (result != null && !result.invalidTokens().isEmpty()) {
+            pushTokenCache.prune(delivery.userId(), result.invalidTokens());
+        }
+        if (result == null || !result.hasRetries()) {
+            done(delivery);
+            sentCounter.increment();
+            latencyTimer.record(clock.monotonicTime() - delivery.queuedAt(), TimeUnit.NANOSECONDS);
+            return;
+        }
+        if (delivery.attempt() >= maxAttempts) {
+            done(delivery);
+            failureCounter.increment();
+            log.warn("Push notification to userId={} given up after {} attempt(s); {} device(s) not reached",
+                    delivery.userId(), delivery.attempt(), result.retryableTokens().size());
+            return;
+        }
+        retryCounter.increment();
+        Delivery retry = delivery.retry(result.retryableTokens());
+        schedule(() -> send(retry), backoff(delivery.attempt()), delivery.alertCount());
+    }
+
+    /**
+     * Wait before the attempt following attempt {@code attempt}: the initial backoff, doubled on every failure.
+     */
+    Duration backoff(int attempt) {
+        int doublings = Math.min(attempt - 1, 30);
+        long millis = initialBackoff.toMillis() << doublings;
+        return millis < 0 || millis > maxBackoff.toMillis() ? maxBackoff : Duration.ofMillis(millis);
+    }
+
+    private void done(Delivery delivery) {
+        queued.addAndGet(-delivery.alertCount());
+    }
+
+    private void schedule(Runnable task, Duration delay, int alertCount) {
+        try {
+            scheduler.schedule(task, delay.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException ex) {
+            queued.addAndGet(-alertCount);
+            droppedCounter.increment(alertCount);
+            log.debug("Push dispatcher stopped; {} alert(s) dropped", alertCount);
+        }
+    }
+
+    @Override
+    public void destroy() throws InterruptedException {
+        // pending windows are still flushed: delayed tasks run after shutdown
+        scheduler.shutdown();
+        if (!scheduler.awaitTermination(shutdownTimeout.toMillis(), TimeUnit.MILLISECONDS)) {
+            log.warn("Push dispatcher did not drain in time; {} alert(s) discarded", queued.get());
+            scheduler.shutdownNow();
+        }
+    }
+
+    private static final class Batch {
+
+        private final long queuedAt;
+        private final List<AlertNotificationDto> alerts = new ArrayList<>();
+
+        private Batch(long queuedAt) {
+            this.queuedAt = queuedAt;
+        }
+    }
+
+    /**
+     * @param alertCount alerts the notification stands for, released from the queue once it is done
+     * @param queuedAt   monotonic time the first of these alerts reached the dispatcher
+     */
+    private record Delivery(UUID userId, PushMessage message, List<String> tokens, int alertCount, long queuedAt,
+                            int attempt) {
+
+        Delivery retry(List<String> retryTokens) {
+            return new Delivery(userId, message, retryTokens, alertCount, queuedAt, attempt + 1);
+        }
+    }
+}
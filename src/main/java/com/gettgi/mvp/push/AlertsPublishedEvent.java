@@ -0,0 +1,15 @@
+package com.gettgi.mvp.push;
+
+import com.gettgi.mvp.dto.telemetry.AlertNotificationDto;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Alerts raised together for one owner, to be pushed as a single notification.
+ *
+ * @param userId        id of the owner
+ * @param userTelephone telephone of the owner, as used for the STOMP user destinations
+ */
+public record AlertsPublishedEvent(UUID userId, String userTelephone, List<AlertNotificationDto> alerts) {
+}
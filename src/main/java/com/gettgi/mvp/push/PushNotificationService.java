@@ -4,6 +4,11 @@ import java.util.List;
 
 public interface PushNotificationService {
 
-    void send(PushMessage message, List<String> tokens);
+    /**
+     * Sends {@code message} to every token, blocking until the provider answers.
+     *
+     * @return the tokens worth another attempt and those the provider no longer accepts; other errors,
+     * which would fail again, are only logged
+     */
+    PushResult send(PushMessage message, List<String> tokens);
 }
-
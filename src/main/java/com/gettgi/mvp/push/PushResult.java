@@ -0,0 +1,28 @@
+package com.gettgi.mvp.push;
+
+import java.util.List;
+
+/**
+ * Outcome of one {@link PushNotificationService#send} call.
+ *
+ * @param retryableTokens tokens the notification could not reach because of a transient error,
+ *                        worth another attempt later
+ * @param invalidTokens   tokens the provider no longer accepts, to be forgotten
+ */
+public record PushResult(List<String> retryableTokens, List<String> invalidTokens) {
+
+    public static final PushResult DONE = new PushResult(List.of(), List.of());
+
+    public PushResult {
+        retryableTokens = retryableTokens == null ? List.of() : List.copyOf(retryableTokens);
+        invalidTokens = invalidTokens == null ? List.of() : List.copyOf(invalidTokens);
+    }
+
+    public static PushResult retry(List<String> tokens) {
+        return new PushResult(tokens, List.of());
+    }
+
+    public boolean hasRetries() {
+        return !retryableTokens.isEmpty();
+    }
+}
@@ -0,0 +1,119 @@
+package com.gettgi.mvp.push;
+
+import com.gettgi.mvp.config.PushProperties;
+import com.gettgi.mvp.entity.PushToken;
+import com.gettgi.mvp.repository.PushTokenRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Push tokens of each user, loaded on first use and kept until the user registers or deletes a token,
+ * or for {@code tokenCacheTtl} at most, which bounds how long a change made through another node goes unseen.
+ * <p>
+ * Tokens the push provider reports as no longer valid are deleted in bulk and forgotten.
+ */
+@Slf4j
+@Component
+public class PushTokenCache {
+
+    private final PushTokenRepository pushTokenRepository;
+    private final long ttlNanos;
+    private final LongSupplier clock;
+    private final Map<UUID, Entry> users = new ConcurrentHashMap<>();
+    // Bumped on every invalidation so that a load racing with it is not cached as fresh.
+    private final AtomicLong invalidationEpoch = new AtomicLong();
+
+    private final Counter loadCounter;
+    private final Counter prunedCounter;
+
+    @Autowired
+    public PushTokenCache(PushTokenRepository pushTokenRepository, PushProperties properties, MeterRegistry meterRegistry) {
+        this(pushTokenRepository, properties, meterRegistry, System::nanoTime);
+    }
+
+    PushTokenCache(PushTokenRepository pushTokenRepository, PushProperties properties, MeterRegistry meterRegistry,
+                   LongSupplier clock) {
+        this.pushTokenRepository = pushTokenRepository;
+        Duration ttl = properties.getTokenCacheTtl() != null ? properties.getTokenCacheTtl() : Duration.ZERO;
+        this.ttlNanos = ttl.toNanos();
+        this.clock = clock;
+        this.loadCounter = Counter.builder("push.tokens.cache.loads")
+                .description("User push token sets loaded from the database")
+                .register(meterRegistry);
+        this.prunedCounter = Counter.builder("push.tokens.pruned")
+                .description("Push tokens deleted because the provider no longer accepts them")
+                .register(meterRegistry);
+        Gauge.builder("push.tokens.cache.users", users, Map::size)
+                .description("Users whose push tokens are held in memory")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Distinct, non-blank tokens of the user, in registration order.
+     */
+    public List<String> tokens(UUID userId) {
+        if (userId == null) {
+            return List.of();
+        }
+        long now = clock.getAsLong();
+        Entry entry = users.get(userId);
+        if (entry != null && now - entry.loadedAt() < ttlNanos) {
+            return entry.tokens();
+        }
+
+        long epoch = invalidationEpoch.get();
+        loadCounter.increment();
+        List<String> tokens = pushTokenRepository.findAllByUser_Id(userId).stream()
+                .map(PushToken::getToken)
+                .filter(Objects::nonNull)
+                .filter(token -> !token.isBlank())
+                .distinct()
+                .toList();
+        if (invalidationEpoch.get() == epoch) {
+            users.put(userId, new Entry(tokens, now));
+        }
+        return tokens;
+    }
+
+    public void invalidate(UUID userId) {
+        if (userId == null) {
+            return;
+        }
+        invalidationEpoch.incrementAndGet();
+        users.remove(userId);
+    }
+
+    /**
+     * Deletes tokens of the user rejected by the push provider, in a single statement.
+     */
+    public void prune(UUID userId, Collection<String> tokens) {
+        if (tokens == null || tokens.isEmpty()) {
+            return;
+        }
+        try {
+            int deleted = pushTokenRepository.deleteAllByTokenIn(tokens);
+            prunedCounter.increment(deleted);
+            log.debug("Pruned {} invalid push token(s) of userId={}", deleted, userId);
+        } catch (RuntimeException ex) {
+            log.warn("Invalid push tokens of userId={} not pruned: {}", userId, ex.getMessage());
+        }
+        invalidate(userId);
+    }
+
+    private record Entry(List<String> tokens, long loadedAt) {
+    }
+}
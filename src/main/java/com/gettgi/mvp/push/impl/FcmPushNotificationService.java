@@ -2,13 +2,19 @@ package com.gettgi.mvp.push.impl;
 
 import com.gettgi.mvp.push.PushMessage;
 import com.gettgi.mvp.push.PushNotificationService;
+import com.gettgi.mvp.push.PushResult;
 import com.google.firebase.messaging.BatchResponse;
 import com.google.firebase.messaging.FirebaseMessaging;
+import com.google.firebase.messaging.FirebaseMessagingException;
+import com.google.firebase.messaging.MessagingErrorCode;
 import com.google.firebase.messaging.MulticastMessage;
 import com.google.firebase.messaging.Notification;
+import com.google.firebase.messaging.SendResponse;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 
+import java.util.ArrayList;
+import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -17,13 +23,20 @@ import java.util.Map;
 @RequiredArgsConstructor
 public class FcmPushNotificationService implements PushNotificationService {
 
+    // errors of the FCM service itself rather than of the message or token
+    private static final EnumSet<MessagingErrorCode> TRANSIENT_ERRORS = EnumSet.of(
+            MessagingErrorCode.UNAVAILABLE,
+            MessagingErrorCode.INTERNAL,
+            MessagingErrorCode.QUOTA_EXCEEDED
+    );
+
     private final FirebaseMessaging firebaseMessaging;
     private final boolean dryRun;
 
     @Override
-    public void send(PushMessage message, List<String> tokens) {
+    public PushResult send(PushMessage message, List<String> tokens) {
         if (message == null || tokens == null || tokens.isEmpty()) {
-            return;
+            return PushResult.DONE;
         }
 
         Map<String, String> safeData = new HashMap<>();
@@ -48,8 +61,49 @@ public class FcmPushNotificationService implements PushNotificationService {
             if (log.isDebugEnabled()) {
                 log.debug("Push sent: success={} failure={} tokens={}", response.getSuccessCount(), response.getFailureCount(), tokens.size());
             }
+            if (response.getFailureCount() == 0) {
+                return PushResult.DONE;
+            }
+            // responses come in the order of the tokens
+            List<SendResponse> responses = response.getResponses();
+            List<String> retryable = new ArrayList<>();
+            List<String> unregistered = new ArrayList<>();
+            List<String> malformed = new ArrayList<>();
+            for (int i = 0; i < responses.size() && i < tokens.size(); i++) {
+                SendResponse sent = responses.get(i);
+                if (sent.isSuccessful()) {
+                    continue;
+                }
+                FirebaseMessagingException error = sent.getException();
+                if (isTransient(error)) {
+                    retryable.add(tokens.get(i));
+                } else if (error.getMessagingErrorCode() == MessagingErrorCode.UNREGISTERED) {
+                    unregistered.add(tokens.get(i));
+                } else if (error.getMessagingErrorCode() == MessagingErrorCode.INVALID_ARGUMENT) {
+                    malformed.add(tokens.get(i));
+                }
+            }
+            if (!malformed.isEmpty() && response.getSuccessCount() == 0) {
+                // no token accepted the message: it is more likely at fault than the tokens
+                log.warn("Push notification rejected as invalid for {} token(s); tokens kept", malformed.size());
+                malformed.clear();
+            }
+            unregistered.addAll(malformed);
+            return new PushResult(retryable, unregistered);
+        } catch (FirebaseMessagingException ex) {
+            if (isTransient(ex)) {
+                log.debug("Push to {} token(s) failed, to be retried: {}", tokens.size(), ex.getMessage());
+                return PushResult.retry(tokens);
+            }
+            log.warn("Failed to send push notification to {} token(s)", tokens.size(), ex);
         } catch (Exception ex) {
             log.warn("Failed to send push notification to {} token(s)", tokens.size(), ex);
         }
+        return PushResult.DONE;
+    }
+
+    private static boolean isTransient(FirebaseMessagingException ex) {
+        // no messaging code: the request did not reach FCM (I/O error, timeout)
+        return ex != null && (ex.getMessagingErrorCode() == null || TRANSIENT_ERRORS.contains(ex.getMessagingErrorCode()));
     }
 }
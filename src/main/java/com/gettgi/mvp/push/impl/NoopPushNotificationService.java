@@ -2,6 +2,7 @@ package com.gettgi.mvp.push.impl;
 
 import com.gettgi.mvp.push.PushMessage;
 import com.gettgi.mvp.push.PushNotificationService;
+import com.gettgi.mvp.push.PushResult;
 import lombok.extern.slf4j.Slf4j;
 
 import java.util.List;
@@ -10,13 +11,13 @@ import java.util.List;
 public class NoopPushNotificationService implements PushNotificationService {
 
     @Override
-    public void send(PushMessage message, List<String> tokens) {
+    public PushResult send(PushMessage message, List<String> tokens) {
         if (message == null || tokens == null || tokens.isEmpty()) {
-            return;
+            return PushResult.DONE;
         }
         if (log.isDebugEnabled()) {
             log.debug("Push disabled: would send title='{}' to {} device(s)", message.title(), tokens.size());
         }
+        return PushResult.DONE;
     }
 }
-
@@ -0,0 +1,48 @@
+package com.gettgi.mvp.push.impl;
+
+import com.gettgi.mvp.push.PushMessage;
+import com.gettgi.mvp.push.PushNotificationService;
+import com.gettgi.mvp.push.PushResult;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Stands in for FCM in load tests: answers after {@code latency}, as a multicast would, and asks for
+ * a retry of every token of a share {@code failureRate} of the calls, as a transient FCM outage would.
+ * Nothing leaves the node.
+ */
+@Slf4j
+public class StubPushNotificationService implements PushNotificationService {
+
+    private final Duration latency;
+    private final double failureRate;
+
+    public StubPushNotificationService(Duration latency, double failureRate) {
+        this.latency = latency != null ? latency : Duration.ZERO;
+        this.failureRate = failureRate;
+    }
+
+    @Override
+    public PushResult send(PushMessage message, List<String> tokens) {
+        if (message == null || tokens == null || tokens.isEmpty()) {
+            return PushResult.DONE;
+        }
+        if (!latency.isZero() && !latency.isNegative()) {
+            try {
+                Thread.sleep(latency.toMillis());
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return PushResult.retry(tokens);
+            }
+        }
+        if (failureRate > 0 && ThreadLocalRandom.current().nextDouble() < failureRate) {
+            log.debug("Push stub: simulated failure of title='{}' to {} device(s)", message.title(), tokens.size());
+            return PushResult.retry(tokens);
+        }
+        log.debug("Push stub: sent title='{}' to {} device(s)", message.title(), tokens.size());
+        return PushResult.DONE;
+    }
+}
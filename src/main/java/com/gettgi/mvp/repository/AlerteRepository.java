@@ -32,5 +32,22 @@ Page<Alerte> findAllByUserIdAndResolved(UUID userId, boolean resolved, Pageable
 
     Optional<Alerte> findTopByAnimal_IdAndTypeAlerteAndResolvedFalse(UUID animalId, TypeAlerte typeAlerte);
 
+    @Modifying
+    @Query("""
+            update Alerte a
+            set a.resolved = true,
+                a.resolvedAt = :resolvedAt,
+                a.message = :message,
+                a.updatedAt = :updatedAt
+            where a.animal.id = :animalId
+              and a.typeAlerte = :type
+              and a.resolved = false
+            """)
+    int resolveOpenAlerts(@Param("animalId") UUID animalId,
+                          @Param("type") TypeAlerte type,
+                          @Param("resolvedAt") Instant resolvedAt,
+                          @Param("message") String message,
+                          @Param("updatedAt") Instant updatedAt);
+
     Page<Alerte> findAllByAnimal_IdAndTsBetweenOrderByTsDesc(UUID animalId, Instant start, Instant end, Pageable pageable);
 }
@@ -3,14 +3,15 @@ package com.gettgi.mvp.repository;
 import com.gettgi.mvp.entity.Animal;
 import com.gettgi.mvp.entity.enums.Espece;
 import com.gettgi.mvp.entity.enums.Statut;
+import com.gettgi.mvp.entity.enums.TypeAlerte;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
-import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
 import java.util.Optional;
 import java.util.List;
 import java.util.UUID;
@@ -37,14 +38,31 @@ public interface AnimalRepository extends JpaRepository<Animal, UUID>,
 
     List<Animal> findAllByTroupeauId(UUID troupeauId);
 
+    /**
+     * Animals wearing a collar, silent since before {@code cutoff}, without an open alert of type {@code type}.
+     */
     @Query("""
-            select distinct a from Animal a
+            select a from Animal a
             join fetch a.user u
             join fetch a.device d
             where a.lastPositionTs is not null
               and a.lastPositionTs < :cutoff
+              and not exists (
+                  select 1 from Alerte al
+                  where al.animal = a
+                    and al.typeAlerte = :type
+                    and al.resolved = false
+              )
             """)
-    List<Animal> findAnimalsWithLastTelemetryBefore(@Param("cutoff") Instant cutoff);
+    List<Animal> findSilentAnimalsWithoutOpenAlert(@Param("cutoff") Instant cutoff, @Param("type") TypeAlerte type);
+
+    @Query("""
+            select a from Animal a
+            join fetch a.user u
+            join fetch a.device d
+            where a.id in :ids
+            """)
+    List<Animal> findAllWithOwnerAndDeviceByIdIn(@Param("ids") Collection<UUID> ids);
 
 
 
@@ -18,6 +18,25 @@ public interface DeviceRepository extends JpaRepository<Device, UUID> {
 
     Optional<Device> findByImei(String imei);
 
+    @Query("""
+            select d from Device d
+            left join fetch d.animal a
+            left join fetch a.user u
+            where d.imei = :imei
+            """)
+    Optional<Device> findWithOwnerGraphByImei(@Param("imei") String imei);
+
+    @Query("""
+            select d from Device d
+            left join fetch d.animal a
+            left join fetch a.user u
+            """)
+    List<Device> findAllWithOwnerGraph();
+
+    @Modifying
+    @Query("update Device d set d.statusCollar = :statusCollar where d.id = :id")
+    int updateStatusCollar(@Param("id") UUID id, @Param("statusCollar") StatusCollar statusCollar);
+
     Optional<Device> findByAnimal_Id(UUID animalId);
     boolean existsByAnimal_Id(UUID animalId);
     boolean existsByImei(String imei);
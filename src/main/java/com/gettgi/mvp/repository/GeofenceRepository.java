@@ -4,7 +4,11 @@ import com.gettgi.mvp.entity.Geofence;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
@@ -15,9 +19,21 @@ public interface GeofenceRepository extends JpaRepository<Geofence, UUID> {
     
     Optional<Geofence> findByIdAndUserId(UUID id, UUID userId);
 
-    Optional<Geofence> findByUser_Id(UUID userId);
+    List<Geofence> findAllByUser_IdOrderByCreatedAtAsc(UUID userId);
+
+    /**
+     * The zone managed by the single-geofence endpoints: the oldest one that is not restricted to a herd.
+     */
+    Optional<Geofence> findFirstByUser_IdAndTroupeauIsNullOrderByCreatedAtAsc(UUID userId);
 
     void deleteByIdAndUserId(UUID id, UUID userId);
 
+    /**
+     * Deletes the zones restricted to a herd, which would otherwise keep it from being deleted.
+     */
+    @Modifying
+    @Query("delete from Geofence g where g.troupeau.id = :troupeauId")
+    int deleteAllByTroupeauId(@Param("troupeauId") UUID troupeauId);
+
 
 }
@@ -2,7 +2,12 @@ package com.gettgi.mvp.repository;
 
 import com.gettgi.mvp.entity.PushToken;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
@@ -14,5 +19,10 @@ public interface PushTokenRepository extends JpaRepository<PushToken, UUID> {
     List<PushToken> findAllByUser_Id(UUID userId);
 
     long deleteByUser_IdAndToken(UUID userId, String token);
+
+    @Transactional
+    @Modifying
+    @Query("delete from PushToken t where t.token in :tokens")
+    int deleteAllByTokenIn(@Param("tokens") Collection<String> tokens);
 }
 
@@ -0,0 +1,105 @@
+package com.gettgi.mvp.security;
+
+import com.gettgi.mvp.config.SecurityProperties;
+import com.gettgi.mvp.entity.User;
+import com.gettgi.mvp.repository.UserRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Principals of the users authenticated by a JWT, kept for {@code userCacheTtl} so that authenticating
+ * a request or a STOMP connection does not query the users table every time.
+ * <p>
+ * Entries hold no password hash: a JWT carries no password, and logins go through
+ * {@link com.gettgi.mvp.service.CustomUserDetailsService}, which always reads the table. Saving a user evicts
+ * its entry; a change made through another node is seen once the entry expires. At most
+ * {@code userCacheMaxEntries} users are held, the others being read on every request.
+ */
+@Component
+public class UserDetailsCache {
+
+    private final UserRepository userRepository;
+    private final long ttlNanos;
+    private final int maxEntries;
+    private final LongSupplier clock;
+    private final Map<String, Entry> users = new ConcurrentHashMap<>();
+    // Bumped on every eviction so that a load racing with it is not cached as fresh.
+    private final AtomicLong evictionEpoch = new AtomicLong();
+
+    private final Counter loadCounter;
+
+    @Autowired
+    public UserDetailsCache(UserRepository userRepository, SecurityProperties properties, MeterRegistry meterRegistry) {
+        this(userRepository, properties, meterRegistry, System::nanoTime);
+    }
+
+    UserDetailsCache(UserRepository userRepository, SecurityProperties properties, MeterRegistry meterRegistry,
+                     LongSupplier clock) {
+        SecurityProperties.Auth auth = properties.getAuth();
+        this.userRepository = userRepository;
+        this.ttlNanos = auth.getUserCacheTtl() != null ? auth.getUserCacheTtl().toNanos() : Duration.ZERO.toNanos();
+        this.maxEntries = Math.max(0, auth.getUserCacheMaxEntries());
+        this.clock = clock;
+        this.loadCounter = Counter.builder("auth.users.loads")
+                .description("Users read from the database to authenticate a token")
+                .register(meterRegistry);
+        Gauge.builder("auth.users.cached", users, Map::size)
+                .description("Authenticated users held in memory")
+                .register(meterRegistry);
+    }
+
+    /**
+     * @throws UsernameNotFoundException if no user has this telephone
+     */
+    public UserDetails get(String telephone) {
+        long now = clock.getAsLong();
+        Entry entry = users.get(telephone);
+        if (entry != null && now - entry.loadedAt() < ttlNanos) {
+            return entry.user();
+        }
+
+        long epoch = evictionEpoch.get();
+        loadCounter.increment();
+        User user = userRepository.findByTelephone(telephone)
+                .orElseThrow(() -> new UsernameNotFoundException("User not found"));
+        UserDetails details = new org.springframework.security.core.userdetails.User(
+                user.getTelephone(),
+                "",
+                Collections.singletonList(new SimpleGrantedAuthority(user.getRole().name()))
+        );
+        if (users.size() >= maxEntries) {
+            users.values().removeIf(cached -> now - cached.loadedAt() >= ttlNanos);
+        }
+        if (users.size() < maxEntries && evictionEpoch.get() == epoch) {
+            users.put(telephone, new Entry(details, now));
+        }
+        return details;
+    }
+
+    /**
+     * Forgets the user, whose role or password may have changed.
+     */
+    public void evict(String telephone) {
+        if (telephone == null) {
+            return;
+        }
+        evictionEpoch.incrementAndGet();
+        users.remove(telephone);
+    }
+
+    private record Entry(UserDetails user, long loadedAt) {
+    }
+}
@@ -18,7 +18,9 @@ import com.gettgi.mvp.repository.DeviceRepository;
 import com.gettgi.mvp.repository.TroupeauRepository;
 import com.gettgi.mvp.repository.UserRepository;
 import com.gettgi.mvp.service.AnimalService;
+import com.gettgi.mvp.telemetry.DeviceRegistryInvalidationEvent;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
@@ -39,6 +41,7 @@ public class AnimalServiceImpl implements AnimalService {
     private final DeviceRepository deviceRepository;
     private final TroupeauRepository troupeauRepository;
     private final AnimalMapper animalMapper;
+    private final ApplicationEventPublisher eventPublisher;
     @Override
     @Transactional(readOnly = true)
     public Page<FindAllAnimalResponseDto> FindAllAnimalsByUserTelephone(Pageable pageable, String telephone) {
@@ -78,6 +81,7 @@ public class AnimalServiceImpl implements AnimalService {
         if (device != null) {
             device.setAnimal(saved);
             deviceRepository.save(device);
+            eventPublisher.publishEvent(DeviceRegistryInvalidationEvent.forDevices(device.getImei()));
         }
 
         // 5) mapper entité -> DTO réponse
@@ -89,6 +93,7 @@ public class AnimalServiceImpl implements AnimalService {
 
         Animal animal = animalRepository.findByIdAndUserTelephone(animalId, telephone)
                 .orElseThrow(() -> new IllegalStateException("Animal introuvable ou non autorisé"));
+        String previousImei = animal.getDevice() != null ? animal.getDevice().getImei() : null;
 
         if (dto.device() != null && StringUtils.hasText(dto.device().imei())) {
             deviceRepository.findByImei(dto.device().imei()).ifPresent(existingDevice -> {
@@ -139,6 +144,9 @@ public class AnimalServiceImpl implements AnimalService {
         }
 
         Animal saved = animalRepository.save(animal);
+        // the animal name is part of the registry snapshot, so evict even when the device is untouched
+        String currentImei = saved.getDevice() != null ? saved.getDevice().getImei() : null;
+        eventPublisher.publishEvent(DeviceRegistryInvalidationEvent.forDevices(previousImei, currentImei));
         return animalMapper.toDto2(saved);
     }
 
@@ -151,6 +159,7 @@ public class AnimalServiceImpl implements AnimalService {
         if (device != null) {
             device.setAnimal(null);
             deviceRepository.save(device);
+            eventPublisher.publishEvent(DeviceRegistryInvalidationEvent.forDevices(device.getImei()));
         }
 
         animalRepository.delete(animal);
@@ -170,6 +179,10 @@ public class AnimalServiceImpl implements AnimalService {
         }
 
         Animal saved = animalRepository.save(animal);
+        // the herd decides which zones apply to the collar
+        if (animal.getDevice() != null) {
+            eventPublisher.publishEvent(DeviceRegistryInvalidationEvent.forDevices(animal.getDevice().getImei()));
+        }
         return animalMapper.toDto2(saved);
     }
 
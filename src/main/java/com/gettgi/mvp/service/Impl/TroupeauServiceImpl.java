@@ -9,14 +9,19 @@ import com.gettgi.mvp.dto.request.TroupeauUpdateRequestDto;
 import com.gettgi.mvp.entity.Troupeau;
 import com.gettgi.mvp.entity.User;
 import com.gettgi.mvp.repository.AnimalRepository;
+import com.gettgi.mvp.repository.GeofenceRepository;
 import com.gettgi.mvp.repository.TroupeauRepository;
 import com.gettgi.mvp.repository.UserRepository;
 import com.gettgi.mvp.service.TroupeauService;
+import com.gettgi.mvp.telemetry.DeviceRegistryInvalidationEvent;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 import java.util.UUID;
 
 @Service
@@ -28,6 +33,8 @@ public class TroupeauServiceImpl implements TroupeauService {
     private final AnimalRepository animalRepository;
     private final UserRepository userRepository;
     private final AnimalMapper animalMapper;
+    private final GeofenceRepository geofenceRepository;
+    private final ApplicationEventPublisher eventPublisher;
 
     @Override
     public TroupeauDetailResponseDto GetTroupeauDetail(UUID troupeauId, String telephone) {
@@ -86,13 +93,24 @@ public class TroupeauServiceImpl implements TroupeauService {
                 .orElseThrow(() -> new IllegalStateException("Troupeau introuvable ou non autorisé"));
 
         // détacher les animaux avant suppression
+        Set<String> imeis = new HashSet<>();
         var animals = animalRepository.findAllByTroupeauId(troupeauId);
         if (animals != null && !animals.isEmpty()) {
             for (var a : animals) {
                 a.setTroupeau(null);
+                if (a.getDevice() != null) {
+                    imeis.add(a.getDevice().getImei());
+                }
             }
             animalRepository.saveAll(animals);
         }
+        // les zones propres au troupeau disparaissent avec lui
+        int deletedZones = geofenceRepository.deleteAllByTroupeauId(troupeauId);
         troupeauRepository.delete(troupeau);
+
+        UUID ownerId = deletedZones > 0 && troupeau.getUser() != null ? troupeau.getUser().getId() : null;
+        if (!imeis.isEmpty() || ownerId != null) {
+            eventPublisher.publishEvent(new DeviceRegistryInvalidationEvent(imeis, ownerId));
+        }
     }
 }
@@ -2,6 +2,7 @@ package com.gettgi.mvp.service.Impl;
 
 import com.gettgi.mvp.entity.User;
 import com.gettgi.mvp.repository.UserRepository;
+import com.gettgi.mvp.security.UserDetailsCache;
 import com.gettgi.mvp.service.UserService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
@@ -11,6 +12,8 @@ import org.springframework.stereotype.Service;
 public class UserServiceImpl implements UserService {
 
     private final UserRepository userRepository;
+    private final UserDetailsCache userDetailsCache;
+
     @Override
     public User findByTelephone(String telephone) {
         return userRepository.findByTelephone(telephone).orElse(null) ;
@@ -18,7 +21,10 @@ public class UserServiceImpl implements UserService {
 
     @Override
     public User save(User user) {
-        return userRepository.save(user);
+        User saved = userRepository.save(user);
+        // the role or password may have changed
+        userDetailsCache.evict(saved.getTelephone());
+        return saved;
     }
 
     @Override
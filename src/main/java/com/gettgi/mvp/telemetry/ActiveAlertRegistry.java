@@ -0,0 +1,25 @@
+package com.gettgi.mvp.telemetry;
+
+import com.gettgi.mvp.entity.enums.TypeAlerte;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * In-memory view of the unresolved alerts of each animal, so that evaluating a telemetry frame
+ * only touches the alerte table when an alert is actually opened or resolved.
+ * <p>
+ * The state of an animal is loaded on first access; afterwards the services that open or resolve
+ * alerts keep it up to date. A transition made inside a transaction that rolls back evicts the animal,
+ * which is then reloaded from the database.
+ */
+public interface ActiveAlertRegistry {
+
+    ActiveAlerts get(UUID animalId);
+
+    void opened(UUID animalId, TypeAlerte type, UUID alertId, Instant ts);
+
+    void resolved(UUID animalId, TypeAlerte type);
+
+    void evict(UUID animalId);
+}
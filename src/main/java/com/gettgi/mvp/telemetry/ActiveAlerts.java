@@ -0,0 +1,85 @@
+package com.gettgi.mvp.telemetry;
+
+import com.gettgi.mvp.entity.Alerte;
+import com.gettgi.mvp.entity.enums.TypeAlerte;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Immutable set of the unresolved alert types of one animal, with the id and timestamp of the open alert
+ * of each type. Transitions return a new instance.
+ */
+public final class ActiveAlerts {
+
+    public static final ActiveAlerts NONE = new ActiveAlerts(EnumSet.noneOf(TypeAlerte.class), new OpenAlert[TypeAlerte.values().length]);
+
+    private final EnumSet<TypeAlerte> types;
+    // indexed by TypeAlerte ordinal
+    private final OpenAlert[] alerts;
+
+    private ActiveAlerts(EnumSet<TypeAlerte> types, OpenAlert[] alerts) {
+        this.types = types;
+        this.alerts = alerts;
+    }
+
+    /**
+     * Builds the state from the unresolved alerts of an animal; when several are open for one type,
+     * the most recent one is kept.
+     */
+    public static ActiveAlerts of(Collection<Alerte> unresolved) {
+        ActiveAlerts state = NONE;
+        for (Alerte alert : unresolved) {
+            OpenAlert current = state.alerts[alert.getTypeAlerte().ordinal()];
+            if (current == null || current.ts() == null || alert.getTs() != null && alert.getTs().isAfter(current.ts())) {
+                state = state.with(alert.getTypeAlerte(), alert.getId(), alert.getTs());
+            }
+        }
+        return state;
+    }
+
+    public boolean isOpen(TypeAlerte type) {
+        return types.contains(type);
+    }
+
+    public Optional<OpenAlert> find(TypeAlerte type) {
+        return Optional.ofNullable(alerts[type.ordinal()]);
+    }
+
+    /**
+     * @return the open alert types, in declaration order
+     */
+    public List<TypeAlerte> types() {
+        return List.copyOf(types);
+    }
+
+    public boolean isEmpty() {
+        return types.isEmpty();
+    }
+
+    public ActiveAlerts with(TypeAlerte type, UUID alertId, Instant ts) {
+        EnumSet<TypeAlerte> nextTypes = EnumSet.copyOf(types);
+        nextTypes.add(type);
+        OpenAlert[] nextAlerts = alerts.clone();
+        nextAlerts[type.ordinal()] = new OpenAlert(alertId, ts);
+        return new ActiveAlerts(nextTypes, nextAlerts);
+    }
+
+    public ActiveAlerts without(TypeAlerte type) {
+        if (!types.contains(type)) {
+            return this;
+        }
+        EnumSet<TypeAlerte> nextTypes = EnumSet.copyOf(types);
+        nextTypes.remove(type);
+        OpenAlert[] nextAlerts = alerts.clone();
+        nextAlerts[type.ordinal()] = null;
+        return new ActiveAlerts(nextTypes, nextAlerts);
+    }
+
+    public record OpenAlert(UUID id, Instant ts) {
+    }
+}
@@ -0,0 +1,16 @@
+package com.gettgi.mvp.telemetry;
+
+import com.gettgi.mvp.entity.Alerte;
+
+import java.util.List;
+
+/**
+ * Inserts many alerts at once, within the current transaction.
+ */
+public interface AlertBatchWriter {
+
+    /**
+     * Inserts {@code alerts}, filling in the id and audit columns of each one.
+     */
+    void insert(List<Alerte> alerts);
+}
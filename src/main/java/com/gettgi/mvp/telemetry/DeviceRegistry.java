@@ -0,0 +1,21 @@
+package com.gettgi.mvp.telemetry;
+
+import com.gettgi.mvp.entity.enums.StatusCollar;
+
+import java.util.Optional;
+
+/**
+ * In-memory lookup of collars by IMEI used on the telemetry hot path.
+ * <p>
+ * Entries are invalidated through {@link DeviceRegistryInvalidationEvent} once the change that
+ * affects them is committed, and are reloaded when older than the configured TTL.
+ */
+public interface DeviceRegistry {
+
+    Optional<DeviceSnapshot> find(String imei);
+
+    /**
+     * Records a collar status reported by the device itself, which is persisted by the ingest transaction.
+     */
+    void statusCollarChanged(String imei, StatusCollar statusCollar);
+}
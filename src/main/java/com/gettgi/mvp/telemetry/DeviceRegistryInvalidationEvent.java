@@ -0,0 +1,32 @@
+package com.gettgi.mvp.telemetry;
+
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Published when a device, its animal or its owner's geofence/position changed.
+ * The {@link DeviceRegistry} drops the matching entries after the transaction commits.
+ *
+ * @param imeis   devices to evict
+ * @param ownerId evict every device owned by this user, may be {@code null}
+ */
+public record DeviceRegistryInvalidationEvent(Set<String> imeis, UUID ownerId) {
+
+    public DeviceRegistryInvalidationEvent {
+        imeis = imeis == null ? Set.of() : Set.copyOf(imeis);
+    }
+
+    public static DeviceRegistryInvalidationEvent forDevices(String... imeis) {
+        return new DeviceRegistryInvalidationEvent(
+                Stream.of(imeis).filter(Objects::nonNull).collect(Collectors.toSet()),
+                null
+        );
+    }
+
+    public static DeviceRegistryInvalidationEvent forOwner(UUID ownerId) {
+        return new DeviceRegistryInvalidationEvent(Set.of(), ownerId);
+    }
+}
@@ -0,0 +1,57 @@
+package com.gettgi.mvp.telemetry;
+
+import com.gettgi.mvp.entity.Animal;
+import com.gettgi.mvp.entity.Device;
+import com.gettgi.mvp.entity.User;
+import com.gettgi.mvp.entity.enums.Espece;
+import com.gettgi.mvp.entity.enums.StatusCollar;
+import org.locationtech.jts.geom.Point;
+
+import java.util.UUID;
+
+/**
+ * Immutable view of a collar and everything the ingest pipeline needs about its animal and owner,
+ * so that a telemetry frame can be processed without loading the JPA graph.
+ */
+public record DeviceSnapshot(
+        UUID deviceId,
+        String imei,
+        StatusCollar statusCollar,
+        UUID animalId,
+        String animalNom,
+        Espece animalEspece,
+        UUID ownerId,
+        String ownerTelephone,
+        Point ownerPosition,
+        UUID troupeauId
+) {
+
+    /**
+     * Builds a snapshot from a device whose animal and owner are already initialized.
+     */
+    public static DeviceSnapshot of(Device device) {
+        Animal animal = device.getAnimal();
+        User owner = animal != null ? animal.getUser() : null;
+        return new DeviceSnapshot(
+                device.getId(),
+                device.getImei(),
+                device.getStatusCollar(),
+                animal != null ? animal.getId() : null,
+                animal != null ? animal.getNom() : null,
+                animal != null ? animal.getEspece() : null,
+                owner != null ? owner.getId() : null,
+                owner != null ? owner.getTelephone() : null,
+                owner != null ? owner.getPosition() : null,
+                animal != null && animal.getTroupeau() != null ? animal.getTroupeau().getId() : null
+        );
+    }
+
+    public boolean hasAnimal() {
+        return animalId != null;
+    }
+
+    public DeviceSnapshot withStatusCollar(StatusCollar status) {
+        return new DeviceSnapshot(deviceId, imei, status, animalId, animalNom, animalEspece,
+                ownerId, ownerTelephone, ownerPosition, troupeauId);
+    }
+}
@@ -0,0 +1,18 @@
+package com.gettgi.mvp.telemetry;
+
+import org.locationtech.jts.geom.Point;
+
+import java.util.UUID;
+
+/**
+ * Geofence containment tests on the telemetry hot path. The zones of each owner are held in memory in a
+ * spatial index, against geometries prepared once per geofence version rather than on every frame.
+ */
+public interface GeofenceIndex {
+
+    /**
+     * Locates a position among the zones of {@code ownerId} that apply to an animal of herd {@code troupeauId}
+     * ({@code null} when the animal belongs to no herd).
+     */
+    GeofenceMatch locate(UUID ownerId, UUID troupeauId, Point position);
+}
@@ -0,0 +1,42 @@
+package com.gettgi.mvp.telemetry;
+
+import com.gettgi.mvp.dto.telemetry.GeofenceZoneDto;
+
+import java.util.List;
+
+/**
+ * Result of locating a position among the zones that apply to an animal.
+ *
+ * @param applicable every zone of the owner that applies to the animal (its own herd's zones and the owner-wide ones)
+ * @param containing the applicable zones that contain the position
+ */
+public record GeofenceMatch(
+        List<GeofenceZoneDto> applicable,
+        List<GeofenceZoneDto> containing
+) {
+
+    public static final GeofenceMatch NO_ZONE = new GeofenceMatch(List.of(), List.of());
+
+    public GeofenceMatch {
+        applicable = applicable == null ? List.of() : List.copyOf(applicable);
+        containing = containing == null ? List.of() : List.copyOf(containing);
+    }
+
+    /**
+     * An animal without any applicable zone is never outside.
+     */
+    public boolean inside() {
+        return applicable.isEmpty() || !containing.isEmpty();
+    }
+
+    /**
+     * The zone named in results and messages: the first one containing the position, or the only applicable
+     * zone when outside; {@code null} when the position is outside several zones.
+     */
+    public GeofenceZoneDto reportedZone() {
+        if (!containing.isEmpty()) {
+            return containing.get(0);
+        }
+        return applicable.size() == 1 ? applicable.get(0) : null;
+    }
+}
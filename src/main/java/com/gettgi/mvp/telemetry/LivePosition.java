@@ -0,0 +1,26 @@
+package com.gettgi.mvp.telemetry;
+
+import com.gettgi.mvp.entity.enums.StatusCollar;
+import org.locationtech.jts.geom.Point;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Last known state of an animal as reported by its collar.
+ */
+public record LivePosition(
+        UUID deviceId,
+        Point position,
+        Instant ts,
+        boolean insideGeofence,
+        Double speed,
+        Integer batteryLevel,
+        Integer gsmSignal,
+        StatusCollar statusCollar
+) {
+
+    public boolean isNewerThan(LivePosition other) {
+        return other == null || !ts.isBefore(other.ts);
+    }
+}
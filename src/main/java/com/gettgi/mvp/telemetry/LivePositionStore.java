@@ -0,0 +1,23 @@
+package com.gettgi.mvp.telemetry;
+
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * In-memory view of the last position of each animal, so that ingesting a frame does not update the
+ * animal row. Positions are written back to the animal table periodically, the latest per animal only,
+ * and readers look here before falling back to the database.
+ * <p>
+ * The view only holds animals that reported since startup; a position older than the one held is ignored.
+ */
+public interface LivePositionStore {
+
+    void record(UUID animalId, LivePosition position);
+
+    Optional<LivePosition> find(UUID animalId);
+
+    /**
+     * Writes the positions recorded since the previous flush to the animal table.
+     */
+    void flush();
+}
@@ -3,9 +3,21 @@ package com.gettgi.mvp.telemetry;
 import com.gettgi.mvp.dto.telemetry.AlertNotificationDto;
 import com.gettgi.mvp.dto.telemetry.RealtimePositionDto;
 
+import java.util.List;
+import java.util.UUID;
+
 public interface RealtimeMessagingService {
 
     void publishPosition(String userTelephone, RealtimePositionDto position);
 
-    void publishAlert(String userTelephone, AlertNotificationDto alert);
+    /**
+     * @param userId id of the owner, handed to the alert listeners so that they need not look the alert up
+     */
+    void publishAlert(String userTelephone, UUID userId, AlertNotificationDto alert);
+
+    /**
+     * Publishes alerts raised together for one owner as a single message on the owner-wide destination,
+     * each alert still being sent to the destination of its animal.
+     */
+    void publishAlerts(String userTelephone, UUID userId, List<AlertNotificationDto> alerts);
 }
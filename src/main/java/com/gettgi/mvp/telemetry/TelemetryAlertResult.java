@@ -1,20 +1,29 @@
 package com.gettgi.mvp.telemetry;
 
 import com.gettgi.mvp.dto.telemetry.AlertNotificationDto;
+import com.gettgi.mvp.dto.telemetry.GeofenceZoneDto;
 import com.gettgi.mvp.entity.enums.TypeAlerte;
 
 import java.util.List;
 import java.util.UUID;
 
+/**
+ * @param insideGeofence whether the position lies in at least one applicable zone (always true without zones)
+ * @param geofenceId     first zone containing the position, or the only applicable zone when outside
+ * @param geofenceName   name of {@code geofenceId}
+ * @param zones          every applicable zone containing the position
+ */
 public record TelemetryAlertResult(
         boolean insideGeofence,
         UUID geofenceId,
         String geofenceName,
+        List<GeofenceZoneDto> zones,
         List<TypeAlerte> activeAlerts,
         List<AlertNotificationDto> notifications
 ) {
 
     public TelemetryAlertResult {
+        zones = zones == null ? List.of() : List.copyOf(zones);
         activeAlerts = activeAlerts == null ? List.of() : List.copyOf(activeAlerts);
         notifications = notifications == null ? List.of() : List.copyOf(notifications);
     }
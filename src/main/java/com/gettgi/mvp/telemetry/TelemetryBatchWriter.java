@@ -0,0 +1,13 @@
+package com.gettgi.mvp.telemetry;
+
+import com.gettgi.mvp.entity.Telemetry;
+
+import java.util.List;
+
+/**
+ * Writes a batch of buffered telemetry points to the telemetry table in a single transaction.
+ */
+public interface TelemetryBatchWriter {
+
+    void write(List<Telemetry> batch);
+}
@@ -0,0 +1,70 @@
+package com.gettgi.mvp.telemetry;
+
+import io.micrometer.core.instrument.Clock;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Fate of every telemetry frame received: a {@code telemetry.ingest.frames} counter and an end-to-end
+ * {@code telemetry.ingest.lag} histogram (receive time minus the device timestamp), both tagged by outcome.
+ * <p>
+ * The lag is only recorded when the device timestamp could be read, which is never the case for some
+ * invalid payloads; it is clamped to zero for devices whose clock runs ahead. Frames arriving behind their
+ * collar watermark are {@link Outcome#LATE}: persisted for history, they would otherwise skew the lag of
+ * live frames.
+ */
+@Component
+public class TelemetryIngestMetrics {
+
+    public enum Outcome {
+        PERSISTED("persisted"),
+        LATE("late"),
+        DUPLICATE("duplicate"),
+        UNKNOWN_DEVICE("unknown-device"),
+        INVALID_PAYLOAD("invalid-payload"),
+        FAILED("failed");
+
+        private final String tag;
+
+        Outcome(String tag) {
+            this.tag = tag;
+        }
+    }
+
+    private final Clock clock;
+    private final Map<Outcome, Counter> frames = new EnumMap<>(Outcome.class);
+    private final Map<Outcome, Timer> lags = new EnumMap<>(Outcome.class);
+
+    public TelemetryIngestMetrics(MeterRegistry meterRegistry) {
+        this.clock = meterRegistry.config().clock();
+        for (Outcome outcome : Outcome.values()) {
+            frames.put(outcome, Counter.builder("telemetry.ingest.frames")
+                    .description("Telemetry frames received, by outcome")
+                    .tag("outcome", outcome.tag)
+                    .register(meterRegistry));
+            lags.put(outcome, Timer.builder("telemetry.ingest.lag")
+                    .description("Time between the device timestamp of a frame and the end of its processing")
+                    .tag("outcome", outcome.tag)
+                    .publishPercentileHistogram()
+                    .minimumExpectedValue(Duration.ofMillis(10))
+                    .maximumExpectedValue(Duration.ofHours(1))
+                    .register(meterRegistry));
+        }
+    }
+
+    public void record(Outcome outcome, Instant deviceTimestamp) {
+        frames.get(outcome).increment();
+        if (deviceTimestamp != null) {
+            long lagMillis = clock.wallTime() - deviceTimestamp.toEpochMilli();
+            lags.get(outcome).record(Math.max(0L, lagMillis), TimeUnit.MILLISECONDS);
+        }
+    }
+}
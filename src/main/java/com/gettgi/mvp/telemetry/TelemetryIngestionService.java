@@ -2,8 +2,16 @@ package com.gettgi.mvp.telemetry;
 
 import com.gettgi.mvp.dto.telemetry.TelemetryIngestDto;
 
+import java.util.List;
+
 public interface TelemetryIngestionService {
 
     void ingest(TelemetryIngestDto dto);
+
+    /**
+     * Ingests several frames at once, typically those replayed by a collar coming back from a dead zone,
+     * in a single transaction.
+     */
+    void ingestBatch(List<TelemetryIngestDto> dtos);
 }
 
@@ -0,0 +1,181 @@
+package com.gettgi.mvp.telemetry;
+
+import com.gettgi.mvp.config.TelemetryIngestProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageHandler;
+import org.springframework.messaging.MessagingException;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hands MQTT frames over to a fixed set of single-threaded partitions so that slow frames
+ * (DB round-trips, alerting, STOMP publishing) do not stall the MQTT callback thread.
+ * <p>
+ * Frames are routed by the IMEI found in the topic, so every frame of a device is processed
+ * by the same partition, in arrival order. Each partition has a bounded queue: when it is full
+ * the callback thread blocks for at most {@code enqueueTimeout}, which slows the broker down,
+ * and the frame is dropped if no room was made in time.
+ */
+@Slf4j
+public class TelemetryPartitionedDispatcher implements MessageHandler, DisposableBean {
+
+    private final MessageHandler delegate;
+    private final Duration enqueueTimeout;
+    private final Duration shutdownTimeout;
+    private final List<Partition> partitions;
+    private final Counter rejectedCounter;
+
+    private volatile boolean running = true;
+
+    public TelemetryPartitionedDispatcher(MessageHandler delegate,
+                                          TelemetryIngestProperties properties,
+                                          MeterRegistry meterRegistry) {
+        this.delegate = delegate;
+        this.enqueueTimeout = properties.getEnqueueTimeout() != null ? properties.getEnqueueTimeout() : Duration.ZERO;
+        this.shutdownTimeout = properties.getShutdownTimeout() != null ? properties.getShutdownTimeout() : Duration.ZERO;
+
+        int partitionCount = Math.max(0, properties.getPartitions());
+        int capacity = Math.max(1, properties.getQueueCapacity());
+        List<Partition> created = new ArrayList<>(partitionCount);
+        for (int index = 0; index < partitionCount; index++) {
+            Partition partition = new Partition(index, capacity);
+            String tag = String.valueOf(index);
+            Gauge.builder("telemetry.ingest.queue.depth", partition.queue, BlockingQueue::size)
+                    .description("Frames waiting in the ingest partition queue")
+                    .tag("partition", tag)
+                    .register(meterRegistry);
+            TimeGauge.builder("telemetry.ingest.partition.lag", partition, TimeUnit.NANOSECONDS, Partition::lagNanos)
+                    .description("Age of the oldest frame waiting in the ingest partition queue")
+                    .tag("partition", tag)
+                    .register(meterRegistry);
+            created.add(partition);
+        }
+        this.partitions = List.copyOf(created);
+        this.rejectedCounter = Counter.builder("telemetry.ingest.rejected")
+                .description("Frames dropped because their partition queue stayed full")
+                .register(meterRegistry);
+
+        partitions.forEach(Partition::start);
+        log.info("Telemetry ingest dispatcher started with {} partition(s), queue capacity {}", partitionCount, capacity);
+    }
+
+    @Override
+    public void handleMessage(Message<?> message) throws MessagingException {
+        if (partitions.isEmpty()) {
+            delegate.handleMessage(message);
+            return;
+        }
+
+        String topic = TelemetryTopics.resolveTopic(message);
+        Partition partition = partitions.get(partitionIndex(routingKey(topic), partitions.size()));
+        if (!running || !partition.offer(message, enqueueTimeout)) {
+            rejectedCounter.increment();
+            log.warn("Telemetry dropped: ingest partition {} is saturated (topic={})", partition.index, topic);
+        }
+    }
+
+    static int partitionIndex(String routingKey, int partitionCount) {
+        if (routingKey == null) {
+            return 0;
+        }
+        return Math.floorMod(routingKey.hashCode(), partitionCount);
+    }
+
+    private static String routingKey(String topic) {
+        String imei = TelemetryTopics.extractImei(topic);
+        return imei != null ? imei : topic;
+    }
+
+    @Override
+    public void destroy() {
+        running = false;
+        long deadline = System.nanoTime() + shutdownTimeout.toNanos();
+        partitions.forEach(Partition::stopAccepting);
+        for (Partition partition : partitions) {
+            long remaining = deadline - System.nanoTime();
+            try {
+                partition.worker.join(Math.max(1, TimeUnit.NANOSECONDS.toMillis(remaining)));
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+            if (partition.worker.isAlive()) {
+                log.warn("Telemetry ingest partition {} did not drain in time; {} frame(s) discarded",
+                        partition.index, partition.queue.size());
+                partition.worker.interrupt();
+            }
+        }
+    }
+
+    private record PendingFrame(Message<?> message, long enqueuedAtNanos) {
+    }
+
+    private final class Partition implements Runnable {
+
+        private final int index;
+        private final BlockingQueue<PendingFrame> queue;
+        private final Thread worker;
+        private volatile boolean accepting = true;
+
+        private Partition(int index, int capacity) {
+            this.index = index;
+            this.queue = new ArrayBlockingQueue<>(capacity);
+            this.worker = new Thread(this, "telemetry-ingest-" + index);
+            this.worker.setDaemon(true);
+        }
+
+        private void start() {
+            worker.start();
+        }
+
+        private void stopAccepting() {
+            accepting = false;
+        }
+
+        private boolean offer(Message<?> message, Duration timeout) {
+            PendingFrame frame = new PendingFrame(message, System.nanoTime());
+            try {
+                return queue.offer(frame, timeout.toNanos(), TimeUnit.NANOSECONDS);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+
+        private double lagNanos() {
+            PendingFrame head = queue.peek();
+            return head != null ? System.nanoTime() - head.enqueuedAtNanos() : 0d;
+        }
+
+        @Override
+        public void run() {
+            while (accepting || !queue.isEmpty()) {
+                PendingFrame frame;
+                try {
+                    frame = queue.poll(200, TimeUnit.MILLISECONDS);
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                if (frame == null) {
+                    continue;
+                }
+                try {
+                    delegate.handleMessage(frame.message());
+                } catch (Exception ex) {
+                    log.error("Telemetry ingest partition {} failed to process a frame", index, ex);
+                }
+            }
+        }
+    }
+}
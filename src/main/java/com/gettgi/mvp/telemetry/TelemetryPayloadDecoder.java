@@ -0,0 +1,382 @@
+package com.gettgi.mvp.telemetry;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonStreamContext;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.gettgi.mvp.dto.telemetry.GeoPointDto;
+import com.gettgi.mvp.dto.telemetry.TelemetryIngestDto;
+import com.gettgi.mvp.entity.enums.StatusCollar;
+import com.gettgi.mvp.entity.enums.StatutTransmission;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Decodes a raw MQTT telemetry payload into a {@link TelemetryIngestDto} in a single streaming pass,
+ * without materializing the payload as a {@link String} or a {@code JsonNode} tree.
+ * <p>
+ * The accepted format mirrors what Jackson data-binding accepted for the record: unknown fields are
+ * ignored, numbers may be sent as strings, timestamps are ISO-8601 strings or epoch seconds.
+ * A payload may also be a JSON array of such frames, as replayed by collars leaving a dead zone.
+ */
+@Slf4j
+@Component
+public class TelemetryPayloadDecoder {
+
+    private final JsonFactory jsonFactory;
+
+    public TelemetryPayloadDecoder(ObjectMapper objectMapper) {
+        this.jsonFactory = objectMapper.getFactory();
+    }
+
+    /**
+     * @return the decoded frame, or {@code null} when the frame must be dropped (the reason is logged)
+     * @throws IOException when the payload is not valid JSON or a field has an unexpected type
+     */
+    public TelemetryIngestDto decode(byte[] payload, String topic) throws IOException {
+        try (JsonParser parser = jsonFactory.createParser(payload)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                log.warn("Telemetry dropped: payload is not a JSON object (topic={})", topic);
+                return null;
+            }
+            return readFrame(parser, topic);
+        }
+    }
+
+    /**
+     * Decodes a payload holding either one frame or a JSON array of frames.
+     * Elements of an array that are not objects or do not make a valid frame are dropped (the reason is logged).
+     *
+     * @return the decoded frames in payload order, empty when none can be kept
+     * @throws IOException when the payload is not valid JSON, or is a single frame with a field of unexpected type
+     */
+    public List<TelemetryIngestDto> decodeBatch(byte[] payload, String topic) throws IOException {
+        try (JsonParser parser = jsonFactory.createParser(payload)) {
+            JsonToken first = parser.nextToken();
+            if (first == JsonToken.START_OBJECT) {
+                TelemetryIngestDto frame = readFrame(parser, topic);
+                return frame != null ? List.of(frame) : List.of();
+            }
+            if (first != JsonToken.START_ARRAY) {
+                log.warn("Telemetry dropped: payload is neither a JSON object nor an array (topic={})", topic);
+                return List.of();
+            }
+            JsonStreamContext array = parser.getParsingContext();
+            List<TelemetryIngestDto> frames = new ArrayList<>();
+            int skipped = 0;
+            JsonToken token;
+            while ((token = parser.nextToken()) != JsonToken.END_ARRAY && token != null) {
+                if (token != JsonToken.START_OBJECT) {
+                    parser.skipChildren();
+                    skipped++;
+                    continue;
+                }
+                try {
+                    TelemetryIngestDto frame = readFrame(parser, topic);
+                    if (frame != null) {
+                        frames.add(frame);
+                    }
+                } catch (IllegalArgumentException | InvalidFieldException ex) {
+                    // the JSON itself is well-formed: skip what is left of the element, if anything
+                    // (a coordinate out of range is rejected before its frame is read), and go on with the array
+                    log.warn("Telemetry dropped: invalid array element (topic={}): {}", topic,
+                            ex instanceof InvalidFieldException invalid ? invalid.getOriginalMessage() : ex.getMessage());
+                    while (parser.getParsingContext() != array && parser.nextToken() != null) {
+                        // the context goes back to the array once the end of the element is read
+                    }
+                }
+            }
+            if (skipped > 0) {
+                log.warn("Telemetry dropped: {} array element(s) are not JSON objects (topic={})", skipped, topic);
+            }
+            return frames;
+        }
+    }
+
+    private TelemetryIngestDto readFrame(JsonParser parser, String topic) throws IOException {
+        String deviceImei = null;
+        Instant timestamp = null;
+        GeoPointDto position = null;
+        Double speed = null;
+        Double accelX = null;
+        Double accelY = null;
+        Double accelZ = null;
+        Double pressure = null;
+        Integer batteryLevel = null;
+        Integer gsmSignal = null;
+        StatusCollar statusCollar = null;
+        StatutTransmission transmissionStatus = null;
+
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            parser.nextToken();
+            switch (field) {
+                case "deviceImei" -> deviceImei = readText(parser);
+                case "timestamp" -> timestamp = readInstant(parser);
+                case "position" -> position = readPosition(parser);
+                case "speed" -> speed = readDouble(parser);
+                case "accelX" -> accelX = readDouble(parser);
+                case "accelY" -> accelY = readDouble(parser);
+                case "accelZ" -> accelZ = readDouble(parser);
+                case "pressure" -> pressure = readDouble(parser);
+                case "batteryLevel" -> batteryLevel = readInteger(parser);
+                case "gsmSignal" -> gsmSignal = readInteger(parser);
+                case "statusCollar" -> statusCollar = readEnum(parser, StatusCollar.class);
+                case "transmissionStatus" -> transmissionStatus = readEnum(parser, StatutTransmission.class);
+                default -> parser.skipChildren();
+            }
+        }
+
+        String imei = resolveDeviceImei(deviceImei, topic);
+        if (imei == null) {
+            log.warn("Telemetry dropped: missing deviceImei (topic={})", topic);
+            return null;
+        }
+
+        return new TelemetryIngestDto(
+                imei,
+                timestamp,
+                position,
+                speed,
+                accelX,
+                accelY,
+                accelZ,
+                pressure,
+                batteryLevel,
+                gsmSignal,
+                statusCollar,
+                transmissionStatus
+        );
+    }
+
+    private String resolveDeviceImei(String provided, String topic) {
+        String extracted = TelemetryTopics.extractImei(topic);
+        boolean hasProvided = provided != null && !provided.isBlank();
+        if (extracted == null) {
+            return hasProvided ? provided : null;
+        }
+        if (!hasProvided) {
+            return extracted;
+        }
+        if (!provided.equals(extracted) && log.isWarnEnabled()) {
+            log.warn("Telemetry payload deviceImei={} does not match topic imei={} (topic={})", provided, extracted, topic);
+        }
+        return provided;
+    }
+
+    private GeoPointDto readPosition(JsonParser parser) throws IOException {
+        if (parser.currentToken() == JsonToken.VALUE_NULL) {
+            return null;
+        }
+        if (parser.currentToken() != JsonToken.START_OBJECT) {
+            throw new InvalidFieldException(parser, "position must be a JSON object");
+        }
+        Double latitude = null;
+        Double longitude = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            parser.nextToken();
+            switch (field) {
+                case "latitude" -> latitude = readDouble(parser);
+                case "longitude" -> longitude = readDouble(parser);
+                default -> parser.skipChildren();
+            }
+        }
+        return new GeoPointDto(latitude, longitude);
+    }
+
+    private String readText(JsonParser parser) throws IOException {
+        JsonToken token = parser.currentToken();
+        if (token == JsonToken.VALUE_NULL) {
+            return null;
+        }
+        if (!token.isScalarValue()) {
+            throw new InvalidFieldException(parser, "Expected a scalar value for " + parser.currentName());
+        }
+        return parser.getText();
+    }
+
+    private Double readDouble(JsonParser parser) throws IOException {
+        JsonToken token = parser.currentToken();
+        if (token == JsonToken.VALUE_NULL) {
+            return null;
+        }
+        if (token.isNumeric()) {
+            return parser.getDoubleValue();
+        }
+        if (token == JsonToken.VALUE_STRING) {
+            String text = parser.getText().trim();
+            if (text.isEmpty()) {
+                return null;
+            }
+            try {
+                return Double.valueOf(text);
+            } catch (NumberFormatException ex) {
+                throw new InvalidFieldException(parser, "Invalid number for " + parser.currentName() + ": " + text, ex);
+            }
+        }
+        throw new InvalidFieldException(parser, "Expected a number for " + parser.currentName());
+    }
+
+    private Integer readInteger(JsonParser parser) throws IOException {
+        JsonToken token = parser.currentToken();
+        if (token == JsonToken.VALUE_NUMBER_INT) {
+            return parser.getIntValue();
+        }
+        Double value = readDouble(parser);
+        return value != null ? value.intValue() : null;
+    }
+
+    private Instant readInstant(JsonParser parser) throws IOException {
+        JsonToken token = parser.currentToken();
+        if (token == JsonToken.VALUE_NULL) {
+            return null;
+        }
+        if (token == JsonToken.VALUE_NUMBER_INT) {
+            return Instant.ofEpochSecond(parser.getLongValue());
+        }
+        if (token == JsonToken.VALUE_NUMBER_FLOAT) {
+            BigDecimal seconds = parser.getDecimalValue();
+            long wholeSeconds = seconds.longValue();
+            long nanos = seconds.subtract(BigDecimal.valueOf(wholeSeconds)).movePointRight(9).longValue();
+            return Instant.ofEpochSecond(wholeSeconds, nanos);
+        }
+        if (token == JsonToken.VALUE_STRING) {
+            String text = parser.getText().trim();
+            if (text.isEmpty()) {
+                return null;
+            }
+            Instant fast = parseUtcTimestamp(text);
+            if (fast != null) {
+                return fast;
+            }
+            try {
+                return Instant.parse(text);
+            } catch (DateTimeParseException ex) {
+                try {
+                    return OffsetDateTime.parse(text).toInstant();
+                } catch (DateTimeParseException ignored) {
+                    throw new InvalidFieldException(parser, "Invalid timestamp: " + text, ex);
+                }
+            }
+        }
+        throw new InvalidFieldException(parser, "Expected a timestamp for " + parser.currentName());
+    }
+
+    /**
+     * Fast path for the format sent by the collars ({@code yyyy-MM-ddTHH:mm:ss[.fraction]Z}),
+     * which avoids the allocations of {@link java.time.format.DateTimeFormatter}.
+     *
+     * @return the parsed instant, or {@code null} when the text needs the generic parser
+     */
+    static Instant parseUtcTimestamp(String text) {
+        int length = text.length();
+        if (length < 20 || text.charAt(length - 1) != 'Z'
+                || text.charAt(4) != '-' || text.charAt(7) != '-' || text.charAt(10) != 'T'
+                || text.charAt(13) != ':' || text.charAt(16) != ':') {
+            return null;
+        }
+        int year = digits(text, 0, 4);
+        int month = digits(text, 5, 7);
+        int day = digits(text, 8, 10);
+        int hour = digits(text, 11, 13);
+        int minute = digits(text, 14, 16);
+        int second = digits(text, 17, 19);
+        if (year < 0 || month < 1 || month > 12 || day < 1 || day > 28 && day > lengthOfMonth(year, month)
+                || hour < 0 || hour > 23 || minute < 0 || minute > 59 || second < 0 || second > 59) {
+            return null;
+        }
+
+        int nanos = 0;
+        if (length > 20) {
+            int fractionDigits = length - 21;
+            if (text.charAt(19) != '.' || fractionDigits < 1 || fractionDigits > 9) {
+                return null;
+            }
+            nanos = digits(text, 20, length - 1);
+            if (nanos < 0) {
+                return null;
+            }
+            for (int i = fractionDigits; i < 9; i++) {
+                nanos *= 10;
+            }
+        } else if (text.charAt(19) != 'Z') {
+            return null;
+        }
+
+        long epochDay = epochDay(year, month, day);
+        return Instant.ofEpochSecond(epochDay * 86_400L + hour * 3_600L + minute * 60L + second, nanos);
+    }
+
+    private static int digits(String text, int from, int to) {
+        int value = 0;
+        for (int i = from; i < to; i++) {
+            char c = text.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+
+    private static int lengthOfMonth(int year, int month) {
+        return switch (month) {
+            case 2 -> (year % 4 == 0 && (year % 100 != 0 || year % 400 == 0)) ? 29 : 28;
+            case 4, 6, 9, 11 -> 30;
+            default -> 31;
+        };
+    }
+
+    // Same algorithm as LocalDate.toEpochDay, inlined to stay allocation free.
+    private static long epochDay(int year, int month, int day) {
+        long y = year;
+        long total = 365 * y;
+        total += (y + 3) / 4 - (y + 99) / 100 + (y + 399) / 400;
+        total += (367L * month - 362) / 12;
+        total += day - 1;
+        if (month > 2) {
+            total--;
+            if (!((year % 4 == 0 && (year % 100 != 0 || year % 400 == 0)))) {
+                total--;
+            }
+        }
+        return total - 719_528L;
+    }
+
+    private <E extends Enum<E>> E readEnum(JsonParser parser, Class<E> type) throws IOException {
+        String text = readText(parser);
+        if (text == null || text.isEmpty()) {
+            return null;
+        }
+        try {
+            return Enum.valueOf(type, text);
+        } catch (IllegalArgumentException ex) {
+            throw new InvalidFieldException(parser, "Unknown " + type.getSimpleName() + " value: " + text, ex);
+        }
+    }
+
+    /**
+     * A well-formed field whose value cannot be used, as opposed to a syntax error reported by the parser.
+     */
+    private static final class InvalidFieldException extends JsonParseException {
+
+        InvalidFieldException(JsonParser parser, String message) {
+            super(parser, message);
+        }
+
+        InvalidFieldException(JsonParser parser, String message, Throwable cause) {
+            super(parser, message, cause);
+        }
+    }
+}
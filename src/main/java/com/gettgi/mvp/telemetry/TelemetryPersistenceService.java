@@ -2,8 +2,17 @@ package com.gettgi.mvp.telemetry;
 
 import com.gettgi.mvp.entity.Telemetry;
 
+import java.util.List;
+
 public interface TelemetryPersistenceService {
 
     void buffer(Telemetry telemetry);
+
+    /**
+     * Buffers several points of the same collar, oldest first.
+     */
+    default void bufferAll(List<Telemetry> telemetries) {
+        telemetries.forEach(this::buffer);
+    }
 }
 
@@ -0,0 +1,52 @@
+package com.gettgi.mvp.telemetry;
+
+import org.springframework.integration.mqtt.support.MqttHeaders;
+import org.springframework.messaging.Message;
+
+import java.util.regex.Pattern;
+
+/**
+ * Helpers to read the MQTT topic of a telemetry frame and extract the device IMEI from it
+ * ({@code collars/{imei}/telemetry}).
+ */
+public final class TelemetryTopics {
+
+    private static final Pattern IMEI_PATTERN = Pattern.compile("\\d{15}");
+
+    private TelemetryTopics() {
+        // Utility class
+    }
+
+    public static String resolveTopic(Message<?> message) {
+        Object header = message.getHeaders().get(MqttHeaders.RECEIVED_TOPIC);
+        if (header instanceof String topic && !topic.isBlank()) {
+            return topic;
+        }
+        return null;
+    }
+
+    public static String extractImei(String topic) {
+        if (topic == null || topic.isBlank()) {
+            return null;
+        }
+        String[] segments = topic.split("/");
+        if (segments.length < 3) {
+            return null;
+        }
+
+        for (int index = 0; index <= segments.length - 3; index++) {
+            if (!"collars".equals(segments[index])) {
+                continue;
+            }
+            if (!"telemetry".equals(segments[index + 2])) {
+                continue;
+            }
+            String candidate = segments[index + 1];
+            if (candidate != null && IMEI_PATTERN.matcher(candidate).matches()) {
+                return candidate;
+            }
+        }
+
+        return null;
+    }
+}
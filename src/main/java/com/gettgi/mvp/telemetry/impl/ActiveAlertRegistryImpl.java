@@ -0,0 +1,85 @@
+package com.gettgi.mvp.telemetry.impl;
+
+import com.gettgi.mvp.entity.enums.TypeAlerte;
+import com.gettgi.mvp.repository.AlerteRepository;
+import com.gettgi.mvp.telemetry.ActiveAlertRegistry;
+import com.gettgi.mvp.telemetry.ActiveAlerts;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Instant;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * {@link ActiveAlertRegistry} backed by a {@link ConcurrentHashMap} of copy-on-write states.
+ * Frames of one animal are evaluated sequentially by the ingest partition of its collar, so the
+ * transitions they make on a given animal do not race with each other. Alerts raised elsewhere, such as
+ * {@code DEVICE_OFFLINE} by the offline monitor, must be reported as opened only once they committed.
+ */
+@Service
+public class ActiveAlertRegistryImpl implements ActiveAlertRegistry {
+
+    private final AlerteRepository alerteRepository;
+    private final Map<UUID, ActiveAlerts> states = new ConcurrentHashMap<>();
+    private final Counter loadCounter;
+
+    public ActiveAlertRegistryImpl(AlerteRepository alerteRepository, MeterRegistry meterRegistry) {
+        this.alerteRepository = alerteRepository;
+        this.loadCounter = Counter.builder("telemetry.alert.state.loads")
+                .description("Active alert states loaded from the database")
+                .register(meterRegistry);
+        Gauge.builder("telemetry.alert.state.size", states, Map::size)
+                .description("Animals whose active alerts are held in memory")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public ActiveAlerts get(UUID animalId) {
+        ActiveAlerts state = states.get(animalId);
+        if (state != null) {
+            return state;
+        }
+        loadCounter.increment();
+        ActiveAlerts loaded = ActiveAlerts.of(alerteRepository.findByAnimal_IdAndResolvedFalse(animalId));
+        ActiveAlerts previous = states.putIfAbsent(animalId, loaded);
+        return previous != null ? previous : loaded;
+    }
+
+    @Override
+    public void opened(UUID animalId, TypeAlerte type, UUID alertId, Instant ts) {
+        // an animal that is not loaded yet will read the new alert from the database
+        states.computeIfPresent(animalId, (key, state) -> state.with(type, alertId, ts));
+        evictOnRollback(animalId);
+    }
+
+    @Override
+    public void resolved(UUID animalId, TypeAlerte type) {
+        states.computeIfPresent(animalId, (key, state) -> state.without(type));
+        evictOnRollback(animalId);
+    }
+
+    @Override
+    public void evict(UUID animalId) {
+        states.remove(animalId);
+    }
+
+    private void evictOnRollback(UUID animalId) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status != STATUS_COMMITTED) {
+                    evict(animalId);
+                }
+            }
+        });
+    }
+}
@@ -0,0 +1,165 @@
+package com.gettgi.mvp.telemetry.impl;
+
+import com.gettgi.mvp.config.TelemetryRegistryProperties;
+import com.gettgi.mvp.entity.enums.StatusCollar;
+import com.gettgi.mvp.repository.DeviceRepository;
+import com.gettgi.mvp.telemetry.DeviceRegistry;
+import com.gettgi.mvp.telemetry.DeviceRegistryInvalidationEvent;
+import com.gettgi.mvp.telemetry.DeviceSnapshot;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * {@link DeviceRegistry} backed by a {@link ConcurrentHashMap}. Unknown IMEIs are cached too,
+ * so a misconfigured collar does not cost a query per frame.
+ */
+@Slf4j
+@Service
+public class DeviceRegistryImpl implements DeviceRegistry {
+
+    private final DeviceRepository deviceRepository;
+    private final TelemetryRegistryProperties properties;
+    private final LongSupplier nanoClock;
+    private final long ttlNanos;
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    // Bumped on every invalidation so that a load racing with it is not cached.
+    private final AtomicLong invalidationEpoch = new AtomicLong();
+
+    private final Counter hitCounter;
+    private final Counter missCounter;
+    private final Counter staleCounter;
+    private final Counter invalidationCounter;
+
+    @Autowired
+    public DeviceRegistryImpl(DeviceRepository deviceRepository,
+                              TelemetryRegistryProperties properties,
+                              MeterRegistry meterRegistry) {
+        this(deviceRepository, properties, meterRegistry, System::nanoTime);
+    }
+
+    DeviceRegistryImpl(DeviceRepository deviceRepository,
+                       TelemetryRegistryProperties properties,
+                       MeterRegistry meterRegistry,
+                       LongSupplier nanoClock) {
+        this.deviceRepository = deviceRepository;
+        this.properties = properties;
+        this.nanoClock = nanoClock;
+        Duration ttl = properties.getTtl() != null ? properties.getTtl() : Duration.ofMinutes(10);
+        this.ttlNanos = ttl.toNanos();
+
+        this.hitCounter = lookupCounter(meterRegistry, "hit");
+        this.missCounter = lookupCounter(meterRegistry, "miss");
+        this.staleCounter = lookupCounter(meterRegistry, "stale");
+        this.invalidationCounter = Counter.builder("telemetry.device.registry.invalidations")
+                .description("Device registry entries evicted after a data change")
+                .register(meterRegistry);
+        Gauge.builder("telemetry.device.registry.size", entries, Map::size)
+                .description("Devices currently held by the registry, unknown IMEIs included")
+                .register(meterRegistry);
+    }
+
+    private static Counter lookupCounter(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("telemetry.device.registry.lookups")
+                .description("Device registry lookups by outcome")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    @Override
+    public Optional<DeviceSnapshot> find(String imei) {
+        if (imei == null) {
+            return Optional.empty();
+        }
+        long now = nanoClock.getAsLong();
+        Entry entry = entries.get(imei);
+        if (entry != null && now - entry.loadedAtNanos() < ttlNanos) {
+            hitCounter.increment();
+            return Optional.ofNullable(entry.snapshot());
+        }
+        (entry == null ? missCounter : staleCounter).increment();
+        return Optional.ofNullable(load(imei, now));
+    }
+
+    @Override
+    public void statusCollarChanged(String imei, StatusCollar statusCollar) {
+        entries.computeIfPresent(imei, (key, entry) -> entry.snapshot() == null
+                ? entry
+                : new Entry(entry.snapshot().withStatusCollar(statusCollar), entry.loadedAtNanos()));
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onInvalidation(DeviceRegistryInvalidationEvent event) {
+        invalidationEpoch.incrementAndGet();
+        int evicted = 0;
+        for (String imei : event.imeis()) {
+            if (entries.remove(imei) != null) {
+                evicted++;
+            }
+        }
+        if (event.ownerId() != null) {
+            var iterator = entries.values().iterator();
+            while (iterator.hasNext()) {
+                DeviceSnapshot snapshot = iterator.next().snapshot();
+                if (snapshot != null && event.ownerId().equals(snapshot.ownerId())) {
+                    iterator.remove();
+                    evicted++;
+                }
+            }
+        }
+        invalidationCounter.increment(evicted);
+        if (log.isDebugEnabled()) {
+            log.debug("Device registry evicted {} entr(ies) for imeis={} owner={}", evicted, event.imeis(), event.ownerId());
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        if (!properties.isWarmUp()) {
+            return;
+        }
+        try {
+            long epoch = invalidationEpoch.get();
+            long now = nanoClock.getAsLong();
+            var devices = deviceRepository.findAllWithOwnerGraph();
+            if (invalidationEpoch.get() == epoch) {
+                devices.forEach(device -> entries.putIfAbsent(device.getImei(), new Entry(DeviceSnapshot.of(device), now)));
+            }
+            log.info("Device registry warmed up with {} device(s)", devices.size());
+        } catch (Exception ex) {
+            log.warn("Device registry warm-up failed; devices will be loaded on first telemetry", ex);
+        }
+    }
+
+    private DeviceSnapshot load(String imei, long now) {
+        long epoch = invalidationEpoch.get();
+        DeviceSnapshot snapshot = deviceRepository.findWithOwnerGraphByImei(imei)
+                .map(DeviceSnapshot::of)
+                .orElse(null);
+        if (invalidationEpoch.get() == epoch) {
+            entries.put(imei, new Entry(snapshot, now));
+        }
+        return snapshot;
+    }
+
+    /**
+     * @param snapshot {@code null} when no device is registered under the IMEI
+     */
+    private record Entry(DeviceSnapshot snapshot, long loadedAtNanos) {
+    }
+}
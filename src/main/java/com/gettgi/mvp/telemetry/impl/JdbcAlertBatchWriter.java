@@ -0,0 +1,65 @@
+package com.gettgi.mvp.telemetry.impl;
+
+import com.gettgi.mvp.entity.Alerte;
+import com.gettgi.mvp.telemetry.AlertBatchWriter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Inserts alerts with JDBC batches, bypassing the persistence context: ids and audit columns are filled here
+ * the same way Hibernate would. The inserted alerts are not managed entities.
+ */
+@Repository
+@RequiredArgsConstructor
+public class JdbcAlertBatchWriter implements AlertBatchWriter {
+
+    static final String INSERT_SQL = """
+            insert into alerte (id, created_at, updated_at, type_alerte, ts, resolved, message, resolved_at,
+                                user_id, animal_id, device_id)
+            values (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)
+            """;
+    private static final int BATCH_SIZE = 500;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    public void insert(List<Alerte> alerts) {
+        if (alerts.isEmpty()) {
+            return;
+        }
+        Instant now = Instant.now();
+        for (Alerte alert : alerts) {
+            alert.setId(UUID.randomUUID());
+            alert.setCreatedAt(now);
+            alert.setUpdatedAt(now);
+        }
+        jdbcTemplate.batchUpdate(INSERT_SQL, alerts, BATCH_SIZE, this::bind);
+    }
+
+    private void bind(PreparedStatement ps, Alerte alert) throws SQLException {
+        ps.setObject(1, alert.getId());
+        ps.setObject(2, toOffsetDateTime(alert.getCreatedAt()));
+        ps.setObject(3, toOffsetDateTime(alert.getUpdatedAt()));
+        ps.setString(4, alert.getTypeAlerte().name());
+        ps.setObject(5, toOffsetDateTime(alert.getTs()));
+        ps.setBoolean(6, alert.isResolved());
+        ps.setString(7, alert.getMessage());
+        ps.setObject(8, toOffsetDateTime(alert.getResolvedAt()));
+        ps.setObject(9, alert.getUser().getId());
+        ps.setObject(10, alert.getAnimal().getId());
+        ps.setObject(11, alert.getDevice() != null ? alert.getDevice().getId() : null);
+    }
+
+    private static OffsetDateTime toOffsetDateTime(Instant instant) {
+        return instant != null ? instant.atOffset(ZoneOffset.UTC) : null;
+    }
+}
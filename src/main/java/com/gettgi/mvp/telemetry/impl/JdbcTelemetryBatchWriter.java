@@ -0,0 +1,81 @@
+package com.gettgi.mvp.telemetry.impl;
+
+import com.gettgi.mvp.entity.Telemetry;
+import com.gettgi.mvp.telemetry.TelemetryBatchWriter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Inserts telemetry rows with JDBC batches, bypassing the persistence context, id generation and auditing
+ * listeners. Ids and audit columns are filled here the same way Hibernate would.
+ */
+@RequiredArgsConstructor
+public class JdbcTelemetryBatchWriter implements TelemetryBatchWriter {
+
+    static final String INSERT_SQL = """
+            insert into telemetry (id, created_at, updated_at, device_id, position, speed,
+                                   accel_x, accel_y, accel_z, pressure, battery_level, gsm_signal,
+                                   transmission_status, status_collar, ts)
+            values (?, ?, ?, ?, ST_SetSRID(ST_MakePoint(?, ?), 4326), ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+
+    @Override
+    public void write(List<Telemetry> batch) {
+        OffsetDateTime now = OffsetDateTime.now(ZoneOffset.UTC);
+        transactionTemplate.executeWithoutResult(status ->
+                jdbcTemplate.batchUpdate(INSERT_SQL, batch, Math.max(1, batchSize), (ps, telemetry) -> bind(ps, telemetry, now)));
+    }
+
+    private void bind(PreparedStatement ps, Telemetry telemetry, OffsetDateTime now) throws SQLException {
+        ps.setObject(1, UUID.randomUUID());
+        ps.setObject(2, now);
+        ps.setObject(3, now);
+        ps.setObject(4, telemetry.getDevice().getId());
+        ps.setDouble(5, telemetry.getPosition().getX());
+        ps.setDouble(6, telemetry.getPosition().getY());
+        setDouble(ps, 7, telemetry.getSpeed());
+        setDouble(ps, 8, telemetry.getAccelX());
+        setDouble(ps, 9, telemetry.getAccelY());
+        setDouble(ps, 10, telemetry.getAccelZ());
+        setDouble(ps, 11, telemetry.getPressure());
+        setInteger(ps, 12, telemetry.getBatteryLevel());
+        setInteger(ps, 13, telemetry.getGsmSignal());
+        ps.setString(14, telemetry.getTransmissionStatus() != null ? telemetry.getTransmissionStatus().name() : null);
+        ps.setString(15, telemetry.getStatusCollar() != null ? telemetry.getStatusCollar().name() : null);
+        ps.setObject(16, toOffsetDateTime(telemetry.getTs()));
+    }
+
+    private static void setDouble(PreparedStatement ps, int index, Double value) throws SQLException {
+        if (value == null) {
+            ps.setNull(index, Types.DOUBLE);
+        } else {
+            ps.setDouble(index, value);
+        }
+    }
+
+    private static void setInteger(PreparedStatement ps, int index, Integer value) throws SQLException {
+        if (value == null) {
+            ps.setNull(index, Types.INTEGER);
+        } else {
+            ps.setInt(index, value);
+        }
+    }
+
+    private static OffsetDateTime toOffsetDateTime(Instant instant) {
+        return instant != null ? instant.atOffset(ZoneOffset.UTC) : null;
+    }
+}
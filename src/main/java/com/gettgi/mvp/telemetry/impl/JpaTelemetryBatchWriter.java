@@ -0,0 +1,21 @@
+package com.gettgi.mvp.telemetry.impl;
+
+import com.gettgi.mvp.entity.Telemetry;
+import com.gettgi.mvp.repository.TelemetryRepository;
+import com.gettgi.mvp.telemetry.TelemetryBatchWriter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+
+@RequiredArgsConstructor
+public class JpaTelemetryBatchWriter implements TelemetryBatchWriter {
+
+    private final TelemetryRepository telemetryRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    @Override
+    public void write(List<Telemetry> batch) {
+        transactionTemplate.executeWithoutResult(status -> telemetryRepository.saveAll(batch));
+    }
+}
@@ -0,0 +1,162 @@
+package com.gettgi.mvp.telemetry.impl;
+
+import com.gettgi.mvp.config.TelemetryPersistenceProperties;
+import com.gettgi.mvp.telemetry.LivePosition;
+import com.gettgi.mvp.telemetry.LivePositionStore;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * {@link LivePositionStore} backed by two {@link ConcurrentHashMap}s: the current view, and the positions
+ * not written yet. A flush takes the pending positions and writes them with one
+ * {@code UPDATE ... FROM (VALUES ...)} statement per {@code batchSize} animals; the update is skipped for
+ * an animal whose stored position is more recent. Positions that fail to be written stay pending.
+ */
+@Slf4j
+@Service
+public class LivePositionStoreImpl implements LivePositionStore, DisposableBean {
+
+    private static final String UPDATE_PREFIX = """
+            update animal a
+            set last_position = v.position,
+                last_position_ts = v.ts,
+                last_position_inside_geofence = v.inside_geofence
+            from (values\s""";
+    private static final String UPDATE_ROW =
+            "(cast(? as uuid), ST_SetSRID(ST_MakePoint(?, ?), 4326), cast(? as timestamptz), cast(? as boolean))";
+    private static final String UPDATE_SUFFIX = """
+            ) as v(id, position, ts, inside_geofence)
+            where a.id = v.id
+              and (a.last_position_ts is null or a.last_position_ts <= v.ts)
+            """;
+
+    // PostgreSQL accepts at most 65535 bind parameters per statement, 5 per row here
+    private static final int MAX_ROWS_PER_STATEMENT = 10_000;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final int batchSize;
+    private final Map<UUID, LivePosition> current = new ConcurrentHashMap<>();
+    private final Map<UUID, LivePosition> pending = new ConcurrentHashMap<>();
+
+    private final Timer flushTimer;
+    private final DistributionSummary flushSize;
+    private final Counter failureCounter;
+
+    public LivePositionStoreImpl(JdbcTemplate jdbcTemplate,
+                                 TelemetryPersistenceProperties properties,
+                                 MeterRegistry meterRegistry) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.batchSize = Math.min(MAX_ROWS_PER_STATEMENT, Math.max(1, properties.getBatchSize()));
+        Gauge.builder("telemetry.live-position.size", current, Map::size)
+                .description("Animals whose last position is held in memory")
+                .register(meterRegistry);
+        Gauge.builder("telemetry.live-position.pending", pending, Map::size)
+                .description("Last positions waiting to be written to the animal table")
+                .register(meterRegistry);
+        this.flushTimer = Timer.builder("telemetry.live-position.flush")
+                .description("Time spent writing last positions to the animal table")
+                .register(meterRegistry);
+        this.flushSize = DistributionSummary.builder("telemetry.live-position.flush.size")
+                .description("Last positions written by one flush")
+                .baseUnit("animals")
+                .register(meterRegistry);
+        this.failureCounter = Counter.builder("telemetry.live-position.flush.failures")
+                .description("Flushes of last positions that failed and were left for the next attempt")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public void record(UUID animalId, LivePosition position) {
+        current.merge(animalId, position, LivePositionStoreImpl::newest);
+        pending.merge(animalId, position, LivePositionStoreImpl::newest);
+    }
+
+    @Override
+    public Optional<LivePosition> find(UUID animalId) {
+        return Optional.ofNullable(current.get(animalId));
+    }
+
+    @Override
+    @Scheduled(fixedDelayString = "${app.telemetry.persistence.last-position-flush-interval:PT5S}")
+    public synchronized void flush() {
+        if (pending.isEmpty()) {
+            return;
+        }
+        List<Map.Entry<UUID, LivePosition>> taken = new ArrayList<>(pending.size());
+        for (Map.Entry<UUID, LivePosition> entry : pending.entrySet()) {
+            if (pending.remove(entry.getKey(), entry.getValue())) {
+                taken.add(Map.entry(entry.getKey(), entry.getValue()));
+            }
+        }
+
+        Timer.Sample sample = Timer.start();
+        int written = 0;
+        try {
+            for (int from = 0; from < taken.size(); from += batchSize) {
+                List<Map.Entry<UUID, LivePosition>> chunk = taken.subList(from, Math.min(taken.size(), from + batchSize));
+                jdbcTemplate.update(updateSql(chunk.size()), ps -> bind(ps, chunk));
+                written += chunk.size();
+            }
+        } catch (RuntimeException ex) {
+            failureCounter.increment();
+            // a newer position recorded meanwhile wins over the one given back
+            taken.subList(written, taken.size())
+                    .forEach(entry -> pending.merge(entry.getKey(), entry.getValue(), LivePositionStoreImpl::newest));
+            log.error("Failed to write {} last position(s) to the animal table", taken.size() - written, ex);
+        } finally {
+            sample.stop(flushTimer);
+            flushSize.record(written);
+        }
+    }
+
+    @Override
+    public void destroy() {
+        flush();
+    }
+
+    private static String updateSql(int rows) {
+        StringBuilder sql = new StringBuilder(UPDATE_PREFIX.length() + rows * (UPDATE_ROW.length() + 2) + UPDATE_SUFFIX.length());
+        sql.append(UPDATE_PREFIX);
+        for (int i = 0; i < rows; i++) {
+            if (i > 0) {
+                sql.append(", ");
+            }
+            sql.append(UPDATE_ROW);
+        }
+        return sql.append(UPDATE_SUFFIX).toString();
+    }
+
+    private static void bind(PreparedStatement ps, List<Map.Entry<UUID, LivePosition>> rows) throws SQLException {
+        int index = 1;
+        for (Map.Entry<UUID, LivePosition> row : rows) {
+            LivePosition position = row.getValue();
+            ps.setObject(index++, row.getKey());
+            ps.setDouble(index++, position.position().getX());
+            ps.setDouble(index++, position.position().getY());
+            ps.setObject(index++, position.ts().atOffset(ZoneOffset.UTC));
+            ps.setBoolean(index++, position.insideGeofence());
+        }
+    }
+
+    private static LivePosition newest(LivePosition held, LivePosition candidate) {
+        return candidate.isNewerThan(held) ? candidate : held;
+    }
+}
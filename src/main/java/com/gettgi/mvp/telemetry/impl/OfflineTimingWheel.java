@@ -0,0 +1,113 @@
+package com.gettgi.mvp.telemetry.impl;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Hashed timing wheel of per-key deadlines, all due within {@code horizonMillis}.
+ * <p>
+ * Re-arming a key that is already scheduled only moves its deadline: the key stays in its slot and is
+ * moved to the slot of its new deadline when the wheel reaches the old one. A key re-armed on every
+ * telemetry frame therefore costs one map update per frame and one slot move per horizon. Deadlines are
+ * expected to only move forward: a key re-armed earlier still expires at the slot it sits in.
+ * <p>
+ * {@link #arm} may be called from any thread; {@link #advance} is meant to be called by a single thread.
+ *
+ * @param <T> payload handed back when a deadline expires
+ */
+final class OfflineTimingWheel<T> {
+
+    private final long tickMillis;
+    private final List<Set<UUID>> slots;
+    private final Map<UUID, Entry<T>> entries = new ConcurrentHashMap<>();
+    // next tick to expire
+    private volatile long currentTick;
+
+    OfflineTimingWheel(long tickMillis, long horizonMillis, long nowMillis) {
+        this.tickMillis = Math.max(1, tickMillis);
+        // one more slot than the horizon spans, so that a deadline never lands on the slot being expired
+        int slotCount = (int) Math.min(1 << 20, horizonMillis / this.tickMillis + 2);
+        List<Set<UUID>> created = new ArrayList<>(slotCount);
+        for (int i = 0; i < slotCount; i++) {
+            created.add(ConcurrentHashMap.newKeySet());
+        }
+        this.slots = List.copyOf(created);
+        this.currentTick = nowMillis / this.tickMillis;
+    }
+
+    /**
+     * Schedules {@code key} to expire at {@code deadlineMillis}, replacing its previous deadline and payload.
+     */
+    void arm(UUID key, T payload, long deadlineMillis) {
+        // a deadline already due is expired by the next advance
+        long deadlineTick = Math.max(-Math.floorDiv(-deadlineMillis, tickMillis), currentTick + 1);
+        entries.compute(key, (k, entry) -> {
+            if (entry == null) {
+                slot(deadlineTick).add(k);
+                return new Entry<>(payload, deadlineTick);
+            }
+            entry.payload = payload;
+            entry.deadlineTick = deadlineTick;
+            return entry;
+        });
+    }
+
+    void cancel(UUID key) {
+        entries.remove(key);
+    }
+
+    /**
+     * Moves the wheel up to {@code nowMillis}.
+     *
+     * @return the payloads whose deadline passed, each key being unscheduled
+     */
+    List<T> advance(long nowMillis) {
+        long nowTick = nowMillis / tickMillis;
+        List<T> expired = new ArrayList<>();
+        // after a long pause a single revolution visits every slot
+        long lastTick = Math.min(nowTick, currentTick + slots.size() - 1);
+        for (long tick = currentTick; tick <= lastTick; tick++) {
+            Set<UUID> bucket = slot(tick);
+            for (UUID key : List.copyOf(bucket)) {
+                bucket.remove(key);
+                entries.compute(key, (k, entry) -> {
+                    if (entry == null) {
+                        return null;
+                    }
+                    if (entry.deadlineTick <= nowTick) {
+                        expired.add(entry.payload);
+                        return null;
+                    }
+                    slot(entry.deadlineTick).add(k);
+                    return entry;
+                });
+            }
+        }
+        // a full revolution has seen every key: the wheel may jump to the present
+        currentTick = Math.max(currentTick, nowTick + 1);
+        return expired;
+    }
+
+    int size() {
+        return entries.size();
+    }
+
+    private Set<UUID> slot(long tick) {
+        return slots.get((int) Math.floorMod(tick, (long) slots.size()));
+    }
+
+    private static final class Entry<T> {
+
+        private T payload;
+        private long deadlineTick;
+
+        Entry(T payload, long deadlineTick) {
+            this.payload = payload;
+            this.deadlineTick = deadlineTick;
+        }
+    }
+}
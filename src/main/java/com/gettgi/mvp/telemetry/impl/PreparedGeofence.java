@@ -0,0 +1,138 @@
+package com.gettgi.mvp.telemetry.impl;
+
+import com.gettgi.mvp.dto.telemetry.GeofenceZoneDto;
+import com.gettgi.mvp.entity.Geofence;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.geom.Point;
+import org.locationtech.jts.geom.Polygon;
+import org.locationtech.jts.geom.prep.PreparedGeometry;
+import org.locationtech.jts.geom.prep.PreparedGeometryFactory;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * One geofence ready for repeated containment tests: a bounding-box rejection first, then either an exact
+ * haversine distance test for the circles drawn by the geofence API, or a {@link PreparedGeometry}
+ * whose edge index is built once.
+ */
+final class PreparedGeofence {
+
+    static final double EARTH_RADIUS_METERS = 6_371_000d;
+    // a 64-vertex polygon inscribed in the circle deviates from it by about 0.12 % of the radius
+    private static final double CIRCLE_TOLERANCE = 0.01;
+
+    private final GeofenceZoneDto zone;
+    private final UUID troupeauId;
+    private final Instant version;
+    private final Envelope envelope;
+    private final PreparedGeometry prepared;
+
+    private final boolean circle;
+    private final double centerLatRad;
+    private final double centerLonRad;
+    private final double cosCenterLat;
+    private final double radiusMeters;
+
+    private PreparedGeofence(GeofenceZoneDto zone, UUID troupeauId, Instant version, Envelope envelope,
+                             PreparedGeometry prepared, Coordinate center, double radiusMeters) {
+        this.zone = zone;
+        this.troupeauId = troupeauId;
+        this.version = version;
+        this.envelope = envelope;
+        this.prepared = prepared;
+        this.circle = center != null;
+        this.centerLatRad = center != null ? Math.toRadians(center.y) : 0d;
+        this.centerLonRad = center != null ? Math.toRadians(center.x) : 0d;
+        this.cosCenterLat = Math.cos(centerLatRad);
+        this.radiusMeters = radiusMeters;
+    }
+
+    static PreparedGeofence of(Geofence geofence) {
+        UUID troupeauId = geofence.getTroupeau() != null ? geofence.getTroupeau().getId() : null;
+        return of(new GeofenceZoneDto(geofence.getId(), geofence.getNom()), troupeauId, geofence.getUpdatedAt(),
+                geofence.getZone(), geofence.getRadiusMeters());
+    }
+
+    static PreparedGeofence of(GeofenceZoneDto ref, UUID troupeauId, Instant version, Polygon zone, Double radiusMeters) {
+        Coordinate center = radiusMeters != null ? circleCenter(zone, radiusMeters) : null;
+        if (center != null) {
+            double latSpan = Math.toDegrees(radiusMeters / EARTH_RADIUS_METERS);
+            double lonSpan = latSpan / Math.max(Math.cos(Math.toRadians(center.y)), 1e-9);
+            Envelope envelope = new Envelope(center.x - lonSpan, center.x + lonSpan, center.y - latSpan, center.y + latSpan);
+            return new PreparedGeofence(ref, troupeauId, version, envelope, null, center, radiusMeters);
+        }
+        return new PreparedGeofence(ref, troupeauId, version, zone.getEnvelopeInternal(),
+                PreparedGeometryFactory.prepare(zone), null, 0d);
+    }
+
+    /**
+     * Returns the centroid of the zone when every vertex lies at {@code radiusMeters} from it,
+     * i.e. when the zone was drawn as a circle; {@code null} for any other shape.
+     */
+    private static Coordinate circleCenter(Polygon zone, double radiusMeters) {
+        if (radiusMeters <= 0 || zone.getNumInteriorRing() > 0) {
+            return null;
+        }
+        Coordinate center = zone.getCentroid().getCoordinate();
+        if (center == null) {
+            return null;
+        }
+        for (Coordinate vertex : zone.getExteriorRing().getCoordinates()) {
+            double distance = haversineMeters(center.y, center.x, vertex.y, vertex.x);
+            if (Math.abs(distance - radiusMeters) > radiusMeters * CIRCLE_TOLERANCE) {
+                return null;
+            }
+        }
+        return center;
+    }
+
+    boolean covers(Point position) {
+        double x = position.getX();
+        double y = position.getY();
+        if (!envelope.covers(x, y)) {
+            return false;
+        }
+        if (!circle) {
+            return prepared.covers(position);
+        }
+        double latRad = Math.toRadians(y);
+        double sinHalfDLat = Math.sin((latRad - centerLatRad) / 2);
+        double sinHalfDLon = Math.sin((Math.toRadians(x) - centerLonRad) / 2);
+        double a = sinHalfDLat * sinHalfDLat + cosCenterLat * Math.cos(latRad) * sinHalfDLon * sinHalfDLon;
+        return 2 * EARTH_RADIUS_METERS * Math.asin(Math.min(1d, Math.sqrt(a))) <= radiusMeters;
+    }
+
+    /**
+     * Whether the zone applies to an animal of the given herd: owner-wide zones apply to every animal.
+     */
+    boolean appliesTo(UUID animalTroupeauId) {
+        return troupeauId == null || troupeauId.equals(animalTroupeauId);
+    }
+
+    boolean isVersion(Instant candidate) {
+        return version == null ? candidate == null : version.equals(candidate);
+    }
+
+    boolean isCircle() {
+        return circle;
+    }
+
+    GeofenceZoneDto zone() {
+        return zone;
+    }
+
+    Envelope envelope() {
+        return envelope;
+    }
+
+    static double haversineMeters(double lat1, double lon1, double lat2, double lon2) {
+        double rLat1 = Math.toRadians(lat1);
+        double rLat2 = Math.toRadians(lat2);
+        double sinHalfDLat = Math.sin((rLat2 - rLat1) / 2);
+        double sinHalfDLon = Math.sin(Math.toRadians(lon2 - lon1) / 2);
+        double a = sinHalfDLat * sinHalfDLat + Math.cos(rLat1) * Math.cos(rLat2) * sinHalfDLon * sinHalfDLon;
+        return 2 * EARTH_RADIUS_METERS * Math.asin(Math.min(1d, Math.sqrt(a)));
+    }
+}
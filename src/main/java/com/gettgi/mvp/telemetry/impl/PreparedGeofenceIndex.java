@@ -0,0 +1,173 @@
+package com.gettgi.mvp.telemetry.impl;
+
+import com.gettgi.mvp.dto.telemetry.GeofenceZoneDto;
+import com.gettgi.mvp.entity.Geofence;
+import com.gettgi.mvp.repository.GeofenceRepository;
+import com.gettgi.mvp.telemetry.DeviceRegistryInvalidationEvent;
+import com.gettgi.mvp.telemetry.GeofenceIndex;
+import com.gettgi.mvp.telemetry.GeofenceMatch;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.locationtech.jts.geom.Envelope;
+import org.locationtech.jts.geom.Point;
+import org.locationtech.jts.index.strtree.STRtree;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * {@link GeofenceIndex} holding, per owner, an {@link STRtree} of {@link PreparedGeofence}s loaded on first use.
+ * <p>
+ * A device registry invalidation for an owner marks its zones stale; they are reloaded on the next lookup,
+ * reusing the prepared geometry of every zone whose id and {@code updatedAt} did not change.
+ * Owners without any zone are cached too.
+ */
+@Service
+public class PreparedGeofenceIndex implements GeofenceIndex {
+
+    private final GeofenceRepository geofenceRepository;
+    private final Map<UUID, OwnerZones> owners = new ConcurrentHashMap<>();
+    // Bumped on every invalidation so that a load racing with it is not cached as fresh.
+    private final AtomicLong invalidationEpoch = new AtomicLong();
+
+    private final Counter loadCounter;
+    private final Counter buildCounter;
+
+    public PreparedGeofenceIndex(GeofenceRepository geofenceRepository, MeterRegistry meterRegistry) {
+        this.geofenceRepository = geofenceRepository;
+        this.loadCounter = Counter.builder("telemetry.geofence.index.loads")
+                .description("Owner geofence sets loaded from the database")
+                .register(meterRegistry);
+        this.buildCounter = Counter.builder("telemetry.geofence.prepared.builds")
+                .description("Geofences prepared for containment tests")
+                .register(meterRegistry);
+        Gauge.builder("telemetry.geofence.index.owners", owners, Map::size)
+                .description("Owners whose geofences are held in memory")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public GeofenceMatch locate(UUID ownerId, UUID troupeauId, Point position) {
+        if (ownerId == null || position == null) {
+            return GeofenceMatch.NO_ZONE;
+        }
+        OwnerZones zones = owners.get(ownerId);
+        if (zones == null || zones.stale()) {
+            zones = load(ownerId, zones);
+        }
+        return zones.locate(troupeauId, position);
+    }
+
+    private OwnerZones load(UUID ownerId, OwnerZones previous) {
+        long epoch = invalidationEpoch.get();
+        loadCounter.increment();
+
+        Map<UUID, PreparedGeofence> reusable = new HashMap<>();
+        if (previous != null) {
+            previous.zones().forEach(zone -> reusable.put(zone.zone().id(), zone));
+        }
+        List<PreparedGeofence> prepared = new ArrayList<>();
+        for (Geofence geofence : geofenceRepository.findAllByUser_IdOrderByCreatedAtAsc(ownerId)) {
+            if (geofence.getZone() == null) {
+                continue;
+            }
+            PreparedGeofence current = reusable.get(geofence.getId());
+            if (current == null || !current.isVersion(geofence.getUpdatedAt())) {
+                buildCounter.increment();
+                current = PreparedGeofence.of(geofence);
+            }
+            prepared.add(current);
+        }
+
+        OwnerZones loaded = OwnerZones.of(prepared);
+        if (invalidationEpoch.get() == epoch) {
+            owners.put(ownerId, loaded);
+        }
+        return loaded;
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onInvalidation(DeviceRegistryInvalidationEvent event) {
+        if (event.ownerId() == null) {
+            return;
+        }
+        invalidationEpoch.incrementAndGet();
+        owners.computeIfPresent(event.ownerId(), (key, zones) -> zones.markStale());
+    }
+
+    /**
+     * @param ownerWide zones applying to every animal, precomputed as most owners have no herd zone
+     */
+    private record OwnerZones(List<PreparedGeofence> zones, List<GeofenceZoneDto> ownerWide, STRtree tree, boolean stale) {
+
+        static OwnerZones of(List<PreparedGeofence> zones) {
+            STRtree tree = null;
+            if (!zones.isEmpty()) {
+                tree = new STRtree();
+                for (PreparedGeofence zone : zones) {
+                    tree.insert(zone.envelope(), zone);
+                }
+                // built eagerly: STRtree builds itself on first query otherwise
+                tree.build();
+            }
+            List<GeofenceZoneDto> ownerWide = new ArrayList<>(zones.size());
+            for (PreparedGeofence zone : zones) {
+                if (zone.appliesTo(null)) {
+                    ownerWide.add(zone.zone());
+                }
+            }
+            // List.copyOf hands back the same instance when GeofenceMatch copies it again
+            return new OwnerZones(List.copyOf(zones), List.copyOf(ownerWide), tree, false);
+        }
+
+        OwnerZones markStale() {
+            return new OwnerZones(zones, ownerWide, tree, true);
+        }
+
+        @SuppressWarnings("unchecked")
+        GeofenceMatch locate(UUID troupeauId, Point position) {
+            if (tree == null) {
+                return GeofenceMatch.NO_ZONE;
+            }
+            List<GeofenceZoneDto> applicable = applicableTo(troupeauId);
+            if (applicable.isEmpty()) {
+                return GeofenceMatch.NO_ZONE;
+            }
+            List<GeofenceZoneDto> containing = new ArrayList<>(1);
+            List<PreparedGeofence> candidates = tree.query(new Envelope(position.getCoordinate()));
+            for (PreparedGeofence candidate : candidates) {
+                if (candidate.appliesTo(troupeauId) && candidate.covers(position)) {
+                    containing.add(candidate.zone());
+                }
+            }
+            if (containing.size() > 1) {
+                // report zones in creation order, whatever the tree order
+                containing.sort(Comparator.comparingInt(applicable::indexOf));
+            }
+            return new GeofenceMatch(applicable, containing);
+        }
+
+        private List<GeofenceZoneDto> applicableTo(UUID troupeauId) {
+            if (troupeauId == null || ownerWide.size() == zones.size()) {
+                return ownerWide;
+            }
+            List<GeofenceZoneDto> applicable = new ArrayList<>(zones.size());
+            for (PreparedGeofence zone : zones) {
+                if (zone.appliesTo(troupeauId)) {
+                    applicable.add(zone.zone());
+                }
+            }
+            return applicable;
+        }
+    }
+}
@@ -2,38 +2,116 @@ package com.gettgi.mvp.telemetry.impl;
 
 import com.gettgi.mvp.dto.telemetry.AlertNotificationDto;
 import com.gettgi.mvp.dto.telemetry.RealtimePositionDto;
-import com.gettgi.mvp.push.AlertPublishedEvent;
 import com.gettgi.mvp.telemetry.RealtimeMessagingService;
-import lombok.RequiredArgsConstructor;
-import org.springframework.messaging.simp.SimpMessagingTemplate;
+import com.gettgi.mvp.telemetry.impl.RealtimeOutboundDispatcher.AlertGroup;
+import com.gettgi.mvp.telemetry.impl.RealtimeOutboundDispatcher.AlertUpdate;
+import com.gettgi.mvp.telemetry.impl.RealtimeOutboundDispatcher.Outbound;
+import com.gettgi.mvp.telemetry.impl.RealtimeOutboundDispatcher.PositionUpdate;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
-import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Hands realtime messages over to the {@link RealtimeOutboundDispatcher} of this node, and to the
+ * {@link RealtimeRelay} for the sessions connected to other nodes when one is configured.
+ * <p>
+ * Messages published within a transaction are held until it completes: they are dispatched once it commits,
+ * so that clients never see an alert that is then rolled back, and discarded otherwise.
+ */
 @Service
-@RequiredArgsConstructor
 public class RealtimeMessagingServiceImpl implements RealtimeMessagingService {
 
-    private final SimpMessagingTemplate messagingTemplate;
-    private final ApplicationEventPublisher eventPublisher;
+    private final RealtimeOutboundDispatcher dispatcher;
+    private final RealtimeRelay relay;
+
+    @Autowired
+    public RealtimeMessagingServiceImpl(RealtimeOutboundDispatcher dispatcher, ObjectProvider<RealtimeRelay> relay) {
+        this(dispatcher, relay.getIfAvailable(() -> RealtimeRelay.NONE));
+    }
+
+    RealtimeMessagingServiceImpl(RealtimeOutboundDispatcher dispatcher, RealtimeRelay relay) {
+        this.dispatcher = dispatcher;
+        this.relay = relay;
+    }
 
     @Override
     public void publishPosition(String userTelephone, RealtimePositionDto position) {
         if (userTelephone == null || userTelephone.isBlank() || position == null) {
             return;
         }
-
-        messagingTemplate.convertAndSendToUser(userTelephone, "/queue/animals", position);
-        messagingTemplate.convertAndSendToUser(userTelephone, "/queue/animals/" + position.animalId(), position);
+        submit(userTelephone, new PositionUpdate(position));
     }
 
     @Override
-    public void publishAlert(String userTelephone, AlertNotificationDto alert) {
+    public void publishAlert(String userTelephone, UUID userId, AlertNotificationDto alert) {
         if (userTelephone == null || userTelephone.isBlank() || alert == null) {
             return;
         }
+        submit(userTelephone, new AlertUpdate(userId, alert));
+    }
+
+    @Override
+    public void publishAlerts(String userTelephone, UUID userId, List<AlertNotificationDto> alerts) {
+        if (userTelephone == null || userTelephone.isBlank() || alerts == null || alerts.isEmpty()) {
+            return;
+        }
+        submit(userTelephone, alerts.size() == 1
+                ? new AlertUpdate(userId, alerts.get(0))
+                : new AlertGroup(userId, List.copyOf(alerts)));
+    }
+
+    private void submit(String userTelephone, Outbound message) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            send(userTelephone, message);
+            return;
+        }
+        PendingMessages pending = (PendingMessages) TransactionSynchronizationManager.getResource(this);
+        if (pending == null) {
+            pending = new PendingMessages();
+            TransactionSynchronizationManager.bindResource(this, pending);
+            TransactionSynchronizationManager.registerSynchronization(pending);
+        }
+        pending.messages.add(new Addressed(userTelephone, message));
+    }
+
+    private void send(String userTelephone, Outbound message) {
+        dispatcher.dispatch(userTelephone, message);
+        relay.forward(userTelephone, message);
+    }
+
+    private record Addressed(String userTelephone, Outbound message) {
+    }
+
+    /**
+     * Messages of the current transaction. They are dispatched on completion rather than on commit,
+     * which also covers messages published by after-commit callbacks of the same transaction.
+     */
+    private final class PendingMessages implements TransactionSynchronization {
+
+        private final List<Addressed> messages = new ArrayList<>();
+
+        @Override
+        public void suspend() {
+            TransactionSynchronizationManager.unbindResource(RealtimeMessagingServiceImpl.this);
+        }
 
-        messagingTemplate.convertAndSendToUser(userTelephone, "/queue/alerts", alert);
-        messagingTemplate.convertAndSendToUser(userTelephone, "/queue/animals/" + alert.animalId() + "/alerts", alert);
-        eventPublisher.publishEvent(new AlertPublishedEvent(alert));
+        @Override
+        public void resume() {
+            TransactionSynchronizationManager.bindResource(RealtimeMessagingServiceImpl.this, this);
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            TransactionSynchronizationManager.unbindResourceIfPossible(RealtimeMessagingServiceImpl.this);
+            if (status == STATUS_COMMITTED) {
+                messages.forEach(pending -> send(pending.userTelephone(), pending.message()));
+            }
+        }
     }
 }
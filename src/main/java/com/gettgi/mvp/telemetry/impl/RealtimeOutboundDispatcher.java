@@ -0,0 +1,302 @@
+package com.gettgi.mvp.telemetry.impl;
+
+import com.gettgi.mvp.config.TelemetryRealtimeProperties;
+import com.gettgi.mvp.dto.telemetry.AlertNotificationDto;
+import com.gettgi.mvp.dto.telemetry.RealtimePositionDto;
+import com.gettgi.mvp.push.AlertPublishedEvent;
+import com.gettgi.mvp.push.AlertsPublishedEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Delivers realtime messages to the STOMP destinations of their owner from a small pool of dedicated threads,
+ * so that the broker does not run on the thread that produced the message.
+ * <p>
+ * Each owner has an outbox drained by one thread at a time, which keeps the messages of an owner in order.
+ * Positions are handed to the {@link RealtimePositionFanOut}, which applies the terms of each session.
+ * A position replaces the one still waiting for the same animal; once an outbox holds {@code outboxCapacity}
+ * messages, the oldest position is dropped to make room, or the oldest alert when only alerts are waiting,
+ * so a slow owner never holds more than that in memory.
+ * <p>
+ * The alert listeners, which only hand the push notifications over to their own threads, are notified as soon
+ * as an alert is dispatched: an alert dropped from a full outbox or at shutdown is still pushed.
+ */
+@Slf4j
+@Component
+public class RealtimeOutboundDispatcher implements DisposableBean {
+
+    // messages delivered before an outbox leaves its thread to the other owners
+    private static final int DRAIN_BATCH = 64;
+
+    private final SimpMessagingTemplate messagingTemplate;
+    private final RealtimePositionFanOut positionFanOut;
+    private final ApplicationEventPublisher eventPublisher;
+    private final int outboxCapacity;
+    private final Duration shutdownTimeout;
+    private final Executor executor;
+    private final Map<String, Outbox> outboxes = new ConcurrentHashMap<>();
+    private final AtomicInteger pending = new AtomicInteger();
+
+    private final Timer positionTimer;
+    private final Timer alertTimer;
+    private final Counter coalescedCounter;
+    private final Counter droppedPositionCounter;
+    private final Counter droppedAlertCounter;
+    private final Counter failureCounter;
+
+    @Autowired
+    public RealtimeOutboundDispatcher(SimpMessagingTemplate messagingTemplate,
+                                      RealtimePositionFanOut positionFanOut,
+                                      ApplicationEventPublisher eventPublisher,
+                                      TelemetryRealtimeProperties properties,
+                                      MeterRegistry meterRegistry) {
+        this(messagingTemplate, positionFanOut, eventPublisher, properties, meterRegistry,
+                newExecutor(properties.getDispatcherThreads()));
+    }
+
+    RealtimeOutboundDispatcher(SimpMessagingTemplate messagingTemplate,
+                               RealtimePositionFanOut positionFanOut,
+                               ApplicationEventPublisher eventPublisher,
+                               TelemetryRealtimeProperties properties,
+                               MeterRegistry meterRegistry,
+                               Executor executor) {
+        this.messagingTemplate = messagingTemplate;
+        this.positionFanOut = positionFanOut;
+        this.eventPublisher = eventPublisher;
+        this.outboxCapacity = Math.max(1, properties.getOutboxCapacity());
+        this.shutdownTimeout = properties.getShutdownTimeout() != null ? properties.getShutdownTimeout() : Duration.ZERO;
+        this.executor = executor;
+        this.positionTimer = publishTimer(meterRegistry, "position");
+        this.alertTimer = publishTimer(meterRegistry, "alert");
+        this.coalescedCounter = Counter.builder("telemetry.realtime.coalesced")
+                .description("Positions replaced by a newer one of the same animal before being delivered")
+                .register(meterRegistry);
+        this.droppedPositionCounter = droppedCounter(meterRegistry, "position");
+        this.droppedAlertCounter = droppedCounter(meterRegistry, "alert");
+        this.failureCounter = Counter.builder("telemetry.realtime.failures")
+                .description("Messages whose delivery failed")
+                .register(meterRegistry);
+        Gauge.builder("telemetry.realtime.pending", pending, AtomicInteger::get)
+                .description("Messages waiting to be delivered")
+                .register(meterRegistry);
+    }
+
+    private static Timer publishTimer(MeterRegistry meterRegistry, String type) {
+        return Timer.builder("telemetry.realtime.publish")
+                .description("Time spent publishing one message to the STOMP destinations of its owner")
+                .tag("type", type)
+                .register(meterRegistry);
+    }
+
+    private static Counter droppedCounter(MeterRegistry meterRegistry, String type) {
+        return Counter.builder("telemetry.realtime.dropped")
+                .description("Messages dropped because the outbox of their owner was full or the dispatcher stopped")
+                .tag("type", type)
+                .register(meterRegistry);
+    }
+
+    private static ExecutorService newExecutor(int threads) {
+        AtomicInteger index = new AtomicInteger();
+        return Executors.newFixedThreadPool(Math.max(1, threads), task -> {
+            Thread thread = new Thread(task, "realtime-dispatch-" + index.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    void dispatch(String userTelephone, Outbound message) {
+        notifyAlertListeners(userTelephone, message);
+        outboxes.computeIfAbsent(userTelephone, Outbox::new).offer(message);
+    }
+
+    private void notifyAlertListeners(String userTelephone, Outbound message) {
+        try {
+            if (message instanceof AlertUpdate update && !update.relayed()) {
+                eventPublisher.publishEvent(new AlertPublishedEvent(update.userId(), userTelephone, update.alert()));
+            } else if (message instanceof AlertGroup group && !group.relayed()) {
+                eventPublisher.publishEvent(new AlertsPublishedEvent(group.userId(), userTelephone, group.alerts()));
+            }
+        } catch (RuntimeException ex) {
+            log.warn("Alert listeners failed for {}: {}", userTelephone, ex.getMessage());
+        }
+    }
+
+    private void deliver(String userTelephone, Outbound message) {
+        try {
+            if (message instanceof PositionUpdate update) {
+                Timer.Sample sample = Timer.start();
+                positionFanOut.publish(userTelephone, update.position());
+                sample.stop(positionTimer);
+            } else if (message instanceof AlertUpdate update) {
+                AlertNotificationDto alert = update.alert();
+                Timer.Sample sample = Timer.start();
+                messagingTemplate.convertAndSendToUser(userTelephone, "/queue/alerts", alert);
+                messagingTemplate.convertAndSendToUser(userTelephone, "/queue/animals/" + alert.animalId() + "/alerts", alert);
+                sample.stop(alertTimer);
+            } else if (message instanceof AlertGroup group) {
+                Timer.Sample sample = Timer.start();
+                messagingTemplate.convertAndSendToUser(userTelephone, "/queue/alerts/batch", group.alerts());
+                for (AlertNotificationDto alert : group.alerts()) {
+                    messagingTemplate.convertAndSendToUser(userTelephone, "/queue/animals/" + alert.animalId() + "/alerts", alert);
+                }
+                sample.stop(alertTimer);
+            }
+        } catch (RuntimeException ex) {
+            failureCounter.increment();
+            log.warn("Realtime message to {} failed: {}", userTelephone, ex.getMessage());
+        }
+    }
+
+    @Override
+    public void destroy() throws InterruptedException {
+        if (executor instanceof ExecutorService service) {
+            service.shutdown();
+            if (!service.awaitTermination(shutdownTimeout.toMillis(), TimeUnit.MILLISECONDS)) {
+                log.warn("Realtime dispatcher did not drain in time; {} message(s) discarded", pending.get());
+                service.shutdownNow();
+            }
+        }
+    }
+
+    sealed interface Outbound permits PositionUpdate, AlertUpdate, AlertGroup {
+    }
+
+    record PositionUpdate(RealtimePositionDto position) implements Outbound {
+    }
+
+    /**
+     * @param userId  id of the owner, passed on to the alert listeners
+     * @param relayed whether the alert was raised on another node, whose listeners were notified there
+     */
+    record AlertUpdate(UUID userId, AlertNotificationDto alert, boolean relayed) implements Outbound {
+
+        AlertUpdate(UUID userId, AlertNotificationDto alert) {
+            this(userId, alert, false);
+        }
+    }
+
+    /**
+     * @param userId  id of the owner, passed on to the alert listeners
+     * @param relayed whether the alerts were raised on another node, whose listeners were notified there
+     */
+    record AlertGroup(UUID userId, List<AlertNotificationDto> alerts, boolean relayed) implements Outbound {
+
+        AlertGroup(UUID userId, List<AlertNotificationDto> alerts) {
+            this(userId, alerts, false);
+        }
+    }
+
+    private final class Outbox implements Runnable {
+
+        private final String userTelephone;
+        // positions are keyed by animal, anything else by a key of its own
+        private final LinkedHashMap<Object, Outbound> queue = new LinkedHashMap<>();
+        private boolean scheduled;
+
+        private Outbox(String userTelephone) {
+            this.userTelephone = userTelephone;
+        }
+
+        private void offer(Outbound message) {
+            boolean schedule;
+            synchronized (this) {
+                Object key = message instanceof PositionUpdate update && update.position().animalId() != null
+                        ? update.position().animalId()
+                        : new Object();
+                if (queue.remove(key) != null) {
+                    coalescedCounter.increment();
+                } else {
+                    pending.incrementAndGet();
+                }
+                // re-inserted last: a replaced position is not delivered before messages older than itself
+                queue.put(key, message);
+                if (queue.size() > outboxCapacity) {
+                    evictOne();
+                }
+                schedule = !scheduled;
+                scheduled = true;
+            }
+            if (schedule) {
+                schedule();
+            }
+        }
+
+        /**
+         * Drops the oldest position, its animal reporting again shortly, or the oldest alert, already pushed,
+         * when only alerts are waiting.
+         */
+        private void evictOne() {
+            Iterator<Outbound> iterator = queue.values().iterator();
+            while (iterator.hasNext()) {
+                if (iterator.next() instanceof PositionUpdate) {
+                    iterator.remove();
+                    pending.decrementAndGet();
+                    droppedPositionCounter.increment();
+                    return;
+                }
+            }
+            iterator = queue.values().iterator();
+            iterator.next();
+            iterator.remove();
+            pending.decrementAndGet();
+            droppedAlertCounter.increment();
+        }
+
+        @Override
+        public void run() {
+            for (int i = 0; i < DRAIN_BATCH; i++) {
+                Outbound next;
+                synchronized (this) {
+                    Iterator<Outbound> it = queue.values().iterator();
+                    if (!it.hasNext()) {
+                        scheduled = false;
+                        return;
+                    }
+                    next = it.next();
+                    it.remove();
+                    pending.decrementAndGet();
+                }
+                deliver(userTelephone, next);
+            }
+            schedule();
+        }
+
+        private void schedule() {
+            try {
+                executor.execute(this);
+            } catch (RejectedExecutionException ex) {
+                synchronized (this) {
+                    pending.addAndGet(-queue.size());
+                    long positions = queue.values().stream().filter(PositionUpdate.class::isInstance).count();
+                    droppedPositionCounter.increment(positions);
+                    droppedAlertCounter.increment(queue.size() - positions);
+                    queue.clear();
+                    scheduled = false;
+                }
+                log.debug("Realtime dispatcher stopped; messages to {} discarded", userTelephone);
+            }
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.gettgi.mvp.telemetry.impl;
+
+import com.gettgi.mvp.dto.telemetry.RealtimePositionDto;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+
+/**
+ * Compact position frame holding the animal id, coordinates and timestamp, plus every other field of
+ * {@link RealtimePositionDto} whose value changed since the previous frame sent for the animal.
+ * <p>
+ * A field that became {@code null} is sent with a {@code null} value; a field left out did not change.
+ * The {@code delta} key tells these frames apart from the full frame sent first.
+ */
+final class RealtimePositionDelta {
+
+    private static final Map<String, Function<RealtimePositionDto, Object>> TRACKED_FIELDS = new LinkedHashMap<>();
+
+    static {
+        TRACKED_FIELDS.put("animalLabel", RealtimePositionDto::animalLabel);
+        TRACKED_FIELDS.put("deviceId", RealtimePositionDto::deviceId);
+        TRACKED_FIELDS.put("deviceImei", RealtimePositionDto::deviceImei);
+        TRACKED_FIELDS.put("speed", RealtimePositionDto::speed);
+        TRACKED_FIELDS.put("batteryLevel", RealtimePositionDto::batteryLevel);
+        TRACKED_FIELDS.put("gsmSignal", RealtimePositionDto::gsmSignal);
+        TRACKED_FIELDS.put("collarStatus", RealtimePositionDto::collarStatus);
+        TRACKED_FIELDS.put("insideGeofence", RealtimePositionDto::insideGeofence);
+        TRACKED_FIELDS.put("geofenceId", RealtimePositionDto::geofenceId);
+        TRACKED_FIELDS.put("geofenceName", RealtimePositionDto::geofenceName);
+        TRACKED_FIELDS.put("zones", RealtimePositionDto::zones);
+        TRACKED_FIELDS.put("activeAlerts", RealtimePositionDto::activeAlerts);
+    }
+
+    private RealtimePositionDelta() {
+    }
+
+    static Map<String, Object> between(RealtimePositionDto previous, RealtimePositionDto current) {
+        Map<String, Object> delta = new LinkedHashMap<>();
+        delta.put("delta", true);
+        delta.put("animalId", current.animalId());
+        delta.put("lat", current.position() != null ? current.position().latitude() : null);
+        delta.put("lon", current.position() != null ? current.position().longitude() : null);
+        delta.put("timestamp", current.timestamp());
+        TRACKED_FIELDS.forEach((name, field) -> {
+            Object value = field.apply(current);
+            if (!Objects.equals(field.apply(previous), value)) {
+                delta.put(name, value);
+            }
+        });
+        return delta;
+    }
+}
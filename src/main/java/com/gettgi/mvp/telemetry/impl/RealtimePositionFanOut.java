@@ -0,0 +1,308 @@
+package com.gettgi.mvp.telemetry.impl;
+
+import com.gettgi.mvp.config.TelemetryRealtimeProperties;
+import com.gettgi.mvp.dto.telemetry.RealtimePositionDto;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+import org.springframework.web.socket.messaging.SessionSubscribeEvent;
+import org.springframework.web.socket.messaging.SessionUnsubscribeEvent;
+
+import java.security.Principal;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sends positions to each STOMP session of their owner on its own terms, as negotiated by the headers of its
+ * subscriptions to {@code /user/queue/animals} and {@code /user/queue/animals/{animalId}}:
+ * <ul>
+ *     <li>{@value #MAX_RATE_HEADER}: at most that many positions per second and per animal, bounded by
+ *     {@code maxPositionRate}. A position arriving too early waits for its turn and is replaced by any newer
+ *     one of the same animal in the meantime.</li>
+ *     <li>{@value #FORMAT_HEADER}{@code : delta}: after a full first frame, each animal is sent as a
+ *     {@link RealtimePositionDelta} of the previous frame of the subscription.</li>
+ * </ul>
+ * Each message carries the session id, so that user destinations resolve to that session only.
+ * Sessions without any position subscription on this node receive nothing.
+ */
+@Slf4j
+@Component
+public class RealtimePositionFanOut implements DisposableBean {
+
+    static final String FORMAT_HEADER = "x-position-format";
+    static final String MAX_RATE_HEADER = "x-max-rate";
+    private static final String ANIMALS_DESTINATION = "/user/queue/animals";
+
+    private final SimpMessagingTemplate messagingTemplate;
+    private final double maxRate;
+    private final ScheduledExecutorService scheduler;
+    private final Map<String, Map<String, Session>> sessionsByUser = new ConcurrentHashMap<>();
+
+    private final Counter throttledCounter;
+    private final Counter deltaCounter;
+
+    @Autowired
+    public RealtimePositionFanOut(SimpMessagingTemplate messagingTemplate,
+                                  TelemetryRealtimeProperties properties,
+                                  MeterRegistry meterRegistry) {
+        this(messagingTemplate, properties, meterRegistry, Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "realtime-throttle");
+            thread.setDaemon(true);
+            return thread;
+        }));
+    }
+
+    RealtimePositionFanOut(SimpMessagingTemplate messagingTemplate,
+                           TelemetryRealtimeProperties properties,
+                           MeterRegistry meterRegistry,
+                           ScheduledExecutorService scheduler) {
+        this.messagingTemplate = messagingTemplate;
+        this.maxRate = Math.max(0d, properties.getMaxPositionRate());
+        this.scheduler = scheduler;
+        this.throttledCounter = Counter.builder("telemetry.realtime.throttled")
+                .description("Positions held back by the rate limit of a session and replaced before being sent")
+                .register(meterRegistry);
+        this.deltaCounter = Counter.builder("telemetry.realtime.deltas")
+                .description("Positions sent as delta frames")
+                .register(meterRegistry);
+        Gauge.builder("telemetry.realtime.sessions", sessionsByUser,
+                        users -> users.values().stream().mapToInt(Map::size).sum())
+                .description("STOMP sessions subscribed to positions")
+                .register(meterRegistry);
+    }
+
+    void publish(String userTelephone, RealtimePositionDto position) {
+        Map<String, Session> sessions = sessionsByUser.get(userTelephone);
+        if (sessions == null) {
+            return;
+        }
+        for (Session session : sessions.values()) {
+            session.offer(position);
+        }
+    }
+
+    @EventListener
+    public void onSubscribe(SessionSubscribeEvent event) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.wrap(event.getMessage());
+        Principal user = event.getUser();
+        String destination = accessor.getDestination();
+        if (user == null || accessor.getSessionId() == null || !isPositionDestination(destination)) {
+            return;
+        }
+        boolean delta = "delta".equalsIgnoreCase(accessor.getFirstNativeHeader(FORMAT_HEADER));
+        Double requestedRate = parseRate(accessor.getFirstNativeHeader(MAX_RATE_HEADER));
+        sessionsByUser.computeIfAbsent(user.getName(), name -> new ConcurrentHashMap<>())
+                .computeIfAbsent(accessor.getSessionId(), sessionId -> new Session(user.getName(), sessionId))
+                .subscribe(accessor.getSubscriptionId(), destination, delta, requestedRate);
+    }
+
+    @EventListener
+    public void onUnsubscribe(SessionUnsubscribeEvent event) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.wrap(event.getMessage());
+        if (event.getUser() == null) {
+            return;
+        }
+        sessionsByUser.computeIfPresent(event.getUser().getName(), (name, sessions) -> {
+            sessions.computeIfPresent(accessor.getSessionId(),
+                    (sessionId, session) -> session.unsubscribe(accessor.getSubscriptionId()) ? null : session);
+            return sessions.isEmpty() ? null : sessions;
+        });
+    }
+
+    @EventListener
+    public void onDisconnect(SessionDisconnectEvent event) {
+        if (event.getUser() == null) {
+            return;
+        }
+        sessionsByUser.computeIfPresent(event.getUser().getName(), (name, sessions) -> {
+            Session session = sessions.remove(event.getSessionId());
+            if (session != null) {
+                session.close();
+            }
+            return sessions.isEmpty() ? null : sessions;
+        });
+    }
+
+    private static boolean isPositionDestination(String destination) {
+        if (ANIMALS_DESTINATION.equals(destination)) {
+            return true;
+        }
+        return animalOf(destination) != null;
+    }
+
+    /**
+     * Animal of a {@code /user/queue/animals/{animalId}} destination, {@code null} for any other destination.
+     */
+    private static UUID animalOf(String destination) {
+        if (destination == null || !destination.startsWith(ANIMALS_DESTINATION + "/")) {
+            return null;
+        }
+        try {
+            return UUID.fromString(destination.substring(ANIMALS_DESTINATION.length() + 1));
+        } catch (IllegalArgumentException ex) {
+            return null;
+        }
+    }
+
+    private static Double parseRate(String header) {
+        if (header == null || header.isBlank()) {
+            return null;
+        }
+        try {
+            double rate = Double.parseDouble(header.trim());
+            return rate > 0 && Double.isFinite(rate) ? rate : null;
+        } catch (NumberFormatException ex) {
+            return null;
+        }
+    }
+
+    private static long intervalNanos(double rate) {
+        return rate > 0 ? (long) (TimeUnit.SECONDS.toNanos(1) / rate) : 0L;
+    }
+
+    @Override
+    public void destroy() {
+        scheduler.shutdownNow();
+    }
+
+    private MessageHeaders sessionHeaders(String sessionId) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        accessor.setSessionId(sessionId);
+        accessor.setLeaveMutable(true);
+        return accessor.getMessageHeaders();
+    }
+
+    /**
+     * @param destination user destination of the subscription, without the user prefix resolved
+     * @param lastSent    last frame sent per animal, kept for delta subscriptions only
+     */
+    private record Subscription(String destination, UUID animalId, boolean delta, Map<UUID, RealtimePositionDto> lastSent) {
+
+        boolean covers(UUID animal) {
+            return animalId == null || animalId.equals(animal);
+        }
+    }
+
+    private static final class Slot {
+        private long nextAllowedNanos;
+        private RealtimePositionDto waiting;
+    }
+
+    private final class Session {
+
+        private final String userTelephone;
+        private final String sessionId;
+        private final Map<String, Subscription> subscriptions = new HashMap<>();
+        private final Map<UUID, Slot> slots = new HashMap<>();
+        private long intervalNanos;
+        private boolean closed;
+
+        private Session(String userTelephone, String sessionId) {
+            this.userTelephone = userTelephone;
+            this.sessionId = sessionId;
+            this.intervalNanos = intervalNanos(maxRate);
+        }
+
+        private synchronized void subscribe(String subscriptionId, String destination, boolean delta, Double requestedRate) {
+            subscriptions.put(subscriptionId, new Subscription(destination.substring("/user".length()),
+                    animalOf(destination), delta, delta ? new HashMap<>() : Map.of()));
+            if (requestedRate != null) {
+                double rate = maxRate > 0 ? Math.min(maxRate, requestedRate) : requestedRate;
+                intervalNanos = intervalNanos(rate);
+            }
+        }
+
+        private MessageHeaders headers() {
+            return sessionHeaders(sessionId);
+        }
+
+        /**
+         * @return whether the session has no position subscription left
+         */
+        private synchronized boolean unsubscribe(String subscriptionId) {
+            subscriptions.remove(subscriptionId);
+            if (subscriptions.isEmpty()) {
+                closed = true;
+            }
+            return closed;
+        }
+
+        private synchronized void close() {
+            closed = true;
+            subscriptions.clear();
+            slots.clear();
+        }
+
+        private synchronized void offer(RealtimePositionDto position) {
+            if (closed) {
+                return;
+            }
+            Slot slot = slots.computeIfAbsent(position.animalId(), animal -> new Slot());
+            long now = System.nanoTime();
+            if (intervalNanos == 0 || now - slot.nextAllowedNanos >= 0) {
+                // a newer position supersedes the one waiting
+                slot.waiting = null;
+                send(slot, position, now);
+                return;
+            }
+            if (slot.waiting != null) {
+                throttledCounter.increment();
+            } else {
+                scheduler.schedule(() -> flush(position.animalId()), slot.nextAllowedNanos - now, TimeUnit.NANOSECONDS);
+            }
+            slot.waiting = position;
+        }
+
+        private synchronized void flush(UUID animalId) {
+            Slot slot = slots.get(animalId);
+            if (closed || slot == null || slot.waiting == null) {
+                return;
+            }
+            RealtimePositionDto position = slot.waiting;
+            slot.waiting = null;
+            send(slot, position, System.nanoTime());
+        }
+
+        private void send(Slot slot, RealtimePositionDto position, long now) {
+            slot.nextAllowedNanos = now + intervalNanos;
+            Set<String> destinations = new HashSet<>(2);
+            for (Subscription subscription : subscriptions.values()) {
+                // the broker hands a message to every subscription of the session to its destination
+                if (!subscription.covers(position.animalId()) || !destinations.add(subscription.destination())) {
+                    continue;
+                }
+                Object payload = position;
+                if (subscription.delta()) {
+                    RealtimePositionDto previous = subscription.lastSent().put(position.animalId(), position);
+                    if (previous != null) {
+                        payload = RealtimePositionDelta.between(previous, position);
+                        deltaCounter.increment();
+                    }
+                }
+                try {
+                    messagingTemplate.convertAndSendToUser(userTelephone, subscription.destination(), payload, headers());
+                } catch (RuntimeException ex) {
+                    log.warn("Position of animal {} not sent to session {}: {}", position.animalId(), sessionId, ex.getMessage());
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package com.gettgi.mvp.telemetry.impl;
+
+import com.gettgi.mvp.telemetry.impl.RealtimeOutboundDispatcher.Outbound;
+
+/**
+ * Forwards realtime messages to the other backend nodes, which deliver them to the STOMP sessions
+ * connected to them. The node a message comes from delivers it to its own sessions.
+ */
+interface RealtimeRelay {
+
+    RealtimeRelay NONE = (userTelephone, message) -> {
+    };
+
+    void forward(String userTelephone, Outbound message);
+}
@@ -0,0 +1,125 @@
+package com.gettgi.mvp.telemetry.impl;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.gettgi.mvp.config.TelemetryRealtimeProperties;
+import com.gettgi.mvp.dto.telemetry.AlertNotificationDto;
+import com.gettgi.mvp.dto.telemetry.RealtimePositionDto;
+import com.gettgi.mvp.telemetry.impl.RealtimeOutboundDispatcher.AlertGroup;
+import com.gettgi.mvp.telemetry.impl.RealtimeOutboundDispatcher.AlertUpdate;
+import com.gettgi.mvp.telemetry.impl.RealtimeOutboundDispatcher.Outbound;
+import com.gettgi.mvp.telemetry.impl.RealtimeOutboundDispatcher.PositionUpdate;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * {@link RealtimeRelay} over a Redis pub/sub channel: every node publishes the messages it produces and
+ * delivers those published by the other nodes to its own sessions, as relayed messages whose alert
+ * listeners are not notified again.
+ * <p>
+ * Pub/sub delivers at most once: a node that is disconnected from Redis misses the messages sent meanwhile,
+ * as a client that is disconnected from the node would.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "app.telemetry.realtime", name = "relay", havingValue = "redis")
+public class RedisRealtimeRelay implements RealtimeRelay, MessageListener {
+
+    private final RedisTemplate<String, String> redisTemplate;
+    private final RealtimeOutboundDispatcher dispatcher;
+    private final ObjectMapper objectMapper;
+    private final String channel;
+    // tells the messages of this node apart, as Redis hands them back to their publisher too
+    private final String node = UUID.randomUUID().toString();
+
+    private final Counter publishedCounter;
+    private final Counter receivedCounter;
+    private final Counter failureCounter;
+
+    public RedisRealtimeRelay(RedisTemplate<String, String> redisTemplate,
+                              RealtimeOutboundDispatcher dispatcher,
+                              ObjectMapper objectMapper,
+                              TelemetryRealtimeProperties properties,
+                              MeterRegistry meterRegistry) {
+        this.redisTemplate = redisTemplate;
+        this.dispatcher = dispatcher;
+        this.objectMapper = objectMapper;
+        this.channel = properties.getRelayChannel();
+        this.publishedCounter = Counter.builder("telemetry.realtime.relay.published")
+                .description("Realtime messages published for the other nodes")
+                .register(meterRegistry);
+        this.receivedCounter = Counter.builder("telemetry.realtime.relay.received")
+                .description("Realtime messages received from the other nodes")
+                .register(meterRegistry);
+        this.failureCounter = Counter.builder("telemetry.realtime.relay.failures")
+                .description("Realtime messages that could not be published or read")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public void forward(String userTelephone, Outbound message) {
+        RelayedMessage relayed;
+        if (message instanceof PositionUpdate update) {
+            relayed = new RelayedMessage(node, userTelephone, null, update.position(), null, null);
+        } else if (message instanceof AlertUpdate update) {
+            relayed = new RelayedMessage(node, userTelephone, update.userId(), null, update.alert(), null);
+        } else if (message instanceof AlertGroup group) {
+            relayed = new RelayedMessage(node, userTelephone, group.userId(), null, null, group.alerts());
+        } else {
+            return;
+        }
+        try {
+            redisTemplate.convertAndSend(channel, objectMapper.writeValueAsString(relayed));
+            publishedCounter.increment();
+        } catch (JsonProcessingException | RuntimeException ex) {
+            failureCounter.increment();
+            log.warn("Realtime message to {} not relayed to the other nodes: {}", userTelephone, ex.getMessage());
+        }
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        RelayedMessage relayed;
+        try {
+            relayed = objectMapper.readValue(message.getBody(), RelayedMessage.class);
+        } catch (Exception ex) {
+            failureCounter.increment();
+            log.warn("Unreadable realtime message on channel {}: {}", channel, ex.getMessage());
+            return;
+        }
+        if (node.equals(relayed.node()) || relayed.userTelephone() == null) {
+            return;
+        }
+        receivedCounter.increment();
+        if (relayed.position() != null) {
+            dispatcher.dispatch(relayed.userTelephone(), new PositionUpdate(relayed.position()));
+        } else if (relayed.alert() != null) {
+            dispatcher.dispatch(relayed.userTelephone(), new AlertUpdate(relayed.userId(), relayed.alert(), true));
+        } else if (relayed.alerts() != null && !relayed.alerts().isEmpty()) {
+            dispatcher.dispatch(relayed.userTelephone(), new AlertGroup(relayed.userId(), relayed.alerts(), true));
+        }
+    }
+
+    /**
+     * Realtime message as published on the channel: exactly one of {@code position}, {@code alert}
+     * and {@code alerts} is set.
+     *
+     * @param node node the message comes from
+     */
+    record RelayedMessage(String node,
+                          String userTelephone,
+                          UUID userId,
+                          RealtimePositionDto position,
+                          AlertNotificationDto alert,
+                          List<AlertNotificationDto> alerts) {
+    }
+}
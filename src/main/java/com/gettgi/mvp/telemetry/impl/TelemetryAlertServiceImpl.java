@@ -2,14 +2,19 @@ package com.gettgi.mvp.telemetry.impl;
 
 import com.gettgi.mvp.config.TelemetryAlertProperties;
 import com.gettgi.mvp.dto.telemetry.AlertNotificationDto;
+import com.gettgi.mvp.dto.telemetry.GeofenceZoneDto;
 import com.gettgi.mvp.entity.Alerte;
-import com.gettgi.mvp.entity.Animal;
-import com.gettgi.mvp.entity.Device;
-import com.gettgi.mvp.entity.Geofence;
 import com.gettgi.mvp.entity.Telemetry;
 import com.gettgi.mvp.entity.enums.StatusCollar;
 import com.gettgi.mvp.entity.enums.TypeAlerte;
 import com.gettgi.mvp.repository.AlerteRepository;
+import com.gettgi.mvp.repository.AnimalRepository;
+import com.gettgi.mvp.repository.UserRepository;
+import com.gettgi.mvp.telemetry.ActiveAlertRegistry;
+import com.gettgi.mvp.telemetry.ActiveAlerts;
+import com.gettgi.mvp.telemetry.DeviceSnapshot;
+import com.gettgi.mvp.telemetry.GeofenceIndex;
+import com.gettgi.mvp.telemetry.GeofenceMatch;
 import com.gettgi.mvp.telemetry.TelemetryAlertResult;
 import com.gettgi.mvp.telemetry.TelemetryAlertService;
 import lombok.RequiredArgsConstructor;
@@ -22,6 +27,7 @@ import java.time.Instant;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
+import java.util.Optional;
 import java.util.UUID;
 
 @Slf4j
@@ -30,256 +36,213 @@ import java.util.UUID;
 public class TelemetryAlertServiceImpl implements TelemetryAlertService {
 
     private final AlerteRepository alerteRepository;
+    private final AnimalRepository animalRepository;
+    private final UserRepository userRepository;
     private final TelemetryAlertProperties alertProperties;
+    private final ActiveAlertRegistry activeAlertRegistry;
+    private final GeofenceIndex geofenceIndex;
 
     @Override
     @Transactional
-    public TelemetryAlertResult evaluate(Device device, Telemetry telemetry) {
-        Animal animal = device.getAnimal();
-        if (animal == null) {
+    public TelemetryAlertResult evaluate(DeviceSnapshot device, Telemetry telemetry) {
+        if (!device.hasAnimal()) {
             return new TelemetryAlertResult(
                     true,
                     null,
                     null,
                     List.of(),
+                    List.of(),
                     List.of()
             );
         }
 
         List<AlertNotificationDto> notifications = new ArrayList<>();
+        ActiveAlerts active = activeAlertRegistry.get(device.animalId());
 
-        var user = animal.getUser();
-        Geofence geofence = user != null ? user.getGeofence() : null;
-        boolean insideGeofence = computeInsideGeofence(telemetry, geofence);
-        UUID geofenceId = geofence != null ? geofence.getId() : null;
-        String geofenceName = geofence != null ? geofence.getNom() : null;
-        animal.setLastPositionInsideGeofence(insideGeofence);
+        GeofenceMatch match = locateInGeofences(telemetry, device);
+        boolean insideGeofence = match.inside();
+        GeofenceZoneDto reportedZone = match.reportedZone();
+        UUID geofenceId = reportedZone != null ? reportedZone.id() : null;
+        String geofenceName = reportedZone != null ? reportedZone.name() : null;
 
-        Double distanceMeters = computeDistanceMeters(
-                user != null ? user.getPosition() : null,
-                telemetry.getPosition()
-        );
+        Double distanceMeters = computeDistanceMeters(device.ownerPosition(), telemetry.getPosition());
 
-        notifications.addAll(handleGeofenceAlert(device, telemetry, animal, geofenceName, insideGeofence, distanceMeters));
-        notifications.addAll(handleBatteryLowAlert(device, telemetry, animal, distanceMeters));
-        notifications.addAll(handlePressureAlert(device, telemetry, animal, distanceMeters));
-        notifications.addAll(handleCollarStatusAlert(device, telemetry, animal, distanceMeters));
-        notifications.addAll(handleSpeedAlert(device, telemetry, animal, distanceMeters));
+        handleGeofenceAlert(device, telemetry, active, geofenceName, insideGeofence, distanceMeters).ifPresent(notifications::add);
+        handleBatteryLowAlert(device, telemetry, active, distanceMeters).ifPresent(notifications::add);
+        handlePressureAlert(device, telemetry, active, distanceMeters).ifPresent(notifications::add);
+        handleCollarStatusAlert(device, telemetry, active, distanceMeters).ifPresent(notifications::add);
+        handleSpeedAlert(device, telemetry, active, distanceMeters).ifPresent(notifications::add);
 
-        List<TypeAlerte> activeAlerts = alerteRepository.findByAnimal_IdAndResolvedFalse(animal.getId()).stream()
-                .map(Alerte::getTypeAlerte)
-                .distinct()
-                .toList();
+        List<TypeAlerte> activeAlerts = notifications.isEmpty()
+                ? active.types()
+                : activeAlertRegistry.get(device.animalId()).types();
 
         return new TelemetryAlertResult(
                 insideGeofence,
                 geofenceId,
                 geofenceName,
+                match.containing(),
                 activeAlerts,
                 notifications
         );
     }
 
-    private boolean computeInsideGeofence(Telemetry telemetry, Geofence geofence) {
-        if (geofence == null || geofence.getZone() == null) {
-            return true;
-        }
+    private GeofenceMatch locateInGeofences(Telemetry telemetry, DeviceSnapshot device) {
         try {
-            return geofence.getZone().covers(telemetry.getPosition());
+            return geofenceIndex.locate(device.ownerId(), device.troupeauId(), telemetry.getPosition());
         } catch (Exception ex) {
-            log.warn("Unable to evaluate geofence containment for telemetry {} and geofence {}",
-                    telemetry.getId(), geofence.getId(), ex);
-            return true;
+            log.warn("Unable to evaluate geofence containment for telemetry {} of owner {}",
+                    telemetry.getId(), device.ownerId(), ex);
+            return GeofenceMatch.NO_ZONE;
         }
     }
 
-    private List<AlertNotificationDto> handleGeofenceAlert(Device device,
-                                                           Telemetry telemetry,
-                                                           Animal animal,
-                                                           String geofenceName,
-                                                           boolean insideGeofence,
-                                                           Double distanceMeters) {
-        List<AlertNotificationDto> notifications = new ArrayList<>();
-        var existingAlertOptional = alerteRepository.findTopByAnimal_IdAndTypeAlerteAndResolvedFalse(
-                animal.getId(),
-                TypeAlerte.GEOFENCE_EXIT
-        );
-
+    private Optional<AlertNotificationDto> handleGeofenceAlert(DeviceSnapshot device,
+                                                               Telemetry telemetry,
+                                                               ActiveAlerts active,
+                                                               String geofenceName,
+                                                               boolean insideGeofence,
+                                                               Double distanceMeters) {
         if (!insideGeofence) {
-            if (existingAlertOptional.isEmpty()) {
-                Alerte alert = buildAlert(TypeAlerte.GEOFENCE_EXIT, telemetry.getTs(), animal, device);
-                alert.setMessage(buildGeofenceExitMessage(animal, geofenceName, telemetry, distanceMeters));
-                Alerte saved = alerteRepository.save(alert);
-                notifications.add(toDto(saved));
+            if (!active.isOpen(TypeAlerte.GEOFENCE_EXIT)) {
+                return Optional.of(openAlert(TypeAlerte.GEOFENCE_EXIT, device, telemetry,
+                        buildGeofenceExitMessage(device, geofenceName, telemetry, distanceMeters)));
             }
-        } else {
-            existingAlertOptional.ifPresent(alert -> {
-                resolveAlert(alert, telemetry.getTs(), buildGeofenceReturnMessage(animal, geofenceName, telemetry, distanceMeters));
-                Alerte saved = alerteRepository.save(alert);
-                notifications.add(toDto(saved));
-            });
+        } else if (active.isOpen(TypeAlerte.GEOFENCE_EXIT)) {
+            return Optional.of(resolveAlert(TypeAlerte.GEOFENCE_EXIT, device, active, telemetry.getTs(),
+                    buildGeofenceReturnMessage(device, geofenceName, telemetry, distanceMeters)));
         }
-        return notifications;
+        return Optional.empty();
     }
 
-    private List<AlertNotificationDto> handleBatteryLowAlert(Device device,
-                                                             Telemetry telemetry,
-                                                             Animal animal,
-                                                             Double distanceMeters) {
-        List<AlertNotificationDto> notifications = new ArrayList<>();
+    private Optional<AlertNotificationDto> handleBatteryLowAlert(DeviceSnapshot device,
+                                                                 Telemetry telemetry,
+                                                                 ActiveAlerts active,
+                                                                 Double distanceMeters) {
         Integer batteryLevel = telemetry.getBatteryLevel();
         if (batteryLevel == null) {
-            return notifications;
+            return Optional.empty();
         }
 
         boolean lowBattery = batteryLevel <= alertProperties.getBatteryLowThreshold();
-        var existing = alerteRepository.findTopByAnimal_IdAndTypeAlerteAndResolvedFalse(
-                animal.getId(),
-                TypeAlerte.BATTERIELOW
-        );
-
         if (lowBattery) {
-            if (existing.isEmpty()) {
-                Alerte alert = buildAlert(TypeAlerte.BATTERIELOW, telemetry.getTs(), animal, device);
-                alert.setMessage(buildBatteryLowMessage(animal, batteryLevel, telemetry, distanceMeters));
-                Alerte saved = alerteRepository.save(alert);
-                notifications.add(toDto(saved));
+            if (!active.isOpen(TypeAlerte.BATTERIELOW)) {
+                return Optional.of(openAlert(TypeAlerte.BATTERIELOW, device, telemetry,
+                        buildBatteryLowMessage(device, batteryLevel, telemetry, distanceMeters)));
             }
-        } else if (batteryLevel >= alertProperties.getBatteryRecoveryThreshold()) {
-            existing.ifPresent(alert -> {
-                resolveAlert(alert, telemetry.getTs(), buildBatteryLowResolvedMessage(animal, batteryLevel));
-                Alerte saved = alerteRepository.save(alert);
-                notifications.add(toDto(saved));
-            });
+        } else if (batteryLevel >= alertProperties.getBatteryRecoveryThreshold() && active.isOpen(TypeAlerte.BATTERIELOW)) {
+            return Optional.of(resolveAlert(TypeAlerte.BATTERIELOW, device, active, telemetry.getTs(),
+                    buildBatteryLowResolvedMessage(device, batteryLevel)));
         }
-
-        return notifications;
+        return Optional.empty();
     }
 
-    private List<AlertNotificationDto> handleCollarStatusAlert(Device device,
-                                                               Telemetry telemetry,
-                                                               Animal animal,
-                                                               Double distanceMeters) {
-        List<AlertNotificationDto> notifications = new ArrayList<>();
+    private Optional<AlertNotificationDto> handleCollarStatusAlert(DeviceSnapshot device,
+                                                                   Telemetry telemetry,
+                                                                   ActiveAlerts active,
+                                                                   Double distanceMeters) {
         StatusCollar effectiveStatus = telemetry.getStatusCollar() != null
                 ? telemetry.getStatusCollar()
-                : device.getStatusCollar();
+                : device.statusCollar();
 
         boolean cutDetected = effectiveStatus == StatusCollar.VOLE
                 || effectiveStatus == StatusCollar.DETRUIT
                 || telemetry.getPressure() != null && telemetry.getPressure() <= alertProperties.getPressureCutThreshold();
 
-        var existingCut = alerteRepository.findTopByAnimal_IdAndTypeAlerteAndResolvedFalse(
-                animal.getId(),
-                TypeAlerte.COLLAR_CUT
-        );
-
         if (cutDetected) {
-            if (existingCut.isEmpty()) {
-                Alerte alert = buildAlert(TypeAlerte.COLLAR_CUT, telemetry.getTs(), animal, device);
-                alert.setMessage(buildCollarCutMessage(animal, telemetry, distanceMeters));
-                Alerte saved = alerteRepository.save(alert);
-                notifications.add(toDto(saved));
+            if (!active.isOpen(TypeAlerte.COLLAR_CUT)) {
+                return Optional.of(openAlert(TypeAlerte.COLLAR_CUT, device, telemetry,
+                        buildCollarCutMessage(device, telemetry, distanceMeters)));
             }
-        } else {
-            existingCut.ifPresent(alert -> {
-                resolveAlert(alert, telemetry.getTs(), buildCollarCutResolvedMessage(animal));
-                Alerte saved = alerteRepository.save(alert);
-                notifications.add(toDto(saved));
-            });
+        } else if (active.isOpen(TypeAlerte.COLLAR_CUT)) {
+            return Optional.of(resolveAlert(TypeAlerte.COLLAR_CUT, device, active, telemetry.getTs(),
+                    buildCollarCutResolvedMessage(device)));
         }
-
-        return notifications;
+        return Optional.empty();
     }
 
-    private List<AlertNotificationDto> handlePressureAlert(Device device,
-                                                           Telemetry telemetry,
-                                                           Animal animal,
-                                                           Double distanceMeters) {
-        List<AlertNotificationDto> notifications = new ArrayList<>();
+    private Optional<AlertNotificationDto> handlePressureAlert(DeviceSnapshot device,
+                                                               Telemetry telemetry,
+                                                               ActiveAlerts active,
+                                                               Double distanceMeters) {
         Double pressure = telemetry.getPressure();
         if (pressure == null) {
-            return notifications;
+            return Optional.empty();
         }
 
         if (pressure <= alertProperties.getPressureCutThreshold()) {
             // handled by collar cut logic
-            return notifications;
+            return Optional.empty();
         }
 
         boolean tamperingDetected = pressure <= alertProperties.getPressureTamperingThreshold();
-        var existing = alerteRepository.findTopByAnimal_IdAndTypeAlerteAndResolvedFalse(
-                animal.getId(),
-                TypeAlerte.COLLAR_TAMPERING
-        );
-
         if (tamperingDetected) {
-            if (existing.isEmpty()) {
-                Alerte alert = buildAlert(TypeAlerte.COLLAR_TAMPERING, telemetry.getTs(), animal, device);
-                alert.setMessage(buildCollarTamperingMessage(animal, telemetry, distanceMeters));
-                Alerte saved = alerteRepository.save(alert);
-                notifications.add(toDto(saved));
+            if (!active.isOpen(TypeAlerte.COLLAR_TAMPERING)) {
+                return Optional.of(openAlert(TypeAlerte.COLLAR_TAMPERING, device, telemetry,
+                        buildCollarTamperingMessage(device, telemetry, distanceMeters)));
             }
-        } else {
-            existing.ifPresent(alert -> {
-                resolveAlert(alert, telemetry.getTs(), buildCollarTamperingResolvedMessage(animal));
-                Alerte saved = alerteRepository.save(alert);
-                notifications.add(toDto(saved));
-            });
+        } else if (active.isOpen(TypeAlerte.COLLAR_TAMPERING)) {
+            return Optional.of(resolveAlert(TypeAlerte.COLLAR_TAMPERING, device, active, telemetry.getTs(),
+                    buildCollarTamperingResolvedMessage(device)));
         }
-
-        return notifications;
+        return Optional.empty();
     }
 
-    private List<AlertNotificationDto> handleSpeedAlert(Device device,
-                                                        Telemetry telemetry,
-                                                        Animal animal,
-                                                        Double distanceMeters) {
-        List<AlertNotificationDto> notifications = new ArrayList<>();
+    private Optional<AlertNotificationDto> handleSpeedAlert(DeviceSnapshot device,
+                                                            Telemetry telemetry,
+                                                            ActiveAlerts active,
+                                                            Double distanceMeters) {
         Double speed = telemetry.getSpeed();
         if (speed == null) {
-            return notifications;
+            return Optional.empty();
         }
 
         boolean suspiciousSpeed = speed >= alertProperties.getSpeedSuspectThresholdMps();
-        var existing = alerteRepository.findTopByAnimal_IdAndTypeAlerteAndResolvedFalse(
-                animal.getId(),
-                TypeAlerte.SPEED_SUSPECT
-        );
-
         if (suspiciousSpeed) {
-            if (existing.isEmpty()) {
-                Alerte alert = buildAlert(TypeAlerte.SPEED_SUSPECT, telemetry.getTs(), animal, device);
-                alert.setMessage(buildSpeedAlertMessage(animal, telemetry, distanceMeters));
-                Alerte saved = alerteRepository.save(alert);
-                notifications.add(toDto(saved));
+            if (!active.isOpen(TypeAlerte.SPEED_SUSPECT)) {
+                return Optional.of(openAlert(TypeAlerte.SPEED_SUSPECT, device, telemetry,
+                        buildSpeedAlertMessage(device, telemetry, distanceMeters)));
             }
-        } else {
-            existing.ifPresent(alert -> {
-                resolveAlert(alert, telemetry.getTs(), buildSpeedResolvedMessage(animal));
-                Alerte saved = alerteRepository.save(alert);
-                notifications.add(toDto(saved));
-            });
+        } else if (active.isOpen(TypeAlerte.SPEED_SUSPECT)) {
+            return Optional.of(resolveAlert(TypeAlerte.SPEED_SUSPECT, device, active, telemetry.getTs(),
+                    buildSpeedResolvedMessage(device)));
         }
-
-        return notifications;
+        return Optional.empty();
     }
 
-    private Alerte buildAlert(TypeAlerte type, Instant timestamp, Animal animal, Device device) {
+    private AlertNotificationDto openAlert(TypeAlerte type, DeviceSnapshot device, Telemetry telemetry, String message) {
         Alerte alert = new Alerte();
         alert.setTypeAlerte(type);
-        alert.setTs(timestamp);
+        alert.setTs(telemetry.getTs());
         alert.setResolved(false);
-        alert.setUser(animal.getUser());
-        alert.setAnimal(animal);
-        alert.setDevice(device);
-        return alert;
+        alert.setUser(device.ownerId() != null ? userRepository.getReferenceById(device.ownerId()) : null);
+        alert.setAnimal(animalRepository.getReferenceById(device.animalId()));
+        alert.setDevice(telemetry.getDevice());
+        alert.setMessage(message);
+        Alerte saved = alerteRepository.save(alert);
+        activeAlertRegistry.opened(device.animalId(), type, saved.getId(), saved.getTs());
+        return toDto(saved);
     }
 
-    private void resolveAlert(Alerte alert, Instant resolvedAt, String message) {
-        alert.setResolved(true);
-        alert.setResolvedAt(resolvedAt);
-        alert.setMessage(message);
+    /**
+     * Resolves the open alerts of one type with a single update; the notification describes the alert
+     * held by the active-alert state.
+     */
+    private AlertNotificationDto resolveAlert(TypeAlerte type, DeviceSnapshot device, ActiveAlerts active,
+                                              Instant resolvedAt, String message) {
+        alerteRepository.resolveOpenAlerts(device.animalId(), type, resolvedAt, message, Instant.now());
+        activeAlertRegistry.resolved(device.animalId(), type);
+        ActiveAlerts.OpenAlert open = active.find(type).orElseThrow();
+        return new AlertNotificationDto(
+                open.id(),
+                device.animalId(),
+                device.deviceId(),
+                type,
+                message,
+                open.ts(),
+                true,
+                resolvedAt
+        );
     }
 
     private AlertNotificationDto toDto(Alerte alert) {
@@ -296,79 +259,76 @@ public class TelemetryAlertServiceImpl implements TelemetryAlertService {
         );
     }
 
-    private String buildGeofenceExitMessage(Animal animal, String geofenceName, Telemetry telemetry, Double distanceMeters) {
+    private String buildGeofenceExitMessage(DeviceSnapshot device, String geofenceName, Telemetry telemetry, Double distanceMeters) {
         return "Danger Animal %s hors de la zone %s. Position=%s, Distance=%s".formatted(
-                animalLabel(animal),
+                animalLabel(device),
                 geofenceName != null ? geofenceName : "autorisée",
                 formatPosition(telemetry),
                 formatDistance(distanceMeters)
         );
     }
 
-    private String buildGeofenceReturnMessage(Animal animal, String geofenceName, Telemetry telemetry, Double distanceMeters) {
+    private String buildGeofenceReturnMessage(DeviceSnapshot device, String geofenceName, Telemetry telemetry, Double distanceMeters) {
         return "Animal %s de retour dans la zone %s. Position=%s, Distance=%s".formatted(
-                animalLabel(animal),
+                animalLabel(device),
                 geofenceName != null ? geofenceName : "autorisée",
                 formatPosition(telemetry),
                 formatDistance(distanceMeters)
         );
     }
 
-    private String buildCollarTamperingMessage(Animal animal, Telemetry telemetry, Double distanceMeters) {
+    private String buildCollarTamperingMessage(DeviceSnapshot device, Telemetry telemetry, Double distanceMeters) {
         return "Danger Le collier de l'animal %s est en train de se faire couper. Position=%s, Distance=%s".formatted(
-                animalLabel(animal),
+                animalLabel(device),
                 formatPosition(telemetry),
                 formatDistance(distanceMeters)
         );
     }
 
-    private String buildCollarTamperingResolvedMessage(Animal animal) {
-        return "Le collier de l'animal %s ne semble plus être coupé.".formatted(animalLabel(animal));
+    private String buildCollarTamperingResolvedMessage(DeviceSnapshot device) {
+        return "Le collier de l'animal %s ne semble plus être coupé.".formatted(animalLabel(device));
     }
 
-    private String buildCollarCutMessage(Animal animal, Telemetry telemetry, Double distanceMeters) {
+    private String buildCollarCutMessage(DeviceSnapshot device, Telemetry telemetry, Double distanceMeters) {
         return "Danger On a coupé le collier de l'animal %s, il se fait voler. Position=%s, Distance=%s".formatted(
-                animalLabel(animal),
+                animalLabel(device),
                 formatPosition(telemetry),
                 formatDistance(distanceMeters)
         );
     }
 
-    private String buildCollarCutResolvedMessage(Animal animal) {
-        return "Le collier de l'animal %s n'est plus signalé comme coupé.".formatted(animalLabel(animal));
+    private String buildCollarCutResolvedMessage(DeviceSnapshot device) {
+        return "Le collier de l'animal %s n'est plus signalé comme coupé.".formatted(animalLabel(device));
     }
 
-    private String buildSpeedAlertMessage(Animal animal, Telemetry telemetry, Double distanceMeters) {
+    private String buildSpeedAlertMessage(DeviceSnapshot device, Telemetry telemetry, Double distanceMeters) {
         return "Danger L'animal %s se déplace à une vitesse anormale (%.2f m/s). Position=%s, Distance=%s".formatted(
-                animalLabel(animal),
+                animalLabel(device),
                 telemetry.getSpeed(),
                 formatPosition(telemetry),
                 formatDistance(distanceMeters)
         );
     }
 
-    private String buildSpeedResolvedMessage(Animal animal) {
-        return "La vitesse de l'animal %s est redevenue normale.".formatted(animalLabel(animal));
+    private String buildSpeedResolvedMessage(DeviceSnapshot device) {
+        return "La vitesse de l'animal %s est redevenue normale.".formatted(animalLabel(device));
     }
 
-    private String buildBatteryLowMessage(Animal animal, Integer batteryLevel, Telemetry telemetry, Double distanceMeters) {
+    private String buildBatteryLowMessage(DeviceSnapshot device, Integer batteryLevel, Telemetry telemetry, Double distanceMeters) {
         return "Batterie faible (%d%%) pour %s. Position=%s, Distance=%s".formatted(
                 batteryLevel,
-                animalLabel(animal),
+                animalLabel(device),
                 formatPosition(telemetry),
                 formatDistance(distanceMeters)
         );
     }
 
-    private String buildBatteryLowResolvedMessage(Animal animal, Integer batteryLevel) {
-        return "Batterie OK (%d%%) pour %s.".formatted(batteryLevel, animalLabel(animal));
+    private String buildBatteryLowResolvedMessage(DeviceSnapshot device, Integer batteryLevel) {
+        return "Batterie OK (%d%%) pour %s.".formatted(batteryLevel, animalLabel(device));
     }
 
-    private String animalLabel(Animal animal) {
-        if (animal == null) {
-            return "inconnu";
-        }
-        return Objects.requireNonNullElse(animal.getNom(), "inconnu");
+    private String animalLabel(DeviceSnapshot device) {
+        return Objects.requireNonNullElse(device.animalNom(), "inconnu");
     }
 
     private String formatPosition(Telemetry telemetry) {
@@ -0,0 +1,153 @@
+package com.gettgi.mvp.telemetry.impl;
+
+import com.gettgi.mvp.config.TelemetryIngestProperties;
+import com.gettgi.mvp.dto.telemetry.GeoPointDto;
+import com.gettgi.mvp.dto.telemetry.TelemetryIngestDto;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Recognizes frames received twice, through a QoS 1 redelivery or a collar retrying its transmission.
+ * <p>
+ * Each collar keeps the 64-bit fingerprints of its last {@code window} frames, built from the device
+ * timestamp and the position, in a ring. At most {@code maxDevices} collars are tracked: beyond that, the
+ * oldest-seen rings are released, which at worst lets a duplicate of those collars through.
+ */
+@Component
+public class TelemetryFrameDeduplicator {
+
+    private final int window;
+    private final int maxDevices;
+    private final Map<String, Ring> rings = new ConcurrentHashMap<>();
+
+    public TelemetryFrameDeduplicator(TelemetryIngestProperties properties, MeterRegistry meterRegistry) {
+        TelemetryIngestProperties.Dedup dedup = properties.getDedup();
+        this.window = Math.max(0, dedup.getWindow());
+        this.maxDevices = Math.max(1, dedup.getMaxDevices());
+        Gauge.builder("telemetry.ingest.dedup.devices", rings, Map::size)
+                .description("Collars whose recent frame fingerprints are held for deduplication")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Records the frame and tells whether an identical one was already seen for its collar.
+     */
+    public boolean isDuplicate(TelemetryIngestDto dto) {
+        if (window == 0) {
+            return false;
+        }
+        Ring ring = rings.get(dto.deviceImei());
+        if (ring == null) {
+            if (rings.size() >= maxDevices) {
+                evict();
+            }
+            ring = rings.computeIfAbsent(dto.deviceImei(), imei -> new Ring(window));
+        }
+        return !ring.add(fingerprint(dto));
+    }
+
+    /**
+     * Forgets a frame recorded by {@link #isDuplicate}, so that a retransmission of a frame whose ingest
+     * failed is not mistaken for a duplicate.
+     */
+    public void forget(TelemetryIngestDto dto) {
+        Ring ring = rings.get(dto.deviceImei());
+        if (ring != null) {
+            ring.remove(fingerprint(dto));
+        }
+    }
+
+    /**
+     * Releases about a tenth of the rings, the least recently used first.
+     */
+    private void evict() {
+        long threshold = rings.values().stream()
+                .mapToLong(Ring::lastUse)
+                .sorted()
+                .skip(Math.max(0, rings.size() / 10 - 1))
+                .findFirst()
+                .orElse(Long.MAX_VALUE);
+        Iterator<Ring> iterator = rings.values().iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next().lastUse() <= threshold) {
+                iterator.remove();
+            }
+        }
+    }
+
+    static long fingerprint(TelemetryIngestDto dto) {
+        Instant ts = dto.timestamp();
+        long hash = mix(ts.getEpochSecond() * 1_000_000_007L + ts.getNano());
+        GeoPointDto position = dto.position();
+        hash = mix(hash ^ Double.doubleToLongBits(position.latitude() != null ? position.latitude() : Double.NaN));
+        hash = mix(hash ^ Double.doubleToLongBits(position.longitude() != null ? position.longitude() : Double.NaN));
+        return hash;
+    }
+
+    // finalizer of MurmurHash3
+    private static long mix(long value) {
+        value ^= value >>> 33;
+        value *= 0xff51afd7ed558ccdL;
+        value ^= value >>> 33;
+        value *= 0xc4ceb9fe1a85ec53L;
+        value ^= value >>> 33;
+        return value;
+    }
+
+    private static final class Ring {
+
+        private final long[] fingerprints;
+        private int size;
+        private int next;
+        private volatile long lastUse;
+
+        Ring(int capacity) {
+            this.fingerprints = new long[capacity];
+        }
+
+        /**
+         * @return {@code false} when the fingerprint is already in the ring
+         */
+        synchronized boolean add(long fingerprint) {
+            lastUse = System.nanoTime();
+            for (int i = 0; i < size; i++) {
+                if (fingerprints[i] == fingerprint) {
+                    return false;
+                }
+            }
+            fingerprints[next] = fingerprint;
+            next = (next + 1) % fingerprints.length;
+            if (size < fingerprints.length) {
+                size++;
+            }
+            return true;
+        }
+
+        /**
+         * Removes the fingerprint, shifting the more recent ones back so that the ring keeps its order.
+         */
+        synchronized void remove(long fingerprint) {
+            int newest = (next - 1 + fingerprints.length) % fingerprints.length;
+            for (int k = 0, i = newest; k < size; k++, i = (i - 1 + fingerprints.length) % fingerprints.length) {
+                if (fingerprints[i] == fingerprint) {
+                    for (int j = i; j != newest; j = (j + 1) % fingerprints.length) {
+                        fingerprints[j] = fingerprints[(j + 1) % fingerprints.length];
+                    }
+                    next = newest;
+                    size--;
+                    return;
+                }
+            }
+        }
+
+        long lastUse() {
+            return lastUse;
+        }
+    }
+}
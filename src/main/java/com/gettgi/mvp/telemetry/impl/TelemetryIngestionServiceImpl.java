@@ -1,101 +1,276 @@
 package com.gettgi.mvp.telemetry.impl;
 
+import com.gettgi.mvp.config.TelemetryIngestProperties;
+import com.gettgi.mvp.dto.telemetry.AlertNotificationDto;
 import com.gettgi.mvp.dto.telemetry.GeoPointDto;
 import com.gettgi.mvp.dto.telemetry.RealtimePositionDto;
 import com.gettgi.mvp.dto.telemetry.TelemetryIngestDto;
-import com.gettgi.mvp.entity.Animal;
 import com.gettgi.mvp.entity.Device;
 import com.gettgi.mvp.entity.Telemetry;
+import com.gettgi.mvp.entity.enums.StatusCollar;
 import com.gettgi.mvp.entity.enums.StatutTransmission;
 import com.gettgi.mvp.repository.DeviceRepository;
+import com.gettgi.mvp.telemetry.DeviceRegistry;
+import com.gettgi.mvp.telemetry.DeviceSnapshot;
+import com.gettgi.mvp.telemetry.LivePosition;
+import com.gettgi.mvp.telemetry.LivePositionStore;
 import com.gettgi.mvp.telemetry.RealtimeMessagingService;
 import com.gettgi.mvp.telemetry.TelemetryAlertResult;
 import com.gettgi.mvp.telemetry.TelemetryAlertService;
+import com.gettgi.mvp.telemetry.TelemetryIngestMetrics;
 import com.gettgi.mvp.telemetry.TelemetryIngestionService;
 import com.gettgi.mvp.telemetry.TelemetryPersistenceService;
-import lombok.RequiredArgsConstructor;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import lombok.extern.slf4j.Slf4j;
 import org.locationtech.jts.geom.Coordinate;
 import org.locationtech.jts.geom.GeometryFactory;
 import org.locationtech.jts.geom.Point;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 
+/**
+ * Ingests telemetry frames: device resolution, alert evaluation, live state updates and buffering.
+ * <p>
+ * Live state only moves forward in time: a frame older than the newest one already applied for its collar
+ * (the collar watermark) is buffered for history but neither updates the collar status, the animal last
+ * position nor the alerts, and is not published. Frames lagging the watermark by more than the configured
+ * reorder window are counted as {@link TelemetryIngestMetrics.Outcome#LATE}; smaller inversions, typical of
+ * frames overtaking each other in flight, are only counted by {@code telemetry.ingest.reordered}.
+ * Watermarks are kept in memory and only advance once the transaction of the frame commits; after a restart,
+ * the write-back of the {@link LivePositionStore} still never moves the stored position back.
+ * <p>
+ * Frames already received for their collar are dropped first, before any lookup or database work. A frame
+ * is forgotten by the deduplicator when its transaction rolls back, so that the collar can send it again;
+ * points are only handed to the {@link TelemetryPersistenceService}, and live positions to the
+ * {@link LivePositionStore}, both living outside of the transaction, once it commits.
+ */
 @Slf4j
 @Service
-@RequiredArgsConstructor
 public class TelemetryIngestionServiceImpl implements TelemetryIngestionService {
 
+    private final DeviceRegistry deviceRegistry;
     private final DeviceRepository deviceRepository;
+    private final LivePositionStore livePositionStore;
     private final GeometryFactory geometryFactory;
     private final TelemetryAlertService telemetryAlertService;
     private final RealtimeMessagingService realtimeMessagingService;
     private final TelemetryPersistenceService telemetryPersistenceService;
     private final TelemetryOfflineMonitorService telemetryOfflineMonitorService;
+    private final TelemetryFrameDeduplicator frameDeduplicator;
+    private final TelemetryIngestMetrics ingestMetrics;
+    private final Duration reorderWindow;
+    private final Map<UUID, Instant> watermarks = new ConcurrentHashMap<>();
+    private final Timer deviceLookupTimer;
+    private final Timer alertEvaluationTimer;
+    private final Counter reorderedCounter;
+
+    public TelemetryIngestionServiceImpl(DeviceRegistry deviceRegistry,
+                                         DeviceRepository deviceRepository,
+                                         LivePositionStore livePositionStore,
+                                         GeometryFactory geometryFactory,
+                                         TelemetryAlertService telemetryAlertService,
+                                         RealtimeMessagingService realtimeMessagingService,
+                                         TelemetryPersistenceService telemetryPersistenceService,
+                                         TelemetryOfflineMonitorService telemetryOfflineMonitorService,
+                                         TelemetryIngestProperties ingestProperties,
+                                         TelemetryFrameDeduplicator frameDeduplicator,
+                                         TelemetryIngestMetrics ingestMetrics,
+                                         MeterRegistry meterRegistry) {
+        this.deviceRegistry = deviceRegistry;
+        this.deviceRepository = deviceRepository;
+        this.livePositionStore = livePositionStore;
+        this.geometryFactory = geometryFactory;
+        this.telemetryAlertService = telemetryAlertService;
+        this.realtimeMessagingService = realtimeMessagingService;
+        this.telemetryPersistenceService = telemetryPersistenceService;
+        this.telemetryOfflineMonitorService = telemetryOfflineMonitorService;
+        this.frameDeduplicator = frameDeduplicator;
+        this.ingestMetrics = ingestMetrics;
+        this.reorderWindow = ingestProperties.getReorderWindow() != null ? ingestProperties.getReorderWindow() : Duration.ZERO;
+        this.deviceLookupTimer = Timer.builder("telemetry.device.lookup")
+                .description("Time spent resolving the collar of a frame")
+                .register(meterRegistry);
+        this.alertEvaluationTimer = Timer.builder("telemetry.alert.evaluation")
+                .description("Time spent evaluating the alerts of a frame")
+                .register(meterRegistry);
+        this.reorderedCounter = Counter.builder("telemetry.ingest.reordered")
+                .description("Frames older than the collar watermark but within the reorder window, kept for history only")
+                .register(meterRegistry);
+    }
 
     @Override
     @Transactional
     public void ingest(TelemetryIngestDto dto) {
-        Optional<Device> maybeDevice = deviceRepository.findByImei(dto.deviceImei());
-        if (maybeDevice.isEmpty()) {
-            log.warn("Telemetry dropped: unknown device imei={}", dto.deviceImei());
+        if (isDuplicate(dto)) {
             return;
         }
+        resolveDevice(dto.deviceImei(), List.of(dto))
+                .ifPresent(device -> process(device, List.of(dto)));
+    }
 
-        Device device = maybeDevice.get();
+    /**
+     * Frames are grouped by collar; each collar is resolved once and its frames are processed in timestamp
+     * order, only the most recent one being published as the live position.
+     */
+    @Override
+    @Transactional
+    public void ingestBatch(List<TelemetryIngestDto> dtos) {
+        Map<String, List<TelemetryIngestDto>> framesByImei = new LinkedHashMap<>();
+        for (TelemetryIngestDto dto : dtos) {
+            if (isDuplicate(dto)) {
+                continue;
+            }
+            framesByImei.computeIfAbsent(dto.deviceImei(), imei -> new ArrayList<>()).add(dto);
+        }
+        framesByImei.forEach((imei, frames) -> {
+            frames.sort(Comparator.comparing(TelemetryIngestDto::timestamp));
+            resolveDevice(imei, frames).ifPresent(device -> process(device, frames));
+        });
+    }
 
-        Telemetry telemetry = new Telemetry();
-        telemetry.setDevice(device);
-        telemetry.setPosition(toPoint(dto.position()));
-        telemetry.setSpeed(dto.speed());
-        telemetry.setAccelX(dto.accelX());
-        telemetry.setAccelY(dto.accelY());
-        telemetry.setAccelZ(dto.accelZ());
-        telemetry.setPressure(dto.pressure());
-        telemetry.setBatteryLevel(dto.batteryLevel());
-        telemetry.setGsmSignal(dto.gsmSignal());
-        telemetry.setTransmissionStatus(dto.transmissionStatusOptional().orElse(StatutTransmission.ENVOYE));
-        telemetry.setStatusCollar(dto.statusCollarOptional().orElse(device.getStatusCollar()));
-        telemetry.setTs(dto.timestamp());
+    private boolean isDuplicate(TelemetryIngestDto dto) {
+        if (!frameDeduplicator.isDuplicate(dto)) {
+            PendingFrames pending = pendingFrames();
+            if (pending != null) {
+                pending.received.add(dto);
+            }
+            return false;
+        }
+        ingestMetrics.record(TelemetryIngestMetrics.Outcome.DUPLICATE, dto.timestamp());
+        log.debug("Duplicate telemetry frame dropped: imei={} ts={}", dto.deviceImei(), dto.timestamp());
+        return true;
+    }
+
+    /**
+     * @return the frames of the current transaction, {@code null} outside of a transaction
+     */
+    private PendingFrames pendingFrames() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return null;
+        }
+        PendingFrames pending = (PendingFrames) TransactionSynchronizationManager.getResource(this);
+        if (pending == null) {
+            pending = new PendingFrames();
+            TransactionSynchronizationManager.bindResource(this, pending);
+            TransactionSynchronizationManager.registerSynchronization(pending);
+        }
+        return pending;
+    }
 
-        dto.statusCollarOptional().ifPresent(device::setStatusCollar);
+    private Optional<DeviceSnapshot> resolveDevice(String imei, List<TelemetryIngestDto> frames) {
+        Timer.Sample lookup = Timer.start();
+        Optional<DeviceSnapshot> device = deviceRegistry.find(imei);
+        lookup.stop(deviceLookupTimer);
+        if (device.isEmpty()) {
+            frames.forEach(dto -> ingestMetrics.record(TelemetryIngestMetrics.Outcome.UNKNOWN_DEVICE, dto.timestamp()));
+            log.warn("Telemetry dropped: unknown device imei={} ({} frame(s))", imei, frames.size());
+        }
+        return device;
+    }
 
-        Animal linkedAnimal = device.getAnimal();
-        if (linkedAnimal != null) {
-            linkedAnimal.setLastPosition(telemetry.getPosition());
-            linkedAnimal.setLastPositionTs(telemetry.getTs());
-        } else {
-            log.debug("Device {} has no associated animal; skipping last position update.", device.getImei());
+    /**
+     * Processes the frames of one collar, sorted by timestamp.
+     */
+    private void process(DeviceSnapshot device, List<TelemetryIngestDto> frames) {
+        Device deviceReference = deviceRepository.getReferenceById(device.deviceId());
+        Instant watermark = watermark(device.deviceId());
+        // frames are sorted: the ones behind the watermark come first
+        int lateCount = 0;
+        while (lateCount < frames.size() && watermark != null && frames.get(lateCount).timestamp().isBefore(watermark)) {
+            lateCount++;
+        }
+
+        List<Telemetry> telemetries = new ArrayList<>(frames.size());
+        StatusCollar statusCollar = device.statusCollar();
+        for (int i = 0; i < frames.size(); i++) {
+            TelemetryIngestDto dto = frames.get(i);
+            if (i < lateCount) {
+                telemetries.add(toTelemetry(dto, deviceReference, dto.statusCollarOptional().orElse(device.statusCollar())));
+            } else {
+                statusCollar = dto.statusCollarOptional().orElse(statusCollar);
+                telemetries.add(toTelemetry(dto, deviceReference, statusCollar));
+            }
+        }
+        List<Telemetry> live = telemetries.subList(lateCount, telemetries.size());
+        if (lateCount > 0) {
+            log.debug("{} frame(s) of device {} older than its watermark {} kept for history only",
+                    lateCount, device.imei(), watermark);
+        }
+        if (live.isEmpty()) {
+            afterCommit(() -> buffer(telemetries, watermark));
+            return;
         }
+        Telemetry latest = live.get(live.size() - 1);
 
-        if (linkedAnimal != null) {
-            telemetryOfflineMonitorService.resolveIfTrackerBackOnline(linkedAnimal, device, telemetry.getTs());
+        if (statusCollar != device.statusCollar()) {
+            deviceRepository.updateStatusCollar(device.deviceId(), statusCollar);
+            deviceRegistry.statusCollarChanged(device.imei(), statusCollar);
         }
 
-        TelemetryAlertResult alertResult = telemetryAlertService.evaluate(device, telemetry);
+        if (!device.hasAnimal()) {
+            log.debug("Device {} has no associated animal; skipping last position update.", device.imei());
+        } else {
+            telemetryOfflineMonitorService.trackerReported(device, latest.getTs());
+        }
 
-        String userTelephone = null;
-        if (linkedAnimal != null && linkedAnimal.getUser() != null) {
-            userTelephone = linkedAnimal.getUser().getTelephone();
+        // every frame goes through the alert state machine, so that an exit and a return replayed
+        // together both raise their notification
+        TelemetryAlertResult alertResult = null;
+        List<AlertNotificationDto> notifications = new ArrayList<>();
+        for (Telemetry telemetry : live) {
+            Timer.Sample evaluation = Timer.start();
+            alertResult = telemetryAlertService.evaluate(device, telemetry);
+            evaluation.stop(alertEvaluationTimer);
+            notifications.addAll(alertResult.notifications());
         }
 
-        if (linkedAnimal != null) {
+        String userTelephone = device.ownerTelephone();
+
+        if (device.hasAnimal()) {
+            LivePosition livePosition = new LivePosition(
+                    device.deviceId(),
+                    latest.getPosition(),
+                    latest.getTs(),
+                    alertResult.insideGeofence(),
+                    latest.getSpeed(),
+                    latest.getBatteryLevel(),
+                    latest.getGsmSignal(),
+                    latest.getStatusCollar()
+            );
+            // served to clients and written back as the last position: a rolled back frame must not show up
+            afterCommit(() -> livePositionStore.record(device.animalId(), livePosition));
+
             RealtimePositionDto positionDto = new RealtimePositionDto(
-                    linkedAnimal.getId(),
-                    animalLabel(linkedAnimal),
-                    device.getId(),
-                    device.getImei(),
-                    toGeoPoint(telemetry.getPosition()),
-                    telemetry.getSpeed(),
-                    telemetry.getBatteryLevel(),
-                    telemetry.getGsmSignal(),
-                    telemetry.getStatusCollar() != null ? telemetry.getStatusCollar() : device.getStatusCollar(),
-                    telemetry.getTs(),
+                    device.animalId(),
+                    animalLabel(device),
+                    device.deviceId(),
+                    device.imei(),
+                    toGeoPoint(latest.getPosition()),
+                    latest.getSpeed(),
+                    latest.getBatteryLevel(),
+                    latest.getGsmSignal(),
+                    latest.getStatusCollar() != null ? latest.getStatusCollar() : device.statusCollar(),
+                    latest.getTs(),
                     alertResult.insideGeofence(),
                     alertResult.geofenceId(),
                     alertResult.geofenceName(),
+                    alertResult.zones(),
                     alertResult.activeAlerts()
             );
             if (userTelephone != null && !userTelephone.isBlank()) {
@@ -104,15 +279,84 @@ public class TelemetryIngestionServiceImpl implements TelemetryIngestionService
         }
 
         if (userTelephone != null && !userTelephone.isBlank()) {
-            String finalUserTelephone = userTelephone;
-            alertResult.notifications().forEach(alert -> realtimeMessagingService.publishAlert(finalUserTelephone, alert));
+            notifications.forEach(alert -> realtimeMessagingService.publishAlert(userTelephone, device.ownerId(), alert));
         }
 
-        telemetryPersistenceService.buffer(telemetry);
+        afterCommit(() -> buffer(telemetries, watermark));
+        advanceWatermark(device.deviceId(), latest.getTs());
 
         if (log.isDebugEnabled()) {
-            log.debug("Telemetry buffered for device {} at {}", device.getImei(), telemetry.getTs());
+            log.debug("{} telemetry point(s) buffered for device {} up to {}", telemetries.size(), device.imei(), latest.getTs());
+        }
+    }
+
+    /**
+     * @return the watermark of the collar, including frames applied earlier in the current transaction
+     */
+    private Instant watermark(UUID deviceId) {
+        Instant committed = watermarks.get(deviceId);
+        PendingFrames pending = TransactionSynchronizationManager.isSynchronizationActive()
+                ? (PendingFrames) TransactionSynchronizationManager.getResource(this)
+                : null;
+        Instant uncommitted = pending != null ? pending.watermarks.get(deviceId) : null;
+        return uncommitted == null ? committed : latest(committed, uncommitted);
+    }
+
+    /**
+     * Runs {@code action} once the current transaction commits, right away outside of a transaction.
+     */
+    private void afterCommit(Runnable action) {
+        PendingFrames pending = pendingFrames();
+        if (pending != null) {
+            pending.onCommit.add(action);
+        } else {
+            action.run();
+        }
+    }
+
+    private void advanceWatermark(UUID deviceId, Instant ts) {
+        PendingFrames pending = pendingFrames();
+        // a rolled back frame must not turn its retransmission into a late frame
+        (pending != null ? pending.watermarks : watermarks).merge(deviceId, ts, TelemetryIngestionServiceImpl::latest);
+    }
+
+    private static Instant latest(Instant current, Instant candidate) {
+        return current == null || candidate.isAfter(current) ? candidate : current;
+    }
+
+    private void buffer(List<Telemetry> telemetries, Instant watermark) {
+        if (telemetries.size() == 1) {
+            telemetryPersistenceService.buffer(telemetries.get(0));
+        } else {
+            telemetryPersistenceService.bufferAll(telemetries);
         }
+        for (Telemetry telemetry : telemetries) {
+            if (watermark == null || !telemetry.getTs().isBefore(watermark)) {
+                ingestMetrics.record(TelemetryIngestMetrics.Outcome.PERSISTED, telemetry.getTs());
+            } else if (telemetry.getTs().isBefore(watermark.minus(reorderWindow))) {
+                ingestMetrics.record(TelemetryIngestMetrics.Outcome.LATE, telemetry.getTs());
+            } else {
+                reorderedCounter.increment();
+                ingestMetrics.record(TelemetryIngestMetrics.Outcome.PERSISTED, telemetry.getTs());
+            }
+        }
+    }
+
+    private Telemetry toTelemetry(TelemetryIngestDto dto, Device deviceReference, StatusCollar statusCollar) {
+        Telemetry telemetry = new Telemetry();
+        telemetry.setDevice(deviceReference);
+        telemetry.setPosition(toPoint(dto.position()));
+        telemetry.setSpeed(dto.speed());
+        telemetry.setAccelX(dto.accelX());
+        telemetry.setAccelY(dto.accelY());
+        telemetry.setAccelZ(dto.accelZ());
+        telemetry.setPressure(dto.pressure());
+        telemetry.setBatteryLevel(dto.batteryLevel());
+        telemetry.setGsmSignal(dto.gsmSignal());
+        telemetry.setTransmissionStatus(dto.transmissionStatusOptional().orElse(StatutTransmission.ENVOYE));
+        telemetry.setStatusCollar(statusCollar);
+        telemetry.setTs(dto.timestamp());
+        return telemetry;
     }
 
     private Point toPoint(GeoPointDto geoPointDto) {
@@ -126,10 +370,49 @@ public class TelemetryIngestionServiceImpl implements TelemetryIngestionService
         return new GeoPointDto(point.getY(), point.getX());
     }
 
-    private String animalLabel(Animal animal) {
-        if (animal == null) {
-            return "inconnu";
+    private String animalLabel(DeviceSnapshot device) {
+        if (device.animalNom() != null) {
+            return device.animalNom();
+        }
+        return device.animalEspece() != null ? device.animalEspece().name() : "inconnu";
+    }
+
+    /**
+     * Frames accepted by the deduplicator in the current transaction, forgotten if it does not commit,
+     * and the watermarks and side effects they bring, applied once it commits.
+     */
+    private final class PendingFrames implements TransactionSynchronization {
+
+        private final List<TelemetryIngestDto> received = new ArrayList<>();
+        private final Map<UUID, Instant> watermarks = new HashMap<>();
+        private final List<Runnable> onCommit = new ArrayList<>();
+
+        @Override
+        public void suspend() {
+            TransactionSynchronizationManager.unbindResource(TelemetryIngestionServiceImpl.this);
+        }
+
+        @Override
+        public void resume() {
+            TransactionSynchronizationManager.bindResource(TelemetryIngestionServiceImpl.this, this);
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            TransactionSynchronizationManager.unbindResourceIfPossible(TelemetryIngestionServiceImpl.this);
+            if (status == STATUS_COMMITTED) {
+                watermarks.forEach((deviceId, ts) ->
+                        TelemetryIngestionServiceImpl.this.watermarks.merge(deviceId, ts, TelemetryIngestionServiceImpl::latest));
+                for (Runnable action : onCommit) {
+                    try {
+                        action.run();
+                    } catch (RuntimeException ex) {
+                        log.error("Failed to apply committed telemetry", ex);
+                    }
+                }
+            } else {
+                received.forEach(frameDeduplicator::forget);
+            }
         }
-        return animal.getNom() != null ? animal.getNom() : animal.getEspece().name();
     }
 }
@@ -9,42 +9,173 @@ import com.gettgi.mvp.entity.User;
 import com.gettgi.mvp.entity.enums.TypeAlerte;
 import com.gettgi.mvp.repository.AlerteRepository;
 import com.gettgi.mvp.repository.AnimalRepository;
+import com.gettgi.mvp.telemetry.ActiveAlertRegistry;
+import com.gettgi.mvp.telemetry.AlertBatchWriter;
+import com.gettgi.mvp.telemetry.ActiveAlerts;
+import com.gettgi.mvp.telemetry.DeviceSnapshot;
+import com.gettgi.mvp.telemetry.LivePosition;
+import com.gettgi.mvp.telemetry.LivePositionStore;
 import com.gettgi.mvp.telemetry.RealtimeMessagingService;
-import lombok.RequiredArgsConstructor;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.time.Duration;
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.UUID;
+import java.util.function.LongSupplier;
 
+/**
+ * Raises {@code DEVICE_OFFLINE} when a collar stops reporting, and resolves it when the collar reports again.
+ * <p>
+ * Every frame re-arms the deadline of its animal in a {@link OfflineTimingWheel}, {@code threshold} after
+ * the frame was received; the wheel is advanced every {@code tick} and an expired deadline raises the alert
+ * at once. The database scan of stale animals only runs as a reconciliation sweep, every
+ * {@code checkInterval}: it covers collars silent since before startup and deadlines lost on another node.
+ * <p>
+ * Both run outside the ingest partition of the collar, so a raised alert is only marked open in the
+ * {@link ActiveAlertRegistry} once its insert committed: a frame arriving meanwhile does not try to resolve
+ * a row it cannot see yet, and the next frame resolves the alert.
+ */
 @Slf4j
 @Service
-@RequiredArgsConstructor
 public class TelemetryOfflineMonitorService {
 
     private final TelemetryOfflineProperties properties;
     private final AnimalRepository animalRepository;
     private final AlerteRepository alerteRepository;
+    private final AlertBatchWriter alertBatchWriter;
     private final RealtimeMessagingService realtimeMessagingService;
+    private final ActiveAlertRegistry activeAlertRegistry;
+    private final LivePositionStore livePositionStore;
+    private final LongSupplier clock;
+    private final OfflineTimingWheel<Silence> wheel;
+    private final Counter expiredCounter;
 
-    @Scheduled(fixedDelayString = "${app.telemetry.offline.check-interval:PT1M}", initialDelay = 30_000)
+    @Autowired
+    public TelemetryOfflineMonitorService(TelemetryOfflineProperties properties,
+                                          AnimalRepository animalRepository,
+                                          AlerteRepository alerteRepository,
+                                          AlertBatchWriter alertBatchWriter,
+                                          RealtimeMessagingService realtimeMessagingService,
+                                          ActiveAlertRegistry activeAlertRegistry,
+                                          LivePositionStore livePositionStore,
+                                          MeterRegistry meterRegistry) {
+        this(properties, animalRepository, alerteRepository, alertBatchWriter, realtimeMessagingService, activeAlertRegistry,
+                livePositionStore, meterRegistry, System::currentTimeMillis);
+    }
+
+    TelemetryOfflineMonitorService(TelemetryOfflineProperties properties,
+                                   AnimalRepository animalRepository,
+                                   AlerteRepository alerteRepository,
+                                   AlertBatchWriter alertBatchWriter,
+                                   RealtimeMessagingService realtimeMessagingService,
+                                   ActiveAlertRegistry activeAlertRegistry,
+                                   LivePositionStore livePositionStore,
+                                   MeterRegistry meterRegistry,
+                                   LongSupplier clock) {
+        this.properties = properties;
+        this.animalRepository = animalRepository;
+        this.alerteRepository = alerteRepository;
+        this.alertBatchWriter = alertBatchWriter;
+        this.realtimeMessagingService = realtimeMessagingService;
+        this.activeAlertRegistry = activeAlertRegistry;
+        this.livePositionStore = livePositionStore;
+        this.clock = clock;
+        Duration tick = properties.getTick() != null ? properties.getTick() : Duration.ofSeconds(1);
+        this.wheel = new OfflineTimingWheel<>(tick.toMillis(), threshold().toMillis(), clock.getAsLong());
+        Gauge.builder("telemetry.offline.armed", wheel, OfflineTimingWheel::size)
+                .description("Collars whose offline deadline is scheduled")
+                .register(meterRegistry);
+        this.expiredCounter = Counter.builder("telemetry.offline.expired")
+                .description("Offline deadlines expired without a frame")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Raises the alert of every collar whose deadline expired.
+     */
+    @Scheduled(fixedDelayString = "${app.telemetry.offline.tick:PT1S}")
+    @Transactional
+    public void expireSilentTrackers() {
+        List<Silence> expired = wheel.advance(clock.getAsLong());
+        if (expired.isEmpty()) {
+            return;
+        }
+        expiredCounter.increment(expired.size());
+
+        Map<UUID, Silence> silences = new HashMap<>();
+        for (Silence silence : expired) {
+            if (!activeAlertRegistry.get(silence.animalId()).isOpen(TypeAlerte.DEVICE_OFFLINE)) {
+                silences.put(silence.animalId(), silence);
+            }
+        }
+        if (silences.isEmpty()) {
+            return;
+        }
+
+        List<Offline> offline = new ArrayList<>(silences.size());
+        for (Animal animal : animalRepository.findAllWithOwnerAndDeviceByIdIn(silences.keySet())) {
+            Silence silence = silences.get(animal.getId());
+            // the collar may have been moved to another animal meanwhile
+            if (animal.getDevice() != null && silence.deviceId().equals(animal.getDevice().getId())) {
+                offline.add(new Offline(animal, silence.lastSeen()));
+            }
+        }
+        raiseOffline(offline, Instant.ofEpochMilli(clock.getAsLong()));
+    }
+
+    /**
+     * Reconciliation sweep over the animals whose stored last position is older than the threshold
+     * and which have no open {@code DEVICE_OFFLINE} alert.
+     */
+    @Scheduled(fixedDelayString = "${app.telemetry.offline.check-interval:PT15M}", initialDelay = 30_000)
     @Transactional
     public void checkOfflineTrackers() {
-        Duration threshold = properties.getThreshold() != null ? properties.getThreshold() : Duration.ofMinutes(5);
+        Duration threshold = threshold();
         if (threshold.isZero() || threshold.isNegative()) {
             return;
         }
 
-        Instant now = Instant.now();
+        Instant now = Instant.ofEpochMilli(clock.getAsLong());
         Instant cutoff = now.minus(threshold);
 
-        List<Animal> staleAnimals = animalRepository.findAnimalsWithLastTelemetryBefore(cutoff);
+        List<Animal> staleAnimals = animalRepository.findSilentAnimalsWithoutOpenAlert(cutoff, TypeAlerte.DEVICE_OFFLINE);
+        List<Offline> offline = new ArrayList<>(staleAnimals.size());
         for (Animal animal : staleAnimals) {
+            // the animal row lags the in-memory view by up to one last position flush
+            Instant lastSeen = livePositionStore.find(animal.getId())
+                    .map(LivePosition::ts)
+                    .filter(ts -> ts.isAfter(animal.getLastPositionTs()))
+                    .orElse(animal.getLastPositionTs());
+            if (lastSeen.isBefore(cutoff)) {
+                offline.add(new Offline(animal, lastSeen));
+            }
+        }
+        raiseOffline(offline, now);
+    }
+
+    /**
+     * Inserts the alerts in one batch and publishes them grouped by owner: a relay outage silences
+     * many collars at once.
+     */
+    private void raiseOffline(List<Offline> offline, Instant now) {
+        List<Alerte> alerts = new ArrayList<>(offline.size());
+        for (Offline candidate : offline) {
+            Animal animal = candidate.animal();
             Device device = animal.getDevice();
             User user = animal.getUser();
             if (device == null || user == null) {
@@ -55,13 +186,6 @@ public class TelemetryOfflineMonitorService {
                 continue;
             }
 
-            boolean alreadyActive = alerteRepository
-                    .findTopByAnimal_IdAndTypeAlerteAndResolvedFalse(animal.getId(), TypeAlerte.DEVICE_OFFLINE)
-                    .isPresent();
-            if (alreadyActive) {
-                continue;
-            }
-
             Alerte alert = new Alerte();
             alert.setTypeAlerte(TypeAlerte.DEVICE_OFFLINE);
             alert.setTs(now);
@@ -70,40 +194,87 @@ public class TelemetryOfflineMonitorService {
             alert.setUser(user);
             alert.setAnimal(animal);
             alert.setDevice(device);
-            alert.setMessage(buildOfflineMessage(animal, device, animal.getLastPositionTs(), now));
+            alert.setMessage(buildOfflineMessage(animal, device, candidate.lastSeen(), now));
+            alerts.add(alert);
+        }
+        if (alerts.isEmpty()) {
+            return;
+        }
 
-            Alerte saved = alerteRepository.save(alert);
-            realtimeMessagingService.publishAlert(telephone, toDto(saved));
+        alertBatchWriter.insert(alerts);
+        afterCommit(() -> alerts.forEach(alert -> activeAlertRegistry.opened(
+                alert.getAnimal().getId(), TypeAlerte.DEVICE_OFFLINE, alert.getId(), alert.getTs())));
+        Map<Owner, List<AlertNotificationDto>> byOwner = new LinkedHashMap<>();
+        for (Alerte alert : alerts) {
+            Owner owner = new Owner(alert.getUser().getId(), alert.getUser().getTelephone());
+            byOwner.computeIfAbsent(owner, key -> new ArrayList<>()).add(toDto(alert));
         }
+        log.info("{} tracker(s) offline for {} owner(s)", alerts.size(), byOwner.size());
+        byOwner.forEach((owner, notifications) ->
+                realtimeMessagingService.publishAlerts(owner.telephone(), owner.id(), notifications));
     }
 
+    /**
+     * Called for the newest frame of each ingested batch: re-arms the offline deadline of the animal and
+     * resolves its {@code DEVICE_OFFLINE} alert if one is open.
+     */
     @Transactional
-    public void resolveIfTrackerBackOnline(Animal animal, Device device, Instant telemetryTs) {
-        if (animal == null || device == null) {
+    public void trackerReported(DeviceSnapshot device, Instant telemetryTs) {
+        if (device == null || !device.hasAnimal()) {
             return;
         }
 
-        var existing = alerteRepository.findTopByAnimal_IdAndTypeAlerteAndResolvedFalse(
-                animal.getId(),
-                TypeAlerte.DEVICE_OFFLINE
-        );
+        Duration threshold = threshold();
+        if (!threshold.isZero() && !threshold.isNegative()) {
+            wheel.arm(device.animalId(), new Silence(device.animalId(), device.deviceId(), telemetryTs),
+                    clock.getAsLong() + threshold.toMillis());
+        }
 
-        existing.ifPresent(alert -> {
-            User user = alert.getUser();
-            String telephone = user != null ? user.getTelephone() : null;
-            if (telephone == null || telephone.isBlank()) {
-                return;
-            }
+        String telephone = device.ownerTelephone();
+        if (telephone == null || telephone.isBlank()) {
+            return;
+        }
+
+        // called for every frame: only the in-memory state is read unless the tracker was offline
+        ActiveAlerts active = activeAlertRegistry.get(device.animalId());
+        active.find(TypeAlerte.DEVICE_OFFLINE).ifPresent(open -> {
+            Instant resolvedAt = telemetryTs != null ? telemetryTs : Instant.now();
+            String message = buildOnlineMessage(device);
+            alerteRepository.resolveOpenAlerts(device.animalId(), TypeAlerte.DEVICE_OFFLINE, resolvedAt, message, Instant.now());
+            activeAlertRegistry.resolved(device.animalId(), TypeAlerte.DEVICE_OFFLINE);
 
-            alert.setResolved(true);
-            alert.setResolvedAt(telemetryTs != null ? telemetryTs : Instant.now());
-            alert.setMessage(buildOnlineMessage(animal, device));
+            realtimeMessagingService.publishAlert(telephone, device.ownerId(), new AlertNotificationDto(
+                    open.id(),
+                    device.animalId(),
+                    device.deviceId(),
+                    TypeAlerte.DEVICE_OFFLINE,
+                    message,
+                    open.ts(),
+                    true,
+                    resolvedAt
+            ));
+        });
+    }
 
-            Alerte saved = alerteRepository.save(alert);
-            realtimeMessagingService.publishAlert(telephone, toDto(saved));
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status == STATUS_COMMITTED) {
+                    action.run();
+                }
+            }
         });
     }
 
+    private Duration threshold() {
+        return properties.getThreshold() != null ? properties.getThreshold() : Duration.ofMinutes(5);
+    }
+
     private AlertNotificationDto toDto(Alerte alert) {
         UUID deviceId = alert.getDevice() != null ? alert.getDevice().getId() : null;
         return new AlertNotificationDto(
@@ -134,9 +305,9 @@ public class TelemetryOfflineMonitorService {
                 .formatted(animalLabel, imei, minutes, lastSeen);
     }
 
-    private String buildOnlineMessage(Animal animal, Device device) {
-        String animalLabel = animalLabel(animal);
-        String imei = device != null ? Objects.requireNonNullElse(device.getImei(), "inconnu") : "inconnu";
+    private String buildOnlineMessage(DeviceSnapshot device) {
+        String animalLabel = Objects.requireNonNullElse(device.animalNom(), "animal");
+        String imei = Objects.requireNonNullElse(device.imei(), "inconnu");
         return "Tracker de nouveau en ligne pour %s (IMEI=%s).".formatted(animalLabel, imei);
     }
 
@@ -146,4 +317,16 @@ public class TelemetryOfflineMonitorService {
         }
         return Objects.requireNonNullElse(animal.getNom(), "animal");
     }
+
+    /**
+     * @param lastSeen device timestamp of the last frame received
+     */
+    private record Silence(UUID animalId, UUID deviceId, Instant lastSeen) {
+    }
+
+    private record Offline(Animal animal, Instant lastSeen) {
+    }
+
+    private record Owner(UUID id, String telephone) {
+    }
 }
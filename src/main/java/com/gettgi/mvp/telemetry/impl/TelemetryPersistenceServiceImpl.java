@@ -2,68 +2,369 @@ package com.gettgi.mvp.telemetry.impl;
 
 import com.gettgi.mvp.config.TelemetryPersistenceProperties;
 import com.gettgi.mvp.entity.Telemetry;
-import com.gettgi.mvp.repository.TelemetryRepository;
+import com.gettgi.mvp.telemetry.TelemetryBatchWriter;
 import com.gettgi.mvp.telemetry.TelemetryPersistenceService;
-import lombok.RequiredArgsConstructor;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import lombok.extern.slf4j.Slf4j;
 import org.locationtech.jts.geom.Point;
-import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
+/**
+ * Buffers telemetry points in memory and writes them in batches from a dedicated flusher thread,
+ * every {@code flushInterval} or as soon as {@code batchSize} points are waiting.
+ * <p>
+ * In {@link TelemetryPersistenceProperties.Mode#LATEST} mode only the most recent point of each device is kept;
+ * in {@link TelemetryPersistenceProperties.Mode#APPEND} mode every point is kept in a bounded ring buffer.
+ * <p>
+ * When the write-ahead log is enabled, every point is appended to it before {@link #buffer(Telemetry)} returns.
+ * A flush marks the log position and takes everything buffered in one step; the position is committed once
+ * all of it is written. A failing batch is put back in the buffer with everything after it, and the position
+ * is left where it was, so that the log still covers it; whatever follows the committed position at startup
+ * is replayed into the buffer.
+ */
 @Slf4j
 @Service
-@RequiredArgsConstructor
-public class TelemetryPersistenceServiceImpl implements TelemetryPersistenceService {
+public class TelemetryPersistenceServiceImpl implements TelemetryPersistenceService, InitializingBean, DisposableBean {
 
-    private final TelemetryRepository telemetryRepository;
-    private final TelemetryPersistenceProperties properties;
+    private static final Duration SHUTDOWN_TIMEOUT = Duration.ofSeconds(10);
+
+    private final TelemetryBatchWriter batchWriter;
+    private final boolean appendMode;
+    private final int batchSize;
+    private final Duration flushInterval;
 
     private final Map<UUID, Telemetry> latestByDevice = new ConcurrentHashMap<>();
+    private final TelemetryRingBuffer<Telemetry> pending;
+
+    private final Semaphore flushSignal = new Semaphore(0);
+    private final Object flushLock = new Object();
+    private final TelemetryWriteAheadLog wal;
+    // buffer() holds the read lock, a flush checkpoint the write lock: a point is either before the marked
+    // position and drained, or after it and still buffered
+    private final ReadWriteLock checkpointLock = new ReentrantReadWriteLock();
+    private volatile boolean running;
+    private Thread flusher;
+
+    private final Counter overflowCounter;
+    private final Counter writeFailureCounter;
+    private final Counter coalescedCounter;
+    private final Counter writtenCounter;
+    private final Timer flushTimer;
+    private final DistributionSummary flushSizeSummary;
+    private final Timer enqueueTimer;
+    private final Counter walReplayedCounter;
+    private final Counter walFailureCounter;
+
+    public TelemetryPersistenceServiceImpl(TelemetryBatchWriter batchWriter,
+                                           TelemetryPersistenceProperties properties,
+                                           MeterRegistry meterRegistry) {
+        this.batchWriter = batchWriter;
+        this.appendMode = properties.getMode() == TelemetryPersistenceProperties.Mode.APPEND;
+        this.batchSize = Math.max(1, properties.getBatchSize());
+        this.flushInterval = properties.getFlushInterval() != null ? properties.getFlushInterval() : Duration.ofSeconds(30);
+        this.pending = new TelemetryRingBuffer<>(appendMode ? properties.getMaxEntries() : 1);
+        TelemetryPersistenceProperties.Wal walProperties = properties.getWal();
+        this.wal = walProperties != null && walProperties.isEnabled()
+                ? new TelemetryWriteAheadLog(Path.of(walProperties.getDirectory()),
+                        (int) Math.min(Integer.MAX_VALUE, walProperties.getSegmentSize().toBytes()),
+                        walProperties.getFsync(), walProperties.getFsyncInterval())
+                : null;
+
+        Gauge.builder("telemetry.persistence.buffer.size", this, TelemetryPersistenceServiceImpl::bufferedCount)
+                .description("Telemetry points waiting to be written")
+                .register(meterRegistry);
+        this.overflowCounter = droppedCounter(meterRegistry, "overflow");
+        this.writeFailureCounter = droppedCounter(meterRegistry, "write-failure");
+        this.coalescedCounter = Counter.builder("telemetry.persistence.coalesced")
+                .description("Points superseded by a more recent point of the same device before being written")
+                .register(meterRegistry);
+        this.writtenCounter = Counter.builder("telemetry.persistence.written")
+                .description("Telemetry points written to the database")
+                .register(meterRegistry);
+        this.flushTimer = Timer.builder("telemetry.persistence.flush")
+                .description("Time spent writing one telemetry batch")
+                .register(meterRegistry);
+        this.flushSizeSummary = DistributionSummary.builder("telemetry.persistence.flush.size")
+                .description("Telemetry points per batch written")
+                .baseUnit("points")
+                .register(meterRegistry);
+        this.enqueueTimer = Timer.builder("telemetry.persistence.enqueue")
+                .description("Time spent buffering the telemetry points of one call, write-ahead log included")
+                .register(meterRegistry);
+        this.walReplayedCounter = Counter.builder("telemetry.persistence.wal.replayed")
+                .description("Telemetry points recovered from the write-ahead log at startup")
+                .register(meterRegistry);
+        this.walFailureCounter = Counter.builder("telemetry.persistence.wal.failures")
+                .description("Telemetry points that could not be appended to the write-ahead log")
+                .register(meterRegistry);
+    }
+
+    private static Counter droppedCounter(MeterRegistry meterRegistry, String reason) {
+        return Counter.builder("telemetry.persistence.dropped")
+                .description("Telemetry points that will never be written")
+                .tag("reason", reason)
+                .register(meterRegistry);
+    }
 
     @Override
     public void buffer(Telemetry telemetry) {
-        if (telemetry.getDevice() == null || telemetry.getDevice().getId() == null) {
-            log.debug("Telemetry ignored for buffering due to missing device identifier.");
+        bufferAll(List.of(telemetry));
+    }
+
+    /**
+     * Buffers the points under a single hold of the checkpoint lock, waking the flusher at most once.
+     */
+    @Override
+    public void bufferAll(List<Telemetry> telemetries) {
+        Timer.Sample sample = Timer.start();
+        List<Telemetry> copies = new ArrayList<>(telemetries.size());
+        for (Telemetry telemetry : telemetries) {
+            if (telemetry.getDevice() == null || telemetry.getDevice().getId() == null) {
+                log.debug("Telemetry ignored for buffering due to missing device identifier.");
+                continue;
+            }
+            copies.add(cloneTelemetry(telemetry));
+        }
+        if (copies.isEmpty()) {
             return;
         }
-        UUID deviceId = telemetry.getDevice().getId();
-        Telemetry copy = cloneTelemetry(telemetry);
-        latestByDevice.put(deviceId, copy);
 
-        if (latestByDevice.size() > properties.getMaxEntries()) {
-            log.warn("Telemetry buffer reached max capacity ({}). Older entries may be overwritten.", properties.getMaxEntries());
+        int buffered = 0;
+        if (wal == null) {
+            for (Telemetry copy : copies) {
+                buffered = enqueue(copy);
+            }
+        } else {
+            checkpointLock.readLock().lock();
+            try {
+                for (Telemetry copy : copies) {
+                    appendToWal(copy);
+                    buffered = enqueue(copy);
+                }
+            } finally {
+                checkpointLock.readLock().unlock();
+            }
+        }
+        sample.stop(enqueueTimer);
+
+        if (buffered >= batchSize && flushSignal.availablePermits() == 0) {
+            flushSignal.release();
+        }
+    }
+
+    private int enqueue(Telemetry telemetry) {
+        if (appendMode) {
+            if (pending.offer(telemetry) != null) {
+                overflowCounter.increment();
+            }
+            return pending.size();
         }
+        // a point delayed in flight must not replace a newer one
+        latestByDevice.compute(telemetry.getDevice().getId(), (deviceId, current) -> {
+            if (current == null) {
+                return telemetry;
+            }
+            coalescedCounter.increment();
+            return isOlder(telemetry, current) ? current : telemetry;
+        });
+        return latestByDevice.size();
     }
 
-    @Scheduled(fixedDelayString = "#{T(java.time.Duration).parse('${app.telemetry.persistence.flush-interval:PT30S}').toMillis()}")
-    @Transactional
+    private static boolean isOlder(Telemetry candidate, Telemetry current) {
+        return candidate.getTs() != null && current.getTs() != null && candidate.getTs().isBefore(current.getTs());
+    }
+
+    private void appendToWal(Telemetry telemetry) {
+        try {
+            wal.append(telemetry);
+        } catch (RuntimeException ex) {
+            // the point is still buffered in memory; only its durability is lost
+            walFailureCounter.increment();
+            log.error("Failed to append telemetry to the write-ahead log", ex);
+        }
+    }
+
+    /**
+     * Writes everything buffered so far, {@code batchSize} points per transaction.
+     * Stops at the first failing batch and leaves the rest buffered for the next attempt.
+     */
     public void flush() {
-        if (latestByDevice.isEmpty()) {
-            return;
+        synchronized (flushLock) {
+            if (wal == null) {
+                List<Telemetry> batch = new ArrayList<>(batchSize);
+                while (drainTo(batch) > 0) {
+                    boolean written = write(batch);
+                    if (!written) {
+                        writeFailureCounter.increment(batch.size());
+                        return;
+                    }
+                    batch = new ArrayList<>(batchSize);
+                }
+                return;
+            }
+            flushWithCheckpoint();
+        }
+    }
+
+    private void flushWithCheckpoint() {
+        TelemetryWriteAheadLog.Position checkpoint;
+        List<Telemetry> drained = new ArrayList<>();
+        checkpointLock.writeLock().lock();
+        try {
+            checkpoint = wal.mark();
+            int moved;
+            do {
+                moved = drainTo(drained);
+            } while (moved == batchSize);
+        } finally {
+            checkpointLock.writeLock().unlock();
         }
-        List<Telemetry> batch = drain();
-        if (batch.isEmpty()) {
+        if (drained.isEmpty()) {
             return;
         }
-        telemetryRepository.saveAll(batch);
-        if (log.isDebugEnabled()) {
-            log.debug("Persisted {} telemetry points ({} devices).", batch.size(), batch.stream().map(t -> t.getDevice().getId()).distinct().count());
+
+        for (int from = 0; from < drained.size(); from += batchSize) {
+            List<Telemetry> batch = drained.subList(from, Math.min(from + batchSize, drained.size()));
+            if (!write(batch)) {
+                // the position is not committed, so the points put back are still covered by the log
+                drained.subList(from, drained.size()).forEach(this::requeue);
+                return;
+            }
+        }
+        wal.commit(checkpoint);
+    }
+
+    private void requeue(Telemetry telemetry) {
+        if (appendMode) {
+            if (pending.offer(telemetry) != null) {
+                overflowCounter.increment();
+            }
+        } else {
+            // a newer point of the same device may have arrived since the checkpoint
+            latestByDevice.putIfAbsent(telemetry.getDevice().getId(), telemetry);
+        }
+    }
+
+    private boolean write(List<Telemetry> batch) {
+        Timer.Sample sample = Timer.start();
+        flushSizeSummary.record(batch.size());
+        try {
+            batchWriter.write(batch);
+            writtenCounter.increment(batch.size());
+            if (log.isDebugEnabled()) {
+                log.debug("Persisted {} telemetry points.", batch.size());
+            }
+            return true;
+        } catch (Exception ex) {
+            log.error("Failed to persist {} telemetry points", batch.size(), ex);
+            return false;
+        } finally {
+            sample.stop(flushTimer);
         }
     }
 
-    private List<Telemetry> drain() {
-        List<Telemetry> drained = new ArrayList<>(latestByDevice.values());
-        latestByDevice.clear();
+    /**
+     * Moves up to {@code batchSize} buffered points to {@code batch}.
+     *
+     * @return the number of points moved
+     */
+    private int drainTo(List<Telemetry> batch) {
+        if (appendMode) {
+            return pending.drainTo(batch, batchSize);
+        }
+        int drained = 0;
+        Iterator<Map.Entry<UUID, Telemetry>> iterator = latestByDevice.entrySet().iterator();
+        while (drained < batchSize && iterator.hasNext()) {
+            Map.Entry<UUID, Telemetry> entry = iterator.next();
+            // only take the point if it was not replaced in the meantime
+            if (latestByDevice.remove(entry.getKey(), entry.getValue())) {
+                batch.add(entry.getValue());
+                drained++;
+            }
+        }
         return drained;
     }
 
+    private int bufferedCount() {
+        return appendMode ? pending.size() : latestByDevice.size();
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        if (wal != null) {
+            recover();
+        }
+        running = true;
+        flusher = new Thread(this::runFlusher, "telemetry-flusher");
+        flusher.setDaemon(true);
+        flusher.start();
+    }
+
+    private void recover() {
+        try {
+            int replayed = wal.open(this::enqueue);
+            walReplayedCounter.increment(replayed);
+            if (replayed > 0) {
+                log.info("Recovered {} telemetry points from the write-ahead log.", replayed);
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Unable to open the telemetry write-ahead log", ex);
+        }
+    }
+
+    private void runFlusher() {
+        while (running) {
+            try {
+                flushSignal.tryAcquire(flushInterval.toNanos(), TimeUnit.NANOSECONDS);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            flushSignal.drainPermits();
+            if (running) {
+                flush();
+            }
+        }
+    }
+
+    @Override
+    public void destroy() {
+        running = false;
+        if (flusher != null) {
+            flushSignal.release();
+            try {
+                flusher.join(SHUTDOWN_TIMEOUT.toMillis());
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        flush();
+        if (wal != null) {
+            wal.close();
+        }
+    }
+
     private Telemetry cloneTelemetry(Telemetry source) {
         Telemetry copy = new Telemetry();
         copy.setDevice(source.getDevice());
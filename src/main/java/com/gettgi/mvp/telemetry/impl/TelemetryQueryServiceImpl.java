@@ -2,16 +2,20 @@ package com.gettgi.mvp.telemetry.impl;
 
 import com.gettgi.mvp.dto.telemetry.AlertNotificationDto;
 import com.gettgi.mvp.dto.telemetry.GeoPointDto;
+import com.gettgi.mvp.dto.telemetry.GeofenceZoneDto;
 import com.gettgi.mvp.dto.telemetry.RealtimePositionDto;
 import com.gettgi.mvp.dto.telemetry.TelemetryPointDto;
 import com.gettgi.mvp.entity.Alerte;
 import com.gettgi.mvp.entity.Animal;
 import com.gettgi.mvp.entity.Device;
-import com.gettgi.mvp.entity.Geofence;
 import com.gettgi.mvp.entity.Telemetry;
 import com.gettgi.mvp.repository.AlerteRepository;
 import com.gettgi.mvp.repository.AnimalRepository;
 import com.gettgi.mvp.repository.TelemetryRepository;
+import com.gettgi.mvp.telemetry.GeofenceIndex;
+import com.gettgi.mvp.telemetry.GeofenceMatch;
+import com.gettgi.mvp.telemetry.LivePosition;
+import com.gettgi.mvp.telemetry.LivePositionStore;
 import com.gettgi.mvp.telemetry.TelemetryQueryService;
 import lombok.RequiredArgsConstructor;
 import org.locationtech.jts.geom.Point;
@@ -33,18 +37,25 @@ public class TelemetryQueryServiceImpl implements TelemetryQueryService {
     private final AnimalRepository animalRepository;
     private final TelemetryRepository telemetryRepository;
     private final AlerteRepository alerteRepository;
+    private final GeofenceIndex geofenceIndex;
+    private final LivePositionStore livePositionStore;
 
     @Override
     public RealtimePositionDto getLatestPosition(UUID animalId, String userTelephone) {
         Animal animal = resolveAnimal(animalId, userTelephone);
         Device device = resolveDevice(animal);
 
-        Telemetry telemetry = telemetryRepository.findTopByDevice_IdOrderByTsDesc(device.getId())
-                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "No telemetry available for animal"));
+        // the in-memory view is ahead of both the animal row and the buffered telemetry rows
+        LivePosition live = livePositionStore.find(animal.getId())
+                .filter(position -> device.getId().equals(position.deviceId()))
+                .orElseGet(() -> storedPosition(animal, device));
 
-        GeoPointDto position = toGeoPoint(telemetry.getPosition());
-        boolean insideGeofence = animal.getLastPositionInsideGeofence() == null || animal.getLastPositionInsideGeofence();
-        Geofence geofence = animal.getUser() != null ? animal.getUser().getGeofence() : null;
+        GeofenceMatch match = animal.getUser() != null
+                ? geofenceIndex.locate(animal.getUser().getId(),
+                        animal.getTroupeau() != null ? animal.getTroupeau().getId() : null,
+                        live.position())
+                : GeofenceMatch.NO_ZONE;
+        GeofenceZoneDto zone = match.reportedZone();
 
         List<AlertNotificationDto> activeAlerts = mapAlerts(alerteRepository.findByAnimal_IdAndResolvedFalse(animal.getId()));
 
@@ -53,16 +64,33 @@ public class TelemetryQueryServiceImpl implements TelemetryQueryService {
                 animalLabel(animal),
                 device.getId(),
                 device.getImei(),
-                position,
+                toGeoPoint(live.position()),
+                live.speed(),
+                live.batteryLevel(),
+                live.gsmSignal(),
+                live.statusCollar() != null ? live.statusCollar() : device.getStatusCollar(),
+                live.ts(),
+                live.insideGeofence(),
+                zone != null ? zone.id() : null,
+                zone != null ? zone.name() : null,
+                match.containing(),
+                activeAlerts.stream().map(AlertNotificationDto::type).distinct().toList()
+        );
+    }
+
+    private LivePosition storedPosition(Animal animal, Device device) {
+        Telemetry telemetry = telemetryRepository.findTopByDevice_IdOrderByTsDesc(device.getId())
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "No telemetry available for animal"));
+        boolean insideGeofence = animal.getLastPositionInsideGeofence() == null || animal.getLastPositionInsideGeofence();
+        return new LivePosition(
+                device.getId(),
+                telemetry.getPosition(),
+                telemetry.getTs(),
+                insideGeofence,
                 telemetry.getSpeed(),
                 telemetry.getBatteryLevel(),
                 telemetry.getGsmSignal(),
-                telemetry.getStatusCollar() != null ? telemetry.getStatusCollar() : device.getStatusCollar(),
-                telemetry.getTs(),
-                insideGeofence,
-                geofence != null ? geofence.getId() : null,
-                geofence != null ? geofence.getNom() : null,
-                activeAlerts.stream().map(AlertNotificationDto::type).distinct().toList()
+                telemetry.getStatusCollar()
         );
     }
 
@@ -0,0 +1,56 @@
+package com.gettgi.mvp.telemetry.impl;
+
+import java.util.List;
+
+/**
+ * Fixed-capacity FIFO that overwrites its oldest element when full.
+ * Backed by a single pre-allocated array so that buffering a point allocates nothing.
+ */
+final class TelemetryRingBuffer<T> {
+
+    private final Object[] elements;
+    private int head;
+    private int size;
+
+    TelemetryRingBuffer(int capacity) {
+        this.elements = new Object[Math.max(1, capacity)];
+    }
+
+    /**
+     * @return the element that was overwritten to make room, or {@code null}
+     */
+    @SuppressWarnings("unchecked")
+    synchronized T offer(T element) {
+        int tail = (head + size) % elements.length;
+        if (size < elements.length) {
+            elements[tail] = element;
+            size++;
+            return null;
+        }
+        T evicted = (T) elements[head];
+        elements[head] = element;
+        head = (head + 1) % elements.length;
+        return evicted;
+    }
+
+    /**
+     * Moves at most {@code max} elements, oldest first, into {@code target}.
+     *
+     * @return the number of elements moved
+     */
+    @SuppressWarnings("unchecked")
+    synchronized int drainTo(List<T> target, int max) {
+        int count = Math.min(max, size);
+        for (int i = 0; i < count; i++) {
+            target.add((T) elements[head]);
+            elements[head] = null;
+            head = (head + 1) % elements.length;
+        }
+        size -= count;
+        return count;
+    }
+
+    synchronized int size() {
+        return size;
+    }
+}
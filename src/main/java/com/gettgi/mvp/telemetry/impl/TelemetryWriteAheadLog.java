@@ -0,0 +1,365 @@
+package com.gettgi.mvp.telemetry.impl;
+
+import com.gettgi.mvp.config.TelemetryPersistenceProperties.FsyncPolicy;
+import com.gettgi.mvp.entity.Device;
+import com.gettgi.mvp.entity.Telemetry;
+import com.gettgi.mvp.entity.enums.StatusCollar;
+import com.gettgi.mvp.entity.enums.StatutTransmission;
+import lombok.extern.slf4j.Slf4j;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.geom.Point;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Local write-ahead log of buffered telemetry points, made of memory-mapped segment files
+ * ({@code segment-<sequence>.wal}) of fixed size.
+ * <p>
+ * Each record is {@code [int length][int crc32][payload]}; a zero length marks the end of the written part
+ * of a segment, and a record whose checksum does not match (torn write) ends the replay of its segment.
+ * A new segment is only started when the current one is full.
+ * <p>
+ * {@link #mark()} returns the position of the next append; once every point appended before it is committed
+ * to the database, {@link #commit(Position)} records that position in a small {@code checkpoint} file and
+ * deletes the segments entirely before it. Replay starts from the committed position.
+ */
+@Slf4j
+final class TelemetryWriteAheadLog implements AutoCloseable {
+
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".wal";
+    private static final String CHECKPOINT_FILE = "checkpoint";
+    private static final String CHECKPOINT_TEMP_FILE = "checkpoint.tmp";
+    private static final int HEADER_BYTES = Integer.BYTES * 2;
+    private static final int MAX_RECORD_BYTES = 512;
+    private static final int SRID_WGS84 = 4326;
+
+    private static final int HAS_SPEED = 1;
+    private static final int HAS_ACCEL_X = 1 << 1;
+    private static final int HAS_ACCEL_Y = 1 << 2;
+    private static final int HAS_ACCEL_Z = 1 << 3;
+    private static final int HAS_PRESSURE = 1 << 4;
+    private static final int HAS_BATTERY = 1 << 5;
+    private static final int HAS_GSM = 1 << 6;
+    private static final int HAS_TRANSMISSION = 1 << 7;
+    private static final int HAS_STATUS = 1 << 8;
+    private static final int HAS_TS = 1 << 9;
+
+    private final Path directory;
+    private final int segmentBytes;
+    private final FsyncPolicy fsyncPolicy;
+    private final long fsyncIntervalNanos;
+    private final GeometryFactory geometryFactory = new GeometryFactory();
+
+    private final ByteBuffer scratch = ByteBuffer.allocate(MAX_RECORD_BYTES);
+    private final CRC32 crc = new CRC32();
+
+    private MappedByteBuffer current;
+    private long currentSequence;
+    private long lastForceNanos = System.nanoTime();
+
+    TelemetryWriteAheadLog(Path directory, int segmentBytes, FsyncPolicy fsyncPolicy, Duration fsyncInterval) {
+        this.directory = directory;
+        this.segmentBytes = Math.max(segmentBytes, MAX_RECORD_BYTES + HEADER_BYTES);
+        this.fsyncPolicy = fsyncPolicy != null ? fsyncPolicy : FsyncPolicy.INTERVAL;
+        this.fsyncIntervalNanos = fsyncInterval != null ? fsyncInterval.toNanos() : Duration.ofSeconds(1).toNanos();
+    }
+
+    /**
+     * Replays the points appended after the committed position, oldest first, then opens a fresh segment
+     * for appends.
+     *
+     * @return the number of replayed points
+     */
+    synchronized int open(Consumer<Telemetry> replayed) throws IOException {
+        Files.createDirectories(directory);
+        Position committed = readCheckpoint();
+        List<Path> segments = listSegments();
+        int count = 0;
+        long lastSequence = committed.sequence();
+        for (Path segment : segments) {
+            long sequence = sequenceOf(segment);
+            lastSequence = Math.max(lastSequence, sequence);
+            if (sequence > committed.sequence()) {
+                count += replay(segment, 0, replayed);
+            } else if (sequence == committed.sequence()) {
+                count += replay(segment, committed.offset(), replayed);
+            }
+        }
+        openSegment(lastSequence + 1);
+        return count;
+    }
+
+    synchronized void append(Telemetry telemetry) {
+        scratch.clear();
+        encode(telemetry, scratch);
+        scratch.flip();
+        int length = scratch.remaining();
+        if (current.remaining() < HEADER_BYTES + length + Integer.BYTES) {
+            rotate();
+        }
+        crc.reset();
+        crc.update(scratch.array(), 0, length);
+        int start = current.position();
+        current.position(start + HEADER_BYTES);
+        current.put(scratch);
+        current.putInt(start + Integer.BYTES, (int) crc.getValue());
+        // the length is written last so that a torn record is never mistaken for a complete one
+        current.putInt(start, length);
+
+        if (fsyncPolicy == FsyncPolicy.ALWAYS) {
+            force();
+        } else if (fsyncPolicy == FsyncPolicy.INTERVAL && System.nanoTime() - lastForceNanos >= fsyncIntervalNanos) {
+            force();
+        }
+    }
+
+    /**
+     * @return the position of the next append; every point appended before this call lies before it
+     */
+    synchronized Position mark() {
+        return new Position(currentSequence, current.position());
+    }
+
+    /**
+     * Records that every point appended before {@code position} is committed, so that it is not replayed,
+     * and deletes the segments entirely before it.
+     */
+    synchronized void commit(Position position) {
+        ByteBuffer buffer = ByteBuffer.allocate(Long.BYTES + Integer.BYTES);
+        buffer.putLong(position.sequence()).putInt(position.offset()).flip();
+        Path temporary = directory.resolve(CHECKPOINT_TEMP_FILE);
+        try {
+            try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                if (fsyncPolicy != FsyncPolicy.NEVER) {
+                    channel.force(true);
+                }
+            }
+            Files.move(temporary, directory.resolve(CHECKPOINT_FILE),
+                    StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException ex) {
+            // the points are replayed and written again after a restart, nothing is lost
+            log.warn("Unable to record the telemetry WAL checkpoint in {}", directory, ex);
+            return;
+        }
+        try {
+            for (Path segment : listSegments()) {
+                if (sequenceOf(segment) < position.sequence()) {
+                    Files.deleteIfExists(segment);
+                }
+            }
+        } catch (IOException ex) {
+            log.warn("Unable to delete flushed telemetry WAL segments in {}", directory, ex);
+        }
+    }
+
+    private void rotate() {
+        if (fsyncPolicy != FsyncPolicy.NEVER) {
+            force();
+        }
+        try {
+            openSegment(currentSequence + 1);
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Unable to open telemetry WAL segment in " + directory, ex);
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        if (current != null && fsyncPolicy != FsyncPolicy.NEVER) {
+            force();
+        }
+    }
+
+    private void force() {
+        current.force();
+        lastForceNanos = System.nanoTime();
+    }
+
+    private void openSegment(long sequence) throws IOException {
+        Path path = directory.resolve(SEGMENT_PREFIX + "%020d".formatted(sequence) + SEGMENT_SUFFIX);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            current = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentBytes);
+        }
+        currentSequence = sequence;
+    }
+
+    private List<Path> listSegments() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files
+                    .filter(path -> {
+                        String name = path.getFileName().toString();
+                        return name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX);
+                    })
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    private Position readCheckpoint() throws IOException {
+        Path checkpoint = directory.resolve(CHECKPOINT_FILE);
+        if (!Files.exists(checkpoint)) {
+            return Position.START;
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(checkpoint));
+        if (buffer.remaining() < Long.BYTES + Integer.BYTES) {
+            log.warn("Telemetry WAL checkpoint in {} is unreadable; replaying every segment", directory);
+            return Position.START;
+        }
+        return new Position(buffer.getLong(), buffer.getInt());
+    }
+
+    private static long sequenceOf(Path segment) {
+        String name = segment.getFileName().toString();
+        return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    private int replay(Path segment, int offset, Consumer<Telemetry> replayed) throws IOException {
+        ByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        if (offset > buffer.limit()) {
+            return 0;
+        }
+        buffer.position(offset);
+        int count = 0;
+        CRC32 checksum = new CRC32();
+        while (buffer.remaining() >= HEADER_BYTES) {
+            int length = buffer.getInt();
+            int expectedCrc = buffer.getInt();
+            if (length <= 0 || length > MAX_RECORD_BYTES || length > buffer.remaining()) {
+                break;
+            }
+            byte[] payload = new byte[length];
+            buffer.get(payload);
+            checksum.reset();
+            checksum.update(payload);
+            if ((int) checksum.getValue() != expectedCrc) {
+                log.warn("Telemetry WAL segment {} has a corrupted record; ignoring the rest of it", segment.getFileName());
+                break;
+            }
+            try {
+                replayed.accept(decode(ByteBuffer.wrap(payload)));
+                count++;
+            } catch (BufferUnderflowException | IllegalArgumentException ex) {
+                log.warn("Telemetry WAL segment {} has an unreadable record; ignoring the rest of it", segment.getFileName(), ex);
+                break;
+            }
+        }
+        return count;
+    }
+
+    static void encode(Telemetry telemetry, ByteBuffer out) {
+        UUID deviceId = telemetry.getDevice().getId();
+        out.putLong(deviceId.getMostSignificantBits());
+        out.putLong(deviceId.getLeastSignificantBits());
+        out.putDouble(telemetry.getPosition().getX());
+        out.putDouble(telemetry.getPosition().getY());
+
+        int flags = (telemetry.getSpeed() != null ? HAS_SPEED : 0)
+                | (telemetry.getAccelX() != null ? HAS_ACCEL_X : 0)
+                | (telemetry.getAccelY() != null ? HAS_ACCEL_Y : 0)
+                | (telemetry.getAccelZ() != null ? HAS_ACCEL_Z : 0)
+                | (telemetry.getPressure() != null ? HAS_PRESSURE : 0)
+                | (telemetry.getBatteryLevel() != null ? HAS_BATTERY : 0)
+                | (telemetry.getGsmSignal() != null ? HAS_GSM : 0)
+                | (telemetry.getTransmissionStatus() != null ? HAS_TRANSMISSION : 0)
+                | (telemetry.getStatusCollar() != null ? HAS_STATUS : 0)
+                | (telemetry.getTs() != null ? HAS_TS : 0);
+        out.putShort((short) flags);
+
+        if (telemetry.getSpeed() != null) out.putDouble(telemetry.getSpeed());
+        if (telemetry.getAccelX() != null) out.putDouble(telemetry.getAccelX());
+        if (telemetry.getAccelY() != null) out.putDouble(telemetry.getAccelY());
+        if (telemetry.getAccelZ() != null) out.putDouble(telemetry.getAccelZ());
+        if (telemetry.getPressure() != null) out.putDouble(telemetry.getPressure());
+        if (telemetry.getBatteryLevel() != null) out.putInt(telemetry.getBatteryLevel());
+        if (telemetry.getGsmSignal() != null) out.putInt(telemetry.getGsmSignal());
+        if (telemetry.getTransmissionStatus() != null) putName(out, telemetry.getTransmissionStatus().name());
+        if (telemetry.getStatusCollar() != null) putName(out, telemetry.getStatusCollar().name());
+        if (telemetry.getTs() != null) {
+            out.putLong(telemetry.getTs().getEpochSecond());
+            out.putInt(telemetry.getTs().getNano());
+        }
+    }
+
+    Telemetry decode(ByteBuffer in) {
+        Device device = new Device();
+        device.setId(new UUID(in.getLong(), in.getLong()));
+        Point position = geometryFactory.createPoint(new Coordinate(in.getDouble(), in.getDouble()));
+        position.setSRID(SRID_WGS84);
+
+        Telemetry telemetry = new Telemetry();
+        telemetry.setDevice(device);
+        telemetry.setPosition(position);
+
+        int flags = in.getShort();
+        if ((flags & HAS_SPEED) != 0) telemetry.setSpeed(in.getDouble());
+        if ((flags & HAS_ACCEL_X) != 0) telemetry.setAccelX(in.getDouble());
+        if ((flags & HAS_ACCEL_Y) != 0) telemetry.setAccelY(in.getDouble());
+        if ((flags & HAS_ACCEL_Z) != 0) telemetry.setAccelZ(in.getDouble());
+        if ((flags & HAS_PRESSURE) != 0) telemetry.setPressure(in.getDouble());
+        if ((flags & HAS_BATTERY) != 0) telemetry.setBatteryLevel(in.getInt());
+        if ((flags & HAS_GSM) != 0) telemetry.setGsmSignal(in.getInt());
+        if ((flags & HAS_TRANSMISSION) != 0) telemetry.setTransmissionStatus(StatutTransmission.valueOf(getName(in)));
+        if ((flags & HAS_STATUS) != 0) telemetry.setStatusCollar(StatusCollar.valueOf(getName(in)));
+        if ((flags & HAS_TS) != 0) telemetry.setTs(Instant.ofEpochSecond(in.getLong(), in.getInt()));
+        return telemetry;
+    }
+
+    private static void putName(ByteBuffer out, String name) {
+        byte[] bytes = name.getBytes(StandardCharsets.US_ASCII);
+        out.put((byte) bytes.length);
+        out.put(bytes);
+    }
+
+    private static String getName(ByteBuffer in) {
+        byte[] bytes = new byte[in.get()];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * Position in the log: the offset of a record within the segment of the given sequence.
+     */
+    record Position(long sequence, int offset) {
+
+        static final Position START = new Position(0, 0);
+    }
+
+    /**
+     * @return the segment files currently on disk, oldest first
+     */
+    synchronized List<Path> segments() {
+        try {
+            return new ArrayList<>(listSegments());
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package com.gettgi.mvp.config;
+
+import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.io.Decoders;
+import io.jsonwebtoken.security.Keys;
+import io.jsonwebtoken.security.SignatureException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.Date;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class JwtUtilsTest {
+
+    private static final String KEY = "c2VjcmV0LWtleS1mb3ItdGVzdHMtb25seS0wMTIzNDU2Nzg5YWJjZGVm";
+    private static final String OTHER_KEY = "b3RoZXIta2V5LWZvci10ZXN0cy1vbmx5LTAxMjM0NTY3ODlhYmNkZWZnaA==";
+
+    private static final String ROTATION_KEY = "cm90YXRpb24ta2V5LWZvci10ZXN0cy1vbmx5LTAxMjM0NTY3ODlhYmNkZWY=";
+
+    private JwtUtils jwtUtils;
+
+    @BeforeEach
+    void setUp() {
+        jwtUtils = jwtUtils(KEY, ROTATION_KEY);
+    }
+
+    static JwtUtils jwtUtils(String secretKey, String... rotationKeys) {
+        JwtProperties properties = new JwtProperties();
+        properties.setSecretKey(secretKey);
+        properties.setRotationKeys(List.of(rotationKeys));
+        properties.setExpirationTime(60_000);
+        JwtUtils jwtUtils = new JwtUtils(properties);
+        jwtUtils.initKeyRing();
+        return jwtUtils;
+    }
+
+    @Test
+    void shouldReturnSubjectAndExpiryOfValidToken() {
+        Instant before = Instant.now();
+
+        JwtUtils.VerifiedToken verified = jwtUtils.verify(jwtUtils.generateToken("221770000001"));
+
+        assertThat(verified.telephone()).isEqualTo("221770000001");
+        assertThat(verified.expiresAt()).isBetween(before.plusSeconds(58), before.plusSeconds(61));
+    }
+
+    @Test
+    void shouldRejectExpiredTokenDespiteClockSkewAllowance() {
+        String token = token(KEY, "221770000001", Instant.now().minusSeconds(10));
+
+        assertThatThrownBy(() -> jwtUtils.verify(token)).isInstanceOf(ExpiredJwtException.class);
+    }
+
+    @Test
+    void shouldRejectTokenSignedWithUnknownKey() {
+        String token = token(OTHER_KEY, "221770000001", Instant.now().plusSeconds(60));
+
+        assertThatThrownBy(() -> jwtUtils.verify(token)).isInstanceOf(JwtException.class);
+    }
+
+    @Test
+    void shouldVerifyTokenSignedWithRotatedKey() {
+        jwtUtils.rotateSigningKey();
+
+        assertThat(jwtUtils.verify(jwtUtils.generateToken("221770000001")).telephone()).isEqualTo("221770000001");
+    }
+
+    @Test
+    void shouldVerifyLegacyTokenWithoutKidAgainstWholeRing() {
+        String token = token(ROTATION_KEY, "221770000001", Instant.now().plusSeconds(60));
+
+        assertThat(jwtUtils.verify(token).telephone()).isEqualTo("221770000001");
+    }
+
+    @Test
+    void shouldVerifyOutstandingTokensAfterTheRingIsReordered() {
+        String token = jwtUtils.generateToken("221770000001");
+        // a new secret key is introduced and the former one moves to the rotation keys
+        JwtUtils reordered = jwtUtils(OTHER_KEY, ROTATION_KEY, KEY);
+
+        assertThat(reordered.verify(token).telephone()).isEqualTo("221770000001");
+    }
+
+    @Test
+    void shouldVerifyTokenWithPositionalKidAgainstWholeRing() {
+        String token = Jwts.builder()
+                .setHeaderParam("kid", "k0")
+                .setSubject("221770000001")
+                .setExpiration(Date.from(Instant.now().plusSeconds(60)))
+                .signWith(Keys.hmacShaKeyFor(Decoders.BASE64.decode(ROTATION_KEY)), SignatureAlgorithm.HS256)
+                .compact();
+
+        assertThat(jwtUtils.verify(token).telephone()).isEqualTo("221770000001");
+    }
+
+    @Test
+    void shouldRejectTokenNotSignedWithKeyOfItsKid() {
+        String token = Jwts.builder()
+                .setHeaderParam("kid", JwtUtils.keyId(Keys.hmacShaKeyFor(Decoders.BASE64.decode(KEY))))
+                .setSubject("221770000001")
+                .setExpiration(Date.from(Instant.now().plusSeconds(60)))
+                .signWith(Keys.hmacShaKeyFor(Decoders.BASE64.decode(ROTATION_KEY)), SignatureAlgorithm.HS256)
+                .compact();
+
+        assertThatThrownBy(() -> jwtUtils.verify(token)).isInstanceOf(SignatureException.class);
+    }
+
+    static String token(String key, String subject, Instant expiresAt) {
+        return Jwts.builder()
+                .setSubject(subject)
+                .setIssuedAt(Date.from(expiresAt.minusSeconds(3600)))
+                .setExpiration(Date.from(expiresAt))
+                .signWith(Keys.hmacShaKeyFor(Decoders.BASE64.decode(key)), SignatureAlgorithm.HS256)
+                .compact();
+    }
+}
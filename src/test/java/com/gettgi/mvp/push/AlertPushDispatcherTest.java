@@ -0,0 +1,163 @@
+package com.gettgi.mvp.push;
+
+import com.gettgi.mvp.config.PushProperties;
+import com.gettgi.mvp.dto.telemetry.AlertNotificationDto;
+import com.gettgi.mvp.entity.enums.TypeAlerte;
+import com.gettgi.mvp.push.AlertPushComposer.PushRequest;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class AlertPushDispatcherTest {
+
+    private static final UUID OWNER_ID = UUID.randomUUID();
+    private static final PushMessage MESSAGE = new PushMessage("Alertes", "2 nouvelles alertes.", Map.of());
+
+    @Mock
+    private AlertPushComposer composer;
+    @Mock
+    private PushNotificationService pushNotificationService;
+    @Mock
+    private PushTokenCache pushTokenCache;
+    @Mock
+    private ScheduledExecutorService scheduler;
+
+    // tasks run when the test says so, as if their delay had elapsed
+    private final Queue<Scheduled> tasks = new ArrayDeque<>();
+    private SimpleMeterRegistry meterRegistry;
+    private AlertPushDispatcher dispatcher;
+
+    @BeforeEach
+    void setUp() {
+        PushProperties properties = new PushProperties();
+        properties.getDispatch().setQueueCapacity(3);
+        properties.getDispatch().setMaxAttempts(3);
+        properties.getDispatch().setCoalesceWindow(Duration.ofSeconds(1));
+        properties.getDispatch().setInitialBackoff(Duration.ofSeconds(2));
+        properties.getDispatch().setMaxBackoff(Duration.ofSeconds(5));
+        lenient().when(scheduler.schedule(any(Runnable.class), anyLong(), any(TimeUnit.class))).thenAnswer(invocation -> {
+            tasks.add(new Scheduled(invocation.getArgument(0), invocation.getArgument(1)));
+            return null;
+        });
+        meterRegistry = new SimpleMeterRegistry();
+        dispatcher = new AlertPushDispatcher(composer, pushNotificationService, pushTokenCache, properties,
+                meterRegistry, scheduler);
+    }
+
+    @Test
+    void shouldSendAlertsOfOwnerWithinWindowAsOneNotification() {
+        AlertNotificationDto first = alert();
+        AlertNotificationDto second = alert();
+        when(composer.compose(OWNER_ID, List.of(first, second))).thenReturn(new PushRequest(MESSAGE, List.of("t1")));
+        when(pushNotificationService.send(MESSAGE, List.of("t1"))).thenReturn(PushResult.DONE);
+
+        dispatcher.submit(OWNER_ID, List.of(first));
+        dispatcher.submit(OWNER_ID, List.of(second));
+        assertThat(tasks).extracting(Scheduled::delayMillis).containsExactly(1000L);
+        verifyNoInteractions(pushNotificationService);
+        runTasks();
+
+        verify(pushNotificationService).send(MESSAGE, List.of("t1"));
+        assertThat(meterRegistry.get("push.dispatch.coalesced").counter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("push.dispatch.sent").counter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("push.dispatch.latency").timer().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("push.dispatch.queued").gauge().value()).isZero();
+    }
+
+    @Test
+    void shouldRetryFailedTokensWithBackoffUntilLastAttempt() {
+        AlertNotificationDto alert = alert();
+        when(composer.compose(OWNER_ID, List.of(alert))).thenReturn(new PushRequest(MESSAGE, List.of("t1", "t2")));
+        when(pushNotificationService.send(MESSAGE, List.of("t1", "t2"))).thenReturn(PushResult.retry(List.of("t2")));
+        when(pushNotificationService.send(MESSAGE, List.of("t2"))).thenReturn(PushResult.retry(List.of("t2")));
+
+        dispatcher.submit(OWNER_ID, List.of(alert));
+        tasks.poll().task().run();
+        assertThat(tasks).extracting(Scheduled::delayMillis).containsExactly(2000L);
+        tasks.poll().task().run();
+        assertThat(tasks).extracting(Scheduled::delayMillis).containsExactly(4000L);
+        tasks.poll().task().run();
+
+        assertThat(tasks).isEmpty();
+        verify(pushNotificationService, times(2)).send(MESSAGE, List.of("t2"));
+        assertThat(meterRegistry.get("push.dispatch.retries").counter().count()).isEqualTo(2);
+        assertThat(meterRegistry.get("push.dispatch.failures").counter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("push.dispatch.queued").gauge().value()).isZero();
+    }
+
+    @Test
+    void shouldPruneTokensNoLongerAccepted() {
+        AlertNotificationDto alert = alert();
+        when(composer.compose(OWNER_ID, List.of(alert))).thenReturn(new PushRequest(MESSAGE, List.of("t1", "t2", "t3")));
+        when(pushNotificationService.send(MESSAGE, List.of("t1", "t2", "t3")))
+                .thenReturn(new PushResult(List.of(), List.of("t1", "t3")));
+
+        dispatcher.submit(OWNER_ID, List.of(alert));
+        runTasks();
+
+        verify(pushTokenCache).prune(OWNER_ID, List.of("t1", "t3"));
+        assertThat(meterRegistry.get("push.dispatch.sent").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldDropAlertsBeyondQueueCapacity() {
+        dispatcher.submit(OWNER_ID, List.of(alert(), alert()));
+        dispatcher.submit(UUID.randomUUID(), List.of(alert(), alert()));
+        dispatcher.submit(UUID.randomUUID(), List.of(alert()));
+
+        assertThat(tasks).hasSize(2);
+        assertThat(meterRegistry.get("push.dispatch.dropped").counter().count()).isEqualTo(2);
+        assertThat(meterRegistry.get("push.dispatch.queued").gauge().value()).isEqualTo(3);
+
+        when(composer.compose(any(), anyList())).thenReturn(null);
+        runTasks();
+        assertThat(meterRegistry.get("push.dispatch.queued").gauge().value()).isZero();
+    }
+
+    @Test
+    void shouldCapBackoff() {
+        assertThat(dispatcher.backoff(1)).isEqualTo(Duration.ofSeconds(2));
+        assertThat(dispatcher.backoff(2)).isEqualTo(Duration.ofSeconds(4));
+        assertThat(dispatcher.backoff(3)).isEqualTo(Duration.ofSeconds(5));
+        assertThat(dispatcher.backoff(40)).isEqualTo(Duration.ofSeconds(5));
+    }
+
+    private void runTasks() {
+        Scheduled next;
+        while ((next = tasks.poll()) != null) {
+            next.task().run();
+        }
+    }
+
+    private static AlertNotificationDto alert() {
+        return new AlertNotificationDto(UUID.randomUUID(), UUID.randomUUID(), UUID.randomUUID(),
+                TypeAlerte.GEOFENCE_EXIT, "Animal hors zone", Instant.parse("2025-10-17T16:00:00Z"), false, null);
+    }
+
+    private record Scheduled(Runnable task, long delayMillis) {
+    }
+}
@@ -0,0 +1,121 @@
+package com.gettgi.mvp.push;
+
+import com.gettgi.mvp.config.PushProperties;
+import com.gettgi.mvp.dto.telemetry.AlertNotificationDto;
+import com.gettgi.mvp.entity.PushToken;
+import com.gettgi.mvp.entity.enums.TypeAlerte;
+import com.gettgi.mvp.repository.PushTokenRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mockingDetails;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+/**
+ * Push path from the alert events to the push provider, with every task scheduled by the dispatcher run
+ * on the spot: the only database access is the first load of the owner's tokens.
+ */
+@ExtendWith(MockitoExtension.class)
+class AlertPushListenerTest {
+
+    private static final UUID OWNER_ID = UUID.randomUUID();
+    private static final String TELEPHONE = "221770000001";
+
+    @Mock
+    private PushTokenRepository pushTokenRepository;
+    @Mock
+    private PushNotificationService pushNotificationService;
+    @Mock
+    private ScheduledExecutorService scheduler;
+
+    private AlertPushListener listener;
+
+    @BeforeEach
+    void setUp() {
+        PushProperties properties = new PushProperties();
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        PushTokenCache cache = new PushTokenCache(pushTokenRepository, properties, meterRegistry);
+        AlertPushDispatcher dispatcher = new AlertPushDispatcher(new AlertPushComposer(cache), pushNotificationService,
+                cache, properties, meterRegistry, scheduler);
+        listener = new AlertPushListener(dispatcher);
+    }
+
+    @Test
+    void shouldPushWithoutReadingAlerts() {
+        when(scheduler.schedule(any(Runnable.class), anyLong(), any(TimeUnit.class))).thenAnswer(invocation -> {
+            invocation.<Runnable>getArgument(0).run();
+            return null;
+        });
+        when(pushTokenRepository.findAllByUser_Id(OWNER_ID)).thenReturn(List.of(token("t1")));
+        when(pushNotificationService.send(any(), anyList())).thenReturn(PushResult.DONE);
+
+        listener.onAlertPublished(new AlertPublishedEvent(OWNER_ID, TELEPHONE, alert(TypeAlerte.GEOFENCE_EXIT)));
+        listener.onAlertsPublished(new AlertsPublishedEvent(OWNER_ID, TELEPHONE,
+                List.of(alert(TypeAlerte.DEVICE_OFFLINE), alert(TypeAlerte.DEVICE_OFFLINE))));
+
+        ArgumentCaptor<PushMessage> messages = ArgumentCaptor.forClass(PushMessage.class);
+        verify(pushNotificationService, times(2)).send(messages.capture(), any());
+        assertThat(messages.getAllValues()).extracting(PushMessage::title)
+                .containsExactly("Animal hors zone", "Trackers hors ligne");
+        // one query for both notifications: the owner comes with the event and its tokens are cached
+        assertThat(mockingDetails(pushTokenRepository).getInvocations()).hasSize(1);
+    }
+
+    @Test
+    void shouldCapAlertIdsOfLargeGroupedNotification() {
+        when(scheduler.schedule(any(Runnable.class), anyLong(), any(TimeUnit.class))).thenAnswer(invocation -> {
+            invocation.<Runnable>getArgument(0).run();
+            return null;
+        });
+        when(pushTokenRepository.findAllByUser_Id(OWNER_ID)).thenReturn(List.of(token("t1")));
+        when(pushNotificationService.send(any(), anyList())).thenReturn(PushResult.DONE);
+        List<AlertNotificationDto> alerts = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            alerts.add(alert(TypeAlerte.DEVICE_OFFLINE));
+        }
+
+        listener.onAlertsPublished(new AlertsPublishedEvent(OWNER_ID, TELEPHONE, alerts));
+
+        ArgumentCaptor<PushMessage> message = ArgumentCaptor.forClass(PushMessage.class);
+        verify(pushNotificationService).send(message.capture(), any());
+        assertThat(message.getValue().data().get("alertIds").split(",")).hasSize(AlertPushComposer.MAX_GROUPED_ALERT_IDS);
+        assertThat(message.getValue().data()).containsEntry("count", "500");
+    }
+
+    @Test
+    void shouldIgnoreAlertsNotWorthPushing() {
+        listener.onAlertPublished(new AlertPublishedEvent(OWNER_ID, TELEPHONE, alert(TypeAlerte.BATTERIELOW)));
+
+        verifyNoInteractions(scheduler, pushTokenRepository, pushNotificationService);
+    }
+
+    private static AlertNotificationDto alert(TypeAlerte type) {
+        return new AlertNotificationDto(UUID.randomUUID(), UUID.randomUUID(), UUID.randomUUID(), type,
+                "Alerte", Instant.parse("2025-10-17T16:00:00Z"), false, null);
+    }
+
+    private static PushToken token(String value) {
+        PushToken token = new PushToken();
+        token.setToken(value);
+        return token;
+    }
+}
@@ -0,0 +1,86 @@
+package com.gettgi.mvp.push;
+
+import com.gettgi.mvp.config.PushProperties;
+import com.gettgi.mvp.entity.PushToken;
+import com.gettgi.mvp.repository.PushTokenRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class PushTokenCacheTest {
+
+    private static final UUID USER_ID = UUID.randomUUID();
+
+    @Mock
+    private PushTokenRepository pushTokenRepository;
+
+    private final AtomicLong now = new AtomicLong();
+    private SimpleMeterRegistry meterRegistry;
+    private PushTokenCache cache;
+
+    @BeforeEach
+    void setUp() {
+        PushProperties properties = new PushProperties();
+        properties.setTokenCacheTtl(Duration.ofMinutes(10));
+        meterRegistry = new SimpleMeterRegistry();
+        cache = new PushTokenCache(pushTokenRepository, properties, meterRegistry, now::get);
+    }
+
+    @Test
+    void shouldLoadDistinctTokensOnceUntilInvalidated() {
+        when(pushTokenRepository.findAllByUser_Id(USER_ID))
+                .thenReturn(List.of(token("t1"), token(" "), token("t2"), token("t1")));
+
+        assertThat(cache.tokens(USER_ID)).containsExactly("t1", "t2");
+        assertThat(cache.tokens(USER_ID)).containsExactly("t1", "t2");
+        verify(pushTokenRepository).findAllByUser_Id(USER_ID);
+
+        cache.invalidate(USER_ID);
+        cache.tokens(USER_ID);
+        verify(pushTokenRepository, times(2)).findAllByUser_Id(USER_ID);
+    }
+
+    @Test
+    void shouldReloadTokensAfterTtl() {
+        when(pushTokenRepository.findAllByUser_Id(USER_ID)).thenReturn(List.of(token("t1")));
+
+        cache.tokens(USER_ID);
+        now.addAndGet(Duration.ofMinutes(10).toNanos());
+        cache.tokens(USER_ID);
+
+        verify(pushTokenRepository, times(2)).findAllByUser_Id(USER_ID);
+    }
+
+    @Test
+    void shouldDeletePrunedTokensAndForgetThem() {
+        when(pushTokenRepository.findAllByUser_Id(USER_ID))
+                .thenReturn(List.of(token("t1"), token("t2")), List.of(token("t2")));
+        when(pushTokenRepository.deleteAllByTokenIn(List.of("t1"))).thenReturn(1);
+        cache.tokens(USER_ID);
+
+        cache.prune(USER_ID, List.of("t1"));
+
+        assertThat(cache.tokens(USER_ID)).containsExactly("t2");
+        assertThat(meterRegistry.get("push.tokens.pruned").counter().count()).isEqualTo(1);
+    }
+
+    private static PushToken token(String value) {
+        PushToken token = new PushToken();
+        token.setToken(value);
+        return token;
+    }
+}
@@ -0,0 +1,99 @@
+package com.gettgi.mvp.security;
+
+import com.gettgi.mvp.config.SecurityProperties;
+import com.gettgi.mvp.entity.User;
+import com.gettgi.mvp.entity.enums.UserRole;
+import com.gettgi.mvp.repository.UserRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class UserDetailsCacheTest {
+
+    private static final String TELEPHONE = "221770000001";
+
+    @Mock
+    private UserRepository userRepository;
+
+    private final AtomicLong now = new AtomicLong();
+    private UserDetailsCache cache;
+
+    @BeforeEach
+    void setUp() {
+        SecurityProperties properties = new SecurityProperties();
+        properties.getAuth().setUserCacheTtl(Duration.ofMinutes(1));
+        properties.getAuth().setUserCacheMaxEntries(2);
+        cache = new UserDetailsCache(userRepository, properties, new SimpleMeterRegistry(), now::get);
+    }
+
+    @Test
+    void shouldReadUserOnceWithinTtl() {
+        when(userRepository.findByTelephone(TELEPHONE)).thenReturn(Optional.of(user(TELEPHONE, UserRole.ROLE_USER)));
+
+        UserDetails first = cache.get(TELEPHONE);
+        now.addAndGet(Duration.ofSeconds(59).toNanos());
+        UserDetails second = cache.get(TELEPHONE);
+        now.addAndGet(Duration.ofSeconds(1).toNanos());
+        cache.get(TELEPHONE);
+
+        assertThat(second).isSameAs(first);
+        assertThat(first.getPassword()).isEmpty();
+        assertThat(first.getAuthorities()).extracting(GrantedAuthority::getAuthority).containsExactly("ROLE_USER");
+        verify(userRepository, times(2)).findByTelephone(TELEPHONE);
+    }
+
+    @Test
+    void shouldReadUserAgainOnceEvicted() {
+        when(userRepository.findByTelephone(TELEPHONE)).thenReturn(
+                Optional.of(user(TELEPHONE, UserRole.ROLE_USER)), Optional.of(user(TELEPHONE, UserRole.ROLE_ADMIN)));
+        cache.get(TELEPHONE);
+
+        cache.evict(TELEPHONE);
+
+        assertThat(cache.get(TELEPHONE).getAuthorities()).extracting(GrantedAuthority::getAuthority)
+                .containsExactly("ROLE_ADMIN");
+    }
+
+    @Test
+    void shouldNotHoldMoreThanMaxEntries() {
+        for (String telephone : new String[]{"221770000001", "221770000002", "221770000003"}) {
+            when(userRepository.findByTelephone(telephone)).thenReturn(Optional.of(user(telephone, UserRole.ROLE_USER)));
+            cache.get(telephone);
+        }
+
+        cache.get("221770000003");
+
+        verify(userRepository, times(2)).findByTelephone("221770000003");
+    }
+
+    @Test
+    void shouldRejectUnknownUser() {
+        when(userRepository.findByTelephone(TELEPHONE)).thenReturn(Optional.empty());
+
+        assertThatThrownBy(() -> cache.get(TELEPHONE)).isInstanceOf(UsernameNotFoundException.class);
+    }
+
+    private static User user(String telephone, UserRole role) {
+        User user = new User();
+        user.setTelephone(telephone);
+        user.setRole(role);
+        return user;
+    }
+}
@@ -0,0 +1,88 @@
+package com.gettgi.mvp.service.Impl;
+
+import com.gettgi.mvp.dto.mappers.AnimalMapper;
+import com.gettgi.mvp.entity.Animal;
+import com.gettgi.mvp.entity.Device;
+import com.gettgi.mvp.entity.Troupeau;
+import com.gettgi.mvp.repository.AnimalRepository;
+import com.gettgi.mvp.repository.DeviceRepository;
+import com.gettgi.mvp.repository.TroupeauRepository;
+import com.gettgi.mvp.repository.UserRepository;
+import com.gettgi.mvp.telemetry.DeviceRegistryInvalidationEvent;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class AnimalServiceImplTest {
+
+    private static final String TELEPHONE = "221770000001";
+
+    @Mock
+    private AnimalRepository animalRepository;
+    @Mock
+    private UserRepository userRepository;
+    @Mock
+    private DeviceRepository deviceRepository;
+    @Mock
+    private TroupeauRepository troupeauRepository;
+    @Mock
+    private AnimalMapper animalMapper;
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    private AnimalServiceImpl service;
+
+    @BeforeEach
+    void setUp() {
+        service = new AnimalServiceImpl(animalRepository, userRepository, deviceRepository, troupeauRepository,
+                animalMapper, eventPublisher);
+    }
+
+    @Test
+    void movingAnimalToAnotherHerdShouldInvalidateItsDevice() {
+        Device device = new Device();
+        device.setImei("123456789012345");
+        Animal animal = new Animal();
+        animal.setId(UUID.randomUUID());
+        animal.setDevice(device);
+        Troupeau troupeau = new Troupeau();
+        troupeau.setId(UUID.randomUUID());
+        when(animalRepository.findByIdAndUserTelephone(animal.getId(), TELEPHONE)).thenReturn(Optional.of(animal));
+        when(troupeauRepository.findByIdAndUserTelephone(troupeau.getId(), TELEPHONE)).thenReturn(Optional.of(troupeau));
+        when(animalRepository.save(any(Animal.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        service.PatchAnimalTroupeau(animal.getId(), troupeau.getId(), TELEPHONE);
+
+        assertThat(animal.getTroupeau()).isSameAs(troupeau);
+        ArgumentCaptor<DeviceRegistryInvalidationEvent> event = ArgumentCaptor.forClass(DeviceRegistryInvalidationEvent.class);
+        verify(eventPublisher).publishEvent(event.capture());
+        assertThat(event.getValue().imeis()).isEqualTo(Set.of("123456789012345"));
+    }
+
+    @Test
+    void movingAnimalWithoutDeviceShouldNotPublishAnything() {
+        Animal animal = new Animal();
+        animal.setId(UUID.randomUUID());
+        when(animalRepository.findByIdAndUserTelephone(animal.getId(), TELEPHONE)).thenReturn(Optional.of(animal));
+        when(animalRepository.save(any(Animal.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        service.PatchAnimalTroupeau(animal.getId(), null, TELEPHONE);
+
+        verifyNoInteractions(eventPublisher);
+    }
+}
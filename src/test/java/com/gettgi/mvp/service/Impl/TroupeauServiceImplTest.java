@@ -0,0 +1,78 @@
+package com.gettgi.mvp.service.Impl;
+
+import com.gettgi.mvp.dto.mappers.AnimalMapper;
+import com.gettgi.mvp.entity.Animal;
+import com.gettgi.mvp.entity.Device;
+import com.gettgi.mvp.entity.Troupeau;
+import com.gettgi.mvp.entity.User;
+import com.gettgi.mvp.repository.AnimalRepository;
+import com.gettgi.mvp.repository.GeofenceRepository;
+import com.gettgi.mvp.repository.TroupeauRepository;
+import com.gettgi.mvp.repository.UserRepository;
+import com.gettgi.mvp.telemetry.DeviceRegistryInvalidationEvent;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class TroupeauServiceImplTest {
+
+    private static final String TELEPHONE = "221770000001";
+
+    @Mock
+    private TroupeauRepository troupeauRepository;
+    @Mock
+    private AnimalRepository animalRepository;
+    @Mock
+    private UserRepository userRepository;
+    @Mock
+    private AnimalMapper animalMapper;
+    @Mock
+    private GeofenceRepository geofenceRepository;
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Test
+    void deletingHerdShouldDeleteItsZonesAndInvalidateItsDevices() {
+        User owner = new User();
+        owner.setId(UUID.randomUUID());
+        Troupeau troupeau = new Troupeau();
+        troupeau.setId(UUID.randomUUID());
+        troupeau.setUser(owner);
+        Device device = new Device();
+        device.setImei("123456789012345");
+        Animal animal = new Animal();
+        animal.setTroupeau(troupeau);
+        animal.setDevice(device);
+        when(troupeauRepository.findByIdAndUserTelephone(troupeau.getId(), TELEPHONE)).thenReturn(Optional.of(troupeau));
+        when(animalRepository.findAllByTroupeauId(troupeau.getId())).thenReturn(List.of(animal));
+        when(geofenceRepository.deleteAllByTroupeauId(troupeau.getId())).thenReturn(1);
+        TroupeauServiceImpl service = new TroupeauServiceImpl(troupeauRepository, animalRepository, userRepository,
+                animalMapper, geofenceRepository, eventPublisher);
+
+        service.DeleteTroupeau(troupeau.getId(), TELEPHONE);
+
+        assertThat(animal.getTroupeau()).isNull();
+        InOrder order = inOrder(geofenceRepository, troupeauRepository);
+        order.verify(geofenceRepository).deleteAllByTroupeauId(troupeau.getId());
+        order.verify(troupeauRepository).delete(troupeau);
+        ArgumentCaptor<DeviceRegistryInvalidationEvent> event = ArgumentCaptor.forClass(DeviceRegistryInvalidationEvent.class);
+        verify(eventPublisher).publishEvent(event.capture());
+        assertThat(event.getValue().imeis()).isEqualTo(Set.of("123456789012345"));
+        assertThat(event.getValue().ownerId()).isEqualTo(owner.getId());
+    }
+}
@@ -2,6 +2,7 @@ package com.gettgi.mvp.telemetry;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.gettgi.mvp.dto.telemetry.TelemetryIngestDto;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -12,7 +13,13 @@ import org.springframework.integration.mqtt.support.MqttHeaders;
 import org.springframework.messaging.Message;
 import org.springframework.messaging.support.MessageBuilder;
 
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.List;
+
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 
@@ -22,12 +29,14 @@ class TelemetryMessageHandlerTest {
     @Mock
     private TelemetryIngestionService telemetryIngestionService;
 
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
     private TelemetryMessageHandler handler;
 
     @BeforeEach
     void setUp() {
         ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
-        handler = new TelemetryMessageHandler(objectMapper, telemetryIngestionService);
+        handler = new TelemetryMessageHandler(new TelemetryPayloadDecoder(objectMapper), telemetryIngestionService,
+                new TelemetryIngestMetrics(meterRegistry), meterRegistry);
     }
 
     @Test
@@ -64,6 +73,95 @@ class TelemetryMessageHandlerTest {
         handler.handleMessage(message);
 
         verify(telemetryIngestionService, never()).ingest(org.mockito.ArgumentMatchers.any());
+        verify(telemetryIngestionService, never()).ingestBatch(org.mockito.ArgumentMatchers.any());
     }
-}
 
+    @Test
+    void shouldDecodeRawBytePayload() {
+        String payload = """
+                {
+                  "timestamp": "2025-10-17T16:00:00Z",
+                  "position": { "latitude": 14.706, "longitude": -17.467 },
+                  "batteryLevel": 80
+                }
+                """;
+
+        Message<byte[]> message = MessageBuilder.withPayload(payload.getBytes(StandardCharsets.UTF_8))
+                .setHeader(MqttHeaders.RECEIVED_TOPIC, "collars/123456789012345/telemetry")
+                .build();
+
+        handler.handleMessage(message);
+
+        ArgumentCaptor<TelemetryIngestDto> captor = ArgumentCaptor.forClass(TelemetryIngestDto.class);
+        verify(telemetryIngestionService).ingest(captor.capture());
+        assertThat(captor.getValue().deviceImei()).isEqualTo("123456789012345");
+        assertThat(captor.getValue().timestamp()).isEqualTo(Instant.parse("2025-10-17T16:00:00Z"));
+        assertThat(captor.getValue().batteryLevel()).isEqualTo(80);
+    }
+
+    @Test
+    void shouldNotCallIngestWhenPayloadIsNotAnObject() {
+        Message<String> message = MessageBuilder.withPayload("[1, 2, 3]")
+                .setHeader(MqttHeaders.RECEIVED_TOPIC, "collars/123456789012345/telemetry")
+                .build();
+
+        handler.handleMessage(message);
+
+        verify(telemetryIngestionService, never()).ingest(org.mockito.ArgumentMatchers.any());
+    }
+
+    @Test
+    void shouldNotCallIngestWhenPayloadIsMalformed() {
+        Message<String> message = MessageBuilder.withPayload("{\"timestamp\": ")
+                .setHeader(MqttHeaders.RECEIVED_TOPIC, "collars/123456789012345/telemetry")
+                .build();
+
+        handler.handleMessage(message);
+
+        verify(telemetryIngestionService, never()).ingest(org.mockito.ArgumentMatchers.any());
+        assertThat(meterRegistry.get("telemetry.ingest.frames").tag("outcome", "invalid-payload").counter().count())
+                .isEqualTo(1d);
+        assertThat(meterRegistry.get("telemetry.decode").timer().count()).isEqualTo(1L);
+    }
+
+    @Test
+    void shouldRecordLagOfFramesFailingDuringIngest() {
+        doThrow(new IllegalStateException("database down")).when(telemetryIngestionService).ingest(any());
+        String payload = """
+                {
+                  "timestamp": "2025-10-17T16:00:00Z",
+                  "position": { "latitude": 14.706, "longitude": -17.467 }
+                }
+                """;
+        Message<String> message = MessageBuilder.withPayload(payload)
+                .setHeader(MqttHeaders.RECEIVED_TOPIC, "collars/123456789012345/telemetry")
+                .build();
+
+        handler.handleMessage(message);
+
+        assertThat(meterRegistry.get("telemetry.ingest.lag").tag("outcome", "failed").timer().count()).isEqualTo(1L);
+    }
+
+    @Test
+    void shouldIngestArrayPayloadAsOneBatch() {
+        String payload = """
+                [
+                  { "timestamp": "2025-10-17T16:00:10Z", "position": { "latitude": 14.707, "longitude": -17.468 } },
+                  { "timestamp": "2025-10-17T16:00:00Z", "position": { "latitude": 14.706, "longitude": -17.467 } },
+                  { "timestamp": "2025-10-17T16:00:05Z" }
+                ]
+                """;
+        Message<String> message = MessageBuilder.withPayload(payload)
+                .setHeader(MqttHeaders.RECEIVED_TOPIC, "collars/123456789012345/telemetry")
+                .build();
+
+        handler.handleMessage(message);
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<TelemetryIngestDto>> captor = ArgumentCaptor.forClass(List.class);
+        verify(telemetryIngestionService).ingestBatch(captor.capture());
+        verify(telemetryIngestionService, never()).ingest(any());
+        assertThat(captor.getValue()).hasSize(2)
+                .extracting(TelemetryIngestDto::deviceImei).containsOnly("123456789012345");
+    }
+}
@@ -0,0 +1,125 @@
+package com.gettgi.mvp.telemetry;
+
+import com.gettgi.mvp.config.TelemetryIngestProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.integration.mqtt.support.MqttHeaders;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageHandler;
+import org.springframework.messaging.support.MessageBuilder;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TelemetryPartitionedDispatcherTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private TelemetryPartitionedDispatcher dispatcher;
+
+    @AfterEach
+    void tearDown() {
+        if (dispatcher != null) {
+            dispatcher.destroy();
+        }
+    }
+
+    @Test
+    void shouldPreserveArrivalOrderPerDevice() throws InterruptedException {
+        Map<String, List<Integer>> processed = new ConcurrentHashMap<>();
+        Map<String, String> threadByImei = new ConcurrentHashMap<>();
+        CountDownLatch done = new CountDownLatch(300);
+        MessageHandler delegate = message -> {
+            String imei = TelemetryTopics.extractImei(TelemetryTopics.resolveTopic(message));
+            processed.computeIfAbsent(imei, key -> Collections.synchronizedList(new ArrayList<>()))
+                    .add((Integer) message.getPayload());
+            threadByImei.merge(imei, Thread.currentThread().getName(), (previous, current) ->
+                    previous.equals(current) ? previous : "MIXED");
+            done.countDown();
+        };
+        dispatcher = new TelemetryPartitionedDispatcher(delegate, properties(4, 1_000), meterRegistry);
+
+        List<String> imeis = List.of("123456789012345", "123456789012346", "123456789012347");
+        for (int sequence = 0; sequence < 100; sequence++) {
+            for (String imei : imeis) {
+                dispatcher.handleMessage(frame(imei, sequence));
+            }
+        }
+
+        assertThat(done.await(5, TimeUnit.SECONDS)).isTrue();
+        for (String imei : imeis) {
+            assertThat(processed.get(imei)).isSorted().hasSize(100);
+            assertThat(threadByImei.get(imei)).startsWith("telemetry-ingest-");
+        }
+    }
+
+    @Test
+    void shouldDropFrameWhenPartitionStaysFull() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch started = new CountDownLatch(1);
+        MessageHandler delegate = message -> {
+            started.countDown();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        };
+        dispatcher = new TelemetryPartitionedDispatcher(delegate, properties(1, 1), meterRegistry);
+
+        dispatcher.handleMessage(frame("123456789012345", 0));
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+        dispatcher.handleMessage(frame("123456789012345", 1));
+        dispatcher.handleMessage(frame("123456789012345", 2));
+
+        assertThat(meterRegistry.get("telemetry.ingest.rejected").counter().count()).isEqualTo(1d);
+        assertThat(meterRegistry.get("telemetry.ingest.queue.depth").tag("partition", "0").gauge().value()).isEqualTo(1d);
+        release.countDown();
+    }
+
+    @Test
+    void shouldProcessInlineWhenPartitioningIsDisabled() {
+        List<String> threads = new ArrayList<>();
+        dispatcher = new TelemetryPartitionedDispatcher(
+                message -> threads.add(Thread.currentThread().getName()),
+                properties(0, 10),
+                meterRegistry
+        );
+
+        dispatcher.handleMessage(frame("123456789012345", 0));
+
+        assertThat(threads).containsExactly(Thread.currentThread().getName());
+    }
+
+    @Test
+    void shouldRouteSameImeiToSamePartition() {
+        int first = TelemetryPartitionedDispatcher.partitionIndex("123456789012345", 8);
+        int second = TelemetryPartitionedDispatcher.partitionIndex("123456789012345", 8);
+
+        assertThat(first).isEqualTo(second).isBetween(0, 7);
+        assertThat(TelemetryPartitionedDispatcher.partitionIndex(null, 8)).isZero();
+    }
+
+    private TelemetryIngestProperties properties(int partitions, int capacity) {
+        TelemetryIngestProperties properties = new TelemetryIngestProperties();
+        properties.setPartitions(partitions);
+        properties.setQueueCapacity(capacity);
+        properties.setEnqueueTimeout(Duration.ofMillis(50));
+        properties.setShutdownTimeout(Duration.ofSeconds(1));
+        return properties;
+    }
+
+    private Message<Integer> frame(String imei, int sequence) {
+        return MessageBuilder.withPayload(sequence)
+                .setHeader(MqttHeaders.RECEIVED_TOPIC, "collars/" + imei + "/telemetry")
+                .build();
+    }
+}
@@ -0,0 +1,189 @@
+package com.gettgi.mvp.telemetry;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.gettgi.mvp.dto.telemetry.TelemetryIngestDto;
+import com.gettgi.mvp.entity.enums.StatusCollar;
+import com.gettgi.mvp.entity.enums.StatutTransmission;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class TelemetryPayloadDecoderTest {
+
+    private static final String TOPIC = "collars/123456789012345/telemetry";
+
+    private ObjectMapper objectMapper;
+    private TelemetryPayloadDecoder decoder;
+
+    @BeforeEach
+    void setUp() {
+        objectMapper = new ObjectMapper()
+                .findAndRegisterModules()
+                .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+        decoder = new TelemetryPayloadDecoder(objectMapper);
+    }
+
+    @Test
+    void shouldDecodeSameFrameAsDataBinding() throws IOException {
+        String payload = """
+                {
+                  "deviceImei": "123456789012345",
+                  "timestamp": "2025-10-17T16:00:00.250Z",
+                  "position": { "latitude": 14.706, "longitude": -17.467, "altitude": 12 },
+                  "speed": 1.5,
+                  "accelX": 0.1,
+                  "accelY": "0.2",
+                  "accelZ": null,
+                  "pressure": 0.95,
+                  "batteryLevel": 78,
+                  "gsmSignal": 3,
+                  "statusCollar": "ACTIF",
+                  "transmissionStatus": "ENVOYE",
+                  "firmware": { "version": "1.2.0", "flags": [1, 2] }
+                }
+                """;
+
+        TelemetryIngestDto decoded = decoder.decode(payload.getBytes(StandardCharsets.UTF_8), TOPIC);
+        TelemetryIngestDto bound = objectMapper.readValue(payload, TelemetryIngestDto.class);
+
+        assertThat(decoded).isEqualTo(bound);
+        assertThat(decoded.statusCollar()).isEqualTo(StatusCollar.ACTIF);
+        assertThat(decoded.transmissionStatus()).isEqualTo(StatutTransmission.ENVOYE);
+    }
+
+    @Test
+    void shouldFillImeiFromTopicAndAcceptEpochSeconds() throws IOException {
+        String payload = """
+                { "timestamp": 1760716800.5, "position": { "latitude": 14.7, "longitude": -17.4 } }
+                """;
+
+        TelemetryIngestDto decoded = decoder.decode(payload.getBytes(StandardCharsets.UTF_8), TOPIC);
+
+        assertThat(decoded.deviceImei()).isEqualTo("123456789012345");
+        assertThat(decoded.timestamp()).isEqualTo(Instant.ofEpochSecond(1760716800L, 500_000_000L));
+    }
+
+    @Test
+    void shouldKeepPayloadImeiWhenItDiffersFromTopic() throws IOException {
+        String payload = """
+                { "deviceImei": "999999999999999", "timestamp": "2025-10-17T16:00:00Z",
+                  "position": { "latitude": 14.7, "longitude": -17.4 } }
+                """;
+
+        TelemetryIngestDto decoded = decoder.decode(payload.getBytes(StandardCharsets.UTF_8), TOPIC);
+
+        assertThat(decoded.deviceImei()).isEqualTo("999999999999999");
+    }
+
+    @Test
+    void shouldReturnNullWhenImeiCannotBeResolved() throws IOException {
+        String payload = """
+                { "timestamp": "2025-10-17T16:00:00Z", "position": { "latitude": 14.7, "longitude": -17.4 } }
+                """;
+
+        assertThat(decoder.decode(payload.getBytes(StandardCharsets.UTF_8), "devices/abc")).isNull();
+    }
+
+    @Test
+    void shouldParseUtcTimestampsLikeInstantParse() {
+        for (String text : new String[]{
+                "2025-10-17T16:00:00Z", "2025-10-17T16:00:00.5Z", "2025-10-17T16:00:00.123456789Z",
+                "2024-02-29T23:59:59Z", "1970-01-01T00:00:00Z", "1969-12-31T23:59:59.999Z"}) {
+            assertThat(TelemetryPayloadDecoder.parseUtcTimestamp(text)).as(text).isEqualTo(Instant.parse(text));
+        }
+        assertThat(TelemetryPayloadDecoder.parseUtcTimestamp("2025-02-29T10:00:00Z")).isNull();
+        assertThat(TelemetryPayloadDecoder.parseUtcTimestamp("2025-10-17T16:00:00+02:00")).isNull();
+        assertThat(TelemetryPayloadDecoder.parseUtcTimestamp("2025-10-17T16:00Z")).isNull();
+    }
+
+    @Test
+    void shouldRejectUnknownEnumValue() {
+        String payload = """
+                { "timestamp": "2025-10-17T16:00:00Z", "position": { "latitude": 14.7, "longitude": -17.4 },
+                  "statusCollar": "UNKNOWN" }
+                """;
+
+        assertThatThrownBy(() -> decoder.decode(payload.getBytes(StandardCharsets.UTF_8), TOPIC))
+                .isInstanceOf(IOException.class);
+    }
+
+    @Test
+    void shouldDecodeArrayOfFramesSkippingNonObjects() throws IOException {
+        String payload = """
+                [
+                  { "timestamp": "2025-10-17T16:00:20Z", "position": { "latitude": 14.706, "longitude": -17.467 } },
+                  42,
+                  { "timestamp": "2025-10-17T16:00:10Z", "position": { "latitude": 14.707, "longitude": -17.468 }, "batteryLevel": 77 }
+                ]
+                """;
+
+        List<TelemetryIngestDto> frames = decoder.decodeBatch(payload.getBytes(StandardCharsets.UTF_8), TOPIC);
+
+        assertThat(frames).extracting(TelemetryIngestDto::timestamp).containsExactly(
+                Instant.parse("2025-10-17T16:00:20Z"), Instant.parse("2025-10-17T16:00:10Z"));
+        assertThat(frames).extracting(TelemetryIngestDto::deviceImei).containsOnly("123456789012345");
+        assertThat(frames.get(1).batteryLevel()).isEqualTo(77);
+    }
+
+    @Test
+    void shouldDropOnlyTheArrayElementWithAnInvalidField() throws IOException {
+        String payload = """
+                [
+                  { "timestamp": "2025-10-17T16:00:00Z", "position": { "latitude": 14.706, "longitude": -17.467 } },
+                  { "timestamp": "2025-10-17T16:00:10Z", "statusCollar": "UNKNOWN",
+                    "position": { "latitude": 14.707, "longitude": -17.468 }, "batteryLevel": 77 },
+                  { "timestamp": "2025-10-17T16:00:20Z", "position": { "latitude": 14.708, "longitude": -17.469 } }
+                ]
+                """;
+
+        List<TelemetryIngestDto> frames = decoder.decodeBatch(payload.getBytes(StandardCharsets.UTF_8), TOPIC);
+
+        assertThat(frames).extracting(TelemetryIngestDto::timestamp).containsExactly(
+                Instant.parse("2025-10-17T16:00:00Z"), Instant.parse("2025-10-17T16:00:20Z"));
+    }
+
+    @Test
+    void shouldSkipTheRestOfAnElementWithAnOutOfRangeCoordinate() throws IOException {
+        String payload = """
+                [
+                  { "position": { "latitude": 95.0, "longitude": -17.467 }, "timestamp": "2025-10-17T16:00:00Z",
+                    "extra": { "timestamp": "2025-10-17T16:00:05Z", "position": { "latitude": 14.7, "longitude": -17.4 } },
+                    "batteryLevel": 77 },
+                  { "timestamp": "2025-10-17T16:00:20Z", "position": { "latitude": 14.708, "longitude": -17.469 } }
+                ]
+                """;
+
+        List<TelemetryIngestDto> frames = decoder.decodeBatch(payload.getBytes(StandardCharsets.UTF_8), TOPIC);
+
+        assertThat(frames).extracting(TelemetryIngestDto::timestamp)
+                .containsExactly(Instant.parse("2025-10-17T16:00:20Z"));
+    }
+
+    @Test
+    void shouldRejectArrayWithSyntaxError() {
+        String payload = """
+                [ { "timestamp": "2025-10-17T16:00:00Z" }, { "timestamp": } ]
+                """;
+
+        assertThatThrownBy(() -> decoder.decodeBatch(payload.getBytes(StandardCharsets.UTF_8), TOPIC))
+                .isInstanceOf(IOException.class);
+    }
+
+    @Test
+    void shouldDecodeSingleObjectAsOneFrameBatch() throws IOException {
+        String payload = "{\"timestamp\": \"2025-10-17T16:00:00Z\", \"position\": {\"latitude\": 14.7, \"longitude\": -17.4}}";
+
+        List<TelemetryIngestDto> frames = decoder.decodeBatch(payload.getBytes(StandardCharsets.UTF_8), TOPIC);
+
+        assertThat(frames).singleElement()
+                .extracting(TelemetryIngestDto::timestamp).isEqualTo(Instant.parse("2025-10-17T16:00:00Z"));
+    }
+}
@@ -0,0 +1,90 @@
+package com.gettgi.mvp.telemetry.impl;
+
+import com.gettgi.mvp.entity.Alerte;
+import com.gettgi.mvp.entity.enums.TypeAlerte;
+import com.gettgi.mvp.repository.AlerteRepository;
+import com.gettgi.mvp.telemetry.ActiveAlerts;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class ActiveAlertRegistryImplTest {
+
+    private static final Instant TS = Instant.parse("2025-10-17T16:00:00Z");
+
+    @Mock
+    private AlerteRepository alerteRepository;
+
+    private ActiveAlertRegistryImpl registry;
+    private final UUID animalId = UUID.randomUUID();
+
+    @BeforeEach
+    void setUp() {
+        registry = new ActiveAlertRegistryImpl(alerteRepository, new SimpleMeterRegistry());
+    }
+
+    @AfterEach
+    void clearSynchronization() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void shouldLoadOnceAndApplyTransitionsInMemory() {
+        Alerte offline = alert(TypeAlerte.DEVICE_OFFLINE);
+        when(alerteRepository.findByAnimal_IdAndResolvedFalse(animalId)).thenReturn(List.of(offline));
+
+        assertThat(registry.get(animalId).types()).containsExactly(TypeAlerte.DEVICE_OFFLINE);
+
+        UUID speedAlertId = UUID.randomUUID();
+        registry.opened(animalId, TypeAlerte.SPEED_SUSPECT, speedAlertId, TS);
+        registry.resolved(animalId, TypeAlerte.DEVICE_OFFLINE);
+
+        ActiveAlerts state = registry.get(animalId);
+        assertThat(state.types()).containsExactly(TypeAlerte.SPEED_SUSPECT);
+        assertThat(state.find(TypeAlerte.SPEED_SUSPECT)).contains(new ActiveAlerts.OpenAlert(speedAlertId, TS));
+        verify(alerteRepository, times(1)).findByAnimal_IdAndResolvedFalse(animalId);
+    }
+
+    @Test
+    void shouldReloadFromDatabaseWhenTheTransitionIsRolledBack() {
+        when(alerteRepository.findByAnimal_IdAndResolvedFalse(animalId)).thenReturn(List.of());
+        registry.get(animalId);
+
+        TransactionSynchronizationManager.initSynchronization();
+        registry.opened(animalId, TypeAlerte.GEOFENCE_EXIT, UUID.randomUUID(), TS);
+        assertThat(registry.get(animalId).isOpen(TypeAlerte.GEOFENCE_EXIT)).isTrue();
+
+        for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+            synchronization.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK);
+        }
+
+        assertThat(registry.get(animalId).isEmpty()).isTrue();
+        verify(alerteRepository, times(2)).findByAnimal_IdAndResolvedFalse(animalId);
+    }
+
+    private Alerte alert(TypeAlerte type) {
+        Alerte alert = new Alerte();
+        alert.setId(UUID.randomUUID());
+        alert.setTypeAlerte(type);
+        alert.setTs(TS);
+        return alert;
+    }
+}
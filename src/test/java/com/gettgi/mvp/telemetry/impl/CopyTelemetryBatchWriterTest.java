@@ -0,0 +1,55 @@
+package com.gettgi.mvp.telemetry.impl;
+
+import com.gettgi.mvp.entity.Device;
+import com.gettgi.mvp.entity.Telemetry;
+import com.gettgi.mvp.entity.enums.StatusCollar;
+import com.gettgi.mvp.entity.enums.StatutTransmission;
+import org.junit.jupiter.api.Test;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.Geometry;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.io.ParseException;
+import org.locationtech.jts.io.WKBReader;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CopyTelemetryBatchWriterTest {
+
+    @Test
+    void shouldEncodeOneCsvLinePerPointInColumnOrder() throws ParseException {
+        Device device = new Device();
+        device.setId(UUID.randomUUID());
+        Telemetry telemetry = new Telemetry();
+        telemetry.setDevice(device);
+        telemetry.setPosition(new GeometryFactory().createPoint(new Coordinate(-17.467, 14.706)));
+        telemetry.setSpeed(1.5);
+        telemetry.setBatteryLevel(78);
+        telemetry.setTransmissionStatus(StatutTransmission.ENVOYE);
+        telemetry.setStatusCollar(StatusCollar.ACTIF);
+        telemetry.setTs(Instant.parse("2025-10-17T16:00:00Z"));
+        Instant now = Instant.parse("2025-10-17T16:00:05Z");
+
+        String csv = CopyTelemetryBatchWriter.toCsv(List.of(telemetry, telemetry), now);
+
+        String[] lines = csv.split("\n");
+        assertThat(lines).hasSize(2);
+        String[] columns = lines[0].split(",", -1);
+        assertThat(columns).hasSize(15);
+        assertThat(UUID.fromString(columns[0])).isNotNull();
+        assertThat(columns[1]).isEqualTo("2025-10-17T16:00:05Z");
+        assertThat(columns[3]).isEqualTo(device.getId().toString());
+        assertThat(columns[5]).isEqualTo("1.5");
+        assertThat(columns[6]).isEmpty();
+        assertThat(columns[10]).isEqualTo("78");
+        assertThat(columns[12]).isEqualTo("ENVOYE");
+        assertThat(columns[14]).isEqualTo("2025-10-17T16:00:00Z");
+
+        Geometry position = new WKBReader().read(WKBReader.hexToBytes(columns[4]));
+        assertThat(position.getSRID()).isEqualTo(4326);
+        assertThat(position.getCoordinate()).isEqualTo(new Coordinate(-17.467, 14.706));
+    }
+}
@@ -0,0 +1,143 @@
+package com.gettgi.mvp.telemetry.impl;
+
+import com.gettgi.mvp.config.TelemetryRegistryProperties;
+import com.gettgi.mvp.entity.Animal;
+import com.gettgi.mvp.entity.Device;
+import com.gettgi.mvp.entity.User;
+import com.gettgi.mvp.entity.enums.StatusCollar;
+import com.gettgi.mvp.repository.DeviceRepository;
+import com.gettgi.mvp.telemetry.DeviceRegistryInvalidationEvent;
+import com.gettgi.mvp.telemetry.DeviceSnapshot;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class DeviceRegistryImplTest {
+
+    private static final String IMEI = "123456789012345";
+
+    @Mock
+    private DeviceRepository deviceRepository;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final AtomicLong clock = new AtomicLong();
+    private DeviceRegistryImpl registry;
+
+    @BeforeEach
+    void setUp() {
+        TelemetryRegistryProperties properties = new TelemetryRegistryProperties();
+        properties.setTtl(Duration.ofMinutes(10));
+        registry = new DeviceRegistryImpl(deviceRepository, properties, meterRegistry, clock::get);
+    }
+
+    @Test
+    void shouldServeRepeatedLookupsFromMemory() {
+        Device device = buildDevice();
+        when(deviceRepository.findWithOwnerGraphByImei(IMEI)).thenReturn(Optional.of(device));
+
+        DeviceSnapshot first = registry.find(IMEI).orElseThrow();
+        DeviceSnapshot second = registry.find(IMEI).orElseThrow();
+
+        assertThat(second).isSameAs(first);
+        assertThat(first.ownerTelephone()).isEqualTo("221770000001");
+        assertThat(first.animalNom()).isEqualTo("Bessie");
+        verify(deviceRepository, times(1)).findWithOwnerGraphByImei(IMEI);
+        assertThat(lookups("miss")).isEqualTo(1d);
+        assertThat(lookups("hit")).isEqualTo(1d);
+    }
+
+    @Test
+    void shouldReloadEntryOlderThanTtl() {
+        when(deviceRepository.findWithOwnerGraphByImei(IMEI)).thenReturn(Optional.of(buildDevice()));
+
+        registry.find(IMEI);
+        clock.addAndGet(Duration.ofMinutes(11).toNanos());
+        registry.find(IMEI);
+
+        verify(deviceRepository, times(2)).findWithOwnerGraphByImei(IMEI);
+        assertThat(lookups("stale")).isEqualTo(1d);
+    }
+
+    @Test
+    void shouldRememberUnknownImei() {
+        when(deviceRepository.findWithOwnerGraphByImei("999")).thenReturn(Optional.empty());
+
+        assertThat(registry.find("999")).isEmpty();
+        assertThat(registry.find("999")).isEmpty();
+
+        verify(deviceRepository, times(1)).findWithOwnerGraphByImei("999");
+    }
+
+    @Test
+    void shouldEvictDevicesOfOwnerOnInvalidation() {
+        Device device = buildDevice();
+        when(deviceRepository.findWithOwnerGraphByImei(IMEI)).thenReturn(Optional.of(device));
+        registry.find(IMEI);
+
+        registry.onInvalidation(DeviceRegistryInvalidationEvent.forOwner(device.getAnimal().getUser().getId()));
+        registry.find(IMEI);
+
+        verify(deviceRepository, times(2)).findWithOwnerGraphByImei(IMEI);
+        assertThat(meterRegistry.get("telemetry.device.registry.invalidations").counter().count()).isEqualTo(1d);
+    }
+
+    @Test
+    void shouldApplyReportedCollarStatusWithoutReloading() {
+        when(deviceRepository.findWithOwnerGraphByImei(IMEI)).thenReturn(Optional.of(buildDevice()));
+        registry.find(IMEI);
+
+        registry.statusCollarChanged(IMEI, StatusCollar.VOLE);
+
+        assertThat(registry.find(IMEI)).map(DeviceSnapshot::statusCollar).contains(StatusCollar.VOLE);
+        verify(deviceRepository, times(1)).findWithOwnerGraphByImei(IMEI);
+    }
+
+    @Test
+    void shouldWarmUpWithAllDevices() {
+        when(deviceRepository.findAllWithOwnerGraph()).thenReturn(List.of(buildDevice()));
+
+        registry.warmUp();
+
+        assertThat(registry.find(IMEI)).isPresent();
+        verify(deviceRepository, never()).findWithOwnerGraphByImei(IMEI);
+    }
+
+    private double lookups(String result) {
+        return meterRegistry.get("telemetry.device.registry.lookups").tag("result", result).counter().count();
+    }
+
+    private Device buildDevice() {
+        User user = new User();
+        user.setId(UUID.randomUUID());
+        user.setTelephone("221770000001");
+
+        Animal animal = new Animal();
+        animal.setId(UUID.randomUUID());
+        animal.setNom("Bessie");
+        animal.setUser(user);
+
+        Device device = new Device();
+        device.setId(UUID.randomUUID());
+        device.setImei(IMEI);
+        device.setStatusCollar(StatusCollar.ACTIF);
+        device.setAnimal(animal);
+        animal.setDevice(device);
+        return device;
+    }
+}
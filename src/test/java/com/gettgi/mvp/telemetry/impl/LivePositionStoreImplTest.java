@@ -0,0 +1,106 @@
+package com.gettgi.mvp.telemetry.impl;
+
+import com.gettgi.mvp.config.TelemetryPersistenceProperties;
+import com.gettgi.mvp.telemetry.LivePosition;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.geom.PrecisionModel;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementSetter;
+
+import java.time.Instant;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class LivePositionStoreImplTest {
+
+    private static final GeometryFactory GEOMETRY_FACTORY = new GeometryFactory(new PrecisionModel(), 4326);
+    private static final Instant BASE_TS = Instant.parse("2025-10-17T16:00:00Z");
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private LivePositionStoreImpl store;
+
+    @BeforeEach
+    void setUp() {
+        TelemetryPersistenceProperties properties = new TelemetryPersistenceProperties();
+        properties.setBatchSize(2);
+        store = new LivePositionStoreImpl(jdbcTemplate, properties, meterRegistry);
+    }
+
+    @Test
+    void shouldKeepTheMostRecentPositionOfEachAnimal() {
+        UUID animalId = UUID.randomUUID();
+
+        store.record(animalId, position(10));
+        store.record(animalId, position(5));
+
+        assertThat(store.find(animalId)).get().extracting(LivePosition::ts).isEqualTo(BASE_TS.plusSeconds(10));
+        assertThat(store.find(UUID.randomUUID())).isEmpty();
+    }
+
+    @Test
+    void shouldWritePendingPositionsOnceInChunks() {
+        for (int i = 0; i < 3; i++) {
+            store.record(UUID.randomUUID(), position(i));
+        }
+
+        store.flush();
+        store.flush();
+
+        ArgumentCaptor<String> sql = ArgumentCaptor.forClass(String.class);
+        verify(jdbcTemplate, times(2)).update(sql.capture(), any(PreparedStatementSetter.class));
+        assertThat(sql.getAllValues().get(0)).contains("from (values").contains("last_position_ts <= v.ts");
+        assertThat(sql.getAllValues().get(0).split("cast\\(\\? as uuid\\)", -1)).hasSize(3);
+        assertThat(sql.getAllValues().get(1).split("cast\\(\\? as uuid\\)", -1)).hasSize(2);
+        assertThat(meterRegistry.get("telemetry.live-position.flush.size").summary().totalAmount()).isEqualTo(3d);
+    }
+
+    @Test
+    void shouldKeepPositionsPendingWhenTheWriteFails() {
+        UUID animalId = UUID.randomUUID();
+        store.record(animalId, position(0));
+        when(jdbcTemplate.update(anyString(), any(PreparedStatementSetter.class)))
+                .thenThrow(new DataAccessResourceFailureException("database down"))
+                .thenReturn(1);
+
+        store.flush();
+        store.record(animalId, position(1));
+        store.flush();
+        store.flush();
+
+        verify(jdbcTemplate, times(2)).update(anyString(), any(PreparedStatementSetter.class));
+        assertThat(meterRegistry.get("telemetry.live-position.flush.failures").counter().count()).isEqualTo(1d);
+        assertThat(meterRegistry.get("telemetry.live-position.pending").gauge().value()).isZero();
+    }
+
+    @Test
+    void shouldNotTouchTheDatabaseWithoutPendingPosition() {
+        store.flush();
+
+        verify(jdbcTemplate, never()).update(anyString(), any(PreparedStatementSetter.class));
+    }
+
+    private LivePosition position(int secondsOffset) {
+        return new LivePosition(UUID.randomUUID(), GEOMETRY_FACTORY.createPoint(new Coordinate(-17.4, 14.5)),
+                BASE_TS.plusSeconds(secondsOffset), true, 1.0, 80, 4, null);
+    }
+}
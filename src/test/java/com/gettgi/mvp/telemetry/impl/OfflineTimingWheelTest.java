@@ -0,0 +1,61 @@
+package com.gettgi.mvp.telemetry.impl;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class OfflineTimingWheelTest {
+
+    private static final long TICK = 1_000;
+    private static final long HORIZON = 300_000;
+
+    @Test
+    void shouldExpireKeyOnceItsDeadlinePassed() {
+        OfflineTimingWheel<String> wheel = new OfflineTimingWheel<>(TICK, HORIZON, 0);
+        wheel.arm(UUID.randomUUID(), "a", 5_000);
+
+        assertThat(wheel.advance(4_999)).isEmpty();
+        assertThat(wheel.advance(5_000)).containsExactly("a");
+        assertThat(wheel.size()).isZero();
+        assertThat(wheel.advance(10_000)).isEmpty();
+    }
+
+    @Test
+    void shouldPostponeDeadlineWhenRearmed() {
+        OfflineTimingWheel<String> wheel = new OfflineTimingWheel<>(TICK, HORIZON, 0);
+        UUID key = UUID.randomUUID();
+        wheel.arm(key, "first", 5_000);
+        wheel.arm(key, "second", 250_000);
+
+        assertThat(wheel.advance(249_000)).isEmpty();
+        assertThat(wheel.size()).isEqualTo(1);
+        assertThat(wheel.advance(250_000)).containsExactly("second");
+    }
+
+    @Test
+    void shouldExpireEveryDueKeyAfterLongPause() {
+        OfflineTimingWheel<String> wheel = new OfflineTimingWheel<>(TICK, HORIZON, 0);
+        wheel.arm(UUID.randomUUID(), "a", 10_000);
+        wheel.arm(UUID.randomUUID(), "b", 290_000);
+        UUID late = UUID.randomUUID();
+
+        assertThat(wheel.advance(3_600_000)).containsExactlyInAnyOrder("a", "b");
+
+        wheel.arm(late, "c", 3_700_000);
+        assertThat(wheel.advance(3_699_000)).isEmpty();
+        assertThat(wheel.advance(3_700_000)).containsExactly("c");
+    }
+
+    @Test
+    void shouldForgetCancelledKey() {
+        OfflineTimingWheel<String> wheel = new OfflineTimingWheel<>(TICK, HORIZON, 0);
+        UUID key = UUID.randomUUID();
+        wheel.arm(key, "a", 5_000);
+        wheel.cancel(key);
+
+        assertThat(wheel.advance(6_000)).isEmpty();
+        assertThat(wheel.size()).isZero();
+    }
+}
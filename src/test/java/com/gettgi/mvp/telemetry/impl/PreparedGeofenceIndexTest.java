@@ -0,0 +1,190 @@
+package com.gettgi.mvp.telemetry.impl;
+
+import com.gettgi.mvp.dto.telemetry.GeofenceZoneDto;
+import com.gettgi.mvp.entity.Geofence;
+import com.gettgi.mvp.entity.Troupeau;
+import com.gettgi.mvp.repository.GeofenceRepository;
+import com.gettgi.mvp.telemetry.DeviceRegistryInvalidationEvent;
+import com.gettgi.mvp.telemetry.GeofenceMatch;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.locationtech.jts.geom.Point;
+import org.locationtech.jts.geom.Polygon;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class PreparedGeofenceIndexTest {
+
+    private static final GeometryFactory GEOMETRY_FACTORY = new GeometryFactory();
+    private static final double CENTER_LAT = 14.7167;
+    private static final double CENTER_LON = -17.4677;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final GeofenceRepository geofenceRepository = mock(GeofenceRepository.class);
+    private final PreparedGeofenceIndex index = new PreparedGeofenceIndex(geofenceRepository, meterRegistry);
+
+    @Test
+    void circleShouldMatchTheRawPolygonAwayFromItsEdges() {
+        double radius = 500;
+        Polygon zone = circle(CENTER_LAT, CENTER_LON, radius);
+        PreparedGeofence circle = prepare(zone, radius);
+        PreparedGeofence polygon = prepare(zone, null);
+        assertThat(circle.isCircle()).isTrue();
+        assertThat(polygon.isCircle()).isFalse();
+
+        Random random = new Random(42);
+        for (int i = 0; i < 5_000; i++) {
+            Point point = point(CENTER_LAT + (random.nextDouble() - 0.5) * 0.02, CENTER_LON + (random.nextDouble() - 0.5) * 0.02);
+            double distance = PreparedGeofence.haversineMeters(CENTER_LAT, CENTER_LON, point.getY(), point.getX());
+            if (Math.abs(distance - radius) < 2) {
+                // the inscribed 64-gon and the circle differ by up to 0.6 m at this radius
+                continue;
+            }
+            boolean expected = zone.covers(point);
+            assertThat(circle.covers(point)).as("circle at %.1f m", distance).isEqualTo(expected);
+            assertThat(polygon.covers(point)).as("polygon at %.1f m", distance).isEqualTo(expected);
+        }
+    }
+
+    @Test
+    void polygonWithRadiusThatIsNotACircleShouldUseThePreparedGeometry() {
+        Polygon box = GEOMETRY_FACTORY.createPolygon(new Coordinate[]{
+                new Coordinate(0, 0), new Coordinate(1, 0), new Coordinate(1, 1), new Coordinate(0, 1), new Coordinate(0, 0)
+        });
+
+        assertThat(prepare(box, 1000d).isCircle()).isFalse();
+    }
+
+    @Test
+    void shouldReportEveryZoneContainingThePosition() {
+        UUID ownerId = UUID.randomUUID();
+        Geofence farm = geofence("Ferme", circle(CENTER_LAT, CENTER_LON, 500), 500d, null);
+        Geofence well = geofence("Puits", circle(CENTER_LAT + 0.001, CENTER_LON, 300), 300d, null);
+        Geofence market = geofence("Marché", circle(CENTER_LAT + 1, CENTER_LON, 500), 500d, null);
+        when(geofenceRepository.findAllByUser_IdOrderByCreatedAtAsc(ownerId)).thenReturn(List.of(farm, well, market));
+
+        GeofenceMatch both = index.locate(ownerId, null, point(CENTER_LAT + 0.0005, CENTER_LON));
+        assertThat(both.inside()).isTrue();
+        assertThat(both.applicable()).hasSize(3);
+        assertThat(both.containing()).containsExactly(zone(farm), zone(well));
+        assertThat(both.reportedZone()).isEqualTo(zone(farm));
+
+        GeofenceMatch outside = index.locate(ownerId, null, point(CENTER_LAT - 0.5, CENTER_LON));
+        assertThat(outside.inside()).isFalse();
+        assertThat(outside.containing()).isEmpty();
+        assertThat(outside.reportedZone()).isNull();
+    }
+
+    @Test
+    void herdZoneShouldOnlyApplyToItsHerd() {
+        UUID ownerId = UUID.randomUUID();
+        UUID herdId = UUID.randomUUID();
+        Geofence herdZone = geofence("Enclos", circle(CENTER_LAT, CENTER_LON, 500), 500d, herdId);
+        when(geofenceRepository.findAllByUser_IdOrderByCreatedAtAsc(ownerId)).thenReturn(List.of(herdZone));
+        Point away = point(CENTER_LAT + 1, CENTER_LON);
+
+        assertThat(index.locate(ownerId, herdId, away).inside()).isFalse();
+        assertThat(index.locate(ownerId, herdId, away).reportedZone()).isEqualTo(zone(herdZone));
+        assertThat(index.locate(ownerId, UUID.randomUUID(), away)).isEqualTo(GeofenceMatch.NO_ZONE);
+        assertThat(index.locate(ownerId, null, away).inside()).isTrue();
+    }
+
+    @Test
+    void shouldReloadOnInvalidationAndRebuildOnlyChangedZones() {
+        UUID ownerId = UUID.randomUUID();
+        Instant version = Instant.parse("2025-10-17T16:00:00Z");
+        Geofence farm = geofence("Ferme", circle(CENTER_LAT, CENTER_LON, 500), 500d, null);
+        farm.setUpdatedAt(version);
+        Geofence pasture = geofence("Pâturage", circle(CENTER_LAT + 1, CENTER_LON, 500), 500d, null);
+        pasture.setUpdatedAt(version);
+        when(geofenceRepository.findAllByUser_IdOrderByCreatedAtAsc(ownerId)).thenReturn(List.of(farm, pasture));
+        Point center = point(CENTER_LAT, CENTER_LON);
+
+        assertThat(index.locate(ownerId, null, center).inside()).isTrue();
+        assertThat(index.locate(ownerId, null, center).inside()).isTrue();
+        assertThat(builds()).isEqualTo(2d);
+        verify(geofenceRepository, times(1)).findAllByUser_IdOrderByCreatedAtAsc(ownerId);
+
+        farm.setZone(circle(CENTER_LAT + 2, CENTER_LON, 500));
+        farm.setUpdatedAt(version.plusSeconds(60));
+        index.onInvalidation(DeviceRegistryInvalidationEvent.forOwner(ownerId));
+
+        assertThat(index.locate(ownerId, null, center).inside()).isFalse();
+        assertThat(builds()).isEqualTo(3d);
+        verify(geofenceRepository, times(2)).findAllByUser_IdOrderByCreatedAtAsc(ownerId);
+    }
+
+    @Test
+    void ownerWithoutZoneShouldBeCached() {
+        UUID ownerId = UUID.randomUUID();
+        when(geofenceRepository.findAllByUser_IdOrderByCreatedAtAsc(ownerId)).thenReturn(List.of());
+
+        assertThat(index.locate(ownerId, null, point(CENTER_LAT, CENTER_LON))).isEqualTo(GeofenceMatch.NO_ZONE);
+        assertThat(index.locate(ownerId, null, point(CENTER_LAT, CENTER_LON))).isEqualTo(GeofenceMatch.NO_ZONE);
+        verify(geofenceRepository, times(1)).findAllByUser_IdOrderByCreatedAtAsc(ownerId);
+    }
+
+    private double builds() {
+        return meterRegistry.get("telemetry.geofence.prepared.builds").counter().count();
+    }
+
+    private static PreparedGeofence prepare(Polygon zone, Double radius) {
+        return PreparedGeofence.of(new GeofenceZoneDto(UUID.randomUUID(), "Ferme"), null, Instant.now(), zone, radius);
+    }
+
+    private Geofence geofence(String name, Polygon zone, Double radius, UUID troupeauId) {
+        Geofence geofence = new Geofence();
+        geofence.setId(UUID.randomUUID());
+        geofence.setNom(name);
+        geofence.setZone(zone);
+        geofence.setRadiusMeters(radius);
+        geofence.setUpdatedAt(Instant.now());
+        if (troupeauId != null) {
+            Troupeau troupeau = new Troupeau();
+            troupeau.setId(troupeauId);
+            geofence.setTroupeau(troupeau);
+        }
+        return geofence;
+    }
+
+    private GeofenceZoneDto zone(Geofence geofence) {
+        return new GeofenceZoneDto(geofence.getId(), geofence.getNom());
+    }
+
+    private Point point(double lat, double lon) {
+        Point point = GEOMETRY_FACTORY.createPoint(new Coordinate(lon, lat));
+        point.setSRID(4326);
+        return point;
+    }
+
+    // same construction as GeofenceController.buildCirclePolygon
+    static Polygon circle(double centerLat, double centerLon, double radiusMeters) {
+        double latRad = Math.toRadians(centerLat);
+        double lonRad = Math.toRadians(centerLon);
+        double angularDistance = radiusMeters / PreparedGeofence.EARTH_RADIUS_METERS;
+        Coordinate[] coordinates = new Coordinate[65];
+        for (int i = 0; i < 64; i++) {
+            double bearing = 2d * Math.PI * i / 64d;
+            double lat2 = Math.asin(Math.sin(latRad) * Math.cos(angularDistance)
+                    + Math.cos(latRad) * Math.sin(angularDistance) * Math.cos(bearing));
+            double lon2 = lonRad + Math.atan2(Math.sin(bearing) * Math.sin(angularDistance) * Math.cos(latRad),
+                    Math.cos(angularDistance) - Math.sin(latRad) * Math.sin(lat2));
+            coordinates[i] = new Coordinate(Math.toDegrees(lon2), Math.toDegrees(lat2));
+        }
+        coordinates[64] = new Coordinate(coordinates[0]);
+        Polygon polygon = GEOMETRY_FACTORY.createPolygon(coordinates);
+        polygon.setSRID(4326);
+        return polygon;
+    }
+}
@@ -0,0 +1,87 @@
+package com.gettgi.mvp.telemetry.impl;
+
+import com.gettgi.mvp.dto.telemetry.AlertNotificationDto;
+import com.gettgi.mvp.entity.enums.TypeAlerte;
+import com.gettgi.mvp.telemetry.impl.RealtimeOutboundDispatcher.AlertUpdate;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Instant;
+import java.util.UUID;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+class RealtimeMessagingServiceImplTest {
+
+    private static final String TELEPHONE = "221770000001";
+    private static final UUID USER_ID = UUID.randomUUID();
+
+    @Mock
+    private RealtimeOutboundDispatcher dispatcher;
+
+    private RealtimeMessagingServiceImpl service;
+
+    @BeforeEach
+    void setUp() {
+        service = new RealtimeMessagingServiceImpl(dispatcher, RealtimeRelay.NONE);
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        TransactionSynchronizationManager.unbindResourceIfPossible(service);
+    }
+
+    @Test
+    void shouldDispatchRightAwayOutsideTransaction() {
+        AlertNotificationDto alert = alert();
+
+        service.publishAlert(TELEPHONE, USER_ID, alert);
+
+        verify(dispatcher).dispatch(TELEPHONE, new AlertUpdate(USER_ID, alert));
+    }
+
+    @Test
+    void shouldHoldMessagesUntilTransactionCommits() {
+        AlertNotificationDto alert = alert();
+        TransactionSynchronizationManager.initSynchronization();
+
+        service.publishAlert(TELEPHONE, USER_ID, alert);
+        verify(dispatcher, never()).dispatch(anyString(), any());
+
+        complete(TransactionSynchronization.STATUS_COMMITTED);
+        verify(dispatcher).dispatch(TELEPHONE, new AlertUpdate(USER_ID, alert));
+    }
+
+    @Test
+    void shouldDiscardMessagesOfRolledBackTransaction() {
+        TransactionSynchronizationManager.initSynchronization();
+
+        service.publishAlert(TELEPHONE, USER_ID, alert());
+        complete(TransactionSynchronization.STATUS_ROLLED_BACK);
+
+        verify(dispatcher, never()).dispatch(anyString(), any());
+    }
+
+    private static void complete(int status) {
+        TransactionSynchronizationManager.getSynchronizations().forEach(synchronization -> synchronization.afterCompletion(status));
+        TransactionSynchronizationManager.clearSynchronization();
+    }
+
+    private static AlertNotificationDto alert() {
+        return new AlertNotificationDto(UUID.randomUUID(), UUID.randomUUID(), UUID.randomUUID(),
+                TypeAlerte.GEOFENCE_EXIT, "Animal hors zone", Instant.now(), false, null);
+    }
+}
@@ -0,0 +1,152 @@
+package com.gettgi.mvp.telemetry.impl;
+
+import com.gettgi.mvp.config.TelemetryRealtimeProperties;
+import com.gettgi.mvp.dto.telemetry.AlertNotificationDto;
+import com.gettgi.mvp.dto.telemetry.GeoPointDto;
+import com.gettgi.mvp.dto.telemetry.RealtimePositionDto;
+import com.gettgi.mvp.entity.enums.TypeAlerte;
+import com.gettgi.mvp.push.AlertPublishedEvent;
+import com.gettgi.mvp.telemetry.impl.RealtimeOutboundDispatcher.AlertUpdate;
+import com.gettgi.mvp.telemetry.impl.RealtimeOutboundDispatcher.PositionUpdate;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.Queue;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+
+@ExtendWith(MockitoExtension.class)
+class RealtimeOutboundDispatcherTest {
+
+    private static final String TELEPHONE = "221770000001";
+    private static final UUID USER_ID = UUID.randomUUID();
+
+    @Mock
+    private SimpMessagingTemplate messagingTemplate;
+    @Mock
+    private RealtimePositionFanOut positionFanOut;
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    // tasks run when the test says so, as if every dispatcher thread were busy until then
+    private final Queue<Runnable> tasks = new ArrayDeque<>();
+    private SimpleMeterRegistry meterRegistry;
+    private RealtimeOutboundDispatcher dispatcher;
+
+    @BeforeEach
+    void setUp() {
+        TelemetryRealtimeProperties properties = new TelemetryRealtimeProperties();
+        properties.setOutboxCapacity(3);
+        meterRegistry = new SimpleMeterRegistry();
+        dispatcher = new RealtimeOutboundDispatcher(messagingTemplate, positionFanOut, eventPublisher, properties,
+                meterRegistry, tasks::add);
+    }
+
+    @Test
+    void shouldDeliverOnlyNewestWaitingPositionOfAnimal() {
+        UUID cow = UUID.randomUUID();
+        UUID goat = UUID.randomUUID();
+        RealtimePositionDto latest = position(cow, 3);
+
+        dispatcher.dispatch(TELEPHONE, new PositionUpdate(position(cow, 1)));
+        dispatcher.dispatch(TELEPHONE, new PositionUpdate(position(goat, 2)));
+        dispatcher.dispatch(TELEPHONE, new PositionUpdate(latest));
+        assertThat(tasks).hasSize(1);
+        runTasks();
+
+        ArgumentCaptor<RealtimePositionDto> sent = ArgumentCaptor.forClass(RealtimePositionDto.class);
+        verify(positionFanOut, times(2)).publish(eq(TELEPHONE), sent.capture());
+        assertThat(sent.getAllValues()).extracting(RealtimePositionDto::animalId).containsExactly(goat, cow);
+        assertThat(sent.getAllValues().get(1)).isSameAs(latest);
+        assertThat(meterRegistry.get("telemetry.realtime.coalesced").counter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("telemetry.realtime.pending").gauge().value()).isZero();
+    }
+
+    @Test
+    void shouldDropPositionsRatherThanAlertsWhenOutboxIsFull() {
+        AlertNotificationDto alert = alert();
+        UUID cow = UUID.randomUUID();
+        dispatcher.dispatch(TELEPHONE, new AlertUpdate(USER_ID, alert));
+        dispatcher.dispatch(TELEPHONE, new PositionUpdate(position(cow, 1)));
+        dispatcher.dispatch(TELEPHONE, new PositionUpdate(position(UUID.randomUUID(), 2)));
+        dispatcher.dispatch(TELEPHONE, new PositionUpdate(position(UUID.randomUUID(), 3)));
+        runTasks();
+
+        verify(messagingTemplate).convertAndSendToUser(TELEPHONE, "/queue/alerts", alert);
+        verify(eventPublisher).publishEvent(new AlertPublishedEvent(USER_ID, TELEPHONE, alert));
+        ArgumentCaptor<RealtimePositionDto> sent = ArgumentCaptor.forClass(RealtimePositionDto.class);
+        verify(positionFanOut, times(2)).publish(eq(TELEPHONE), sent.capture());
+        assertThat(sent.getAllValues()).extracting(RealtimePositionDto::animalId).doesNotContain(cow);
+        assertThat(meterRegistry.get("telemetry.realtime.dropped").tag("type", "position").counter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("telemetry.realtime.dropped").tag("type", "alert").counter().count()).isZero();
+    }
+
+    @Test
+    void shouldPushEveryAlertEvenWhenOnlyAlertsOverflowTheOutbox() {
+        AlertNotificationDto first = alert();
+        dispatcher.dispatch(TELEPHONE, new AlertUpdate(USER_ID, first));
+        for (int i = 0; i < 3; i++) {
+            dispatcher.dispatch(TELEPHONE, new AlertUpdate(USER_ID, alert()));
+        }
+        runTasks();
+
+        verify(messagingTemplate, never()).convertAndSendToUser(TELEPHONE, "/queue/alerts", first);
+        verify(messagingTemplate, times(3)).convertAndSendToUser(eq(TELEPHONE), eq("/queue/alerts"), any(Object.class));
+        // the listeners are notified on dispatch: the alert dropped from the outbox is still pushed
+        verify(eventPublisher).publishEvent(new AlertPublishedEvent(USER_ID, TELEPHONE, first));
+        verify(eventPublisher, times(4)).publishEvent(any(AlertPublishedEvent.class));
+        assertThat(meterRegistry.get("telemetry.realtime.dropped").tag("type", "alert").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldKeepOrderOfOwnerMessages() {
+        AlertNotificationDto alert = alert();
+        RealtimePositionDto position = position(alert.animalId(), 1);
+        dispatcher.dispatch(TELEPHONE, new AlertUpdate(USER_ID, alert));
+        dispatcher.dispatch(TELEPHONE, new PositionUpdate(position));
+
+        verifyNoInteractions(messagingTemplate, positionFanOut);
+        runTasks();
+
+        InOrder order = inOrder(messagingTemplate, positionFanOut);
+        order.verify(messagingTemplate).convertAndSendToUser(TELEPHONE, "/queue/alerts", alert);
+        order.verify(positionFanOut).publish(TELEPHONE, position);
+    }
+
+    private void runTasks() {
+        Runnable task;
+        while ((task = tasks.poll()) != null) {
+            task.run();
+        }
+    }
+
+    private static RealtimePositionDto position(UUID animalId, long second) {
+        return new RealtimePositionDto(animalId, "Bessie", UUID.randomUUID(), "123456789012345",
+                new GeoPointDto(14.7167, -17.4677), 1.0, 80, 3, null, Instant.ofEpochSecond(second),
+                true, null, null, List.of(), List.of());
+    }
+
+    private static AlertNotificationDto alert() {
+        return new AlertNotificationDto(UUID.randomUUID(), UUID.randomUUID(), UUID.randomUUID(),
+                TypeAlerte.GEOFENCE_EXIT, "Animal hors zone", Instant.now(), false, null);
+    }
+}
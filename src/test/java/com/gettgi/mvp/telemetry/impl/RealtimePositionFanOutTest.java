@@ -0,0 +1,172 @@
+package com.gettgi.mvp.telemetry.impl;
+
+import com.gettgi.mvp.config.TelemetryRealtimeProperties;
+import com.gettgi.mvp.dto.telemetry.GeoPointDto;
+import com.gettgi.mvp.dto.telemetry.RealtimePositionDto;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+import org.springframework.web.socket.messaging.SessionSubscribeEvent;
+
+import java.security.Principal;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+class RealtimePositionFanOutTest {
+
+    private static final String TELEPHONE = "221770000001";
+    private static final Principal OWNER = () -> TELEPHONE;
+    private static final UUID DEVICE_ID = UUID.randomUUID();
+
+    @Mock
+    private SimpMessagingTemplate messagingTemplate;
+    @Mock
+    private ScheduledExecutorService scheduler;
+
+    private SimpleMeterRegistry meterRegistry;
+    private RealtimePositionFanOut fanOut;
+
+    @BeforeEach
+    void setUp() {
+        fanOut = fanOut(1.0);
+    }
+
+    private RealtimePositionFanOut fanOut(double maxPositionRate) {
+        TelemetryRealtimeProperties properties = new TelemetryRealtimeProperties();
+        properties.setMaxPositionRate(maxPositionRate);
+        meterRegistry = new SimpleMeterRegistry();
+        return new RealtimePositionFanOut(messagingTemplate, properties, meterRegistry, scheduler);
+    }
+
+    @Test
+    void shouldAddressEachSessionOfOwner() {
+        subscribe("s1", "/user/queue/animals", Map.of());
+        subscribe("s2", "/user/queue/animals", Map.of());
+        RealtimePositionDto position = position(UUID.randomUUID(), 80);
+
+        fanOut.publish(TELEPHONE, position);
+
+        ArgumentCaptor<Map<String, Object>> headers = headersCaptor();
+        verify(messagingTemplate, times(2)).convertAndSendToUser(eq(TELEPHONE), eq("/queue/animals"), eq(position),
+                headers.capture());
+        assertThat(headers.getAllValues()).extracting(SimpMessageHeaderAccessor::getSessionId)
+                .containsExactlyInAnyOrder("s1", "s2");
+    }
+
+    @Test
+    void shouldSendOnlyLatestPositionHeldByRateLimit() {
+        subscribe("s1", "/user/queue/animals", Map.of());
+        UUID animalId = UUID.randomUUID();
+        RealtimePositionDto first = position(animalId, 80);
+        RealtimePositionDto latest = position(animalId, 78);
+
+        fanOut.publish(TELEPHONE, first);
+        fanOut.publish(TELEPHONE, position(animalId, 79));
+        fanOut.publish(TELEPHONE, latest);
+
+        verify(messagingTemplate).convertAndSendToUser(eq(TELEPHONE), eq("/queue/animals"), eq(first), anyMap());
+        ArgumentCaptor<Runnable> flush = ArgumentCaptor.forClass(Runnable.class);
+        verify(scheduler).schedule(flush.capture(), anyLong(), eq(TimeUnit.NANOSECONDS));
+        flush.getValue().run();
+
+        verify(messagingTemplate).convertAndSendToUser(eq(TELEPHONE), eq("/queue/animals"), eq(latest), anyMap());
+        verify(messagingTemplate, times(2)).convertAndSendToUser(anyString(), anyString(), any(), anyMap());
+        assertThat(meterRegistry.get("telemetry.realtime.throttled").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void shouldSendChangedFieldsOnlyToDeltaSubscription() {
+        fanOut = fanOut(0);
+        subscribe("s1", "/user/queue/animals", Map.of(RealtimePositionFanOut.FORMAT_HEADER, "delta"));
+        UUID animalId = UUID.randomUUID();
+        RealtimePositionDto first = position(animalId, 80);
+
+        fanOut.publish(TELEPHONE, first);
+        fanOut.publish(TELEPHONE, position(animalId, 79));
+
+        ArgumentCaptor<Object> payloads = ArgumentCaptor.forClass(Object.class);
+        verify(messagingTemplate, times(2)).convertAndSendToUser(eq(TELEPHONE), eq("/queue/animals"), payloads.capture(),
+                anyMap());
+        assertThat(payloads.getAllValues().get(0)).isSameAs(first);
+        Map<String, Object> delta = (Map<String, Object>) payloads.getAllValues().get(1);
+        assertThat(delta).containsEntry("delta", true)
+                .containsEntry("animalId", animalId)
+                .containsEntry("batteryLevel", 79)
+                .containsKeys("lat", "lon", "timestamp")
+                .doesNotContainKeys("animalLabel", "deviceId", "deviceImei", "zones", "activeAlerts");
+    }
+
+    @Test
+    void shouldSendToAnimalSubscriptionOnlyPositionsOfItsAnimal() {
+        UUID followed = UUID.randomUUID();
+        subscribe("s1", "/user/queue/animals/" + followed, Map.of());
+        subscribe("s1", "/user/queue/animals/" + followed + "/alerts", Map.of());
+
+        fanOut.publish(TELEPHONE, position(UUID.randomUUID(), 80));
+        fanOut.publish(TELEPHONE, position(followed, 80));
+
+        verify(messagingTemplate).convertAndSendToUser(eq(TELEPHONE), eq("/queue/animals/" + followed), any(), anyMap());
+        verify(messagingTemplate, times(1)).convertAndSendToUser(anyString(), anyString(), any(), anyMap());
+    }
+
+    @Test
+    void shouldForgetDisconnectedSession() {
+        subscribe("s1", "/user/queue/animals", Map.of());
+        fanOut.onDisconnect(new SessionDisconnectEvent(this, MessageBuilder.withPayload(new byte[0]).build(), "s1",
+                CloseStatus.NORMAL, OWNER));
+
+        fanOut.publish(TELEPHONE, position(UUID.randomUUID(), 80));
+
+        verify(messagingTemplate, never()).convertAndSendToUser(anyString(), anyString(), any(), anyMap());
+        assertThat(meterRegistry.get("telemetry.realtime.sessions").gauge().value()).isZero();
+    }
+
+    private void subscribe(String sessionId, String destination, Map<String, String> nativeHeaders) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.create(StompCommand.SUBSCRIBE);
+        accessor.setSessionId(sessionId);
+        accessor.setSubscriptionId("sub-" + destination.hashCode());
+        accessor.setDestination(destination);
+        nativeHeaders.forEach(accessor::setNativeHeader);
+        Message<byte[]> message = MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders());
+        fanOut.onSubscribe(new SessionSubscribeEvent(this, message, OWNER));
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static ArgumentCaptor<Map<String, Object>> headersCaptor() {
+        return (ArgumentCaptor) ArgumentCaptor.forClass(Map.class);
+    }
+
+    private static RealtimePositionDto position(UUID animalId, int batteryLevel) {
+        return new RealtimePositionDto(animalId, "Bessie", DEVICE_ID, "123456789012345",
+                new GeoPointDto(14.7167, -17.4677), 1.0, batteryLevel, 3, null, Instant.now(),
+                true, null, null, List.of(), List.of());
+    }
+}
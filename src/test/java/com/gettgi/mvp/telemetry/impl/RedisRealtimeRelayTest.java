@@ -0,0 +1,143 @@
+package com.gettgi.mvp.telemetry.impl;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.gettgi.mvp.config.TelemetryRealtimeProperties;
+import com.gettgi.mvp.dto.telemetry.AlertNotificationDto;
+import com.gettgi.mvp.dto.telemetry.GeoPointDto;
+import com.gettgi.mvp.dto.telemetry.RealtimePositionDto;
+import com.gettgi.mvp.entity.enums.TypeAlerte;
+import com.gettgi.mvp.push.AlertPublishedEvent;
+import com.gettgi.mvp.push.AlertsPublishedEvent;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.redis.connection.DefaultMessage;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Two backend nodes sharing a relay channel, Redis being replaced by a template that hands every published
+ * message to the listener of each node, the publisher included, as a Redis server would.
+ */
+class RedisRealtimeRelayTest {
+
+    private static final String TELEPHONE = "221770000001";
+    private static final UUID USER_ID = UUID.randomUUID();
+    private static final String CHANNEL = "telemetry:realtime";
+
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+    private final List<RedisRealtimeRelay> subscribers = new ArrayList<>();
+    private final RedisTemplate<String, String> redis = new RedisTemplate<>() {
+        @Override
+        public Long convertAndSend(String channel, Object message) {
+            byte[] body = ((String) message).getBytes(StandardCharsets.UTF_8);
+            subscribers.forEach(node -> node.onMessage(
+                    new DefaultMessage(channel.getBytes(StandardCharsets.UTF_8), body), null));
+            return (long) subscribers.size();
+        }
+    };
+
+    private Node nodeA;
+    private Node nodeB;
+
+    @BeforeEach
+    void setUp() {
+        nodeA = new Node();
+        nodeB = new Node();
+    }
+
+    @Test
+    void shouldDeliverPositionToSessionsOfEveryNode() {
+        RealtimePositionDto position = new RealtimePositionDto(UUID.randomUUID(), "Bessie", UUID.randomUUID(),
+                "123456789012345", new GeoPointDto(14.7167, -17.4677), 1.5, 80, 3, null,
+                Instant.parse("2025-10-17T16:00:00Z"), true, null, null, List.of(), List.of(TypeAlerte.BATTERIELOW));
+
+        nodeA.service.publishPosition(TELEPHONE, position);
+
+        verify(nodeA.positionFanOut).publish(TELEPHONE, position);
+        verify(nodeB.positionFanOut).publish(TELEPHONE, position);
+        assertThat(nodeA.counter("telemetry.realtime.relay.published")).isEqualTo(1);
+        assertThat(nodeA.counter("telemetry.realtime.relay.received")).isZero();
+        assertThat(nodeB.counter("telemetry.realtime.relay.received")).isEqualTo(1);
+    }
+
+    @Test
+    void shouldNotifyAlertListenersOnlyOnOriginNode() {
+        AlertNotificationDto alert = alert();
+
+        nodeA.service.publishAlert(TELEPHONE, USER_ID, alert);
+
+        verify(nodeA.messagingTemplate).convertAndSendToUser(TELEPHONE, "/queue/alerts", alert);
+        verify(nodeB.messagingTemplate).convertAndSendToUser(TELEPHONE, "/queue/alerts", alert);
+        verify(nodeA.eventPublisher).publishEvent(new AlertPublishedEvent(USER_ID, TELEPHONE, alert));
+        verify(nodeB.eventPublisher, never()).publishEvent(any());
+    }
+
+    @Test
+    void shouldRelayAlertGroups() {
+        List<AlertNotificationDto> alerts = List.of(alert(), alert());
+
+        nodeB.service.publishAlerts(TELEPHONE, USER_ID, alerts);
+
+        verify(nodeA.messagingTemplate).convertAndSendToUser(TELEPHONE, "/queue/alerts/batch", alerts);
+        verify(nodeB.messagingTemplate).convertAndSendToUser(TELEPHONE, "/queue/alerts/batch", alerts);
+        verify(nodeB.eventPublisher).publishEvent(any(AlertsPublishedEvent.class));
+        verify(nodeA.eventPublisher, never()).publishEvent(any());
+    }
+
+    @Test
+    void shouldIgnoreUnreadableMessages() {
+        nodeA.relay.onMessage(new DefaultMessage(CHANNEL.getBytes(StandardCharsets.UTF_8),
+                "not json".getBytes(StandardCharsets.UTF_8)), null);
+
+        verify(nodeA.messagingTemplate, never()).convertAndSendToUser(anyString(), anyString(), any());
+        verify(nodeA.positionFanOut, never()).publish(anyString(), any());
+        assertThat(nodeA.counter("telemetry.realtime.relay.failures")).isEqualTo(1);
+    }
+
+    private static AlertNotificationDto alert() {
+        return new AlertNotificationDto(UUID.randomUUID(), UUID.randomUUID(), UUID.randomUUID(),
+                TypeAlerte.DEVICE_OFFLINE, "Tracker hors ligne", Instant.parse("2025-10-17T16:00:00Z"),
+                false, null);
+    }
+
+    private final class Node {
+
+        final SimpMessagingTemplate messagingTemplate = mock(SimpMessagingTemplate.class);
+        final RealtimePositionFanOut positionFanOut = mock(RealtimePositionFanOut.class);
+        final ApplicationEventPublisher eventPublisher = mock(ApplicationEventPublisher.class);
+        final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        final RedisRealtimeRelay relay;
+        final RealtimeMessagingServiceImpl service;
+
+        Node() {
+            TelemetryRealtimeProperties properties = new TelemetryRealtimeProperties();
+            properties.setRelay(TelemetryRealtimeProperties.Relay.REDIS);
+            properties.setRelayChannel(CHANNEL);
+            RealtimeOutboundDispatcher dispatcher = new RealtimeOutboundDispatcher(messagingTemplate, positionFanOut,
+                    eventPublisher, properties, meterRegistry, Runnable::run);
+            relay = new RedisRealtimeRelay(redis, dispatcher, objectMapper, properties, meterRegistry);
+            service = new RealtimeMessagingServiceImpl(dispatcher, relay);
+            subscribers.add(relay);
+        }
+
+        double counter(String name) {
+            return meterRegistry.get(name).counter().count();
+        }
+    }
+}
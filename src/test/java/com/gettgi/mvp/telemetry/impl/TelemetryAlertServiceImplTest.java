@@ -2,6 +2,7 @@ package com.gettgi.mvp.telemetry.impl;
 
 import com.gettgi.mvp.config.TelemetryAlertProperties;
 import com.gettgi.mvp.dto.telemetry.AlertNotificationDto;
+import com.gettgi.mvp.dto.telemetry.GeofenceZoneDto;
 import com.gettgi.mvp.entity.Alerte;
 import com.gettgi.mvp.entity.Animal;
 import com.gettgi.mvp.entity.Device;
@@ -11,8 +12,14 @@ import com.gettgi.mvp.entity.User;
 import com.gettgi.mvp.entity.enums.StatusCollar;
 import com.gettgi.mvp.entity.enums.TypeAlerte;
 import com.gettgi.mvp.repository.AlerteRepository;
+import com.gettgi.mvp.repository.AnimalRepository;
+import com.gettgi.mvp.repository.GeofenceRepository;
+import com.gettgi.mvp.repository.UserRepository;
+import com.gettgi.mvp.telemetry.ActiveAlertRegistry;
+import com.gettgi.mvp.telemetry.DeviceSnapshot;
 import com.gettgi.mvp.telemetry.TelemetryAlertResult;
 import com.gettgi.mvp.telemetry.TelemetryAlertService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -25,13 +32,17 @@ import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.time.Instant;
 import java.util.List;
-import java.util.Optional;
 import java.util.UUID;
-import java.util.concurrent.atomic.AtomicReference;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
@@ -41,42 +52,34 @@ class TelemetryAlertServiceImplTest {
 
     @Mock
     private AlerteRepository alerteRepository;
+    @Mock
+    private AnimalRepository animalRepository;
+    @Mock
+    private UserRepository userRepository;
+    @Mock
+    private GeofenceRepository geofenceRepository;
 
     private TelemetryAlertService service;
 
     @BeforeEach
     void setUp() {
-        service = new TelemetryAlertServiceImpl(alerteRepository, new TelemetryAlertProperties());
+        ActiveAlertRegistry activeAlertRegistry = new ActiveAlertRegistryImpl(alerteRepository, new SimpleMeterRegistry());
+        service = new TelemetryAlertServiceImpl(alerteRepository, animalRepository, userRepository,
+                new TelemetryAlertProperties(), activeAlertRegistry, new PreparedGeofenceIndex(geofenceRepository, new SimpleMeterRegistry()));
     }
 
     @Test
     void shouldCreateGeofenceExitAlertWhenAnimalLeavesZone() {
-        Device device = buildDevice();
-        Animal animal = device.getAnimal();
-        Geofence geofence = buildGeofence(device.getAnimal().getUser(), "Ferme", 0, 0, 10, 10);
+        DeviceSnapshot device = buildDevice("Ferme", createBox(0, 0, 10, 10));
+        Animal animal = animalReference(device);
         Telemetry telemetry = buildTelemetry(device, createPoint(20, 20)); // outside zone
 
-        AtomicReference<List<Alerte>> activeAlerts = new AtomicReference<>(List.of());
-
-        lenient().when(alerteRepository.findTopByAnimal_IdAndTypeAlerteAndResolvedFalse(animal.getId(), TypeAlerte.GEOFENCE_EXIT))
-                .thenReturn(Optional.empty());
-        lenient().when(alerteRepository.findTopByAnimal_IdAndTypeAlerteAndResolvedFalse(animal.getId(), TypeAlerte.VOL))
-                .thenReturn(Optional.empty());
-        when(alerteRepository.save(any(Alerte.class))).thenAnswer(invocation -> {
-            Alerte alert = invocation.getArgument(0);
-            if (alert.getId() == null) {
-                alert.setId(UUID.randomUUID());
-            }
-            activeAlerts.set(alert.isResolved() ? List.of() : List.of(alert));
-            return alert;
-        });
-        when(alerteRepository.findByAnimal_IdAndResolvedFalse(animal.getId()))
-                .thenAnswer(invocation -> activeAlerts.get());
+        when(alerteRepository.findByAnimal_IdAndResolvedFalse(animal.getId())).thenReturn(List.of());
+        stubSave();
 
         TelemetryAlertResult result = service.evaluate(device, telemetry);
 
         assertThat(result.insideGeofence()).isFalse();
-        assertThat(animal.getLastPositionInsideGeofence()).isFalse();
         assertThat(result.notifications()).hasSize(1);
 
         AlertNotificationDto notification = result.notifications().get(0);
@@ -88,62 +91,39 @@ class TelemetryAlertServiceImplTest {
 
     @Test
     void shouldResolveGeofenceAlertWhenAnimalReturnsInsideZone() {
-        Device device = buildDevice();
-        Animal animal = device.getAnimal();
-        Geofence geofence = buildGeofence(device.getAnimal().getUser(), "Ferme", 0, 0, 10, 10);
+        DeviceSnapshot device = buildDevice("Ferme", createBox(0, 0, 10, 10));
+        Animal animal = animalReference(device);
         Telemetry telemetry = buildTelemetry(device, createPoint(5, 5)); // inside zone
 
-        Alerte existingAlert = buildAlert(TypeAlerte.GEOFENCE_EXIT, animal, device, false);
-        AtomicReference<List<Alerte>> activeAlerts = new AtomicReference<>(List.of(existingAlert));
-
-        when(alerteRepository.findTopByAnimal_IdAndTypeAlerteAndResolvedFalse(animal.getId(), TypeAlerte.GEOFENCE_EXIT))
-                .thenReturn(Optional.of(existingAlert));
-        lenient().when(alerteRepository.findTopByAnimal_IdAndTypeAlerteAndResolvedFalse(animal.getId(), TypeAlerte.VOL))
-                .thenReturn(Optional.empty());
-        when(alerteRepository.save(existingAlert)).thenAnswer(invocation -> {
-            Alerte alert = invocation.getArgument(0);
-            activeAlerts.set(alert.isResolved() ? List.of() : List.of(alert));
-            return alert;
-        });
-        when(alerteRepository.findByAnimal_IdAndResolvedFalse(animal.getId()))
-                .thenAnswer(invocation -> activeAlerts.get());
+        Alerte existingAlert = buildAlert(TypeAlerte.GEOFENCE_EXIT, animal, telemetry.getDevice(), false);
+        when(alerteRepository.findByAnimal_IdAndResolvedFalse(animal.getId())).thenReturn(List.of(existingAlert));
 
         TelemetryAlertResult result = service.evaluate(device, telemetry);
 
         assertThat(result.insideGeofence()).isTrue();
-        assertThat(animal.getLastPositionInsideGeofence()).isTrue();
         assertThat(result.activeAlerts()).isEmpty();
         assertThat(result.notifications()).hasSize(1);
 
         AlertNotificationDto notification = result.notifications().get(0);
+        assertThat(notification.alertId()).isEqualTo(existingAlert.getId());
         assertThat(notification.type()).isEqualTo(TypeAlerte.GEOFENCE_EXIT);
         assertThat(notification.resolved()).isTrue();
+        assertThat(notification.raisedAt()).isEqualTo(existingAlert.getTs());
         assertThat(notification.message()).contains("de retour").contains("Bessie");
+        verify(alerteRepository).resolveOpenAlerts(eq(animal.getId()), eq(TypeAlerte.GEOFENCE_EXIT),
+                eq(telemetry.getTs()), anyString(), any(Instant.class));
+        verify(alerteRepository, never()).save(any());
     }
 
     @Test
     void shouldCreateTheftAlertWhenCollarStatusIsStolen() {
-        Device device = buildDevice();
-        Animal animal = device.getAnimal();
+        DeviceSnapshot device = buildDevice(null, null);
+        Animal animal = animalReference(device);
         Telemetry telemetry = buildTelemetry(device, createPoint(5, 5));
         telemetry.setStatusCollar(StatusCollar.VOLE);
 
-        AtomicReference<List<Alerte>> activeAlerts = new AtomicReference<>(List.of());
-
-        lenient().when(alerteRepository.findTopByAnimal_IdAndTypeAlerteAndResolvedFalse(animal.getId(), TypeAlerte.GEOFENCE_EXIT))
-                .thenReturn(Optional.empty());
-        when(alerteRepository.findTopByAnimal_IdAndTypeAlerteAndResolvedFalse(animal.getId(), TypeAlerte.COLLAR_CUT))
-                .thenReturn(Optional.empty());
-        when(alerteRepository.save(any(Alerte.class))).thenAnswer(invocation -> {
-            Alerte alert = invocation.getArgument(0);
-            if (alert.getId() == null) {
-                alert.setId(UUID.randomUUID());
-            }
-            activeAlerts.set(alert.isResolved() ? List.of() : List.of(alert));
-            return alert;
-        });
-        when(alerteRepository.findByAnimal_IdAndResolvedFalse(animal.getId()))
-                .thenAnswer(invocation -> activeAlerts.get());
+        when(alerteRepository.findByAnimal_IdAndResolvedFalse(animal.getId())).thenReturn(List.of());
+        stubSave();
 
         TelemetryAlertResult result = service.evaluate(device, telemetry);
 
@@ -157,78 +137,136 @@ class TelemetryAlertServiceImplTest {
 
     @Test
     void shouldCreateBatteryLowAlertWhenBatteryDropsBelowThreshold() {
-        Device device = buildDevice();
-        Animal animal = device.getAnimal();
+        DeviceSnapshot device = buildDevice(null, null);
+        Animal animal = animalReference(device);
         Telemetry telemetry = buildTelemetry(device, createPoint(5, 5));
         telemetry.setBatteryLevel(10);
 
-        AtomicReference<List<Alerte>> activeAlerts = new AtomicReference<>(List.of());
+        when(alerteRepository.findByAnimal_IdAndResolvedFalse(animal.getId())).thenReturn(List.of());
+        stubSave();
+
+        TelemetryAlertResult result = service.evaluate(device, telemetry);
+
+        assertThat(result.notifications()).hasSize(1);
+        AlertNotificationDto notification = result.notifications().get(0);
+        assertThat(notification.type()).isEqualTo(TypeAlerte.BATTERIELOW);
+        assertThat(notification.resolved()).isFalse();
+        assertThat(notification.message()).contains("Batterie faible");
+        assertThat(result.activeAlerts()).containsExactly(TypeAlerte.BATTERIELOW);
+    }
+
+    @Test
+    void shouldNotQueryAlertsAgainWhileNothingChanges() {
+        DeviceSnapshot device = buildDevice("Ferme", createBox(0, 0, 10, 10));
+        Animal animal = animalReference(device);
+        Alerte lowBattery = buildAlert(TypeAlerte.BATTERIELOW, animal, null, false);
+        when(alerteRepository.findByAnimal_IdAndResolvedFalse(animal.getId())).thenReturn(List.of(lowBattery));
+
+        for (int i = 0; i < 3; i++) {
+            Telemetry telemetry = buildTelemetry(device, createPoint(5, 5));
+            telemetry.setBatteryLevel(15);
+            telemetry.setSpeed(0.5);
+            TelemetryAlertResult result = service.evaluate(device, telemetry);
+
+            assertThat(result.notifications()).isEmpty();
+            assertThat(result.activeAlerts()).containsExactly(TypeAlerte.BATTERIELOW);
+        }
+
+        verify(alerteRepository, times(1)).findByAnimal_IdAndResolvedFalse(animal.getId());
+        verifyNoMoreInteractions(alerteRepository);
+    }
 
-        lenient().when(alerteRepository.findTopByAnimal_IdAndTypeAlerteAndResolvedFalse(animal.getId(), TypeAlerte.GEOFENCE_EXIT))
-                .thenReturn(Optional.empty());
-        when(alerteRepository.findTopByAnimal_IdAndTypeAlerteAndResolvedFalse(animal.getId(), TypeAlerte.BATTERIELOW))
-                .thenReturn(Optional.empty());
-        when(alerteRepository.findTopByAnimal_IdAndTypeAlerteAndResolvedFalse(animal.getId(), TypeAlerte.COLLAR_CUT))
-                .thenReturn(Optional.empty());
+    @Test
+    void shouldStayInsideWhileAnyZoneContainsThePosition() {
+        DeviceSnapshot device = buildDevice(null, null);
+        Geofence pasture = geofence("Pâturage", createBox(0, 0, 10, 10));
+        Geofence barn = geofence("Étable", createBox(20, 20, 30, 30));
+        when(geofenceRepository.findAllByUser_IdOrderByCreatedAtAsc(device.ownerId())).thenReturn(List.of(pasture, barn));
+        animalReference(device);
+        stubSave();
+
+        TelemetryAlertResult inBarn = service.evaluate(device, buildTelemetry(device, createPoint(25, 25)));
+
+        assertThat(inBarn.insideGeofence()).isTrue();
+        assertThat(inBarn.geofenceId()).isEqualTo(barn.getId());
+        assertThat(inBarn.zones()).containsExactly(new GeofenceZoneDto(barn.getId(), "Étable"));
+        assertThat(inBarn.notifications()).isEmpty();
+
+        TelemetryAlertResult between = service.evaluate(device, buildTelemetry(device, createPoint(15, 15)));
+
+        assertThat(between.insideGeofence()).isFalse();
+        assertThat(between.geofenceId()).isNull();
+        assertThat(between.zones()).isEmpty();
+        assertThat(between.notifications()).singleElement()
+                .satisfies(notification -> {
+                    assertThat(notification.type()).isEqualTo(TypeAlerte.GEOFENCE_EXIT);
+                    assertThat(notification.message()).contains("hors de la zone autorisée");
+                });
+    }
 
+    private void stubSave() {
         when(alerteRepository.save(any(Alerte.class))).thenAnswer(invocation -> {
             Alerte alert = invocation.getArgument(0);
             if (alert.getId() == null) {
                 alert.setId(UUID.randomUUID());
             }
-            activeAlerts.set(alert.isResolved() ? List.of() : List.of(alert));
             return alert;
         });
-        when(alerteRepository.findByAnimal_IdAndResolvedFalse(animal.getId()))
-                .thenAnswer(invocation -> activeAlerts.get());
+    }
 
-        TelemetryAlertResult result = service.evaluate(device, telemetry);
+    private DeviceSnapshot buildDevice(String geofenceName, Polygon zone) {
+        DeviceSnapshot device = new DeviceSnapshot(
+                UUID.randomUUID(),
+                "123456789012345",
+                StatusCollar.ACTIF,
+                UUID.randomUUID(),
+                "Bessie",
+                null,
+                UUID.randomUUID(),
+                "221770000001",
+                null,
+                null
+        );
+        List<Geofence> zones = zone != null ? List.of(geofence(geofenceName, zone)) : List.of();
+        lenient().when(geofenceRepository.findAllByUser_IdOrderByCreatedAtAsc(device.ownerId())).thenReturn(zones);
+        return device;
+    }
 
-        assertThat(result.notifications()).hasSize(1);
-        AlertNotificationDto notification = result.notifications().get(0);
-        assertThat(notification.type()).isEqualTo(TypeAlerte.BATTERIELOW);
-        assertThat(notification.resolved()).isFalse();
-        assertThat(notification.message()).contains("Batterie faible");
-        assertThat(result.activeAlerts()).containsExactly(TypeAlerte.BATTERIELOW);
+    private Geofence geofence(String name, Polygon zone) {
+        Geofence geofence = new Geofence();
+        geofence.setId(UUID.randomUUID());
+        geofence.setNom(name);
+        geofence.setZone(zone);
+        geofence.setUpdatedAt(Instant.now());
+        return geofence;
     }
 
-    private Device buildDevice() {
+    private Animal animalReference(DeviceSnapshot device) {
         User user = new User();
-        user.setId(UUID.randomUUID());
+        user.setId(device.ownerId());
 
         Animal animal = new Animal();
-        animal.setId(UUID.randomUUID());
+        animal.setId(device.animalId());
         animal.setUser(user);
-        animal.setNom("Bessie");
-
-        Device device = new Device();
-        device.setId(UUID.randomUUID());
-        device.setImei("123456789012345");
-        device.setStatusCollar(StatusCollar.ACTIF);
-        device.setAnimal(animal);
-        animal.setDevice(device);
-        return device;
+        animal.setNom(device.animalNom());
+        lenient().when(animalRepository.getReferenceById(device.animalId())).thenReturn(animal);
+        lenient().when(userRepository.getReferenceById(device.ownerId())).thenReturn(user);
+        return animal;
     }
 
-    private Telemetry buildTelemetry(Device device, Point position) {
+    private Telemetry buildTelemetry(DeviceSnapshot device, Point position) {
+        Device reference = new Device();
+        reference.setId(device.deviceId());
+        reference.setImei(device.imei());
+
         Telemetry telemetry = new Telemetry();
         telemetry.setId(UUID.randomUUID());
-        telemetry.setDevice(device);
+        telemetry.setDevice(reference);
         telemetry.setPosition(position);
         telemetry.setTs(Instant.now());
         return telemetry;
     }
 
-    private Geofence buildGeofence(User user, String name, double minLon, double minLat, double maxLon, double maxLat) {
-        Geofence geofence = new Geofence();
-        geofence.setId(UUID.randomUUID());
-        geofence.setNom(name);
-        geofence.setZone(createBox(minLon, minLat, maxLon, maxLat));
-        geofence.setUser(user);
-        user.setGeofence(geofence);
-        return geofence;
-    }
-
     private Polygon createBox(double minLon, double minLat, double maxLon, double maxLat) {
         Coordinate[] coordinates = new Coordinate[]{
                 new Coordinate(minLon, minLat),
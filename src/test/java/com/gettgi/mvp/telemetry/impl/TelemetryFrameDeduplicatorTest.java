@@ -0,0 +1,96 @@
+package com.gettgi.mvp.telemetry.impl;
+
+import com.gettgi.mvp.config.TelemetryIngestProperties;
+import com.gettgi.mvp.dto.telemetry.GeoPointDto;
+import com.gettgi.mvp.dto.telemetry.TelemetryIngestDto;
+import com.gettgi.mvp.entity.enums.StatutTransmission;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TelemetryFrameDeduplicatorTest {
+
+    private static final Instant BASE_TS = Instant.parse("2025-10-17T16:00:00Z");
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void shouldRecognizeRetransmittedFrame() {
+        TelemetryFrameDeduplicator deduplicator = deduplicator(4, 10);
+
+        assertThat(deduplicator.isDuplicate(frame("A", 0, 14.5))).isFalse();
+        // a retry only differs by its transmission status
+        TelemetryIngestDto retry = new TelemetryIngestDto("A", BASE_TS, new GeoPointDto(14.5, -17.4), 1.0,
+                null, null, null, null, 80, 4, null, StatutTransmission.ACKNOWLEDGE);
+        assertThat(deduplicator.isDuplicate(retry)).isTrue();
+        assertThat(deduplicator.isDuplicate(frame("A", 0, 14.6))).isFalse();
+        assertThat(deduplicator.isDuplicate(frame("A", 1, 14.5))).isFalse();
+        assertThat(deduplicator.isDuplicate(frame("B", 0, 14.5))).isFalse();
+    }
+
+    @Test
+    void shouldOnlyRememberTheLastFramesOfEachCollar() {
+        TelemetryFrameDeduplicator deduplicator = deduplicator(2, 10);
+
+        deduplicator.isDuplicate(frame("A", 0, 14.5));
+        deduplicator.isDuplicate(frame("A", 1, 14.5));
+        deduplicator.isDuplicate(frame("A", 2, 14.5));
+
+        assertThat(deduplicator.isDuplicate(frame("A", 2, 14.5))).isTrue();
+        assertThat(deduplicator.isDuplicate(frame("A", 0, 14.5))).isFalse();
+    }
+
+    @Test
+    void shouldForgetLeastRecentlySeenCollarsBeyondTheLimit() {
+        TelemetryFrameDeduplicator deduplicator = deduplicator(4, 3);
+
+        deduplicator.isDuplicate(frame("A", 0, 14.5));
+        deduplicator.isDuplicate(frame("B", 0, 14.5));
+        deduplicator.isDuplicate(frame("C", 0, 14.5));
+        deduplicator.isDuplicate(frame("A", 1, 14.5));
+        deduplicator.isDuplicate(frame("D", 0, 14.5));
+
+        assertThat(meterRegistry.get("telemetry.ingest.dedup.devices").gauge().value()).isEqualTo(3d);
+        assertThat(deduplicator.isDuplicate(frame("A", 0, 14.5))).isTrue();
+        assertThat(deduplicator.isDuplicate(frame("B", 0, 14.5))).isFalse();
+    }
+
+    @Test
+    void forgottenFrameShouldNoLongerBeDuplicateNorTakeASlot() {
+        TelemetryFrameDeduplicator deduplicator = deduplicator(3, 10);
+
+        deduplicator.isDuplicate(frame("A", 0, 14.5));
+        deduplicator.isDuplicate(frame("A", 1, 14.5));
+        deduplicator.isDuplicate(frame("A", 2, 14.5));
+        deduplicator.forget(frame("A", 1, 14.5));
+        deduplicator.isDuplicate(frame("A", 3, 14.5));
+
+        assertThat(deduplicator.isDuplicate(frame("A", 0, 14.5))).isTrue();
+        assertThat(deduplicator.isDuplicate(frame("A", 2, 14.5))).isTrue();
+        assertThat(deduplicator.isDuplicate(frame("A", 3, 14.5))).isTrue();
+        assertThat(deduplicator.isDuplicate(frame("A", 1, 14.5))).isFalse();
+    }
+
+    @Test
+    void shouldLetEverythingThroughWhenDisabled() {
+        TelemetryFrameDeduplicator deduplicator = deduplicator(0, 10);
+
+        assertThat(deduplicator.isDuplicate(frame("A", 0, 14.5))).isFalse();
+        assertThat(deduplicator.isDuplicate(frame("A", 0, 14.5))).isFalse();
+    }
+
+    private TelemetryFrameDeduplicator deduplicator(int window, int maxDevices) {
+        TelemetryIngestProperties properties = new TelemetryIngestProperties();
+        properties.getDedup().setWindow(window);
+        properties.getDedup().setMaxDevices(maxDevices);
+        return new TelemetryFrameDeduplicator(properties, meterRegistry);
+    }
+
+    private TelemetryIngestDto frame(String imei, int secondsOffset, double latitude) {
+        return new TelemetryIngestDto(imei, BASE_TS.plusSeconds(secondsOffset), new GeoPointDto(latitude, -17.4), 1.0,
+                null, null, null, null, 80, 4, null, StatutTransmission.ENVOYE);
+    }
+}
@@ -1,19 +1,24 @@
 package com.gettgi.mvp.telemetry.impl;
 
+import com.gettgi.mvp.config.TelemetryIngestProperties;
 import com.gettgi.mvp.dto.telemetry.GeoPointDto;
 import com.gettgi.mvp.dto.telemetry.RealtimePositionDto;
 import com.gettgi.mvp.dto.telemetry.TelemetryIngestDto;
-import com.gettgi.mvp.entity.Animal;
 import com.gettgi.mvp.entity.Device;
 import com.gettgi.mvp.entity.Telemetry;
-import com.gettgi.mvp.entity.User;
 import com.gettgi.mvp.entity.enums.StatusCollar;
 import com.gettgi.mvp.entity.enums.StatutTransmission;
 import com.gettgi.mvp.repository.DeviceRepository;
+import com.gettgi.mvp.telemetry.DeviceRegistry;
+import com.gettgi.mvp.telemetry.DeviceSnapshot;
+import com.gettgi.mvp.telemetry.LivePosition;
+import com.gettgi.mvp.telemetry.LivePositionStore;
 import com.gettgi.mvp.telemetry.RealtimeMessagingService;
 import com.gettgi.mvp.telemetry.TelemetryAlertResult;
 import com.gettgi.mvp.telemetry.TelemetryAlertService;
+import com.gettgi.mvp.telemetry.TelemetryIngestMetrics;
 import com.gettgi.mvp.telemetry.TelemetryPersistenceService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -22,6 +27,8 @@ import org.locationtech.jts.geom.Point;
 import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.time.Instant;
 import java.util.List;
@@ -30,16 +37,22 @@ import java.util.UUID;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
 class TelemetryIngestionServiceImplTest {
 
+    @Mock
+    private DeviceRegistry deviceRegistry;
     @Mock
     private DeviceRepository deviceRepository;
     @Mock
+    private LivePositionStore livePositionStore;
+    @Mock
     private TelemetryAlertService telemetryAlertService;
     @Mock
     private RealtimeMessagingService realtimeMessagingService;
@@ -48,6 +61,7 @@ class TelemetryIngestionServiceImplTest {
     @Mock
     private TelemetryOfflineMonitorService telemetryOfflineMonitorService;
 
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
     private GeometryFactory geometryFactory;
     private TelemetryIngestionServiceImpl service;
 
@@ -55,22 +69,29 @@ class TelemetryIngestionServiceImplTest {
     void setUp() {
         geometryFactory = new GeometryFactory();
         service = new TelemetryIngestionServiceImpl(
+                deviceRegistry,
                 deviceRepository,
+                livePositionStore,
                 geometryFactory,
                 telemetryAlertService,
                 realtimeMessagingService,
                 telemetryPersistenceService,
-                telemetryOfflineMonitorService
+                telemetryOfflineMonitorService,
+                new TelemetryIngestProperties(),
+                new TelemetryFrameDeduplicator(new TelemetryIngestProperties(), meterRegistry),
+                new TelemetryIngestMetrics(meterRegistry),
+                meterRegistry
         );
     }
 
     @Test
     void ingestShouldPersistTelemetryAndNotifyRealtime() {
-        Device device = buildDevice();
-        Animal animal = device.getAnimal();
+        DeviceSnapshot device = buildDevice();
+        Device deviceReference = new Device();
+        deviceReference.setId(device.deviceId());
         Instant now = Instant.now();
         TelemetryIngestDto dto = new TelemetryIngestDto(
-                device.getImei(),
+                device.imei(),
                 now,
                 new GeoPointDto(14.5, -17.4),
                 12.5,
@@ -84,22 +105,24 @@ class TelemetryIngestionServiceImplTest {
                 StatutTransmission.ACKNOWLEDGE
         );
 
-        when(deviceRepository.findByImei(device.getImei())).thenReturn(Optional.of(device));
+        when(deviceRegistry.find(device.imei())).thenReturn(Optional.of(device));
+        when(deviceRepository.getReferenceById(device.deviceId())).thenReturn(deviceReference);
         TelemetryAlertResult alertResult = new TelemetryAlertResult(
                 true,
                 null,
                 null,
                 List.of(),
+                List.of(),
                 List.of()
         );
-        when(telemetryAlertService.evaluate(any(Device.class), any(Telemetry.class))).thenReturn(alertResult);
+        when(telemetryAlertService.evaluate(any(DeviceSnapshot.class), any(Telemetry.class))).thenReturn(alertResult);
 
         service.ingest(dto);
 
         ArgumentCaptor<Telemetry> telemetryCaptor = ArgumentCaptor.forClass(Telemetry.class);
         verify(telemetryPersistenceService).buffer(telemetryCaptor.capture());
         Telemetry buffered = telemetryCaptor.getValue();
-        assertThat(buffered.getDevice()).isEqualTo(device);
+        assertThat(buffered.getDevice()).isSameAs(deviceReference);
         assertThat(buffered.getSpeed()).isEqualTo(12.5);
         assertThat(buffered.getTransmissionStatus()).isEqualTo(StatutTransmission.ACKNOWLEDGE);
         assertThat(buffered.getStatusCollar()).isEqualTo(StatusCollar.VOLE);
@@ -109,20 +132,28 @@ class TelemetryIngestionServiceImplTest {
         assertThat(position.getY()).isEqualTo(14.5);
         assertThat(position.getSRID()).isEqualTo(4326);
 
-        assertThat(device.getStatusCollar()).isEqualTo(StatusCollar.VOLE);
-        assertThat(animal.getLastPosition()).isEqualTo(buffered.getPosition());
-        assertThat(animal.getLastPositionTs()).isEqualTo(now);
+        verify(deviceRepository).updateStatusCollar(device.deviceId(), StatusCollar.VOLE);
+        verify(deviceRegistry).statusCollarChanged(device.imei(), StatusCollar.VOLE);
+        ArgumentCaptor<LivePosition> liveCaptor = ArgumentCaptor.forClass(LivePosition.class);
+        verify(livePositionStore).record(eq(device.animalId()), liveCaptor.capture());
+        assertThat(liveCaptor.getValue().position()).isSameAs(buffered.getPosition());
+        assertThat(liveCaptor.getValue().ts()).isEqualTo(now);
+        assertThat(liveCaptor.getValue().insideGeofence()).isTrue();
+        assertThat(liveCaptor.getValue().batteryLevel()).isEqualTo(80);
+        verify(deviceRepository, never()).findByImei(any());
 
         ArgumentCaptor<RealtimePositionDto> positionCaptor = ArgumentCaptor.forClass(RealtimePositionDto.class);
         verify(realtimeMessagingService).publishPosition(any(), positionCaptor.capture());
         RealtimePositionDto positionDto = positionCaptor.getValue();
-        assertThat(positionDto.animalId()).isEqualTo(animal.getId());
-        assertThat(positionDto.deviceId()).isEqualTo(device.getId());
+        assertThat(positionDto.animalId()).isEqualTo(device.animalId());
+        assertThat(positionDto.deviceId()).isEqualTo(device.deviceId());
         assertThat(positionDto.collarStatus()).isEqualTo(StatusCollar.VOLE);
         assertThat(positionDto.position().latitude()).isEqualTo(14.5);
         assertThat(positionDto.position().longitude()).isEqualTo(-17.4);
 
-        verify(realtimeMessagingService, never()).publishAlert(any(), any());
+        verify(realtimeMessagingService, never()).publishAlert(any(), any(), any());
+        assertThat(frames("persisted")).isEqualTo(1d);
+        assertThat(meterRegistry.get("telemetry.ingest.lag").tag("outcome", "persisted").timer().count()).isEqualTo(1L);
     }
 
     @Test
@@ -130,7 +161,7 @@ class TelemetryIngestionServiceImplTest {
         TelemetryIngestDto dto = new TelemetryIngestDto(
                 "unknown",
                 Instant.now(),
-                new GeoPointDto(0, 0),
+                new GeoPointDto(0.0, 0.0),
                 null,
                 null,
                 null,
@@ -142,32 +173,240 @@ class TelemetryIngestionServiceImplTest {
                 null
         );
 
-        when(deviceRepository.findByImei("unknown")).thenReturn(Optional.empty());
+        when(deviceRegistry.find("unknown")).thenReturn(Optional.empty());
 
         service.ingest(dto);
 
         verify(telemetryPersistenceService, never()).buffer(any());
         verify(telemetryAlertService, never()).evaluate(any(), any());
         verify(realtimeMessagingService, never()).publishPosition(any(), any());
-        verify(realtimeMessagingService, never()).publishAlert(any(), any());
+        verify(realtimeMessagingService, never()).publishAlert(any(), any(), any());
+        verify(livePositionStore, never()).record(any(), any());
+        assertThat(frames("unknown-device")).isEqualTo(1d);
+        assertThat(frames("persisted")).isZero();
+    }
+
+    @Test
+    void ingestBatchShouldEvaluateEveryFrameInOrderAndPublishOnlyTheLatest() {
+        DeviceSnapshot device = buildDevice();
+        Device deviceReference = new Device();
+        deviceReference.setId(device.deviceId());
+        Instant start = Instant.parse("2025-10-17T16:00:00Z");
+        TelemetryIngestDto latest = frame(device.imei(), start.plusSeconds(20), 14.52, StatusCollar.VOLE);
+        TelemetryIngestDto first = frame(device.imei(), start, 14.50, null);
+        TelemetryIngestDto second = frame(device.imei(), start.plusSeconds(10), 14.51, null);
+
+        when(deviceRegistry.find(device.imei())).thenReturn(Optional.of(device));
+        when(deviceRepository.getReferenceById(device.deviceId())).thenReturn(deviceReference);
+        when(telemetryAlertService.evaluate(any(DeviceSnapshot.class), any(Telemetry.class)))
+                .thenReturn(new TelemetryAlertResult(true, null, null, List.of(), List.of(), List.of()));
+
+        service.ingestBatch(List.of(latest, first, second));
+
+        verify(deviceRegistry, times(1)).find(device.imei());
+        ArgumentCaptor<Telemetry> evaluated = ArgumentCaptor.forClass(Telemetry.class);
+        verify(telemetryAlertService, times(3)).evaluate(any(DeviceSnapshot.class), evaluated.capture());
+        assertThat(evaluated.getAllValues()).extracting(Telemetry::getTs)
+                .containsExactly(start, start.plusSeconds(10), start.plusSeconds(20));
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<Telemetry>> buffered = ArgumentCaptor.forClass(List.class);
+        verify(telemetryPersistenceService).bufferAll(buffered.capture());
+        verify(telemetryPersistenceService, never()).buffer(any());
+        assertThat(buffered.getValue()).extracting(Telemetry::getStatusCollar)
+                .containsExactly(StatusCollar.ACTIF, StatusCollar.ACTIF, StatusCollar.VOLE);
+
+        verify(deviceRepository, times(1)).updateStatusCollar(device.deviceId(), StatusCollar.VOLE);
+        ArgumentCaptor<LivePosition> liveCaptor = ArgumentCaptor.forClass(LivePosition.class);
+        verify(livePositionStore, times(1)).record(eq(device.animalId()), liveCaptor.capture());
+        assertThat(liveCaptor.getValue().ts()).isEqualTo(start.plusSeconds(20));
+        ArgumentCaptor<RealtimePositionDto> positionCaptor = ArgumentCaptor.forClass(RealtimePositionDto.class);
+        verify(realtimeMessagingService, times(1)).publishPosition(any(), positionCaptor.capture());
+        assertThat(positionCaptor.getValue().position().latitude()).isEqualTo(14.52);
+        verify(telemetryOfflineMonitorService, times(1)).trackerReported(device, start.plusSeconds(20));
+        assertThat(frames("persisted")).isEqualTo(3d);
+    }
+
+    @Test
+    void ingestBatchShouldCountEveryFrameOfUnknownDevice() {
+        when(deviceRegistry.find("unknown")).thenReturn(Optional.empty());
+        Instant now = Instant.now();
+
+        service.ingestBatch(List.of(frame("unknown", now, 0.0, null), frame("unknown", now.plusSeconds(1), 0.0, null)));
+
+        verify(deviceRegistry, times(1)).find("unknown");
+        verify(telemetryPersistenceService, never()).bufferAll(any());
+        assertThat(frames("unknown-device")).isEqualTo(2d);
+    }
+
+    @Test
+    void lateFrameShouldBePersistedWithoutTouchingLiveState() {
+        DeviceSnapshot device = buildDevice();
+        Device deviceReference = new Device();
+        deviceReference.setId(device.deviceId());
+        Instant start = Instant.parse("2025-10-17T16:00:00Z");
+
+        when(deviceRegistry.find(device.imei())).thenReturn(Optional.of(device));
+        when(deviceRepository.getReferenceById(device.deviceId())).thenReturn(deviceReference);
+        when(telemetryAlertService.evaluate(any(DeviceSnapshot.class), any(Telemetry.class)))
+                .thenReturn(new TelemetryAlertResult(true, null, null, List.of(), List.of(), List.of()));
+
+        service.ingest(frame(device.imei(), start.plusSeconds(60), 14.52, null));
+        // 5 s behind the watermark: reordered; 60 s behind it: late
+        service.ingest(frame(device.imei(), start.plusSeconds(55), 14.51, StatusCollar.VOLE));
+        service.ingest(frame(device.imei(), start, 14.50, null));
+
+        verify(telemetryAlertService, times(1)).evaluate(any(DeviceSnapshot.class), any(Telemetry.class));
+        verify(livePositionStore, times(1)).record(any(), any());
+        verify(realtimeMessagingService, times(1)).publishPosition(any(), any());
+        verify(deviceRepository, never()).updateStatusCollar(any(), any());
+        verify(telemetryOfflineMonitorService, times(1)).trackerReported(any(), any());
+        ArgumentCaptor<Telemetry> buffered = ArgumentCaptor.forClass(Telemetry.class);
+        verify(telemetryPersistenceService, times(3)).buffer(buffered.capture());
+        assertThat(buffered.getAllValues()).extracting(Telemetry::getTs)
+                .containsExactly(start.plusSeconds(60), start.plusSeconds(55), start);
+        assertThat(frames("persisted")).isEqualTo(2d);
+        assertThat(frames("late")).isEqualTo(1d);
+        assertThat(meterRegistry.get("telemetry.ingest.reordered").counter().count()).isEqualTo(1d);
+    }
+
+    @Test
+    void batchShouldOnlyApplyFramesAheadOfTheWatermark() {
+        DeviceSnapshot device = buildDevice();
+        Device deviceReference = new Device();
+        deviceReference.setId(device.deviceId());
+        Instant start = Instant.parse("2025-10-17T16:00:00Z");
+
+        when(deviceRegistry.find(device.imei())).thenReturn(Optional.of(device));
+        when(deviceRepository.getReferenceById(device.deviceId())).thenReturn(deviceReference);
+        when(telemetryAlertService.evaluate(any(DeviceSnapshot.class), any(Telemetry.class)))
+                .thenReturn(new TelemetryAlertResult(true, null, null, List.of(), List.of(), List.of()));
+
+        service.ingest(frame(device.imei(), start.plusSeconds(60), 14.52, null));
+        service.ingestBatch(List.of(frame(device.imei(), start, 14.50, null),
+                frame(device.imei(), start.plusSeconds(120), 14.53, null)));
+
+        ArgumentCaptor<Telemetry> evaluated = ArgumentCaptor.forClass(Telemetry.class);
+        verify(telemetryAlertService, times(2)).evaluate(any(DeviceSnapshot.class), evaluated.capture());
+        assertThat(evaluated.getAllValues()).extracting(Telemetry::getTs)
+                .containsExactly(start.plusSeconds(60), start.plusSeconds(120));
+        ArgumentCaptor<LivePosition> liveCaptor = ArgumentCaptor.forClass(LivePosition.class);
+        verify(livePositionStore, times(2)).record(eq(device.animalId()), liveCaptor.capture());
+        assertThat(liveCaptor.getValue().ts()).isEqualTo(start.plusSeconds(120));
+        assertThat(frames("late")).isEqualTo(1d);
     }
 
-    private Device buildDevice() {
-        User user = new User();
-        user.setId(UUID.randomUUID());
-        user.setTelephone("221770000001");
-
-        Animal animal = new Animal();
-        animal.setId(UUID.randomUUID());
-        animal.setNom("Test");
-        animal.setUser(user);
-
-        Device device = new Device();
-        device.setId(UUID.randomUUID());
-        device.setImei("123456789012345");
-        device.setStatusCollar(StatusCollar.ACTIF);
-        device.setAnimal(animal);
-        animal.setDevice(device);
-        return device;
+    @Test
+    void duplicateFrameShouldBeDroppedBeforeAnyLookup() {
+        DeviceSnapshot device = buildDevice();
+        Device deviceReference = new Device();
+        deviceReference.setId(device.deviceId());
+        Instant now = Instant.now();
+
+        when(deviceRegistry.find(device.imei())).thenReturn(Optional.of(device));
+        when(deviceRepository.getReferenceById(device.deviceId())).thenReturn(deviceReference);
+        when(telemetryAlertService.evaluate(any(DeviceSnapshot.class), any(Telemetry.class)))
+                .thenReturn(new TelemetryAlertResult(true, null, null, List.of(), List.of(), List.of()));
+
+        service.ingest(frame(device.imei(), now, 14.5, null));
+        service.ingest(frame(device.imei(), now, 14.5, null));
+        service.ingestBatch(List.of(frame(device.imei(), now, 14.5, null), frame(device.imei(), now, 14.5, null)));
+
+        verify(deviceRegistry, times(1)).find(device.imei());
+        verify(telemetryAlertService, times(1)).evaluate(any(DeviceSnapshot.class), any(Telemetry.class));
+        verify(telemetryPersistenceService, times(1)).buffer(any());
+        verify(telemetryPersistenceService, never()).bufferAll(any());
+        assertThat(frames("duplicate")).isEqualTo(3d);
+    }
+
+    @Test
+    void frameOfARolledBackIngestShouldBeAcceptedAgain() {
+        DeviceSnapshot device = buildDevice();
+        Device deviceReference = new Device();
+        deviceReference.setId(device.deviceId());
+        Instant now = Instant.now();
+
+        when(deviceRegistry.find(device.imei())).thenReturn(Optional.of(device));
+        when(deviceRepository.getReferenceById(device.deviceId())).thenReturn(deviceReference);
+        when(telemetryAlertService.evaluate(any(DeviceSnapshot.class), any(Telemetry.class)))
+                .thenReturn(new TelemetryAlertResult(true, null, null, List.of(), List.of(), List.of()));
+
+        inTransaction(TransactionSynchronization.STATUS_ROLLED_BACK,
+                () -> service.ingest(frame(device.imei(), now, 14.5, null)));
+        inTransaction(TransactionSynchronization.STATUS_COMMITTED,
+                () -> service.ingest(frame(device.imei(), now, 14.5, null)));
+        service.ingest(frame(device.imei(), now, 14.5, null));
+
+        verify(telemetryAlertService, times(2)).evaluate(any(DeviceSnapshot.class), any(Telemetry.class));
+        // the point of the rolled back ingest never reached persistence: the resent frame is stored once
+        verify(telemetryPersistenceService, times(1)).buffer(any());
+        verify(livePositionStore, times(1)).record(eq(device.animalId()), any(LivePosition.class));
+        assertThat(frames("duplicate")).isEqualTo(1d);
+        assertThat(frames("persisted")).isEqualTo(1d);
+    }
+
+    @Test
+    void rolledBackFrameShouldNotAdvanceTheWatermark() {
+        DeviceSnapshot device = buildDevice();
+        Device deviceReference = new Device();
+        deviceReference.setId(device.deviceId());
+        Instant now = Instant.now();
+
+        when(deviceRegistry.find(device.imei())).thenReturn(Optional.of(device));
+        when(deviceRepository.getReferenceById(device.deviceId())).thenReturn(deviceReference);
+        when(telemetryAlertService.evaluate(any(DeviceSnapshot.class), any(Telemetry.class)))
+                .thenReturn(new TelemetryAlertResult(true, null, null, List.of(), List.of(), List.of()));
+
+        inTransaction(TransactionSynchronization.STATUS_ROLLED_BACK,
+                () -> service.ingest(frame(device.imei(), now, 14.5, null)));
+        // an older frame, then the resent one: both are live since the rolled back frame left no watermark
+        service.ingest(frame(device.imei(), now.minusSeconds(30), 14.4, null));
+        service.ingest(frame(device.imei(), now, 14.5, null));
+
+        verify(telemetryAlertService, times(3)).evaluate(any(DeviceSnapshot.class), any(Telemetry.class));
+        // the rolled back frame never became the live position
+        verify(livePositionStore, times(2)).record(eq(device.animalId()), any(LivePosition.class));
+        assertThat(frames("late")).isZero();
+    }
+
+    /**
+     * Runs {@code work} with transaction synchronization active, then completes it with {@code status}.
+     */
+    private static void inTransaction(int status, Runnable work) {
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            work.run();
+            List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+            if (status == TransactionSynchronization.STATUS_COMMITTED) {
+                synchronizations.forEach(TransactionSynchronization::afterCommit);
+            }
+            synchronizations.forEach(synchronization -> synchronization.afterCompletion(status));
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    private TelemetryIngestDto frame(String imei, Instant timestamp, double latitude, StatusCollar statusCollar) {
+        return new TelemetryIngestDto(imei, timestamp, new GeoPointDto(latitude, -17.4), 1.0,
+                null, null, null, null, 80, 4, statusCollar, null);
+    }
+
+    private double frames(String outcome) {
+        return meterRegistry.get("telemetry.ingest.frames").tag("outcome", outcome).counter().count();
+    }
+
+    private DeviceSnapshot buildDevice() {
+        return new DeviceSnapshot(
+                UUID.randomUUID(),
+                "123456789012345",
+                StatusCollar.ACTIF,
+                UUID.randomUUID(),
+                "Test",
+                null,
+                UUID.randomUUID(),
+                "221770000001",
+                null,
+                null
+        );
     }
 }
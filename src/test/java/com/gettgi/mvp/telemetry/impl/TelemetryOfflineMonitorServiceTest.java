@@ -1,6 +1,7 @@
 package com.gettgi.mvp.telemetry.impl;
 
 import com.gettgi.mvp.config.TelemetryOfflineProperties;
+import com.gettgi.mvp.dto.telemetry.AlertNotificationDto;
 import com.gettgi.mvp.entity.Alerte;
 import com.gettgi.mvp.entity.Animal;
 import com.gettgi.mvp.entity.Device;
@@ -8,23 +9,38 @@ import com.gettgi.mvp.entity.User;
 import com.gettgi.mvp.entity.enums.TypeAlerte;
 import com.gettgi.mvp.repository.AlerteRepository;
 import com.gettgi.mvp.repository.AnimalRepository;
+import com.gettgi.mvp.telemetry.AlertBatchWriter;
+import com.gettgi.mvp.telemetry.DeviceSnapshot;
+import com.gettgi.mvp.telemetry.LivePosition;
+import com.gettgi.mvp.telemetry.LivePositionStore;
 import com.gettgi.mvp.telemetry.RealtimeMessagingService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.time.Duration;
 import java.time.Instant;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -34,68 +50,99 @@ class TelemetryOfflineMonitorServiceTest {
     @Mock
     private AnimalRepository animalRepository;
     @Mock
+    private LivePositionStore livePositionStore;
+    @Mock
     private AlerteRepository alerteRepository;
     @Mock
+    private AlertBatchWriter alertBatchWriter;
+    @Mock
     private RealtimeMessagingService realtimeMessagingService;
 
+    private final AtomicLong clock = new AtomicLong(System.currentTimeMillis());
+    private ActiveAlertRegistryImpl activeAlertRegistry;
     private TelemetryOfflineMonitorService service;
 
     @BeforeEach
     void setUp() {
         TelemetryOfflineProperties properties = new TelemetryOfflineProperties();
         properties.setThreshold(Duration.ofMinutes(5));
-        properties.setCheckInterval(Duration.ofMinutes(1));
-        service = new TelemetryOfflineMonitorService(properties, animalRepository, alerteRepository, realtimeMessagingService);
+        properties.setTick(Duration.ofSeconds(1));
+        properties.setCheckInterval(Duration.ofMinutes(15));
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        activeAlertRegistry = new ActiveAlertRegistryImpl(alerteRepository, meterRegistry);
+        service = new TelemetryOfflineMonitorService(properties, animalRepository, alerteRepository, alertBatchWriter,
+                realtimeMessagingService, activeAlertRegistry, livePositionStore, meterRegistry, clock::get);
+    }
+
+    @AfterEach
+    void clearSynchronization() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
     }
 
     @Test
     void shouldCreateOfflineAlertWhenLastTelemetryIsTooOld() {
-        User user = new User();
-        user.setId(UUID.randomUUID());
-        user.setTelephone("221770000001");
+        Animal animal = animal(owner("221770000001"));
+        animal.setLastPositionTs(Instant.now().minus(Duration.ofMinutes(10)));
 
-        Device device = new Device();
-        device.setId(UUID.randomUUID());
-        device.setImei("123456789012345");
+        when(animalRepository.findSilentAnimalsWithoutOpenAlert(any(Instant.class), eq(TypeAlerte.DEVICE_OFFLINE)))
+                .thenReturn(List.of(animal));
+        assignIdsOnInsert();
 
-        Animal animal = new Animal();
-        animal.setId(UUID.randomUUID());
-        animal.setNom("Bessie");
-        animal.setUser(user);
-        animal.setDevice(device);
-        animal.setLastPositionTs(Instant.now().minus(Duration.ofMinutes(10)));
+        service.checkOfflineTrackers();
+
+        ArgumentCaptor<List<AlertNotificationDto>> published = listCaptor();
+        verify(realtimeMessagingService).publishAlerts(eq("221770000001"), any(), published.capture());
+        assertThat(published.getValue()).singleElement()
+                .satisfies(alert -> assertThat(alert.type()).isEqualTo(TypeAlerte.DEVICE_OFFLINE));
+    }
+
+    @Test
+    void shouldInsertAlertsInOneBatchAndGroupNotificationsByOwner() {
+        User first = owner("221770000001");
+        User second = owner("221770000002");
+        List<Animal> animals = List.of(animal(first), animal(second), animal(first));
+        animals.forEach(animal -> animal.setLastPositionTs(Instant.now().minus(Duration.ofMinutes(10))));
 
-        when(animalRepository.findAnimalsWithLastTelemetryBefore(any(Instant.class))).thenReturn(List.of(animal));
-        when(alerteRepository.findTopByAnimal_IdAndTypeAlerteAndResolvedFalse(animal.getId(), TypeAlerte.DEVICE_OFFLINE))
-                .thenReturn(Optional.empty());
-        when(alerteRepository.save(any(Alerte.class))).thenAnswer(invocation -> {
-            Alerte alert = invocation.getArgument(0);
-            if (alert.getId() == null) {
-                alert.setId(UUID.randomUUID());
-            }
-            return alert;
-        });
+        when(animalRepository.findSilentAnimalsWithoutOpenAlert(any(Instant.class), eq(TypeAlerte.DEVICE_OFFLINE)))
+                .thenReturn(animals);
+        assignIdsOnInsert();
 
         service.checkOfflineTrackers();
 
-        verify(realtimeMessagingService).publishAlert(anyString(), any());
+        ArgumentCaptor<List<Alerte>> inserted = listCaptor();
+        verify(alertBatchWriter).insert(inserted.capture());
+        assertThat(inserted.getValue()).hasSize(3);
+        ArgumentCaptor<List<AlertNotificationDto>> published = listCaptor();
+        verify(realtimeMessagingService).publishAlerts(eq("221770000001"), any(), published.capture());
+        assertThat(published.getValue()).hasSize(2);
+        verify(realtimeMessagingService).publishAlerts(eq("221770000002"), any(), anyList());
+        verify(realtimeMessagingService, never()).publishAlert(anyString(), any(), any());
+        verify(alerteRepository, never()).save(any());
     }
 
     @Test
-    void shouldResolveOfflineAlertWhenTelemetryArrives() {
-        User user = new User();
-        user.setId(UUID.randomUUID());
-        user.setTelephone("221770000001");
+    void shouldTrustInMemoryPositionNotWrittenYet() {
+        Animal animal = animal(owner("221770000001"));
+        animal.setLastPositionTs(Instant.now().minus(Duration.ofMinutes(10)));
 
-        Device device = new Device();
-        device.setId(UUID.randomUUID());
-        device.setImei("123456789012345");
+        when(animalRepository.findSilentAnimalsWithoutOpenAlert(any(Instant.class), eq(TypeAlerte.DEVICE_OFFLINE)))
+                .thenReturn(List.of(animal));
+        when(livePositionStore.find(animal.getId())).thenReturn(Optional.of(new LivePosition(animal.getDevice().getId(),
+                null, Instant.now().minusSeconds(3), true, null, null, null, null)));
 
-        Animal animal = new Animal();
-        animal.setId(UUID.randomUUID());
-        animal.setNom("Bessie");
-        animal.setUser(user);
-        animal.setDevice(device);
+        service.checkOfflineTrackers();
+
+        verify(alertBatchWriter, never()).insert(anyList());
+        verify(realtimeMessagingService, never()).publishAlerts(anyString(), any(), anyList());
+    }
+
+    @Test
+    void shouldResolveOfflineAlertWhenTelemetryArrives() {
+        User user = owner("221770000001");
+        Animal animal = animal(user);
+        Device device = animal.getDevice();
 
         Alerte existing = new Alerte();
         existing.setId(UUID.randomUUID());
@@ -106,42 +153,154 @@ class TelemetryOfflineMonitorServiceTest {
         existing.setAnimal(animal);
         existing.setDevice(device);
 
-        when(alerteRepository.findTopByAnimal_IdAndTypeAlerteAndResolvedFalse(animal.getId(), TypeAlerte.DEVICE_OFFLINE))
-                .thenReturn(Optional.of(existing));
-        when(alerteRepository.save(existing)).thenAnswer(invocation -> invocation.getArgument(0));
+        when(alerteRepository.findByAnimal_IdAndResolvedFalse(animal.getId())).thenReturn(List.of(existing));
 
         Instant telemetryTs = Instant.now();
-        service.resolveIfTrackerBackOnline(animal, device, telemetryTs);
+        DeviceSnapshot snapshot = snapshotOf(animal, device);
+        service.trackerReported(snapshot, telemetryTs);
+        service.trackerReported(snapshot, telemetryTs.plusSeconds(30));
 
-        assertThat(existing.isResolved()).isTrue();
-        assertThat(existing.getResolvedAt()).isEqualTo(telemetryTs);
-        verify(realtimeMessagingService).publishAlert(anyString(), any());
+        verify(alerteRepository).resolveOpenAlerts(eq(animal.getId()), eq(TypeAlerte.DEVICE_OFFLINE),
+                eq(telemetryTs), anyString(), any(Instant.class));
+        ArgumentCaptor<AlertNotificationDto> notification = ArgumentCaptor.forClass(AlertNotificationDto.class);
+        verify(realtimeMessagingService).publishAlert(eq("221770000001"), any(), notification.capture());
+        assertThat(notification.getValue().alertId()).isEqualTo(existing.getId());
+        assertThat(notification.getValue().resolved()).isTrue();
+        assertThat(notification.getValue().resolvedAt()).isEqualTo(telemetryTs);
+        // the second frame finds the tracker online in memory
+        verify(alerteRepository, times(1)).findByAnimal_IdAndResolvedFalse(animal.getId());
     }
 
     @Test
-    void shouldNotCreateOfflineAlertWhenAlreadyActive() {
+    void shouldRaiseOfflineAlertWhenDeadlineExpiresWithoutScan() {
+        Animal animal = animal(owner("221770000001"));
+
+        when(alerteRepository.findByAnimal_IdAndResolvedFalse(animal.getId())).thenReturn(List.of());
+        when(animalRepository.findAllWithOwnerAndDeviceByIdIn(any())).thenReturn(List.of(animal));
+        assignIdsOnInsert();
+
+        DeviceSnapshot snapshot = snapshotOf(animal, animal.getDevice());
+        service.trackerReported(snapshot, Instant.ofEpochMilli(clock.get()));
+        clock.addAndGet(Duration.ofMinutes(4).toMillis());
+        // a frame one minute before the threshold postpones the deadline
+        service.trackerReported(snapshot, Instant.ofEpochMilli(clock.get()));
+        clock.addAndGet(Duration.ofMinutes(2).toMillis());
+        service.expireSilentTrackers();
+
+        verify(alertBatchWriter, never()).insert(anyList());
+
+        clock.addAndGet(Duration.ofMinutes(3).plusSeconds(1).toMillis());
+        service.expireSilentTrackers();
+        service.expireSilentTrackers();
+
+        ArgumentCaptor<List<Alerte>> inserted = listCaptor();
+        verify(alertBatchWriter).insert(inserted.capture());
+        assertThat(inserted.getValue()).singleElement()
+                .satisfies(alert -> assertThat(alert.getTypeAlerte()).isEqualTo(TypeAlerte.DEVICE_OFFLINE));
+        verify(realtimeMessagingService).publishAlerts(eq("221770000001"), any(), anyList());
+        verify(animalRepository, never()).findSilentAnimalsWithoutOpenAlert(any(), any());
+    }
+
+    @Test
+    void shouldNotRaiseExpiredDeadlineOfAlreadyOfflineTracker() {
+        Animal animal = animal(owner("221770000001"));
+
+        when(alerteRepository.findByAnimal_IdAndResolvedFalse(animal.getId())).thenReturn(List.of());
+        service.trackerReported(snapshotOf(animal, animal.getDevice()), Instant.ofEpochMilli(clock.get()));
+        // raised meanwhile by the reconciliation sweep of another node
+        activeAlertRegistry.opened(animal.getId(), TypeAlerte.DEVICE_OFFLINE, UUID.randomUUID(), Instant.now());
+
+        clock.addAndGet(Duration.ofMinutes(6).toMillis());
+        service.expireSilentTrackers();
+
+        verify(animalRepository, never()).findAllWithOwnerAndDeviceByIdIn(any());
+        verify(alertBatchWriter, never()).insert(anyList());
+    }
+
+    @Test
+    void shouldResolveOfflineAlertRaisedWhileAFrameArrivedOnceItCommitted() {
+        Animal animal = animal(owner("221770000001"));
+        DeviceSnapshot snapshot = snapshotOf(animal, animal.getDevice());
+
+        when(alerteRepository.findByAnimal_IdAndResolvedFalse(animal.getId())).thenReturn(List.of());
+        when(animalRepository.findAllWithOwnerAndDeviceByIdIn(any())).thenReturn(List.of(animal));
+        assignIdsOnInsert();
+        service.trackerReported(snapshot, Instant.ofEpochMilli(clock.get()));
+        clock.addAndGet(Duration.ofMinutes(6).toMillis());
+
+        TransactionSynchronizationManager.initSynchronization();
+        service.expireSilentTrackers();
+        // the collar reports on its ingest partition before the insert commits
+        CompletableFuture.runAsync(() -> service.trackerReported(snapshot, Instant.ofEpochMilli(clock.get()))).join();
+        verify(alerteRepository, never()).resolveOpenAlerts(any(), any(), any(), anyString(), any());
+        assertThat(activeAlertRegistry.get(animal.getId()).isOpen(TypeAlerte.DEVICE_OFFLINE)).isFalse();
+
+        List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        TransactionSynchronizationManager.clearSynchronization();
+        synchronizations.forEach(synchronization -> synchronization.afterCompletion(TransactionSynchronization.STATUS_COMMITTED));
+        assertThat(activeAlertRegistry.get(animal.getId()).isOpen(TypeAlerte.DEVICE_OFFLINE)).isTrue();
+
+        Instant nextFrame = Instant.ofEpochMilli(clock.get()).plusSeconds(30);
+        service.trackerReported(snapshot, nextFrame);
+
+        verify(alerteRepository).resolveOpenAlerts(eq(animal.getId()), eq(TypeAlerte.DEVICE_OFFLINE),
+                eq(nextFrame), anyString(), any(Instant.class));
+        assertThat(activeAlertRegistry.get(animal.getId()).isOpen(TypeAlerte.DEVICE_OFFLINE)).isFalse();
+    }
+
+    @Test
+    void shouldIgnoreExpiredDeadlineOfCollarMovedToAnotherAnimal() {
+        Animal animal = animal(owner("221770000001"));
+
+        when(alerteRepository.findByAnimal_IdAndResolvedFalse(animal.getId())).thenReturn(List.of());
+        service.trackerReported(snapshotOf(animal, animal.getDevice()), Instant.ofEpochMilli(clock.get()));
+
+        Device replacement = new Device();
+        replacement.setId(UUID.randomUUID());
+        animal.setDevice(replacement);
+        when(animalRepository.findAllWithOwnerAndDeviceByIdIn(any())).thenReturn(List.of(animal));
+
+        clock.addAndGet(Duration.ofMinutes(6).toMillis());
+        service.expireSilentTrackers();
+
+        verify(alertBatchWriter, never()).insert(anyList());
+    }
+
+    private void assignIdsOnInsert() {
+        doAnswer(invocation -> {
+            List<Alerte> alerts = invocation.getArgument(0);
+            alerts.forEach(alert -> alert.setId(UUID.randomUUID()));
+            return null;
+        }).when(alertBatchWriter).insert(anyList());
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static <T> ArgumentCaptor<List<T>> listCaptor() {
+        return (ArgumentCaptor) ArgumentCaptor.forClass(List.class);
+    }
+
+    private static User owner(String telephone) {
         User user = new User();
         user.setId(UUID.randomUUID());
-        user.setTelephone("221770000001");
+        user.setTelephone(telephone);
+        return user;
+    }
 
+    private static Animal animal(User owner) {
         Device device = new Device();
         device.setId(UUID.randomUUID());
         device.setImei("123456789012345");
 
         Animal animal = new Animal();
         animal.setId(UUID.randomUUID());
-        animal.setUser(user);
+        animal.setNom("Bessie");
+        animal.setUser(owner);
         animal.setDevice(device);
-        animal.setLastPositionTs(Instant.now().minus(Duration.ofMinutes(10)));
-
-        when(animalRepository.findAnimalsWithLastTelemetryBefore(any(Instant.class))).thenReturn(List.of(animal));
-        when(alerteRepository.findTopByAnimal_IdAndTypeAlerteAndResolvedFalse(animal.getId(), TypeAlerte.DEVICE_OFFLINE))
-                .thenReturn(Optional.of(new Alerte()));
-
-        service.checkOfflineTrackers();
+        return animal;
+    }
 
-        verify(realtimeMessagingService, never()).publishAlert(anyString(), any());
-        verify(alerteRepository, never()).save(any());
+    private DeviceSnapshot snapshotOf(Animal animal, Device device) {
+        device.setAnimal(animal);
+        return DeviceSnapshot.of(device);
     }
 }
-
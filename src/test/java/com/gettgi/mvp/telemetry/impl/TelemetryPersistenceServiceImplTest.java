@@ -0,0 +1,260 @@
+package com.gettgi.mvp.telemetry.impl;
+
+import com.gettgi.mvp.config.TelemetryPersistenceProperties;
+import com.gettgi.mvp.entity.Device;
+import com.gettgi.mvp.entity.Telemetry;
+import com.gettgi.mvp.entity.enums.StatusCollar;
+import com.gettgi.mvp.entity.enums.StatutTransmission;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.locationtech.jts.geom.Coordinate;
+import org.locationtech.jts.geom.GeometryFactory;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TelemetryPersistenceServiceImplTest {
+
+    private static final GeometryFactory GEOMETRY_FACTORY = new GeometryFactory();
+    private static final Instant BASE_TS = Instant.parse("2025-10-17T16:00:00Z");
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final List<List<Telemetry>> writtenBatches = new ArrayList<>();
+
+    @Test
+    void latestModeShouldKeepOnlyLastPointPerDevice() {
+        TelemetryPersistenceServiceImpl service = service(TelemetryPersistenceProperties.Mode.LATEST, 100, 10);
+        Device device = device();
+
+        service.buffer(telemetry(device, 0));
+        service.buffer(telemetry(device, 1));
+        service.flush();
+
+        assertThat(writtenBatches).hasSize(1);
+        assertThat(writtenBatches.get(0)).extracting(Telemetry::getTs).containsExactly(BASE_TS.plusSeconds(1));
+        assertThat(meterRegistry.get("telemetry.persistence.coalesced").counter().count()).isEqualTo(1d);
+    }
+
+    @Test
+    void latestModeShouldNotReplaceNewerPointWithLateOne() {
+        TelemetryPersistenceServiceImpl service = service(TelemetryPersistenceProperties.Mode.LATEST, 100, 10);
+        Device device = device();
+
+        service.buffer(telemetry(device, 5));
+        service.buffer(telemetry(device, 1));
+        service.flush();
+
+        assertThat(writtenBatches.get(0)).extracting(Telemetry::getTs).containsExactly(BASE_TS.plusSeconds(5));
+        assertThat(meterRegistry.get("telemetry.persistence.coalesced").counter().count()).isEqualTo(1d);
+    }
+
+    @Test
+    void appendModeShouldWriteEveryPointInOrderAndInBatches() {
+        TelemetryPersistenceServiceImpl service = service(TelemetryPersistenceProperties.Mode.APPEND, 100, 2);
+        Device device = device();
+
+        for (int i = 0; i < 5; i++) {
+            service.buffer(telemetry(device, i));
+        }
+        service.flush();
+
+        assertThat(writtenBatches).extracting(List::size).containsExactly(2, 2, 1);
+        assertThat(writtenBatches.stream().flatMap(List::stream).map(Telemetry::getTs))
+                .containsExactly(BASE_TS, BASE_TS.plusSeconds(1), BASE_TS.plusSeconds(2), BASE_TS.plusSeconds(3), BASE_TS.plusSeconds(4));
+        assertThat(meterRegistry.get("telemetry.persistence.written").counter().count()).isEqualTo(5d);
+    }
+
+    @Test
+    void appendModeShouldDropOldestPointsWhenFull() {
+        TelemetryPersistenceServiceImpl service = service(TelemetryPersistenceProperties.Mode.APPEND, 3, 10);
+        Device device = device();
+
+        for (int i = 0; i < 5; i++) {
+            service.buffer(telemetry(device, i));
+        }
+        service.flush();
+
+        assertThat(writtenBatches.get(0)).extracting(Telemetry::getTs)
+                .containsExactly(BASE_TS.plusSeconds(2), BASE_TS.plusSeconds(3), BASE_TS.plusSeconds(4));
+        assertThat(meterRegistry.get("telemetry.persistence.dropped").tag("reason", "overflow").counter().count())
+                .isEqualTo(2d);
+    }
+
+    @Test
+    void shouldKeepRemainingPointsBufferedWhenWriteFails() {
+        TelemetryPersistenceProperties properties = properties(TelemetryPersistenceProperties.Mode.APPEND, 100, 2);
+        TelemetryPersistenceServiceImpl service = new TelemetryPersistenceServiceImpl(batch -> {
+            throw new IllegalStateException("database unavailable");
+        }, properties, meterRegistry);
+        Device device = device();
+
+        for (int i = 0; i < 5; i++) {
+            service.buffer(telemetry(device, i));
+        }
+        service.flush();
+
+        assertThat(meterRegistry.get("telemetry.persistence.dropped").tag("reason", "write-failure").counter().count())
+                .isEqualTo(2d);
+        assertThat(meterRegistry.get("telemetry.persistence.buffer.size").gauge().value()).isEqualTo(3d);
+    }
+
+    @Test
+    void pointsBufferedBeforeACrashShouldBeReplayedAndWrittenAfterRestart(@TempDir Path walDirectory) throws IOException {
+        TelemetryPersistenceProperties properties = walProperties(walDirectory);
+        TelemetryPersistenceServiceImpl crashed = new TelemetryPersistenceServiceImpl(
+                batch -> writtenBatches.add(List.copyOf(batch)), properties, meterRegistry);
+        crashed.afterPropertiesSet();
+        Device device = device();
+        Telemetry first = telemetry(device, 0);
+        first.setSpeed(1.5);
+        first.setBatteryLevel(78);
+        first.setStatusCollar(StatusCollar.ACTIF);
+        crashed.buffer(first);
+        crashed.buffer(telemetry(device, 1));
+        crashed.buffer(telemetry(device, 2));
+        // no flush, no destroy: the process dies here
+
+        SimpleMeterRegistry restartRegistry = new SimpleMeterRegistry();
+        TelemetryPersistenceServiceImpl restarted = new TelemetryPersistenceServiceImpl(
+                batch -> writtenBatches.add(List.copyOf(batch)), properties, restartRegistry);
+        restarted.afterPropertiesSet();
+        restarted.flush();
+
+        assertThat(restartRegistry.get("telemetry.persistence.wal.replayed").counter().count()).isEqualTo(3d);
+        List<Telemetry> written = writtenBatches.stream().flatMap(List::stream).toList();
+        assertThat(written).extracting(Telemetry::getTs)
+                .containsExactly(BASE_TS, BASE_TS.plusSeconds(1), BASE_TS.plusSeconds(2));
+        Telemetry recovered = written.get(0);
+        assertThat(recovered.getDevice().getId()).isEqualTo(device.getId());
+        assertThat(recovered.getPosition().getCoordinate()).isEqualTo(new Coordinate(-17.4, 14.7));
+        assertThat(recovered.getPosition().getSRID()).isEqualTo(4326);
+        assertThat(recovered.getSpeed()).isEqualTo(1.5);
+        assertThat(recovered.getAccelX()).isNull();
+        assertThat(recovered.getBatteryLevel()).isEqualTo(78);
+        assertThat(recovered.getTransmissionStatus()).isEqualTo(StatutTransmission.ENVOYE);
+        assertThat(recovered.getStatusCollar()).isEqualTo(StatusCollar.ACTIF);
+        // the replayed segment is deleted once the checkpoint moves to the segment opened on restart
+        assertThat(segmentCount(walDirectory)).isEqualTo(1);
+
+        restarted.destroy();
+    }
+
+    @Test
+    void walSegmentsShouldBeKeptUntilTheFlushSucceeds(@TempDir Path walDirectory) throws IOException {
+        TelemetryPersistenceProperties properties = walProperties(walDirectory);
+        TelemetryPersistenceServiceImpl failing = new TelemetryPersistenceServiceImpl(batch -> {
+            throw new IllegalStateException("database unavailable");
+        }, properties, meterRegistry);
+        failing.afterPropertiesSet();
+        Device device = device();
+        failing.buffer(telemetry(device, 0));
+        failing.buffer(telemetry(device, 1));
+        failing.flush();
+
+        assertThat(meterRegistry.get("telemetry.persistence.dropped").tag("reason", "write-failure").counter().count())
+                .isZero();
+        assertThat(meterRegistry.get("telemetry.persistence.buffer.size").gauge().value()).isEqualTo(2d);
+
+        TelemetryPersistenceServiceImpl restarted = new TelemetryPersistenceServiceImpl(
+                batch -> writtenBatches.add(List.copyOf(batch)), properties, new SimpleMeterRegistry());
+        restarted.afterPropertiesSet();
+        restarted.flush();
+
+        assertThat(writtenBatches.stream().flatMap(List::stream).map(Telemetry::getTs))
+                .containsExactly(BASE_TS, BASE_TS.plusSeconds(1));
+        restarted.destroy();
+    }
+
+    @Test
+    void failedBatchShouldBeWrittenByTheNextFlushAndNotReplayedAfterwards(@TempDir Path walDirectory) throws IOException {
+        TelemetryPersistenceProperties properties = walProperties(walDirectory);
+        properties.setBatchSize(2);
+        AtomicInteger attempts = new AtomicInteger();
+        TelemetryPersistenceServiceImpl service = new TelemetryPersistenceServiceImpl(batch -> {
+            if (attempts.incrementAndGet() == 2) {
+                throw new IllegalStateException("database unavailable");
+            }
+            writtenBatches.add(List.copyOf(batch));
+        }, properties, meterRegistry);
+        service.afterPropertiesSet();
+        Device device = device();
+        for (int i = 0; i < 5; i++) {
+            service.buffer(telemetry(device, i));
+        }
+        service.flush();
+        service.buffer(telemetry(device, 5));
+        service.flush();
+
+        assertThat(writtenBatches.stream().flatMap(List::stream).map(Telemetry::getTs))
+                .containsExactlyInAnyOrder(BASE_TS, BASE_TS.plusSeconds(1), BASE_TS.plusSeconds(2),
+                        BASE_TS.plusSeconds(3), BASE_TS.plusSeconds(4), BASE_TS.plusSeconds(5));
+        // flushes commit a position in the log instead of starting a segment each time
+        assertThat(segmentCount(walDirectory)).isEqualTo(1);
+
+        // the process dies here: everything was committed, nothing is replayed
+        SimpleMeterRegistry restartRegistry = new SimpleMeterRegistry();
+        TelemetryPersistenceServiceImpl restarted = new TelemetryPersistenceServiceImpl(
+                batch -> writtenBatches.add(List.copyOf(batch)), properties, restartRegistry);
+        restarted.afterPropertiesSet();
+
+        assertThat(restartRegistry.get("telemetry.persistence.wal.replayed").counter().count()).isZero();
+        restarted.destroy();
+    }
+
+    private TelemetryPersistenceProperties walProperties(Path walDirectory) {
+        TelemetryPersistenceProperties properties = properties(TelemetryPersistenceProperties.Mode.APPEND, 100, 10);
+        properties.getWal().setEnabled(true);
+        properties.getWal().setDirectory(walDirectory.toString());
+        properties.getWal().setSegmentSize(DataSize.ofKilobytes(64));
+        properties.getWal().setFsync(TelemetryPersistenceProperties.FsyncPolicy.NEVER);
+        return properties;
+    }
+
+    private long segmentCount(Path walDirectory) throws IOException {
+        try (Stream<Path> files = Files.list(walDirectory)) {
+            return files.filter(file -> file.getFileName().toString().endsWith(".wal")).count();
+        }
+    }
+
+    private TelemetryPersistenceServiceImpl service(TelemetryPersistenceProperties.Mode mode, int maxEntries, int batchSize) {
+        return new TelemetryPersistenceServiceImpl(
+                batch -> writtenBatches.add(List.copyOf(batch)),
+                properties(mode, maxEntries, batchSize),
+                meterRegistry
+        );
+    }
+
+    private TelemetryPersistenceProperties properties(TelemetryPersistenceProperties.Mode mode, int maxEntries, int batchSize) {
+        TelemetryPersistenceProperties properties = new TelemetryPersistenceProperties();
+        properties.setMode(mode);
+        properties.setMaxEntries(maxEntries);
+        properties.setBatchSize(batchSize);
+        return properties;
+    }
+
+    private Device device() {
+        Device device = new Device();
+        device.setId(UUID.randomUUID());
+        return device;
+    }
+
+    private Telemetry telemetry(Device device, int secondsOffset) {
+        Telemetry telemetry = new Telemetry();
+        telemetry.setDevice(device);
+        telemetry.setPosition(GEOMETRY_FACTORY.createPoint(new Coordinate(-17.4, 14.7)));
+        telemetry.setTransmissionStatus(StatutTransmission.ENVOYE);
+        telemetry.setTs(BASE_TS.plusSeconds(secondsOffset));
+        return telemetry;
+    }
+}